@@ -77,6 +77,9 @@ public class Constants {
 
   public static final String ZBULK_FAILED_COPYQ = "/bulk_failed_copyq";
 
+  public static final String ZCOMPACTIONS = "/compactions";
+  public static final String ZCOMPACTION_RESULTS = "/compaction_results";
+
   public static final String ZHDFS_RESERVATIONS = "/hdfs_reservations";
   public static final String ZRECOVERY = "/recovery";
 
@@ -106,6 +109,9 @@ public class Constants {
   // fetching the next batch.
   public static final long SCANNER_DEFAULT_READAHEAD_THRESHOLD = 3L;
 
+  // Scanners will default to prefetching one batch at a time once read-ahead has begun.
+  public static final int SCANNER_DEFAULT_READAHEAD_DEPTH = 1;
+
   // Security configuration
   public static final String PW_HASH_ALGORITHM = "SHA-256";
 
@@ -17,6 +17,7 @@
 package org.apache.accumulo.core.client;
 
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 import org.apache.accumulo.core.client.admin.InstanceOperations;
 import org.apache.accumulo.core.client.admin.NamespaceOperations;
@@ -193,6 +194,47 @@ public interface AccumuloClient {
   Scanner createScanner(String tableName, Authorizations authorizations)
       throws TableNotFoundException;
 
+  /**
+   * Factory method to create an AsyncScanner connected to Accumulo. Requests to tablet servers are
+   * made by a pool of 16 threads shared by all async scanners, which only uses a thread while a
+   * request is in progress. Requests made while all of its threads are busy wait for one.
+   *
+   * @param tableName
+   *          the name of the table to query data from
+   * @param authorizations
+   *          A set of authorization labels that will be checked against the column visibility of
+   *          each key in order to filter data. The authorizations passed in must be a subset of the
+   *          accumulo user's set of authorizations. If the accumulo user has authorizations (A1,
+   *          A2) and authorizations (A2, A3) are passed, then an exception will be thrown.
+   *
+   * @return AsyncScanner object for configuring and querying data with
+   * @throws TableNotFoundException
+   *           when the specified table doesn't exist
+   */
+  AsyncScanner createAsyncScanner(String tableName, Authorizations authorizations)
+      throws TableNotFoundException;
+
+  /**
+   * Factory method to create an AsyncScanner connected to Accumulo that makes requests to tablet
+   * servers using the given executor.
+   *
+   * @param tableName
+   *          the name of the table to query data from
+   * @param authorizations
+   *          A set of authorization labels that will be checked against the column visibility of
+   *          each key in order to filter data. The authorizations passed in must be a subset of the
+   *          accumulo user's set of authorizations. If the accumulo user has authorizations (A1,
+   *          A2) and authorizations (A2, A3) are passed, then an exception will be thrown.
+   * @param executor
+   *          runs the requests to tablet servers, each request blocks the thread running it
+   *
+   * @return AsyncScanner object for configuring and querying data with
+   * @throws TableNotFoundException
+   *           when the specified table doesn't exist
+   */
+  AsyncScanner createAsyncScanner(String tableName, Authorizations authorizations,
+      Executor executor) throws TableNotFoundException;
+
   /**
    * Factory method to create a ConditionalWriter connected to Accumulo.
    *
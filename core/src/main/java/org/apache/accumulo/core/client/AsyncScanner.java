@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client;
+
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A {@link Scanner} that can also return its results a batch at a time without blocking the calling
+ * thread. Calls to tablet servers are made by an {@link Executor}, so many scans can be in progress
+ * without dedicating a thread to each of them.
+ *
+ * <p>
+ * As soon as a batch is available the request for the following batch is sent, so that it runs
+ * while the caller processes the current batch. The options of the scanner are read when the first
+ * batch is requested, changing them afterwards does not affect batches returned by
+ * {@link #nextBatch()}. Scans started with {@link #iterator()} are independent of the batches
+ * returned by {@link #nextBatch()}.
+ *
+ * @since 2.0.0
+ */
+public interface AsyncScanner extends Scanner {
+
+  /**
+   * Returns a future for the next batch of key/value pairs. The future completes with an empty list
+   * once the scan is finished. If the scan fails the future completes exceptionally, with the same
+   * exceptions that the scanner's iterator would throw as the cause, and all later batches fail in
+   * the same way.
+   *
+   * <p>
+   * This method does not block. It may be called again before the previous future completes, the
+   * futures complete in the order they were requested.
+   *
+   * @return a future for the next batch of key/value pairs, in sorted order
+   * @throws IllegalStateException
+   *           if the scanner was closed
+   */
+  CompletableFuture<List<Entry<Key,Value>>> nextBatch();
+}
@@ -41,7 +41,9 @@ import org.apache.accumulo.core.data.Range;
  * </ul>
  *
  * To re-emphasize, only use a BatchScanner when you do not care whether returned data is in sorted
- * order. Use a {@link Scanner} instead when sorted order is important.
+ * order. Use a {@link Scanner} instead when sorted order is important, or enable
+ * {@link #setOrdered(boolean) ordered} mode to scan tablets in parallel and still receive results
+ * in sorted order.
  *
  * <p>
  * A BatchScanner instance will use no more threads than provided in the construction of the
@@ -71,4 +73,26 @@ public interface BatchScanner extends ScannerBase {
    */
   @Override
   void setTimeout(long timeout, TimeUnit timeUnit);
+
+  /**
+   * Returns whether iterators created by this batch scanner return entries in sorted order.
+   *
+   * @return true if ordered mode is enabled
+   * @since 2.0.0
+   */
+  boolean isOrdered();
+
+  /**
+   * Enables or disables ordered mode for iterators created after this call. In ordered mode the
+   * ranges are still scanned in parallel, one tablet per query thread, but entries are returned in
+   * sorted order, as a {@link Scanner} would return them. Results of tablets that are ahead of the
+   * caller are buffered in memory up to a limit per tablet, further results are spilled to local
+   * disk until the caller reaches them. The limit and the spill directory are set with the client
+   * properties {@code batch.scanner.ordered.buffer.bytes} and {@code batch.scanner.spill.dir}.
+   *
+   * @param ordered
+   *          true to return entries in sorted order
+   * @since 2.0.0
+   */
+  void setOrdered(boolean ordered);
 }
@@ -49,6 +49,9 @@ public class BatchWriterConfig implements Writable {
   private static final Integer DEFAULT_MAX_WRITE_THREADS = 3;
   private Integer maxWriteThreads = null;
 
+  private static final Integer DEFAULT_BUFFER_STRIPES = 1;
+  private Integer bufferStripes = null;
+
   private Durability durability = Durability.DEFAULT;
   private boolean isDurabilitySet = false;
 
@@ -163,6 +166,30 @@ public class BatchWriterConfig implements Writable {
     return this;
   }
 
+  /**
+   * Sets the number of buffers that mutations are added to before they are sent to tablet servers.
+   * Threads adding mutations are spread across the buffers, so when many threads share a single
+   * {@link BatchWriter} a value near the number of those threads reduces contention. The max memory
+   * is shared by all of the buffers.
+   *
+   * <p>
+   * <b>Default:</b> 1
+   *
+   * @param bufferStripes
+   *          the number of buffers
+   * @throws IllegalArgumentException
+   *           if {@code bufferStripes} is non-positive
+   * @return {@code this} to allow chaining of set methods
+   * @since 2.0.0
+   */
+  public BatchWriterConfig setBufferStripes(int bufferStripes) {
+    if (bufferStripes <= 0)
+      throw new IllegalArgumentException("Buffer stripes must be positive " + bufferStripes);
+
+    this.bufferStripes = bufferStripes;
+    return this;
+  }
+
   public long getMaxMemory() {
     return maxMemory != null ? maxMemory : DEFAULT_MAX_MEMORY;
   }
@@ -180,6 +207,14 @@ public class BatchWriterConfig implements Writable {
     return maxWriteThreads != null ? maxWriteThreads : DEFAULT_MAX_WRITE_THREADS;
   }
 
+  /**
+   * @since 2.0.0
+   * @return the number of buffers mutations are added to
+   */
+  public int getBufferStripes() {
+    return bufferStripes != null ? bufferStripes : DEFAULT_BUFFER_STRIPES;
+  }
+
   /**
    * @since 1.7.0
    * @return the durability to be used by the BatchWriter
@@ -218,6 +253,8 @@ public class BatchWriterConfig implements Writable {
       addField(fields, "timeout", timeout);
     if (durability != Durability.DEFAULT)
       addField(fields, "durability", durability);
+    if (bufferStripes != null)
+      addField(fields, "bufferStripes", bufferStripes);
     String output = StringUtils.join(",", fields);
 
     byte[] bytes = output.getBytes(UTF_8);
@@ -261,6 +298,8 @@ public class BatchWriterConfig implements Writable {
         timeout = Long.valueOf(value);
       } else if ("durability".equals(key)) {
         durability = DurabilityImpl.fromString(value);
+      } else if ("bufferStripes".equals(key)) {
+        bufferStripes = Integer.valueOf(value);
       } else {
         /* ignore any other properties */
       }
@@ -311,6 +350,16 @@ public class BatchWriterConfig implements Writable {
           return false;
         }
       }
+
+      if (null != bufferStripes) {
+        if (!bufferStripes.equals(other.bufferStripes)) {
+          return false;
+        }
+      } else {
+        if (null != other.bufferStripes) {
+          return false;
+        }
+      }
       return durability == other.durability;
     }
 
@@ -338,6 +387,7 @@ public class BatchWriterConfig implements Writable {
     result.maxLatency = merge(this.maxLatency, other.maxLatency);
     result.timeout = merge(this.timeout, other.timeout);
     result.maxWriteThreads = merge(this.maxWriteThreads, other.maxWriteThreads);
+    result.bufferStripes = merge(this.bufferStripes, other.bufferStripes);
     if (this.isDurabilitySet) {
       result.durability = this.durability;
     } else if (other.isDurabilitySet) {
@@ -350,7 +400,7 @@ public class BatchWriterConfig implements Writable {
   public int hashCode() {
     HashCodeBuilder hcb = new HashCodeBuilder();
     hcb.append(maxMemory).append(maxLatency).append(maxWriteThreads).append(timeout)
-        .append(durability);
+        .append(durability).append(bufferStripes);
     return hcb.toHashCode();
   }
 
@@ -360,7 +410,8 @@ public class BatchWriterConfig implements Writable {
     sb.append("[maxMemory=").append(getMaxMemory()).append(", maxLatency=")
         .append(getMaxLatency(TimeUnit.MILLISECONDS)).append(", maxWriteThreads=")
         .append(getMaxWriteThreads()).append(", timeout=").append(getTimeout(TimeUnit.MILLISECONDS))
-        .append(", durability=").append(durability).append("]");
+        .append(", durability=").append(durability).append(", bufferStripes=")
+        .append(getBufferStripes()).append("]");
     return sb.toString();
   }
 }
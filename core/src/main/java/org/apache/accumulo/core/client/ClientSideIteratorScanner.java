@@ -73,6 +73,7 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
   private Range range;
   private boolean isolated = false;
   private long readaheadThreshold = Constants.SCANNER_DEFAULT_READAHEAD_THRESHOLD;
+  private int readaheadDepth = Constants.SCANNER_DEFAULT_READAHEAD_DEPTH;
   private SamplerConfiguration iteratorSamplerConfig;
 
   private class ClientSideIteratorEnvironment implements IteratorEnvironment {
@@ -231,6 +232,7 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
     this.timeOut = scanner.getTimeout(TimeUnit.MILLISECONDS);
     this.batchTimeOut = scanner.getTimeout(TimeUnit.MILLISECONDS);
     this.readaheadThreshold = scanner.getReadaheadThreshold();
+    this.readaheadDepth = scanner.getReadaheadDepth();
     SamplerConfiguration samplerConfig = scanner.getSamplerConfiguration();
     if (samplerConfig != null)
       setSamplerConfiguration(samplerConfig);
@@ -249,6 +251,7 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
     smi.scanner.setTimeout(timeOut, TimeUnit.MILLISECONDS);
     smi.scanner.setBatchTimeout(batchTimeOut, TimeUnit.MILLISECONDS);
     smi.scanner.setReadaheadThreshold(readaheadThreshold);
+    smi.scanner.setReadaheadDepth(readaheadDepth);
     if (isolated)
       smi.scanner.enableIsolation();
     else
@@ -335,6 +338,19 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
     this.readaheadThreshold = batches;
   }
 
+  @Override
+  public int getReadaheadDepth() {
+    return readaheadDepth;
+  }
+
+  @Override
+  public void setReadaheadDepth(int depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Read-ahead depth must be positive");
+    }
+    this.readaheadDepth = depth;
+  }
+
   private SamplerConfiguration getIteratorSamplerConfigurationInternal() {
     SamplerConfiguration scannerSamplerConfig = getSamplerConfiguration();
     if (scannerSamplerConfig != null) {
@@ -54,6 +54,7 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
     private Range range;
     private int batchSize;
     private long readaheadThreshold;
+    private int readaheadDepth;
 
     private void readRow() {
 
@@ -126,6 +127,7 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
         scanner.setTimeout(timeout, TimeUnit.MILLISECONDS);
         scanner.setRange(r);
         scanner.setReadaheadThreshold(readaheadThreshold);
+        scanner.setReadaheadDepth(readaheadDepth);
         setOptions((ScannerOptions) scanner, opts);
 
         return scanner.iterator();
@@ -134,13 +136,15 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
     }
 
     public RowBufferingIterator(Scanner scanner, ScannerOptions opts, Range range, long timeout,
-        int batchSize, long readaheadThreshold, RowBufferFactory bufferFactory) {
+        int batchSize, long readaheadThreshold, int readaheadDepth,
+        RowBufferFactory bufferFactory) {
       this.scanner = scanner;
       this.opts = new ScannerOptions(opts);
       this.range = range;
       this.timeout = timeout;
       this.batchSize = batchSize;
       this.readaheadThreshold = readaheadThreshold;
+      this.readaheadDepth = readaheadDepth;
 
       buffer = bufferFactory.newBuffer();
 
@@ -217,6 +221,7 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
   private Range range;
   private int batchSize;
   private long readaheadThreshold;
+  private int readaheadDepth;
   private RowBufferFactory bufferFactory;
 
   public IsolatedScanner(Scanner scanner) {
@@ -230,13 +235,14 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
     this.batchTimeOut = scanner.getBatchTimeout(TimeUnit.MILLISECONDS);
     this.batchSize = scanner.getBatchSize();
     this.readaheadThreshold = scanner.getReadaheadThreshold();
+    this.readaheadDepth = scanner.getReadaheadDepth();
     this.bufferFactory = bufferFactory;
   }
 
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     return new RowBufferingIterator(scanner, this, range, timeOut, batchSize, readaheadThreshold,
-        bufferFactory);
+        readaheadDepth, bufferFactory);
   }
 
   @Override
@@ -283,4 +289,18 @@ public class IsolatedScanner extends ScannerOptions implements Scanner {
 
     this.readaheadThreshold = batches;
   }
+
+  @Override
+  public int getReadaheadDepth() {
+    return readaheadDepth;
+  }
+
+  @Override
+  public void setReadaheadDepth(int depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Read-ahead depth must be positive");
+    }
+
+    this.readaheadDepth = depth;
+  }
 }
@@ -89,4 +89,25 @@ public interface Scanner extends ScannerBase {
    * @since 1.6.0
    */
   void setReadaheadThreshold(long batches);
+
+  /**
+   * The maximum number of batches of Key/Value pairs the {@link Scanner} will prefetch once
+   * read-ahead has begun.
+   *
+   * @return Maximum number of prefetched batches
+   * @since 2.0.0
+   */
+  int getReadaheadDepth();
+
+  /**
+   * Sets the maximum number of batches of Key/Value pairs the {@link Scanner} will prefetch once
+   * read-ahead has begun. Prefetched batches are held in memory until they are read, so a larger
+   * depth trades client memory for fewer stalls when the caller processes batches faster than a
+   * single request to a tablet server completes.
+   *
+   * @param depth
+   *          Positive number of batches
+   * @since 2.0.0
+   */
+  void setReadaheadDepth(int depth);
 }
@@ -725,6 +725,20 @@ public interface TableOperations {
    */
   void clearLocatorCache(String tableName) throws TableNotFoundException;
 
+  /**
+   * Loads the locations of all tablets of a table into the tablet locator cache, using a single
+   * scan of the metadata table instead of one lookup per tablet. Calling this before writing to or
+   * scanning many tablets of a table avoids looking up their locations one at a time.
+   *
+   * @param tableName
+   *          the name of the table
+   * @throws TableNotFoundException
+   *           if table does not exist
+   * @since 2.0.0
+   */
+  void cacheTabletLocations(String tableName)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException;
+
   /**
    * Get a mapping of table name to internal table id.
    *
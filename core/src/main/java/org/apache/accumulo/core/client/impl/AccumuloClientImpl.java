@@ -20,12 +20,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.Accumulo;
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncScanner;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -165,7 +167,29 @@ public class AccumuloClientImpl implements AccumuloClient {
       throws TableNotFoundException {
     checkArgument(tableName != null, "tableName is null");
     checkArgument(authorizations != null, "authorizations is null");
-    Scanner scanner = new ScannerImpl(context, getTableId(tableName), authorizations);
+    return configureScanner(new ScannerImpl(context, getTableId(tableName), authorizations));
+  }
+
+  @Override
+  public AsyncScanner createAsyncScanner(String tableName, Authorizations authorizations)
+      throws TableNotFoundException {
+    checkArgument(tableName != null, "tableName is null");
+    checkArgument(authorizations != null, "authorizations is null");
+    return configureScanner(
+        new AsyncScannerImpl(context, getTableId(tableName), authorizations));
+  }
+
+  @Override
+  public AsyncScanner createAsyncScanner(String tableName, Authorizations authorizations,
+      Executor executor) throws TableNotFoundException {
+    checkArgument(tableName != null, "tableName is null");
+    checkArgument(authorizations != null, "authorizations is null");
+    checkArgument(executor != null, "executor is null");
+    return configureScanner(
+        new AsyncScannerImpl(context, getTableId(tableName), authorizations, executor));
+  }
+
+  private <T extends Scanner> T configureScanner(T scanner) {
     Integer batchSize = ClientProperty.SCANNER_BATCH_SIZE
         .getInteger(context.getClientInfo().getProperties());
     if (batchSize != null) {
@@ -324,6 +348,8 @@ public class AccumuloClientImpl implements AccumuloClient {
           batchWriterConfig.getMaxWriteThreads());
       setProperty(ClientProperty.BATCH_WRITER_DURABILITY,
           batchWriterConfig.getDurability().toString());
+      setProperty(ClientProperty.BATCH_WRITER_BUFFER_STRIPES,
+          batchWriterConfig.getBufferStripes());
       return this;
     }
 
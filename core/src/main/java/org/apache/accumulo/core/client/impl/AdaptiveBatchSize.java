@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.impl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+
+/**
+ * Tracks the number of bytes of mutations the batch writer sends to one tablet server in a single
+ * update session. The size starts at the maximum, so a healthy server receives everything that is
+ * queued for it. When a session is slower than the target latency or fails, which is how a server
+ * that is holding commits appears to the client, the size is halved. While sessions that use the
+ * whole size complete quickly the size grows back by a quarter at a time.
+ */
+class AdaptiveBatchSize {
+
+  static final long MIN_SIZE = 1 << 17;
+  static final long TARGET_LATENCY_MS = 2000;
+
+  private final long maxSize;
+  private final long targetLatency;
+  private long size;
+
+  AdaptiveBatchSize(long maxSize) {
+    this(maxSize, TARGET_LATENCY_MS);
+  }
+
+  AdaptiveBatchSize(long maxSize, long targetLatency) {
+    this.maxSize = Math.max(MIN_SIZE, maxSize);
+    this.targetLatency = targetLatency;
+    this.size = this.maxSize;
+  }
+
+  synchronized long get() {
+    return size;
+  }
+
+  /**
+   * Update the size after {@code bytes} of mutations were written in {@code latency} milliseconds.
+   */
+  synchronized void succeeded(long bytes, long latency) {
+    if (latency > targetLatency) {
+      size = Math.max(MIN_SIZE, size / 2);
+    } else if (bytes >= size) {
+      size = Math.min(maxSize, size + size / 4);
+    }
+  }
+
+  synchronized void failed() {
+    size = Math.max(MIN_SIZE, size / 2);
+  }
+
+  /**
+   * Removes mutations from {@code tsm} after the first {@code limit} bytes. At least one mutation is
+   * always left in {@code tsm} and the order of the mutations for each tablet is preserved.
+   *
+   * @return the mutations that were removed or null if {@code tsm} was under the limit
+   */
+  static <T extends Mutation> TabletServerMutations<T> split(TabletServerMutations<T> tsm,
+      long limit) {
+    TabletServerMutations<T> remaining = null;
+    long size = 0;
+
+    Iterator<Entry<KeyExtent,List<T>>> iter = tsm.getMutations().entrySet().iterator();
+    while (iter.hasNext()) {
+      Entry<KeyExtent,List<T>> entry = iter.next();
+      List<T> tabletMutations = entry.getValue();
+
+      if (size >= limit) {
+        if (remaining == null)
+          remaining = new TabletServerMutations<>(tsm.getSession());
+        remaining.getMutations().put(entry.getKey(), tabletMutations);
+        iter.remove();
+        continue;
+      }
+
+      for (int i = 0; i < tabletMutations.size(); i++) {
+        size += tabletMutations.get(i).numBytes();
+        if (size >= limit && i + 1 < tabletMutations.size()) {
+          // the writer casts these lists to ArrayList, so copy instead of keeping the sub list
+          List<T> tail = tabletMutations.subList(i + 1, tabletMutations.size());
+          remaining = new TabletServerMutations<>(tsm.getSession());
+          remaining.getMutations().put(entry.getKey(), new ArrayList<>(tail));
+          tail.clear();
+          break;
+        }
+      }
+    }
+
+    return remaining;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncScanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanState;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanTimedOutException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads batches for {@link AsyncScanner#nextBatch()} on an executor. Each batch is chained on the
+ * previous one, so at most one call to {@link ThriftScanner#scan} is in progress for a scan and the
+ * scan state is never used by two threads at once.
+ */
+public class AsyncScannerImpl extends ScannerImpl implements AsyncScanner {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncScannerImpl.class);
+
+  private static final List<KeyValue> EMPTY_LIST = Collections.emptyList();
+
+  private static final int DEFAULT_THREADS = 16;
+
+  // threads are only used while a request to a tablet server is in progress, requests made while
+  // all of them are busy wait in the queue
+  private static final ThreadPoolExecutor defaultExecutor = createDefaultExecutor();
+
+  private static ThreadPoolExecutor createDefaultExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 3L,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new NamingThreadFactory("Accumulo async scanner thread"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private final Executor executor;
+
+  private ScanState scanState;
+  private long timeOut;
+  private CompletableFuture<List<KeyValue>> nextBatch;
+  private boolean closed = false;
+
+  public AsyncScannerImpl(ClientContext context, Table.ID tableId, Authorizations authorizations) {
+    this(context, tableId, authorizations, defaultExecutor);
+  }
+
+  public AsyncScannerImpl(ClientContext context, Table.ID tableId, Authorizations authorizations,
+      Executor executor) {
+    super(context, tableId, authorizations);
+    checkArgument(executor != null, "executor is null");
+    this.executor = executor;
+  }
+
+  @Override
+  public synchronized CompletableFuture<List<Entry<Key,Value>>> nextBatch() {
+    if (closed)
+      throw new IllegalStateException("Scanner is closed");
+
+    if (nextBatch == null) {
+      scanState = newScanState();
+      timeOut = getTimeout(TimeUnit.SECONDS);
+      nextBatch = CompletableFuture.supplyAsync(this::readBatch, executor);
+    }
+
+    CompletableFuture<List<KeyValue>> current = nextBatch;
+    // request the following batch as soon as this one arrives, unless the scan is finished
+    nextBatch = current.thenCompose(batch -> batch.isEmpty() ? current
+        : CompletableFuture.supplyAsync(this::readBatch, executor));
+
+    return current.thenApply(batch -> Collections.<Entry<Key,Value>> unmodifiableList(batch));
+  }
+
+  private List<KeyValue> readBatch() {
+    try {
+      while (true) {
+        List<KeyValue> batch = ThriftScanner.scan(scanState.context, scanState, timeOut);
+
+        if (batch == null)
+          return EMPTY_LIST;
+
+        if (batch.size() > 0)
+          return batch;
+      }
+    } catch (ScanTimedOutException | AccumuloException | AccumuloSecurityException
+        | TableNotFoundException e) {
+      log.trace("{}", e.getMessage(), e);
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Stops requesting batches. A request to a tablet server that is already in progress is allowed
+   * to finish.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (nextBatch != null) {
+      nextBatch.cancel(false);
+    }
+    super.close();
+  }
+}
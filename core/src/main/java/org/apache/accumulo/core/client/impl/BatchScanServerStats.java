@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistics about the multi scans that the batch scanners of one {@link ClientContext} sent to
+ * each tablet server. The average time a server takes to scan a range is used to decide how to
+ * divide the ranges of later batch scans, the totals can be used to monitor the client.
+ */
+public class BatchScanServerStats {
+
+  // weight of the most recent lookup in the average time per range
+  private static final double ALPHA = 0.3;
+
+  public static class ServerStats {
+    private long lookups = 0;
+    private long ranges = 0;
+    private long entries = 0;
+    private long bytes = 0;
+    private long time = 0;
+    private double millisPerRange = -1;
+
+    synchronized void record(int ranges, long entries, long bytes, long time) {
+      this.lookups++;
+      this.ranges += ranges;
+      this.entries += entries;
+      this.bytes += bytes;
+      this.time += time;
+
+      if (ranges > 0) {
+        double sample = (double) time / ranges;
+        millisPerRange = millisPerRange < 0 ? sample
+            : ALPHA * sample + (1 - ALPHA) * millisPerRange;
+      }
+    }
+
+    /**
+     * @return the number of multi scans sent to the server
+     */
+    public synchronized long getLookups() {
+      return lookups;
+    }
+
+    /**
+     * @return the number of ranges sent to the server
+     */
+    public synchronized long getRanges() {
+      return ranges;
+    }
+
+    /**
+     * @return the number of key/value pairs returned by the server
+     */
+    public synchronized long getEntries() {
+      return entries;
+    }
+
+    /**
+     * @return the size in bytes of the key/value pairs returned by the server
+     */
+    public synchronized long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return the milliseconds spent in multi scans of the server, including failed ones
+     */
+    public synchronized long getTime() {
+      return time;
+    }
+
+    /**
+     * @return the average milliseconds the server took per range, weighted towards recent multi
+     *         scans, or a negative number if nothing was recorded
+     */
+    public synchronized double getMillisPerRange() {
+      return millisPerRange;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return String.format("lookups=%,d ranges=%,d entries=%,d bytes=%,d time=%,dms"
+          + " msPerRange=%.3f", lookups, ranges, entries, bytes, time, millisPerRange);
+    }
+  }
+
+  private final Map<String,ServerStats> stats = new ConcurrentHashMap<>();
+
+  void record(String server, int ranges, long entries, long bytes, long time) {
+    stats.computeIfAbsent(server, s -> new ServerStats()).record(ranges, entries, bytes, time);
+  }
+
+  /**
+   * @return the statistics of each tablet server, by server location
+   */
+  public Map<String,ServerStats> getStats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  /**
+   * Estimates the milliseconds each server will take per range. Servers without history are
+   * assumed to be as fast as the average server.
+   */
+  Map<String,Double> getMillisPerRange(Iterable<String> servers) {
+    double sum = 0;
+    int count = 0;
+    Map<String,Double> estimates = new HashMap<>();
+    for (String server : servers) {
+      ServerStats serverStats = stats.get(server);
+      double millis = serverStats == null ? -1 : serverStats.getMillisPerRange();
+      estimates.put(server, millis);
+      if (millis >= 0) {
+        sum += millis;
+        count++;
+      }
+    }
+
+    // a server that returned everything instantly still has some cost
+    double average = count == 0 ? 1.0 : Math.max(sum / count, 0.001);
+    for (Entry<String,Double> entry : estimates.entrySet()) {
+      if (entry.getValue() < 0)
+        entry.setValue(average);
+      else
+        entry.setValue(Math.max(entry.getValue(), 0.001));
+    }
+    return estimates;
+  }
+}
@@ -22,6 +22,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -33,11 +36,13 @@ import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.ClientInfo;
 import org.apache.accumulo.core.client.security.tokens.AuthenticationToken;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ClientProperty;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.metadata.RootTable;
 import org.apache.accumulo.core.rpc.SaslConnectionParams;
 import org.apache.accumulo.core.rpc.SslConnectionParams;
 import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.accumulo.core.util.NamingThreadFactory;
 import org.apache.accumulo.core.util.OpTimer;
 import org.apache.accumulo.fate.zookeeper.ZooCache;
 import org.apache.accumulo.fate.zookeeper.ZooCacheFactory;
@@ -72,10 +77,14 @@ public class ClientContext {
   // These fields are very frequently accessed (each time a connection is created) and expensive to
   // compute, so cache them.
   private Supplier<Long> timeoutSupplier;
+  private Supplier<Integer> maxConnectionsSupplier;
   private Supplier<SaslConnectionParams> saslSupplier;
   private Supplier<SslConnectionParams> sslSupplier;
   private TCredentials rpcCreds;
 
+  private final BatchScanServerStats batchScanServerStats = new BatchScanServerStats();
+  private ThreadPoolExecutor locationPrefetchPool = null;
+
   private static <T> Supplier<T> memoizeWithExpiration(Supplier<T> s) {
     // This insanity exists to make modernizer plugin happy. We are living in the future now.
     return () -> Suppliers.memoizeWithExpiration(s::get, 100, TimeUnit.MILLISECONDS).get();
@@ -92,6 +101,8 @@ public class ClientContext {
     this.serverConf = serverConf;
     timeoutSupplier = memoizeWithExpiration(
         () -> getConfiguration().getTimeInMillis(Property.GENERAL_RPC_TIMEOUT));
+    maxConnectionsSupplier = memoizeWithExpiration(
+        () -> getConfiguration().getCount(Property.GENERAL_RPC_MAX_CONNECTIONS_PER_SERVER));
     sslSupplier = memoizeWithExpiration(() -> SslConnectionParams.forClient(getConfiguration()));
     saslSupplier = memoizeWithExpiration(
         () -> SaslConnectionParams.from(getConfiguration(), getCredentials().getToken()));
@@ -195,6 +206,14 @@ public class ClientContext {
     return timeoutSupplier.get();
   }
 
+  /**
+   * Retrieve the number of connections to a server above which RPC clients share connections, zero
+   * for no limit
+   */
+  public int getMaxConnectionsPerServer() {
+    return maxConnectionsSupplier.get();
+  }
+
   /**
    * Retrieve SSL/TLS configuration to initiate an RPC connection to a server
    */
@@ -227,6 +246,29 @@ public class ClientContext {
     return batchWriterConfig;
   }
 
+  /**
+   * @return statistics about the multi scans that batch scanners created with this context sent to
+   *         each tablet server
+   */
+  public BatchScanServerStats getBatchScanServerStats() {
+    return batchScanServerStats;
+  }
+
+  /**
+   * @return the pool that tablet locators use to read tablet locations from several metadata
+   *         tablet servers at once, its size is set by
+   *         {@link ClientProperty#TABLET_LOCATOR_PREFETCH_THREADS} and idle threads time out
+   */
+  public synchronized ExecutorService getLocationPrefetchPool() {
+    if (locationPrefetchPool == null) {
+      int threads = ClientProperty.TABLET_LOCATOR_PREFETCH_THREADS.getInteger(getProperties());
+      locationPrefetchPool = new ThreadPoolExecutor(threads, threads, 3L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), new NamingThreadFactory("Tablet location prefetch"));
+      locationPrefetchPool.allowCoreThreadTimeOut(true);
+    }
+    return locationPrefetchPool;
+  }
+
   /**
    * Serialize the credentials just before initiating the RPC call
    */
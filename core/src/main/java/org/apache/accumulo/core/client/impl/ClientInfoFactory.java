@@ -62,6 +62,11 @@ public class ClientInfoFactory {
     if (timeout != null) {
       batchWriterConfig.setTimeout(timeout, TimeUnit.SECONDS);
     }
+    Integer bufferStripes = ClientProperty.BATCH_WRITER_BUFFER_STRIPES
+        .getInteger(info.getProperties());
+    if (bufferStripes != null) {
+      batchWriterConfig.setBufferStripes(bufferStripes);
+    }
     String durability = getString(info, ClientProperty.BATCH_WRITER_DURABILITY);
     if (!durability.isEmpty()) {
       batchWriterConfig.setDurability(Durability.valueOf(durability.toUpperCase()));
@@ -99,4 +99,14 @@ public class OfflineScanner extends ScannerOptions implements Scanner {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public int getReadaheadDepth() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setReadaheadDepth(int depth) {
+    throw new UnsupportedOperationException();
+  }
+
 }
@@ -0,0 +1,464 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.TimedOutException;
+import org.apache.accumulo.core.client.impl.TabletServerBatchReaderIterator.ResultReceiver;
+import org.apache.accumulo.core.client.impl.TabletServerBatchReaderIterator.TimeoutTracker;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.htrace.wrappers.TraceRunnable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Returns the results of a batch scan in key order. Each tablet the ranges fall in is a segment,
+ * and the query threads scan the segments in parallel, starting with the first. A segment reads
+ * all ranges of its tablet with a single multi scan, which returns them in order. Since tablets do
+ * not overlap, returning each segment in turn returns all keys in sorted order.
+ *
+ * <p>
+ * Query threads never wait for the caller. The results of each segment are buffered in memory up to
+ * a limit, and results that arrive while the buffer is full are spilled to a local file until the
+ * caller catches up. Memory is also limited for all segments together, so segments that finished
+ * far ahead of the caller do not hold more than their share.
+ */
+public class OrderedBatchReaderIterator implements Iterator<Entry<Key,Value>> {
+
+  private static final Logger log = LoggerFactory.getLogger(OrderedBatchReaderIterator.class);
+
+  private final ExecutorService queryThreadPool;
+  private final List<Segment> segments = new ArrayList<>();
+
+  private int currentSegment = 0;
+  private Iterator<Entry<Key,Value>> batchIterator = null;
+
+  public OrderedBatchReaderIterator(ClientContext context, Table.ID tableId,
+      Authorizations authorizations, List<Range> ranges, int numThreads,
+      ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout,
+      long bufferSize, File spillDir) {
+    this.queryThreadPool = queryThreadPool;
+
+    ScannerOptions options = new ScannerOptions(scannerOptions);
+    AtomicLong bufferedBytes = new AtomicLong(0);
+    long maxBufferedBytes = bufferSize * numThreads;
+
+    if (options.fetchedColumns.size() > 0) {
+      List<Range> bounded = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        bounded.add(range.bound(options.fetchedColumns.first(), options.fetchedColumns.last()));
+      }
+      ranges = bounded;
+    }
+
+    ScanContext scanContext = new ScanContext(context, tableId,
+        new TimeoutTabletLocator(timeout, context, tableId), authorizations, options, timeout);
+
+    try {
+      Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+      TabletServerBatchReaderIterator.binRanges(context, tableId, scanContext.locator,
+          Range.mergeOverlapping(ranges), binnedRanges);
+      for (Entry<String,Map<KeyExtent,List<Range>>> entry : binnedRanges.entrySet()) {
+        for (Entry<KeyExtent,List<Range>> tabletRanges : entry.getValue().entrySet()) {
+          segments.add(new Segment(scanContext,
+              new TabletRanges(entry.getKey(), tabletRanges.getKey(), tabletRanges.getValue()),
+              new SegmentBuffer(bufferSize, bufferedBytes, maxBufferedBytes, spillDir)));
+        }
+      }
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to create iterator", e);
+    }
+
+    segments.sort((s1, s2) -> s1.tablet.extent.compareTo(s2.tablet.extent));
+
+    // the pool runs tasks in the order they were submitted, so the first segments are read first
+    for (Segment segment : segments) {
+      queryThreadPool.execute(new TraceRunnable(segment));
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (batchIterator == null || !batchIterator.hasNext()) {
+      if (currentSegment == segments.size())
+        return false;
+
+      SegmentBuffer buffer = segments.get(currentSegment).buffer;
+      List<Entry<Key,Value>> batch;
+      try {
+        batch = buffer.take(queryThreadPool);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to read spilled batch scan results", e);
+      }
+
+      if (batch == null) {
+        buffer.close();
+        currentSegment++;
+        batchIterator = null;
+      } else {
+        batchIterator = batch.iterator();
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Entry<Key,Value> next() {
+    if (hasNext())
+      return batchIterator.next();
+    throw new NoSuchElementException();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * What the segments of one iterator share.
+   */
+  private static class ScanContext {
+    final ClientContext context;
+    final Table.ID tableId;
+    final TabletLocator locator;
+    final Authorizations authorizations;
+    final ScannerOptions options;
+    final List<Column> columns;
+    final long timeout;
+    final Set<String> timedoutServers = Collections.synchronizedSet(new HashSet<>());
+    final Map<String,TimeoutTracker> timeoutTrackers = Collections
+        .synchronizedMap(new HashMap<>());
+
+    ScanContext(ClientContext context, Table.ID tableId, TabletLocator locator,
+        Authorizations authorizations, ScannerOptions options, long timeout) {
+      this.context = context;
+      this.tableId = tableId;
+      this.locator = locator;
+      this.authorizations = authorizations;
+      this.options = options;
+      this.columns = new ArrayList<>(options.fetchedColumns);
+      this.timeout = timeout;
+    }
+  }
+
+  /**
+   * Sorted ranges within one tablet, and the server the tablet was located at.
+   */
+  private static class TabletRanges {
+    final String server;
+    final KeyExtent extent;
+    final List<Range> ranges;
+
+    TabletRanges(String server, KeyExtent extent, List<Range> ranges) {
+      this.server = server;
+      this.extent = extent;
+      this.ranges = new ArrayList<>(ranges);
+      Collections.sort(this.ranges);
+    }
+  }
+
+  private static class Segment implements Runnable {
+
+    private final ScanContext scanContext;
+    private final TabletRanges tablet;
+    private final SegmentBuffer buffer;
+
+    Segment(ScanContext scanContext, TabletRanges tablet, SegmentBuffer buffer) {
+      this.scanContext = scanContext;
+      this.tablet = tablet;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void run() {
+      ResultReceiver receiver = entries -> {
+        try {
+          buffer.add(entries);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      };
+
+      try {
+        // when the tablet split or moved, what is left of it is scanned tablet by tablet, in order
+        ArrayDeque<TabletRanges> work = new ArrayDeque<>();
+        work.add(tablet);
+        while (!work.isEmpty()) {
+          List<Range> remaining = scan(work.poll(), receiver);
+          if (remaining == null || remaining.isEmpty())
+            continue;
+
+          Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+          TabletServerBatchReaderIterator.binRanges(scanContext.context, scanContext.tableId,
+              scanContext.locator, remaining, binnedRanges);
+          List<TabletRanges> tablets = new ArrayList<>();
+          for (Entry<String,Map<KeyExtent,List<Range>>> entry : binnedRanges.entrySet()) {
+            for (Entry<KeyExtent,List<Range>> tabletRanges : entry.getValue().entrySet()) {
+              tablets.add(new TabletRanges(entry.getKey(), tabletRanges.getKey(),
+                  tabletRanges.getValue()));
+            }
+          }
+          tablets.sort((t1, t2) -> t2.extent.compareTo(t1.extent));
+          for (TabletRanges tr : tablets) {
+            work.addFirst(tr);
+          }
+        }
+        buffer.finish(null);
+      } catch (UncheckedIOException e) {
+        log.debug("Failed to buffer results of {}", tablet.extent, e);
+        buffer.finish(e.getCause());
+      } catch (Exception e) {
+        log.debug("Failed to scan {}", tablet.extent, e);
+        buffer.finish(e);
+      }
+    }
+
+    /**
+     * Reads the ranges of a tablet with one multi scan.
+     *
+     * @return the ranges that were not read, or null if all were
+     */
+    private List<Range> scan(TabletRanges tr, ResultReceiver receiver) throws Exception {
+      if (scanContext.timedoutServers.contains(tr.server))
+        throw new TimedOutException(scanContext.timedoutServers);
+
+      Map<KeyExtent,List<Range>> failures = new HashMap<>();
+      Map<KeyExtent,List<Range>> unscanned = new HashMap<>();
+      try {
+        TabletServerBatchReaderIterator.doLookup(scanContext.context, tr.server,
+            Collections.singletonMap(tr.extent, tr.ranges), failures, unscanned, receiver,
+            scanContext.columns, scanContext.options, scanContext.authorizations,
+            scanContext.timeoutTrackers.computeIfAbsent(tr.server,
+                server -> new TimeoutTracker(server, scanContext.timedoutServers,
+                    scanContext.timeout)));
+        if (failures.isEmpty())
+          return null;
+        scanContext.locator.invalidateCache(failures.keySet());
+        return failures.get(tr.extent);
+      } catch (IOException e) {
+        log.debug("Failed to scan {} at {}, retrying", tr.extent, tr.server, e);
+        scanContext.locator.invalidateCache(scanContext.context, tr.server);
+        Thread.sleep(100);
+        return unscanned.get(tr.extent);
+      }
+    }
+  }
+
+  /**
+   * The batches of one segment, in the order they were read. A batch is held in memory while both
+   * the segment and all segments together are within their memory limits, otherwise it is written
+   * to a spill file and read back when the caller reaches it.
+   */
+  static class SegmentBuffer {
+
+    private static class Batch {
+      // null when the batch was spilled
+      final List<Entry<Key,Value>> entries;
+      final int spilledEntries;
+      final long bytes;
+
+      Batch(List<Entry<Key,Value>> entries, int spilledEntries, long bytes) {
+        this.entries = entries;
+        this.spilledEntries = spilledEntries;
+        this.bytes = bytes;
+      }
+    }
+
+    private final long maxBytes;
+    private final AtomicLong sharedBytes;
+    private final long maxSharedBytes;
+    private final File spillDir;
+
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private long bytes = 0;
+    private int spilledBatches = 0;
+    private boolean finished = false;
+    private Exception exception = null;
+
+    // only used by the thread adding batches
+    private DataOutputStream spillOut = null;
+    // only used by the thread taking batches, after it took a spilled batch
+    private DataInputStream spillIn = null;
+
+    SegmentBuffer(long maxBytes, AtomicLong sharedBytes, long maxSharedBytes, File spillDir) {
+      this.maxBytes = maxBytes;
+      this.sharedBytes = sharedBytes;
+      this.maxSharedBytes = maxSharedBytes;
+      this.spillDir = spillDir;
+    }
+
+    void add(List<? extends Entry<Key,Value>> entries) throws IOException {
+      long batchBytes = 0;
+      for (Entry<Key,Value> entry : entries) {
+        batchBytes += entry.getKey().getSize() + entry.getValue().getSize();
+      }
+
+      boolean inMemory;
+      synchronized (this) {
+        inMemory = bytes + batchBytes <= maxBytes
+            && sharedBytes.get() + batchBytes <= maxSharedBytes;
+        if (inMemory) {
+          bytes += batchBytes;
+          sharedBytes.addAndGet(batchBytes);
+          batches.add(new Batch(Collections.unmodifiableList(entries), 0, batchBytes));
+          notifyAll();
+          return;
+        }
+      }
+
+      // the caller only reads a spilled batch after it was queued, so write it outside the lock
+      if (spillOut == null)
+        openSpillFile();
+      for (Entry<Key,Value> entry : entries) {
+        entry.getKey().write(spillOut);
+        entry.getValue().write(spillOut);
+      }
+      spillOut.flush();
+
+      synchronized (this) {
+        spilledBatches++;
+        batches.add(new Batch(null, entries.size(), batchBytes));
+        notifyAll();
+      }
+    }
+
+    private void openSpillFile() throws IOException {
+      File file = File.createTempFile("accumulo-batch-scan-", ".spill", spillDir);
+      log.debug("Spilling ordered batch scan results to {}", file);
+      FileOutputStream out = new FileOutputStream(file);
+      FileInputStream in;
+      try {
+        in = new FileInputStream(file);
+      } catch (IOException e) {
+        out.close();
+        throw e;
+      }
+      // the open streams keep the data readable, so nothing is left behind if the scan is abandoned
+      if (!file.delete())
+        file.deleteOnExit();
+      spillOut = new DataOutputStream(new BufferedOutputStream(out));
+      synchronized (this) {
+        spillIn = new DataInputStream(new BufferedInputStream(in));
+      }
+    }
+
+    synchronized void finish(Exception e) {
+      finished = true;
+      exception = e;
+      notifyAll();
+    }
+
+    /**
+     * @return the next batch, or null once all batches of the segment were taken
+     */
+    List<Entry<Key,Value>> take(ExecutorService queryThreadPool)
+        throws InterruptedException, IOException {
+      Batch batch;
+      DataInputStream in;
+      synchronized (this) {
+        while (batches.isEmpty() && !finished) {
+          if (queryThreadPool.isShutdown())
+            throw new IllegalStateException(
+                "The BatchScanner was closed while this Iterator was still in use.");
+          wait(1000);
+        }
+
+        batch = batches.poll();
+        if (batch == null) {
+          if (exception instanceof RuntimeException)
+            throw (RuntimeException) exception;
+          if (exception != null)
+            throw new RuntimeException(exception);
+          return null;
+        }
+
+        if (batch.entries != null) {
+          bytes -= batch.bytes;
+          sharedBytes.addAndGet(-batch.bytes);
+          return batch.entries;
+        }
+        in = spillIn;
+      }
+
+      List<Entry<Key,Value>> entries = new ArrayList<>(batch.spilledEntries);
+      for (int i = 0; i < batch.spilledEntries; i++) {
+        Key key = new Key();
+        key.readFields(in);
+        Value value = new Value();
+        value.readFields(in);
+        entries.add(new SimpleImmutableEntry<>(key, value));
+      }
+      return entries;
+    }
+
+    synchronized int getSpilledBatches() {
+      return spilledBatches;
+    }
+
+    /**
+     * Releases the memory and spill file of the segment once the caller read all of it.
+     */
+    synchronized void close() {
+      for (Batch batch : batches) {
+        if (batch.entries != null)
+          sharedBytes.addAndGet(-batch.bytes);
+      }
+      batches.clear();
+      bytes = 0;
+      try {
+        if (spillIn != null)
+          spillIn.close();
+        if (spillOut != null)
+          spillOut.close();
+      } catch (IOException e) {
+        log.debug("Failed to close spill file", e);
+      }
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanState;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -54,6 +55,7 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
   private Range range;
   private boolean isolated = false;
   private long readaheadThreshold = Constants.SCANNER_DEFAULT_READAHEAD_THRESHOLD;
+  private int readaheadDepth = Constants.SCANNER_DEFAULT_READAHEAD_DEPTH;
 
   public ScannerImpl(ClientContext context, Table.ID tableId, Authorizations authorizations) {
     checkArgument(context != null, "context is null");
@@ -94,7 +96,15 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
   @Override
   public synchronized Iterator<Entry<Key,Value>> iterator() {
     return new ScannerIterator(context, tableId, authorizations, range, size,
-        getTimeout(TimeUnit.SECONDS), this, isolated, readaheadThreshold);
+        getTimeout(TimeUnit.SECONDS), this, isolated, readaheadThreshold, readaheadDepth);
+  }
+
+  /**
+   * @return the state for a new scan that uses the current options of this scanner
+   */
+  synchronized ScanState newScanState() {
+    return ScannerIterator.createScanState(context, tableId, authorizations, range, size,
+        new ScannerOptions(this), isolated, readaheadThreshold);
   }
 
   @Override
@@ -126,4 +136,15 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
   public synchronized long getReadaheadThreshold() {
     return readaheadThreshold;
   }
+
+  @Override
+  public synchronized void setReadaheadDepth(int depth) {
+    checkArgument(depth > 0, "Read-ahead depth must be positive");
+    readaheadDepth = depth;
+  }
+
+  @Override
+  public synchronized int getReadaheadDepth() {
+    return readaheadDepth;
+  }
 }
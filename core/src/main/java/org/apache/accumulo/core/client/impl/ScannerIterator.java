@@ -25,6 +25,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -63,6 +64,12 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
   private boolean readaheadInProgress = false;
   private long batchCount = 0;
   private long readaheadThreshold;
+  private int readaheadDepth;
+
+  // set while a read ahead thread is running, at most one thread uses the scan state at a time
+  private final AtomicBoolean readerActive = new AtomicBoolean(false);
+  // set once the end of the scan or an exception was queued
+  private volatile boolean readerFinished = false;
 
   private static final List<KeyValue> EMPTY_LIST = Collections.emptyList();
 
@@ -72,14 +79,42 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
 
   private class Reader implements Runnable {
 
+    private final boolean readAhead;
+
+    Reader(boolean readAhead) {
+      this.readAhead = readAhead;
+    }
+
     @Override
     public void run() {
+      if (!readAhead) {
+        readBatch();
+        return;
+      }
+
+      while (true) {
+        while (!readerFinished && synchQ.size() < readaheadDepth) {
+          readBatch();
+        }
 
+        readerActive.set(false);
+
+        // a batch may have been taken after the queue size was checked, in which case hasNext() did
+        // not start another reader because this one was still active
+        if (readerFinished || synchQ.size() >= readaheadDepth
+            || !readerActive.compareAndSet(false, true)) {
+          return;
+        }
+      }
+    }
+
+    private void readBatch() {
       try {
         while (true) {
           List<KeyValue> currentBatch = ThriftScanner.scan(scanState.context, scanState, timeOut);
 
           if (currentBatch == null) {
+            readerFinished = true;
             synchQ.add(EMPTY_LIST);
             return;
           }
@@ -94,12 +129,15 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
           | AccumuloSecurityException | TableDeletedException | TableOfflineException
           | SampleNotPresentException e) {
         log.trace("{}", e.getMessage(), e);
+        readerFinished = true;
         synchQ.add(e);
       } catch (TableNotFoundException e) {
         log.warn("{}", e.getMessage(), e);
+        readerFinished = true;
         synchQ.add(e);
       } catch (Exception e) {
         log.error("{}", e.getMessage(), e);
+        readerFinished = true;
         synchQ.add(e);
       }
     }
@@ -108,23 +146,17 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
 
   ScannerIterator(ClientContext context, Table.ID tableId, Authorizations authorizations,
       Range range, int size, long timeOut, ScannerOptions options, boolean isolated,
-      long readaheadThreshold) {
+      long readaheadThreshold, int readaheadDepth) {
     this.timeOut = timeOut;
     this.readaheadThreshold = readaheadThreshold;
+    this.readaheadDepth = readaheadDepth;
 
     this.options = new ScannerOptions(options);
 
-    synchQ = new ArrayBlockingQueue<>(1);
-
-    if (this.options.fetchedColumns.size() > 0) {
-      range = range.bound(this.options.fetchedColumns.first(), this.options.fetchedColumns.last());
-    }
+    synchQ = new ArrayBlockingQueue<>(readaheadDepth);
 
-    scanState = new ScanState(context, tableId, authorizations, new Range(range),
-        options.fetchedColumns, size, options.serverSideIteratorList,
-        options.serverSideIteratorOptions, isolated, readaheadThreshold,
-        options.getSamplerConfiguration(), options.batchTimeOut, options.classLoaderContext,
-        options.executionHints);
+    scanState = createScanState(context, tableId, authorizations, range, size, this.options,
+        isolated, readaheadThreshold);
 
     // If we want to start readahead immediately, don't wait for hasNext to be called
     if (0L == readaheadThreshold) {
@@ -133,9 +165,25 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     iter = null;
   }
 
+  static ScanState createScanState(ClientContext context, Table.ID tableId,
+      Authorizations authorizations, Range range, int size, ScannerOptions options,
+      boolean isolated, long readaheadThreshold) {
+    if (options.fetchedColumns.size() > 0) {
+      range = range.bound(options.fetchedColumns.first(), options.fetchedColumns.last());
+    }
+
+    return new ScanState(context, tableId, authorizations, new Range(range),
+        options.fetchedColumns, size, options.serverSideIteratorList,
+        options.serverSideIteratorOptions, isolated, readaheadThreshold,
+        options.getSamplerConfiguration(), options.batchTimeOut, options.classLoaderContext,
+        options.executionHints);
+  }
+
   private void initiateReadAhead() {
     readaheadInProgress = true;
-    readaheadPool.execute(new Reader());
+    if (!readerFinished && readerActive.compareAndSet(false, true)) {
+      readaheadPool.execute(new Reader(true));
+    }
   }
 
   @Override
@@ -153,7 +201,7 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     try {
       if (!readaheadInProgress) {
         // no read ahead run, fetch the next batch right now
-        new Reader().run();
+        new Reader(false).run();
       }
 
       Object obj = synchQ.take();
@@ -177,7 +225,7 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
       batchCount++;
 
       if (batchCount > readaheadThreshold) {
-        // start a thread to read the next batch
+        // start a thread to read the next batches, unless one is still running
         initiateReadAhead();
       }
 
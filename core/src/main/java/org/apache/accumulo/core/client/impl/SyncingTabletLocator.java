@@ -109,4 +109,10 @@ public class SyncingTabletLocator extends TabletLocator {
   public void invalidateCache(ClientContext context, String server) {
     syncLocator().invalidateCache(context, server);
   }
+
+  @Override
+  public void prefetch(ClientContext context, Range range)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    syncLocator().prefetch(context, range);
+  }
 }
@@ -1370,6 +1370,15 @@ public class TableOperationsImpl extends TableOperationsHelper {
     tabLocator.invalidateCache();
   }
 
+  @Override
+  public void cacheTabletLocations(String tableName)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    checkArgument(tableName != null, "tableName is null");
+    TabletLocator tabLocator = TabletLocator.getLocator(context,
+        Tables.getTableId(context, tableName));
+    tabLocator.prefetch(context, new Range());
+  }
+
   @Override
   public Map<String,String> tableIdMap() {
     return Tables.getNameToIdMap(context).entrySet().stream()
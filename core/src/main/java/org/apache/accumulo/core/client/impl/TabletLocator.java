@@ -74,6 +74,13 @@ public abstract class TabletLocator {
    */
   public abstract void invalidateCache(ClientContext context, String server);
 
+  /**
+   * Reads the locations of all tablets that overlap the rows of a range into the cache, using as
+   * few metadata lookups as possible. The default implementation does nothing.
+   */
+  public void prefetch(ClientContext context, Range range)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {}
+
   private static class LocatorKey {
     String instanceId;
     Table.ID tableId;
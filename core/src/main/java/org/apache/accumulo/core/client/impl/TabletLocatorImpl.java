@@ -29,11 +29,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -51,8 +54,16 @@ import org.apache.hadoop.io.WritableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-
+/**
+ * Locates the tablets of a single table, caching their locations.
+ *
+ * <p>
+ * The cache is a concurrent map keyed on end row, so finding a cached location never blocks.
+ * Metadata lookups and the changes to the cache they make are serialized by a lock, which is only
+ * taken when a row is not in the cache or when invalidated extents need to be looked up again.
+ * Invalidations are only recorded when they are reported and are then processed together by the
+ * next lookup.
+ */
 public class TabletLocatorImpl extends TabletLocator {
 
   private static final Logger log = LoggerFactory.getLogger(TabletLocatorImpl.class);
@@ -74,15 +85,19 @@ public class TabletLocatorImpl extends TabletLocator {
 
   protected Table.ID tableId;
   protected TabletLocator parent;
-  protected TreeMap<Text,TabletLocation> metaCache = new TreeMap<>(END_ROW_COMPARATOR);
+  protected ConcurrentSkipListMap<Text,TabletLocation> metaCache = new ConcurrentSkipListMap<>(
+      END_ROW_COMPARATOR);
   protected TabletLocationObtainer locationObtainer;
   private TabletServerLockChecker lockChecker;
   protected Text lastTabletRow;
 
-  private TreeSet<KeyExtent> badExtents = new TreeSet<>();
-  private ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-  private final Lock rLock = rwLock.readLock();
-  private final Lock wLock = rwLock.writeLock();
+  private ConcurrentSkipListSet<KeyExtent> badExtents = new ConcurrentSkipListSet<>();
+  // serializes metadata lookups and the updates to metaCache they make, reads do not take it
+  private final ReentrantLock lookupLock = new ReentrantLock();
+
+  // when at least this many rows are not in the cache, the tablets containing them are read with
+  // one multi scan per metadata tablet server instead of looking up each row
+  static final int PREFETCH_THRESHOLD = 10;
 
   public interface TabletLocationObtainer {
     /**
@@ -94,6 +109,14 @@ public class TabletLocatorImpl extends TabletLocator {
     List<TabletLocation> lookupTablets(ClientContext context, String tserver,
         Map<KeyExtent,List<Range>> map, TabletLocator parent)
         throws AccumuloSecurityException, AccumuloException;
+
+    /**
+     * Like {@link #lookupTablets(ClientContext, String, Map, TabletLocator)}, but only reads the
+     * first tablet in each range.
+     */
+    List<TabletLocation> lookupFirstTablets(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent)
+        throws AccumuloSecurityException, AccumuloException;
   }
 
   public interface TabletServerLockChecker {
@@ -169,34 +192,46 @@ public class TabletLocatorImpl extends TabletLocator {
 
     LockCheckerSession lcSession = new LockCheckerSession();
 
-    rLock.lock();
-    try {
-      processInvalidated(context, lcSession);
+    processInvalidated(context, lcSession);
 
-      // for this to be efficient rows need to be in sorted order, but always sorting is slow...
-      // therefore only sort the
-      // stuff not in the cache.... it is most efficient to pass _locateTablet rows in sorted order
+    // for this to be efficient rows need to be in sorted order, but always sorting is slow...
+    // therefore only sort the
+    // stuff not in the cache.... it is most efficient to pass _locateTablet rows in sorted order
 
-      // For this to be efficient, need to avoid fine grained synchronization and fine grained
-      // logging.
-      // Therefore methods called by this are not synchronized and should not log.
+    // For this to be efficient, need to avoid fine grained synchronization and fine grained
+    // logging.
+    // Therefore methods called by this are not synchronized and should not log.
 
-      for (T mutation : mutations) {
-        row.set(mutation.getRow());
-        TabletLocation tl = locateTabletInCache(row);
-        if (tl == null || !addMutation(binnedMutations, mutation, tl, lcSession))
-          notInCache.add(mutation);
-      }
-    } finally {
-      rLock.unlock();
+    for (T mutation : mutations) {
+      row.set(mutation.getRow());
+      TabletLocation tl = locateTabletInCache(row);
+      if (tl == null || !addMutation(binnedMutations, mutation, tl, lcSession))
+        notInCache.add(mutation);
     }
 
     if (notInCache.size() > 0) {
       Collections.sort(notInCache, (o1, o2) -> WritableComparator.compareBytes(o1.getRow(), 0,
           o1.getRow().length, o2.getRow(), 0, o2.getRow().length));
 
-      wLock.lock();
+      lookupLock.lock();
       try {
+        if (notInCache.size() >= PREFETCH_THRESHOLD) {
+          List<Text> rows = new ArrayList<>(notInCache.size());
+          for (T mutation : notInCache) {
+            rows.add(new Text(mutation.getRow()));
+          }
+          prefetchRows(context, rows, lcSession);
+
+          ArrayList<T> stillNotInCache = new ArrayList<>();
+          for (T mutation : notInCache) {
+            row.set(mutation.getRow());
+            TabletLocation tl = lcSession.checkLock(locateTabletInCache(row));
+            if (tl == null || !addMutation(binnedMutations, mutation, tl, lcSession))
+              stillNotInCache.add(mutation);
+          }
+          notInCache = stillNotInCache;
+        }
+
         boolean failed = false;
         for (T mutation : notInCache) {
           if (failed) {
@@ -216,7 +251,7 @@ public class TabletLocatorImpl extends TabletLocator {
           }
         }
       } finally {
-        wLock.unlock();
+        lookupLock.unlock();
       }
     }
 
@@ -338,31 +373,36 @@ public class TabletLocatorImpl extends TabletLocator {
 
     LockCheckerSession lcSession = new LockCheckerSession();
 
-    List<Range> failures;
-    rLock.lock();
-    try {
-      processInvalidated(context, lcSession);
+    processInvalidated(context, lcSession);
 
-      // for this to be optimal, need to look ranges up in sorted order when
-      // ranges are not present in cache... however do not want to always
-      // sort ranges... therefore try binning ranges using only the cache
-      // and sort whatever fails and retry
+    // for this to be optimal, need to look ranges up in sorted order when
+    // ranges are not present in cache... however do not want to always
+    // sort ranges... therefore try binning ranges using only the cache
+    // and sort whatever fails and retry
 
-      failures = binRanges(context, ranges, binnedRanges, true, lcSession);
-    } finally {
-      rLock.unlock();
-    }
+    List<Range> failures = binRanges(context, ranges, binnedRanges, true, lcSession);
 
     if (failures.size() > 0) {
       // sort failures by range start key
       Collections.sort(failures);
 
       // try lookups again
-      wLock.lock();
+      lookupLock.lock();
       try {
+        if (failures.size() >= PREFETCH_THRESHOLD) {
+          // the tablets containing the start of each range, the lookups below find the rest
+          List<Text> rows = new ArrayList<>(failures.size());
+          for (Range range : failures) {
+            rows.add(range.getStartKey() == null ? new Text() : range.getStartKey().getRow());
+          }
+          Collections.sort(rows);
+          prefetchRows(context, rows, lcSession);
+          failures = binRanges(context, failures, binnedRanges, true, lcSession);
+        }
+
         failures = binRanges(context, failures, binnedRanges, false, lcSession);
       } finally {
-        wLock.unlock();
+        lookupLock.unlock();
       }
     }
 
@@ -378,24 +418,14 @@ public class TabletLocatorImpl extends TabletLocator {
 
   @Override
   public void invalidateCache(KeyExtent failedExtent) {
-    wLock.lock();
-    try {
-      badExtents.add(failedExtent);
-    } finally {
-      wLock.unlock();
-    }
+    badExtents.add(failedExtent);
     if (log.isTraceEnabled())
       log.trace("Invalidated extent={}", failedExtent);
   }
 
   @Override
   public void invalidateCache(Collection<KeyExtent> keySet) {
-    wLock.lock();
-    try {
-      badExtents.addAll(keySet);
-    } finally {
-      wLock.unlock();
-    }
+    badExtents.addAll(keySet);
     if (log.isTraceEnabled())
       log.trace("Invalidated {} cache entries for table {}", keySet.size(), tableId);
   }
@@ -404,16 +434,11 @@ public class TabletLocatorImpl extends TabletLocator {
   public void invalidateCache(ClientContext context, String server) {
     int invalidatedCount = 0;
 
-    wLock.lock();
-    try {
-      for (TabletLocation cacheEntry : metaCache.values())
-        if (cacheEntry.tablet_location.equals(server)) {
-          badExtents.add(cacheEntry.tablet_extent);
-          invalidatedCount++;
-        }
-    } finally {
-      wLock.unlock();
-    }
+    for (TabletLocation cacheEntry : metaCache.values())
+      if (cacheEntry.tablet_location.equals(server)) {
+        badExtents.add(cacheEntry.tablet_extent);
+        invalidatedCount++;
+      }
 
     lockChecker.invalidateCache(server);
 
@@ -425,16 +450,163 @@ public class TabletLocatorImpl extends TabletLocator {
 
   @Override
   public void invalidateCache() {
-    int invalidatedCount;
-    wLock.lock();
+    int invalidatedCount = metaCache.size();
+    metaCache.clear();
+    if (log.isTraceEnabled())
+      log.trace("invalidated all {} cache entries for table={}", invalidatedCount, tableId);
+  }
+
+  @Override
+  public void prefetch(ClientContext context, Range range)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    LockCheckerSession lcSession = new LockCheckerSession();
+    processInvalidated(context, lcSession);
+
+    lookupLock.lock();
     try {
-      invalidatedCount = metaCache.size();
-      metaCache.clear();
+      prefetch(context, range.getStartKey() == null ? null : range.getStartKey().getRow(),
+          range.getEndKey() == null ? null : range.getEndKey().getRow(), lcSession);
     } finally {
-      wLock.unlock();
+      lookupLock.unlock();
     }
-    if (log.isTraceEnabled())
-      log.trace("invalidated all {} cache entries for table={}", invalidatedCount, tableId);
+  }
+
+  /**
+   * Reads the locations of all tablets with end rows from startRow to endRow, inclusive, into the
+   * cache. This is only done when a caller asks for every tablet in a range, binning uses
+   * {@link #prefetchRows(ClientContext, List, LockCheckerSession)}. The tablet containing endRow is
+   * only read when endRow is its end row. Must be called while holding lookupLock.
+   *
+   * @param startRow
+   *          the first row, null for the start of the table
+   * @param endRow
+   *          the last row, null for the end of the table
+   */
+  private void prefetch(ClientContext context, Text startRow, Text endRow,
+      LockCheckerSession lcSession)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+
+    OpTimer timer = null;
+
+    if (log.isTraceEnabled()) {
+      log.trace("tid={} Prefetching locations table={} startRow={} endRow={}",
+          Thread.currentThread().getId(), tableId,
+          startRow == null ? null : TextUtil.truncate(startRow),
+          endRow == null ? null : TextUtil.truncate(endRow));
+      timer = new OpTimer().start();
+    }
+
+    Text metadataStart = new Text(tableId.getUtf8());
+    metadataStart.append(new byte[] {';'}, 0, 1);
+    if (startRow != null)
+      metadataStart.append(startRow.getBytes(), 0, startRow.getLength());
+
+    Text metadataEnd = lastTabletRow;
+    if (endRow != null) {
+      metadataEnd = new Text(tableId.getUtf8());
+      metadataEnd.append(new byte[] {';'}, 0, 1);
+      metadataEnd.append(endRow.getBytes(), 0, endRow.getLength());
+    }
+
+    int count = lookupInParallel(context,
+        Collections.singletonList(new Range(metadataStart, true, metadataEnd, true)), false,
+        lcSession);
+
+    if (timer != null) {
+      timer.stop();
+      log.trace("tid={} Prefetched {} locations for table {} in {}",
+          Thread.currentThread().getId(), count, tableId,
+          String.format("%.3f secs", timer.scale(TimeUnit.SECONDS)));
+    }
+  }
+
+  /**
+   * Reads the locations of the tablets containing the given rows into the cache. Each row gets a
+   * metadata range that starts at the row and ends at the next row, and only the first tablet in
+   * each range is read. Tablets that hold none of the rows are not read, no matter how many there
+   * are between the rows. Must be called while holding lookupLock.
+   *
+   * @param rows
+   *          sorted rows, may contain duplicates
+   */
+  private void prefetchRows(ClientContext context, List<Text> rows, LockCheckerSession lcSession)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+
+    OpTimer timer = null;
+
+    if (log.isTraceEnabled()) {
+      log.trace("tid={} Prefetching locations of {} rows table={}",
+          Thread.currentThread().getId(), rows.size(), tableId);
+      timer = new OpTimer().start();
+    }
+
+    List<Range> metadataRanges = new ArrayList<>();
+    Text metadataStart = null;
+    for (Text row : rows) {
+      Text metadataRow = new Text(tableId.getUtf8());
+      metadataRow.append(new byte[] {';'}, 0, 1);
+      metadataRow.append(row.getBytes(), 0, row.getLength());
+      if (metadataStart != null && metadataStart.compareTo(metadataRow) < 0) {
+        // if the tablet containing the previous row ends at or after this row, it is found by
+        // the range of this row
+        metadataRanges.add(new Range(metadataStart, true, metadataRow, false));
+      }
+      metadataStart = metadataRow;
+    }
+    if (metadataStart != null)
+      metadataRanges.add(new Range(metadataStart, true, lastTabletRow, true));
+
+    int count = lookupInParallel(context, metadataRanges, true, lcSession);
+
+    if (timer != null) {
+      timer.stop();
+      log.trace("tid={} Prefetched {} locations for table {} in {}",
+          Thread.currentThread().getId(), count, tableId,
+          String.format("%.3f secs", timer.scale(TimeUnit.SECONDS)));
+    }
+  }
+
+  /**
+   * Reads tablet locations from the metadata ranges into the cache, with one multi scan per
+   * metadata tablet server run in parallel. Metadata tablets that could not be located are
+   * skipped, their rows are looked up later.
+   *
+   * @return the number of locations read
+   */
+  private int lookupInParallel(ClientContext context, List<Range> metadataRanges,
+      boolean firstTablets, LockCheckerSession lcSession)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+    parent.binRanges(context, metadataRanges, binnedRanges);
+
+    ExecutorService prefetchPool = context.getLocationPrefetchPool();
+    List<Future<List<TabletLocation>>> futures = new ArrayList<>();
+    for (Entry<String,Map<KeyExtent,List<Range>>> entry : binnedRanges.entrySet()) {
+      futures.add(prefetchPool.submit(() -> firstTablets
+          ? locationObtainer.lookupFirstTablets(context, entry.getKey(), entry.getValue(), parent)
+          : locationObtainer.lookupTablets(context, entry.getKey(), entry.getValue(), parent)));
+    }
+
+    int count = 0;
+    for (Future<List<TabletLocation>> future : futures) {
+      List<TabletLocation> locations;
+      try {
+        locations = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AccumuloException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof AccumuloSecurityException)
+          throw (AccumuloSecurityException) e.getCause();
+        throw new AccumuloException(e.getCause());
+      }
+
+      for (TabletLocation tabletLocation : locations) {
+        updateCache(tabletLocation, lcSession);
+      }
+      count += locations.size();
+    }
+    return count;
   }
 
   @Override
@@ -564,11 +736,11 @@ public class TabletLocatorImpl extends TabletLocator {
       er = MAX_TEXT;
     metaCache.put(er, tabletLocation);
 
-    if (badExtents.size() > 0)
+    if (!badExtents.isEmpty())
       removeOverlapping(badExtents, tabletLocation.tablet_extent);
   }
 
-  static void removeOverlapping(TreeMap<Text,TabletLocation> metaCache, KeyExtent nke) {
+  static void removeOverlapping(SortedMap<Text,TabletLocation> metaCache, KeyExtent nke) {
     Iterator<Entry<Text,TabletLocation>> iter = null;
 
     if (nke.getPrevEndRow() == null) {
@@ -603,7 +775,7 @@ public class TabletLocatorImpl extends TabletLocator {
     return row;
   }
 
-  static void removeOverlapping(TreeSet<KeyExtent> extents, KeyExtent nke) {
+  static void removeOverlapping(SortedSet<KeyExtent> extents, KeyExtent nke) {
     for (KeyExtent overlapping : KeyExtent.findOverlapping(nke, extents)) {
       extents.remove(overlapping);
     }
@@ -631,27 +803,19 @@ public class TabletLocatorImpl extends TabletLocator {
       row.append(new byte[] {0}, 0, 1);
     }
 
-    TabletLocation tl;
-
-    if (lock) {
-      rLock.lock();
-      try {
-        tl = processInvalidatedAndCheckLock(context, lcSession, row);
-      } finally {
-        rLock.unlock();
-      }
-    } else {
-      tl = processInvalidatedAndCheckLock(context, lcSession, row);
-    }
+    TabletLocation tl = processInvalidatedAndCheckLock(context, lcSession, row);
 
     if (tl == null) {
       // not in cache, so obtain info
       if (lock) {
-        wLock.lock();
+        lookupLock.lock();
         try {
-          tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
+          // another thread may have looked up the row while this thread waited for the lock
+          tl = lcSession.checkLock(locateTabletInCache(row));
+          if (tl == null)
+            tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
         } finally {
-          wLock.unlock();
+          lookupLock.unlock();
         }
       } else {
         tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
@@ -675,24 +839,19 @@ public class TabletLocatorImpl extends TabletLocator {
     return lcSession.checkLock(locateTabletInCache(row));
   }
 
-  @SuppressFBWarnings(value = {"UL_UNRELEASED_LOCK", "UL_UNRELEASED_LOCK_EXCEPTION_PATH"},
-      justification = "locking is confusing, but probably correct")
   private void processInvalidated(ClientContext context, LockCheckerSession lcSession)
       throws AccumuloSecurityException, AccumuloException, TableNotFoundException {
 
-    if (badExtents.size() == 0)
+    if (badExtents.isEmpty())
       return;
 
-    final boolean writeLockHeld = rwLock.isWriteLockedByCurrentThread();
+    // all extents invalidated while another thread held the lock are looked up together
+    lookupLock.lock();
     try {
-      if (!writeLockHeld) {
-        rLock.unlock();
-        wLock.lock();
-        if (badExtents.size() == 0)
-          return;
-      }
+      if (badExtents.isEmpty())
+        return;
 
-      List<Range> lookups = new ArrayList<>(badExtents.size());
+      List<Range> lookups = new ArrayList<>();
 
       for (KeyExtent be : badExtents) {
         lookups.add(be.toMetadataRange());
@@ -718,10 +877,7 @@ public class TabletLocatorImpl extends TabletLocator {
         }
       }
     } finally {
-      if (!writeLockHeld) {
-        rLock.lock();
-        wLock.unlock();
-      }
+      lookupLock.unlock();
     }
   }
 
@@ -18,13 +18,16 @@ package org.apache.accumulo.core.client.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 
 import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.conf.ClientProperty;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -45,6 +48,7 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
 
   private Authorizations authorizations = Authorizations.EMPTY;
   private Throwable ex = null;
+  private boolean ordered = false;
 
   private static int nextBatchReaderInstance = 1;
 
@@ -116,7 +120,26 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
       throw new IllegalStateException("batch reader closed");
     }
 
+    if (ordered) {
+      Properties properties = context.getClientInfo().getProperties();
+      long bufferSize = ClientProperty.BATCH_SCANNER_ORDERED_BUFFER_BYTES.getLong(properties);
+      String spillDir = ClientProperty.BATCH_SCANNER_SPILL_DIR.getValue(properties);
+      return new OrderedBatchReaderIterator(context, tableId, authorizations, ranges, numThreads,
+          queryThreadPool, this, timeOut, bufferSize,
+          spillDir.isEmpty() ? null : new File(spillDir));
+    }
+
     return new TabletServerBatchReaderIterator(context, tableId, authorizations, ranges, numThreads,
         queryThreadPool, this, timeOut);
   }
+
+  @Override
+  public boolean isOrdered() {
+    return ordered;
+  }
+
+  @Override
+  public void setOrdered(boolean ordered) {
+    this.ordered = ordered;
+  }
 }
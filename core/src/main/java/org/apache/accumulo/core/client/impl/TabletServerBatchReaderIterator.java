@@ -21,6 +21,7 @@ import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -30,6 +31,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
@@ -65,6 +67,7 @@ import org.apache.accumulo.core.trace.Tracer;
 import org.apache.accumulo.core.util.ByteBufferUtil;
 import org.apache.accumulo.core.util.HostAndPort;
 import org.apache.accumulo.core.util.OpTimer;
+import org.apache.accumulo.core.util.Pair;
 import org.apache.htrace.wrappers.TraceRunnable;
 import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
@@ -100,6 +103,8 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
 
   private TabletLocator locator;
 
+  private final BatchScanServerStats serverStats;
+
   public interface ResultReceiver {
     void receive(List<Entry<Key,Value>> entries);
   }
@@ -109,6 +114,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
       ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout) {
 
     this.context = context;
+    this.serverStats = context.getBatchScanServerStats();
     this.tableId = tableId;
     this.authorizations = authorizations;
     this.numThreads = numThreads;
@@ -216,13 +222,17 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
 
     Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
 
-    binRanges(locator, ranges, binnedRanges);
+    binRanges(context, tableId, locator, ranges, binnedRanges);
 
     doLookups(binnedRanges, receiver, columns);
   }
 
-  private void binRanges(TabletLocator tabletLocator, List<Range> ranges,
-      Map<String,Map<KeyExtent,List<Range>>> binnedRanges)
+  /**
+   * Bins the ranges to tablets, retrying until all ranges are binned, and clips each range to its
+   * tablet.
+   */
+  static void binRanges(ClientContext context, Table.ID tableId, TabletLocator tabletLocator,
+      List<Range> ranges, Map<String,Map<KeyExtent,List<Range>>> binnedRanges)
       throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
 
     int lastFailureSize = Integer.MAX_VALUE;
@@ -309,7 +319,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     // since the first call to binRanges clipped the ranges to within a tablet, we should not get
     // only
     // bin to the set of failed tablets
-    binRanges(locator, allRanges, binnedRanges);
+    binRanges(context, tableId, locator, allRanges, binnedRanges);
 
     doLookups(binnedRanges, receiver, columns);
   }
@@ -318,6 +328,17 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     return Tables.getPrintableTableInfoFromId(context, tableId);
   }
 
+  /**
+   * Adds ranges to failures, keeping ranges already there for the same tablet. The ranges of a
+   * tablet may have been split across multiple query tasks.
+   */
+  private static void addFailures(Map<KeyExtent,List<Range>> failures,
+      Map<KeyExtent,List<Range>> ranges) {
+    for (Entry<KeyExtent,List<Range>> entry : ranges.entrySet()) {
+      failures.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+    }
+  }
+
   private class QueryTask implements Runnable {
 
     private String tsLocation;
@@ -349,26 +370,38 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
           .setName(threadName + " looking up " + tabletsRanges.size() + " ranges at " + tsLocation);
       Map<KeyExtent,List<Range>> unscanned = new HashMap<>();
       Map<KeyExtent,List<Range>> tsFailures = new HashMap<>();
+      long startTime = System.nanoTime();
+      // entries, bytes, and nanos spent handing results to a receiver that may block
+      long[] received = new long[3];
+      ResultReceiver countingReceiver = entries -> {
+        for (Entry<Key,Value> entry : entries) {
+          received[1] += entry.getKey().getSize() + entry.getValue().getSize();
+        }
+        received[0] += entries.size();
+        long receiveStart = System.nanoTime();
+        receiver.receive(entries);
+        received[2] += System.nanoTime() - receiveStart;
+      };
       try {
         TimeoutTracker timeoutTracker = timeoutTrackers.get(tsLocation);
         if (timeoutTracker == null) {
           timeoutTracker = new TimeoutTracker(tsLocation, timedoutServers, timeout);
           timeoutTrackers.put(tsLocation, timeoutTracker);
         }
-        doLookup(context, tsLocation, tabletsRanges, tsFailures, unscanned, receiver, columns,
-            options, authorizations, timeoutTracker);
+        doLookup(context, tsLocation, tabletsRanges, tsFailures, unscanned, countingReceiver,
+            columns, options, authorizations, timeoutTracker);
         if (tsFailures.size() > 0) {
           locator.invalidateCache(tsFailures.keySet());
           synchronized (failures) {
-            failures.putAll(tsFailures);
+            addFailures(failures, tsFailures);
           }
         }
 
       } catch (IOException e) {
         if (!TabletServerBatchReaderIterator.this.queryThreadPool.isShutdown()) {
           synchronized (failures) {
-            failures.putAll(tsFailures);
-            failures.putAll(unscanned);
+            addFailures(failures, tsFailures);
+            addFailures(failures, unscanned);
           }
 
           locator.invalidateCache(context, tsLocation);
@@ -392,6 +425,11 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
           log.warn("Caught exception, but queryThreadPool is not shutdown", t);
         fatalException = t;
       } finally {
+        // only the time spent talking to the server says how fast it is, not the time this
+        // thread waited for the client to consume results
+        long serverNanos = System.nanoTime() - startTime - received[2];
+        serverStats.record(tsLocation, sumSizes(tabletsRanges.values()), received[0], received[1],
+            TimeUnit.NANOSECONDS.toMillis(serverNanos));
         semaphore.release();
         Thread.currentThread().setName(threadName);
         if (semaphore.tryAcquire(semaphoreSize)) {
@@ -453,23 +491,6 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
       throw new TimedOutException(timedoutServers);
     }
 
-    // when there are lots of threads and a few tablet servers
-    // it is good to break request to tablet servers up, the
-    // following code determines if this is the case
-    int maxTabletsPerRequest = Integer.MAX_VALUE;
-    if (numThreads / binnedRanges.size() > 1) {
-      int totalNumberOfTablets = 0;
-      for (Entry<String,Map<KeyExtent,List<Range>>> entry : binnedRanges.entrySet()) {
-        totalNumberOfTablets += entry.getValue().size();
-      }
-
-      maxTabletsPerRequest = totalNumberOfTablets / numThreads;
-      if (maxTabletsPerRequest == 0) {
-        maxTabletsPerRequest = 1;
-      }
-
-    }
-
     Map<KeyExtent,List<Range>> failures = new HashMap<>();
 
     if (timedoutServers.size() > 0) {
@@ -489,32 +510,18 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     List<String> locations = new ArrayList<>(binnedRanges.keySet());
     Collections.shuffle(locations);
 
-    List<QueryTask> queryTasks = new ArrayList<>();
+    Map<String,Double> millisPerRange = serverStats.getMillisPerRange(locations);
 
-    for (final String tsLocation : locations) {
+    List<Pair<String,Map<KeyExtent,List<Range>>>> bins = partition(locations, binnedRanges,
+        numThreads, millisPerRange);
 
-      final Map<KeyExtent,List<Range>> tabletsRanges = binnedRanges.get(tsLocation);
-      if (maxTabletsPerRequest == Integer.MAX_VALUE || tabletsRanges.size() == 1) {
-        QueryTask queryTask = new QueryTask(tsLocation, tabletsRanges, failures, receiver, columns);
-        queryTasks.add(queryTask);
-      } else {
-        HashMap<KeyExtent,List<Range>> tabletSubset = new HashMap<>();
-        for (Entry<KeyExtent,List<Range>> entry : tabletsRanges.entrySet()) {
-          tabletSubset.put(entry.getKey(), entry.getValue());
-          if (tabletSubset.size() >= maxTabletsPerRequest) {
-            QueryTask queryTask = new QueryTask(tsLocation, tabletSubset, failures, receiver,
-                columns);
-            queryTasks.add(queryTask);
-            tabletSubset = new HashMap<>();
-          }
-        }
+    // start the most expensive lookups first, so they are not the last ones to finish
+    bins.sort(Comparator.comparingDouble(
+        bin -> -sumSizes(bin.getSecond().values()) * millisPerRange.get(bin.getFirst())));
 
-        if (tabletSubset.size() > 0) {
-          QueryTask queryTask = new QueryTask(tsLocation, tabletSubset, failures, receiver,
-              columns);
-          queryTasks.add(queryTask);
-        }
-      }
+    List<QueryTask> queryTasks = new ArrayList<>();
+    for (Pair<String,Map<KeyExtent,List<Range>>> bin : bins) {
+      queryTasks.add(new QueryTask(bin.getFirst(), bin.getSecond(), failures, receiver, columns));
     }
 
     final Semaphore semaphore = new Semaphore(queryTasks.size());
@@ -526,6 +533,75 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     }
   }
 
+  /**
+   * Divides the ranges for each server into the ranges of the multi scans that will be sent to it.
+   * When there are more threads than servers, each server gets a share of the threads based on how
+   * long its ranges are expected to take. Its ranges are divided evenly between its multi scans,
+   * keeping the ranges of a tablet together where possible. A slow server or one with many ranges
+   * is queried by several threads at once, while the small bins of fast servers are sent as a
+   * single multi scan.
+   *
+   * @param locations
+   *          the servers in the order their multi scans should be listed
+   * @param millisPerRange
+   *          the expected milliseconds each server takes per range
+   */
+  static List<Pair<String,Map<KeyExtent,List<Range>>>> partition(List<String> locations,
+      Map<String,Map<KeyExtent,List<Range>>> binnedRanges, int numThreads,
+      Map<String,Double> millisPerRange) {
+
+    List<Pair<String,Map<KeyExtent,List<Range>>>> bins = new ArrayList<>();
+
+    double totalCost = 0;
+    for (String location : locations) {
+      totalCost += sumSizes(binnedRanges.get(location).values()) * millisPerRange.get(location);
+    }
+
+    for (String location : locations) {
+      Map<KeyExtent,List<Range>> tabletsRanges = binnedRanges.get(location);
+      int numRanges = sumSizes(tabletsRanges.values());
+
+      int numBins = 1;
+      if (numThreads > locations.size() && totalCost > 0) {
+        double cost = numRanges * millisPerRange.get(location);
+        numBins = (int) Math.max(1, Math.min(numRanges, Math.round(cost * numThreads / totalCost)));
+      }
+
+      if (numBins == 1) {
+        bins.add(new Pair<>(location, tabletsRanges));
+        continue;
+      }
+
+      int rangesPerBin = (numRanges + numBins - 1) / numBins;
+      Map<KeyExtent,List<Range>> bin = new HashMap<>();
+      int binSize = 0;
+
+      // sorting the tablets keeps neighboring tablets in the same multi scan
+      for (KeyExtent extent : new TreeSet<>(tabletsRanges.keySet())) {
+        List<Range> ranges = tabletsRanges.get(extent);
+        int start = 0;
+        while (start < ranges.size()) {
+          int end = Math.min(ranges.size(), start + rangesPerBin - binSize);
+          bin.computeIfAbsent(extent, k -> new ArrayList<>()).addAll(ranges.subList(start, end));
+          binSize += end - start;
+          start = end;
+
+          if (binSize >= rangesPerBin) {
+            bins.add(new Pair<>(location, bin));
+            bin = new HashMap<>();
+            binSize = 0;
+          }
+        }
+      }
+
+      if (binSize > 0) {
+        bins.add(new Pair<>(location, bin));
+      }
+    }
+
+    return bins;
+  }
+
   static void trackScanning(Map<KeyExtent,List<Range>> failures,
       Map<KeyExtent,List<Range>> unscanned, MultiScanResult scanResult) {
 
@@ -562,7 +638,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     }
   }
 
-  private static class TimeoutTracker {
+  static class TimeoutTracker {
 
     String server;
     Set<String> badServers;
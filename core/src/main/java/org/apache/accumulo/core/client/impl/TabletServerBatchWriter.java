@@ -38,6 +38,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -77,6 +78,7 @@ import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 
 /*
@@ -86,7 +88,16 @@ import com.google.common.base.Joiner;
  *     to the background threads, even if they are currently processing... new
  *     mutations are merged with mutations currently processing in the background
  *   + Failed mutations are held for 1000ms and then re-added to the unprocessed queue
+ *   + The amount of data sent to a tablet server in one update session adapts to how
+ *     quickly the server responds, anything over that amount is left queued for the
+ *     next session
  *   + Flush holds adding of new mutations so it does not wait indefinitely
+ *   + Mutations are added to one of several buffers (stripes) without holding the
+ *     writer's lock. Memory is reserved with a compare and set on an atomic counter,
+ *     so max memory is only exceeded by the last mutation added. Threads adding
+ *     mutations only synchronize on the writer when they must wait for memory or
+ *     for a flush. Each buffer is queued for binning when it reaches its share of
+ *     50% of max memory
  *
  * Considerations
  *   + All background threads must catch and note Throwable
@@ -111,9 +122,12 @@ public class TabletServerBatchWriter {
   private final Durability durability;
 
   // state
-  private boolean flushing;
-  private boolean closed;
-  private MutationSet mutations;
+  private volatile boolean flushing;
+  private volatile boolean closed;
+  // addMutation calls that have not returned yet, close waits for these before shutting down
+  private final AtomicInteger addsInProgress = new AtomicInteger(0);
+  private final MutationBuffer[] buffers;
+  private final long bufferProcessingSize;
 
   // background writer
   private final MutationWriter writer;
@@ -124,15 +138,15 @@ public class TabletServerBatchWriter {
       .synchronizedMap(new HashMap<>());
 
   // stats
-  private long totalMemUsed = 0;
-  private long lastProcessingStartTime;
+  private final AtomicLong totalMemUsed = new AtomicLong(0);
+  private volatile long lastProcessingStartTime;
 
-  private long totalAdded = 0;
+  private final LongAdder totalAdded = new LongAdder();
   private final AtomicLong totalSent = new AtomicLong(0);
   private final AtomicLong totalBinned = new AtomicLong(0);
   private final AtomicLong totalBinTime = new AtomicLong(0);
   private final AtomicLong totalSendTime = new AtomicLong(0);
-  private long startTime = 0;
+  private volatile long startTime = 0;
   private long initialGCTimes;
   private long initialCompileTimes;
   private double initialSystemLoad;
@@ -151,7 +165,7 @@ public class TabletServerBatchWriter {
   private final HashSet<String> serverSideErrors = new HashSet<>();
   private final FailedMutations failedMutations = new FailedMutations();
   private int unknownErrors = 0;
-  private boolean somethingFailed = false;
+  private volatile boolean somethingFailed = false;
   private Throwable lastUnknownError = null;
 
   private static class TimeoutTracker {
@@ -198,22 +212,24 @@ public class TabletServerBatchWriter {
     this.maxLatency = config.getMaxLatency(TimeUnit.MILLISECONDS) <= 0 ? Long.MAX_VALUE
         : config.getMaxLatency(TimeUnit.MILLISECONDS);
     this.timeout = config.getTimeout(TimeUnit.MILLISECONDS);
-    this.mutations = new MutationSet();
+    this.buffers = new MutationBuffer[config.getBufferStripes()];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = new MutationBuffer();
+    }
+    this.bufferProcessingSize = maxMem / 2 / buffers.length;
     this.lastProcessingStartTime = System.currentTimeMillis();
     this.durability = config.getDurability();
 
-    this.writer = new MutationWriter(config.getMaxWriteThreads());
+    this.writer = new MutationWriter(config.getMaxWriteThreads(), buffers.length);
 
     if (this.maxLatency != Long.MAX_VALUE) {
       jtimer.schedule(new TimerTask() {
         @Override
         public void run() {
           try {
-            synchronized (TabletServerBatchWriter.this) {
-              if ((System.currentTimeMillis()
-                  - lastProcessingStartTime) > TabletServerBatchWriter.this.maxLatency)
-                startProcessing();
-            }
+            if ((System.currentTimeMillis()
+                - lastProcessingStartTime) > TabletServerBatchWriter.this.maxLatency)
+              startProcessing();
           } catch (Throwable t) {
             updateUnknownErrors("Max latency task failed " + t.getMessage(), t);
           }
@@ -222,55 +238,87 @@ public class TabletServerBatchWriter {
     }
   }
 
-  private synchronized void startProcessing() {
-    if (mutations.getMemoryUsed() == 0)
+  /**
+   * Queue the mutations in every buffer for binning.
+   */
+  private void startProcessing() {
+    MutationSet mutations = null;
+    for (MutationBuffer buffer : buffers) {
+      MutationSet bufferMutations = buffer.drain();
+      if (bufferMutations == null)
+        continue;
+      if (mutations == null)
+        mutations = bufferMutations;
+      else
+        mutations.addAll(bufferMutations);
+    }
+
+    if (mutations == null)
       return;
     lastProcessingStartTime = System.currentTimeMillis();
+    queueMutations(mutations);
+  }
+
+  private void queueMutations(MutationSet mutations) {
     try {
       writer.queueMutations(mutations);
     } catch (InterruptedException e) {
       log.warn("Mutations rejected from binning thread, retrying...");
       failedMutations.add(mutations);
     }
-    mutations = new MutationSet();
   }
 
-  private synchronized void decrementMemUsed(long amount) {
-    totalMemUsed -= amount;
-    this.notifyAll();
+  private void decrementMemUsed(long amount) {
+    totalMemUsed.addAndGet(-amount);
+    synchronized (this) {
+      this.notifyAll();
+    }
   }
 
-  public synchronized void addMutation(Table.ID table, Mutation m)
-      throws MutationsRejectedException {
+  private synchronized void initStats() {
+    if (startTime != 0)
+      return;
 
-    if (closed)
-      throw new IllegalStateException("Closed");
-    if (m.size() == 0)
-      throw new IllegalArgumentException("Can not add empty mutations");
+    List<GarbageCollectorMXBean> gcmBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    for (GarbageCollectorMXBean garbageCollectorMXBean : gcmBeans) {
+      initialGCTimes += garbageCollectorMXBean.getCollectionTime();
+    }
 
-    checkForFailures();
+    CompilationMXBean compMxBean = ManagementFactory.getCompilationMXBean();
+    if (compMxBean.isCompilationTimeMonitoringSupported()) {
+      initialCompileTimes = compMxBean.getTotalCompilationTime();
+    }
+
+    initialSystemLoad = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+
+    startTime = System.currentTimeMillis();
+  }
 
-    waitRTE(() -> (totalMemUsed > maxMem || flushing) && !somethingFailed);
+  public void addMutation(Table.ID table, Mutation m) throws MutationsRejectedException {
+    // count this add before checking closed, so a concurrent close either sees it or is seen by it
+    addsInProgress.incrementAndGet();
+    try {
+      bufferMutation(table, m);
+    } finally {
+      if (addsInProgress.decrementAndGet() == 0 && closed) {
+        synchronized (this) {
+          this.notifyAll();
+        }
+      }
+    }
+  }
+
+  private void bufferMutation(Table.ID table, Mutation m) throws MutationsRejectedException {
 
-    // do checks again since things could have changed while waiting and not holding lock
     if (closed)
       throw new IllegalStateException("Closed");
+    if (m.size() == 0)
+      throw new IllegalArgumentException("Can not add empty mutations");
+
     checkForFailures();
 
     if (startTime == 0) {
-      startTime = System.currentTimeMillis();
-
-      List<GarbageCollectorMXBean> gcmBeans = ManagementFactory.getGarbageCollectorMXBeans();
-      for (GarbageCollectorMXBean garbageCollectorMXBean : gcmBeans) {
-        initialGCTimes += garbageCollectorMXBean.getCollectionTime();
-      }
-
-      CompilationMXBean compMxBean = ManagementFactory.getCompilationMXBean();
-      if (compMxBean.isCompilationTimeMonitoringSupported()) {
-        initialCompileTimes = compMxBean.getTotalCompilationTime();
-      }
-
-      initialSystemLoad = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+      initStats();
     }
 
     // create a copy of mutation so that after this method returns the user
@@ -280,14 +328,49 @@ public class TabletServerBatchWriter {
     // object into the reduce method
     m = new Mutation(m);
 
-    totalMemUsed += m.estimatedMemoryUsed();
-    mutations.addMutation(table, m);
-    totalAdded++;
+    reserveMemory(m.estimatedMemoryUsed());
+    totalAdded.increment();
 
-    if (mutations.getMemoryUsed() >= maxMem / 2) {
-      startProcessing();
+    MutationBuffer buffer = buffers[(int) (Thread.currentThread().getId() % buffers.length)];
+    MutationSet fullBuffer = buffer.add(table, m, bufferProcessingSize);
+    if (fullBuffer != null) {
+      queueMutations(fullBuffer);
       checkForFailures();
     }
+
+    if (flushing || closed) {
+      // a flush or close that started while this mutation was being added may have already
+      // drained this buffer, so queue the mutation here instead of waiting on the latency timer
+      MutationSet remaining = buffer.drain();
+      if (remaining != null) {
+        queueMutations(remaining);
+      }
+    }
+  }
+
+  /**
+   * Waits until memory is available and then counts {@code amount} as used. The check and the
+   * update are one atomic operation, so concurrent adds can not all see memory available and then
+   * together go over max memory. As when adds were serialized, memory used only goes over max
+   * memory by the size of the mutation that was added last.
+   */
+  private void reserveMemory(long amount) throws MutationsRejectedException {
+    while (true) {
+      long used = totalMemUsed.get();
+      if ((used > maxMem || flushing) && !somethingFailed) {
+        // only take the writer's lock when this thread has to wait
+        synchronized (this) {
+          waitRTE(() -> (totalMemUsed.get() > maxMem || flushing) && !somethingFailed);
+        }
+
+        // do checks again since things could have changed while waiting
+        if (closed)
+          throw new IllegalStateException("Closed");
+        checkForFailures();
+      } else if (totalMemUsed.compareAndSet(used, used + amount)) {
+        return;
+      }
+    }
   }
 
   public void addMutation(Table.ID table, Iterator<Mutation> iterator)
@@ -321,7 +404,7 @@ public class TabletServerBatchWriter {
       startProcessing();
       checkForFailures();
 
-      waitRTE(() -> totalMemUsed > 0 && !somethingFailed);
+      waitRTE(() -> totalMemUsed.get() > 0 && !somethingFailed);
 
       flushing = false;
       this.notifyAll();
@@ -344,7 +427,11 @@ public class TabletServerBatchWriter {
 
       startProcessing();
 
-      waitRTE(() -> totalMemUsed > 0 && !somethingFailed);
+      // an add that started before closed was set may still queue mutations, so let it finish
+      // before waiting for the queued mutations and shutting down the thread pools
+      waitRTE(() -> addsInProgress.get() > 0);
+
+      waitRTE(() -> totalMemUsed.get() > 0 && !somethingFailed);
 
       logStats();
 
@@ -375,16 +462,17 @@ public class TabletServerBatchWriter {
       }
 
       double averageRate = totalSent.get() / (totalSendTime.get() / 1000.0);
-      double overallRate = totalAdded / ((finishTime - startTime) / 1000.0);
+      long added = totalAdded.sum();
+      double overallRate = added / ((finishTime - startTime) / 1000.0);
 
       double finalSystemLoad = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
 
       log.trace("");
       log.trace("TABLET SERVER BATCH WRITER STATISTICS");
-      log.trace(String.format("Added                : %,10d mutations", totalAdded));
+      log.trace(String.format("Added                : %,10d mutations", added));
       log.trace(String.format("Sent                 : %,10d mutations", totalSent.get()));
       log.trace(String.format("Resent percentage   : %10.2f%s",
-          (totalSent.get() - totalAdded) / (double) totalAdded * 100.0, "%"));
+          (totalSent.get() - added) / (double) added * 100.0, "%"));
       log.trace(
           String.format("Overall time         : %,10.2f secs", (finishTime - startTime) / 1000.0));
       log.trace(String.format("Overall send rate    : %,10.2f mutations/sec", overallRate));
@@ -556,21 +644,25 @@ public class TabletServerBatchWriter {
 
   private void checkForFailures() throws MutationsRejectedException {
     if (somethingFailed) {
-      List<ConstraintViolationSummary> cvsList = violations.asList();
-      HashMap<TabletId,Set<org.apache.accumulo.core.client.security.SecurityErrorCode>> af = new HashMap<>();
-      for (Entry<KeyExtent,Set<SecurityErrorCode>> entry : authorizationFailures.entrySet()) {
-        HashSet<org.apache.accumulo.core.client.security.SecurityErrorCode> codes = new HashSet<>();
+      throwFailures();
+    }
+  }
 
-        for (SecurityErrorCode sce : entry.getValue()) {
-          codes.add(org.apache.accumulo.core.client.security.SecurityErrorCode.valueOf(sce.name()));
-        }
+  private synchronized void throwFailures() throws MutationsRejectedException {
+    List<ConstraintViolationSummary> cvsList = violations.asList();
+    HashMap<TabletId,Set<org.apache.accumulo.core.client.security.SecurityErrorCode>> af = new HashMap<>();
+    for (Entry<KeyExtent,Set<SecurityErrorCode>> entry : authorizationFailures.entrySet()) {
+      HashSet<org.apache.accumulo.core.client.security.SecurityErrorCode> codes = new HashSet<>();
 
-        af.put(new TabletIdImpl(entry.getKey()), codes);
+      for (SecurityErrorCode sce : entry.getValue()) {
+        codes.add(org.apache.accumulo.core.client.security.SecurityErrorCode.valueOf(sce.name()));
       }
 
-      throw new MutationsRejectedException(context.getClientInfo(), cvsList, af, serverSideErrors,
-          unknownErrors, lastUnknownError);
+      af.put(new TabletIdImpl(entry.getKey()), codes);
     }
+
+    throw new MutationsRejectedException(context.getClientInfo(), cvsList, af, serverSideErrors,
+        unknownErrors, lastUnknownError);
   }
 
   // END code for handling unrecoverable errors
@@ -580,9 +672,12 @@ public class TabletServerBatchWriter {
   /**
    * Add mutations that previously failed back into the mix
    */
-  private synchronized void addFailedMutations(MutationSet failedMutations) throws Exception {
-    mutations.addAll(failedMutations);
-    if (mutations.getMemoryUsed() >= maxMem / 2 || closed || flushing) {
+  private void addFailedMutations(MutationSet failedMutations) throws Exception {
+    // failed mutations are always requeued by the timer thread, so they share the first buffer
+    MutationSet fullBuffer = buffers[0].addAll(failedMutations, bufferProcessingSize);
+    if (fullBuffer != null) {
+      queueMutations(fullBuffer);
+    } else if (closed || flushing) {
       startProcessing();
     }
   }
@@ -658,20 +753,23 @@ public class TabletServerBatchWriter {
     private final Map<String,TabletServerMutations<Mutation>> serversMutations;
     private final Set<String> queued;
     private final Map<Table.ID,TabletLocator> locators;
+    private final Map<String,AdaptiveBatchSize> batchSizes;
 
-    public MutationWriter(int numSendThreads) {
+    public MutationWriter(int numSendThreads, int numBinningThreads) {
       serversMutations = new HashMap<>();
       queued = new HashSet<>();
+      batchSizes = new HashMap<>();
       sendThreadPool = new SimpleThreadPool(numSendThreads, this.getClass().getName());
       locators = new HashMap<>();
-      binningThreadPool = new SimpleThreadPool(1, "BinMutations", new SynchronousQueue<>());
+      binningThreadPool = new SimpleThreadPool(numBinningThreads, "BinMutations",
+          new SynchronousQueue<>());
       binningThreadPool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     private synchronized TabletLocator getLocator(Table.ID tableId) {
       TabletLocator ret = locators.get(tableId);
       if (ret == null) {
-        ret = new TimeoutTabletLocator(timeout, context, tableId);
+        ret = createLocator(tableId);
         locators.put(tableId, ret);
       }
 
@@ -796,10 +894,26 @@ public class TabletServerBatchWriter {
         }
     }
 
+    private synchronized AdaptiveBatchSize getBatchSize(String server) {
+      AdaptiveBatchSize batchSize = batchSizes.get(server);
+      if (batchSize == null) {
+        batchSize = new AdaptiveBatchSize(maxMem);
+        batchSizes.put(server, batchSize);
+      }
+      return batchSize;
+    }
+
     private synchronized TabletServerMutations<Mutation> getMutationsToSend(String server) {
       TabletServerMutations<Mutation> tsmuts = serversMutations.remove(server);
-      if (tsmuts == null)
+      if (tsmuts == null) {
         queued.remove(server);
+      } else {
+        // leave anything over the current batch size for this server queued for the next session
+        TabletServerMutations<Mutation> remaining = AdaptiveBatchSize.split(tsmuts,
+            getBatchSize(server).get());
+        if (remaining != null)
+          serversMutations.put(server, remaining);
+      }
 
       return tsmuts;
     }
@@ -840,11 +954,15 @@ public class TabletServerBatchWriter {
         try {
 
           long count = 0;
+          long bytes = 0;
 
           Set<Table.ID> tableIds = new TreeSet<>();
           for (Map.Entry<KeyExtent,List<Mutation>> entry : mutationBatch.entrySet()) {
             count += entry.getValue().size();
             tableIds.add(entry.getKey().getTableId());
+            for (Mutation mutation : entry.getValue()) {
+              bytes += mutation.numBytes();
+            }
           }
 
           String msg = "sending " + String.format("%,d", count) + " mutations to "
@@ -864,6 +982,7 @@ public class TabletServerBatchWriter {
             long st1 = System.currentTimeMillis();
             failures = sendMutationsToTabletServer(location, mutationBatch, timeoutTracker);
             long st2 = System.currentTimeMillis();
+            getBatchSize(location).succeeded(bytes, st2 - st1);
             if (log.isTraceEnabled())
               log.trace("sent " + String.format("%,d", count) + " mutations to " + location + " in "
                   + String.format("%.2f secs (%,.2f mutations/sec) with %,d failures",
@@ -891,6 +1010,8 @@ public class TabletServerBatchWriter {
           if (log.isTraceEnabled())
             log.trace("failed to send mutations to {} : {}", location, e.getMessage());
 
+          getBatchSize(location).failed();
+
           HashSet<Table.ID> tables = new HashSet<>();
           for (KeyExtent ke : mutationBatch.keySet())
             tables.add(ke.getTableId());
@@ -917,12 +1038,8 @@ public class TabletServerBatchWriter {
 
       try {
         final HostAndPort parsedServer = HostAndPort.fromString(location);
-        final TabletClientService.Iface client;
-
-        if (timeoutTracker.getTimeOut() < context.getClientTimeoutInMillis())
-          client = ThriftUtil.getTServerClient(parsedServer, context, timeoutTracker.getTimeOut());
-        else
-          client = ThriftUtil.getTServerClient(parsedServer, context);
+        final TabletClientService.Iface client = getTServerClient(parsedServer,
+            timeoutTracker.getTimeOut());
 
         try {
           MutationSet allFailures = new MutationSet();
@@ -997,7 +1114,7 @@ public class TabletServerBatchWriter {
           }
           return allFailures;
         } finally {
-          ThriftUtil.returnClient((TServiceClient) client);
+          returnTServerClient(client);
         }
       } catch (TTransportException e) {
         timeoutTracker.errorOccured(e);
@@ -1014,8 +1131,59 @@ public class TabletServerBatchWriter {
     }
   }
 
+  @VisibleForTesting
+  TabletLocator createLocator(Table.ID tableId) {
+    return new TimeoutTabletLocator(timeout, context, tableId);
+  }
+
+  @VisibleForTesting
+  TabletClientService.Iface getTServerClient(HostAndPort server, long timeout)
+      throws TTransportException {
+    if (timeout < context.getClientTimeoutInMillis())
+      return ThriftUtil.getTServerClient(server, context, timeout);
+    return ThriftUtil.getTServerClient(server, context);
+  }
+
+  @VisibleForTesting
+  void returnTServerClient(TabletClientService.Iface client) {
+    ThriftUtil.returnClient((TServiceClient) client);
+  }
+
   // END code for sending mutations to tablet servers using background threads
 
+  /**
+   * One stripe of the mutations that have been added, but not yet queued for binning.
+   */
+  private static class MutationBuffer {
+
+    private MutationSet mutations = new MutationSet();
+
+    /**
+     * @return the buffered mutations if adding this mutation brought them to {@code processingSize}
+     *         bytes, otherwise null
+     */
+    synchronized MutationSet add(Table.ID table, Mutation m, long processingSize) {
+      mutations.addMutation(table, m);
+      return mutations.getMemoryUsed() >= processingSize ? drain() : null;
+    }
+
+    synchronized MutationSet addAll(MutationSet ms, long processingSize) {
+      mutations.addAll(ms);
+      return mutations.getMemoryUsed() >= processingSize ? drain() : null;
+    }
+
+    /**
+     * @return the buffered mutations, or null if there are none
+     */
+    synchronized MutationSet drain() {
+      if (mutations.getMemoryUsed() == 0)
+        return null;
+      MutationSet ret = mutations;
+      mutations = new MutationSet();
+      return ret;
+    }
+  }
+
   private static class MutationSet {
 
     private final HashMap<Table.ID,List<Mutation>> mutations;
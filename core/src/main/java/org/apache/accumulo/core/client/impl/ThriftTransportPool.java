@@ -25,8 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -43,14 +42,31 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 
+/**
+ * Caches connections to servers. Each server has its own lock, so threads using different servers
+ * do not contend with each other. When a limit on the number of connections to a server is
+ * configured, threads that need a connection to a server that has reached the limit wait for
+ * another thread to return one, so that many concurrent calls share a few connections instead of
+ * opening one each.
+ */
 public class ThriftTransportPool {
 
   private static final SecureRandom random = new SecureRandom();
-  private long killTime = 1000 * 3;
+  private volatile long killTime = 1000 * 3;
 
+  /**
+   * The connections to a single server. All fields are guarded by the instance's monitor, which is
+   * also used to wait for a connection to be returned.
+   */
   private static class CachedConnections {
     LinkedList<CachedConnection> unreserved = new LinkedList<>();
     Map<CachedTTransport,CachedConnection> reserved = new HashMap<>();
+    // connections being opened outside of the lock, counted against the limit
+    int opening = 0;
+
+    long errorCount = 0;
+    long errorTime = 0;
+    boolean warnedAbout = false;
 
     public CachedConnection reserveAny() {
       if (unreserved.size() > 0) {
@@ -65,12 +81,14 @@ public class ThriftTransportPool {
 
       return null;
     }
+
+    int size() {
+      return unreserved.size() + reserved.size() + opening;
+    }
   }
 
-  private Map<ThriftTransportKey,CachedConnections> cache = new HashMap<>();
-  private Map<ThriftTransportKey,Long> errorCount = new HashMap<>();
-  private Map<ThriftTransportKey,Long> errorTime = new HashMap<>();
-  private Set<ThriftTransportKey> serversWarnedAbout = new HashSet<>();
+  private final Map<ThriftTransportKey,CachedConnections> cache = new ConcurrentHashMap<>();
+  private volatile boolean shutdown = false;
 
   private CountDownLatch closerExitLatch;
 
@@ -118,8 +136,8 @@ public class ThriftTransportPool {
 
         ArrayList<CachedConnection> connectionsToClose = new ArrayList<>();
 
-        synchronized (pool) {
-          for (CachedConnections cachedConns : pool.getCache().values()) {
+        for (CachedConnections cachedConns : pool.getCache().values()) {
+          synchronized (cachedConns) {
             Iterator<CachedConnection> iter = cachedConns.unreserved.iterator();
             while (iter.hasNext()) {
               CachedConnection cachedConnection = iter.next();
@@ -133,15 +151,11 @@ public class ThriftTransportPool {
             for (CachedConnection cachedConnection : cachedConns.reserved.values()) {
               cachedConnection.transport.checkForStuckIO(STUCK_THRESHOLD);
             }
-          }
 
-          Iterator<Entry<ThriftTransportKey,Long>> iter = pool.errorTime.entrySet().iterator();
-          while (iter.hasNext()) {
-            Entry<ThriftTransportKey,Long> entry = iter.next();
-            long delta = System.currentTimeMillis() - entry.getValue();
-            if (delta >= STUCK_THRESHOLD) {
-              pool.errorCount.remove(entry.getKey());
-              iter.remove();
+            if (cachedConns.errorTime != 0
+                && System.currentTimeMillis() - cachedConns.errorTime >= STUCK_THRESHOLD) {
+              cachedConns.errorCount = 0;
+              cachedConns.errorTime = 0;
             }
           }
         }
@@ -409,29 +423,66 @@ public class ThriftTransportPool {
 
   public TTransport getTransport(HostAndPort location, long milliseconds, ClientContext context)
       throws TTransportException {
-    return getTransport(new ThriftTransportKey(location, milliseconds, context));
+    return getTransport(new ThriftTransportKey(location, milliseconds, context),
+        context.getMaxConnectionsPerServer());
   }
 
-  private TTransport getTransport(ThriftTransportKey cacheKey) throws TTransportException {
+  /**
+   * @param maxConnections
+   *          the number of connections to the server above which a caller waits for a connection
+   *          to be returned instead of opening another, zero for no limit
+   */
+  private TTransport getTransport(ThriftTransportKey cacheKey, int maxConnections)
+      throws TTransportException {
     // compute hash code outside of lock, this lowers the time the lock is held
     cacheKey.precomputeHashCode();
-    synchronized (this) {
-      // atomically reserve location if it exist in cache
-      CachedConnections ccl = getCache().get(cacheKey);
+    CachedConnections ccl = getCachedConnections(cacheKey);
 
-      if (ccl == null) {
-        ccl = new CachedConnections();
-        getCache().put(cacheKey, ccl);
-      }
+    synchronized (ccl) {
+      long waitStart = 0;
+      while (true) {
+        if (shutdown)
+          throw new TransportPoolShutdownException();
 
-      CachedConnection cachedConnection = ccl.reserveAny();
-      if (cachedConnection != null) {
-        log.trace("Using existing connection to {}", cacheKey.getServer());
-        return cachedConnection.transport;
+        // atomically reserve location if it exist in cache
+        CachedConnection cachedConnection = ccl.reserveAny();
+        if (cachedConnection != null) {
+          log.trace("Using existing connection to {}", cacheKey.getServer());
+          return cachedConnection.transport;
+        }
+
+        if (maxConnections <= 0 || ccl.size() < maxConnections) {
+          break;
+        }
+
+        // Wait for a connection to be returned. If none is returned within the timeout, open one
+        // anyway, so that a caller holding a connection while it asks for another can not
+        // deadlock.
+        long now = System.currentTimeMillis();
+        if (waitStart == 0) {
+          waitStart = now;
+          log.trace("Waiting for one of {} connections to {}", ccl.size(), cacheKey.getServer());
+        }
+        long remaining = Math.max(cacheKey.getTimeout(), 1000) - (now - waitStart);
+        if (remaining <= 0) {
+          log.debug("Timed out waiting for a connection to {}, exceeding the limit of {}",
+              cacheKey.getServer(), maxConnections);
+          break;
+        }
+
+        try {
+          ccl.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new TTransportException("Interrupted waiting for a connection to "
+              + cacheKey.getServer(), e);
+        }
       }
+
+      ccl.opening++;
     }
 
-    return createNewTransport(cacheKey);
+    return createNewTransport(cacheKey, ccl);
   }
 
   @VisibleForTesting
@@ -443,22 +494,19 @@ public class ThriftTransportPool {
     if (preferCachedConnection) {
       HashSet<ThriftTransportKey> serversSet = new HashSet<>(servers);
 
-      synchronized (this) {
-
-        // randomly pick a server from the connection cache
-        serversSet.retainAll(getCache().keySet());
+      // randomly pick a server from the connection cache
+      serversSet.retainAll(getCache().keySet());
 
-        if (serversSet.size() > 0) {
-          ArrayList<ThriftTransportKey> cachedServers = new ArrayList<>(serversSet);
-          Collections.shuffle(cachedServers, random);
+      if (serversSet.size() > 0) {
+        ArrayList<ThriftTransportKey> cachedServers = new ArrayList<>(serversSet);
+        Collections.shuffle(cachedServers, random);
 
-          for (ThriftTransportKey ttk : cachedServers) {
-            CachedConnection cachedConnection = getCache().get(ttk).reserveAny();
-            if (cachedConnection != null) {
-              final String serverAddr = ttk.getServer().toString();
-              log.trace("Using existing connection to {}", serverAddr);
-              return new Pair<>(serverAddr, cachedConnection.transport);
-            }
+        for (ThriftTransportKey ttk : cachedServers) {
+          CachedConnection cachedConnection = reserveAny(ttk);
+          if (cachedConnection != null) {
+            final String serverAddr = ttk.getServer().toString();
+            log.trace("Using existing connection to {}", serverAddr);
+            return new Pair<>(serverAddr, cachedConnection.transport);
           }
         }
       }
@@ -470,20 +518,20 @@ public class ThriftTransportPool {
       ThriftTransportKey ttk = servers.get(index);
 
       if (preferCachedConnection) {
-        synchronized (this) {
-          CachedConnections cachedConns = getCache().get(ttk);
-          if (cachedConns != null) {
-            CachedConnection cachedConnection = cachedConns.reserveAny();
-            if (cachedConnection != null) {
-              final String serverAddr = ttk.getServer().toString();
-              return new Pair<>(serverAddr, cachedConnection.transport);
-            }
-          }
+        CachedConnection cachedConnection = reserveAny(ttk);
+        if (cachedConnection != null) {
+          final String serverAddr = ttk.getServer().toString();
+          return new Pair<>(serverAddr, cachedConnection.transport);
         }
       }
 
+      CachedConnections cachedConns = getCachedConnections(ttk);
+      synchronized (cachedConns) {
+        cachedConns.opening++;
+      }
+
       try {
-        return new Pair<>(ttk.getServer().toString(), createNewTransport(ttk));
+        return new Pair<>(ttk.getServer().toString(), createNewTransport(ttk, cachedConns));
       } catch (TTransportException tte) {
         log.debug("Failed to connect to {}", servers.get(index), tte);
         servers.remove(index);
@@ -494,32 +542,53 @@ public class ThriftTransportPool {
     throw new TTransportException("Failed to connect to a server");
   }
 
-  private TTransport createNewTransport(ThriftTransportKey cacheKey) throws TTransportException {
-    TTransport transport = ThriftUtil.createClientTransport(cacheKey.getServer(),
-        (int) cacheKey.getTimeout(), cacheKey.getSslParams(), cacheKey.getSaslParams());
+  private CachedConnections getCachedConnections(ThriftTransportKey cacheKey) {
+    return getCache().computeIfAbsent(cacheKey, k -> new CachedConnections());
+  }
 
-    log.trace("Creating new connection to connection to {}", cacheKey.getServer());
+  private CachedConnection reserveAny(ThriftTransportKey cacheKey) {
+    CachedConnections cachedConns = getCache().get(cacheKey);
+    if (cachedConns == null) {
+      return null;
+    }
+    synchronized (cachedConns) {
+      return cachedConns.reserveAny();
+    }
+  }
 
-    CachedTTransport tsc = new CachedTTransport(transport, cacheKey);
+  /**
+   * Opens a connection that was already counted in {@link CachedConnections#opening}.
+   */
+  private TTransport createNewTransport(ThriftTransportKey cacheKey, CachedConnections cachedConns)
+      throws TTransportException {
+    CachedConnection cc = null;
+    try {
+      TTransport transport = ThriftUtil.createClientTransport(cacheKey.getServer(),
+          (int) cacheKey.getTimeout(), cacheKey.getSslParams(), cacheKey.getSaslParams());
 
-    CachedConnection cc = new CachedConnection(tsc);
-    cc.reserve();
+      log.trace("Creating new connection to connection to {}", cacheKey.getServer());
 
-    try {
-      synchronized (this) {
-        CachedConnections cachedConns = getCache().get(cacheKey);
+      CachedTTransport tsc = new CachedTTransport(transport, cacheKey);
 
-        if (cachedConns == null) {
-          cachedConns = new CachedConnections();
-          getCache().put(cacheKey, cachedConns);
+      cc = new CachedConnection(tsc);
+      cc.reserve();
+    } finally {
+      synchronized (cachedConns) {
+        cachedConns.opening--;
+        if (cc != null) {
+          cachedConns.reserved.put(cc.transport, cc);
+        } else {
+          // the connection failed, let a waiting thread try instead
+          cachedConns.notify();
         }
-
-        cachedConns.reserved.put(cc.transport, cc);
       }
-    } catch (TransportPoolShutdownException e) {
+    }
+
+    if (shutdown) {
       cc.transport.close();
-      throw e;
+      throw new TransportPoolShutdownException();
     }
+
     return cc.transport;
   }
 
@@ -533,9 +602,9 @@ public class ThriftTransportPool {
 
     ArrayList<CachedConnection> closeList = new ArrayList<>();
 
-    synchronized (this) {
-      CachedConnections cachedConns = getCache().get(ctsc.getCacheKey());
-      if (cachedConns != null) {
+    CachedConnections cachedConns = getCache().get(ctsc.getCacheKey());
+    if (cachedConns != null) {
+      synchronized (cachedConns) {
         CachedConnection cachedConnection = cachedConns.reserved.remove(ctsc);
         if (cachedConnection != null) {
           if (ctsc.sawError) {
@@ -543,22 +612,17 @@ public class ThriftTransportPool {
 
             log.trace("Returned connection had error {}", ctsc.getCacheKey());
 
-            Long ecount = errorCount.get(ctsc.getCacheKey());
-            if (ecount == null)
-              ecount = 0L;
-            ecount++;
-            errorCount.put(ctsc.getCacheKey(), ecount);
+            long ecount = ++cachedConns.errorCount;
 
-            Long etime = errorTime.get(ctsc.getCacheKey());
-            if (etime == null) {
-              errorTime.put(ctsc.getCacheKey(), System.currentTimeMillis());
+            if (cachedConns.errorTime == 0) {
+              cachedConns.errorTime = System.currentTimeMillis();
             }
 
-            if (ecount >= ERROR_THRESHOLD && !serversWarnedAbout.contains(ctsc.getCacheKey())) {
+            if (ecount >= ERROR_THRESHOLD && !cachedConns.warnedAbout) {
               log.warn(
                   "Server {} had {} failures in a short time period, will not complain anymore",
                   ctsc.getCacheKey(), ecount);
-              serversWarnedAbout.add(ctsc.getCacheKey());
+              cachedConns.warnedAbout = true;
             }
 
             cachedConnection.unreserve();
@@ -568,6 +632,8 @@ public class ThriftTransportPool {
             closeList.addAll(cachedConns.unreserved);
             cachedConns.unreserved.clear();
 
+            // threads waiting for a connection may open new ones now
+            cachedConns.notifyAll();
           } else {
             log.trace("Returned connection {} ioCount: {}", ctsc.getCacheKey(),
                 cachedConnection.transport.ioCount);
@@ -580,6 +646,7 @@ public class ThriftTransportPool {
             // cleaned up. Using a FIFO could continually reset the idle
             // times of all connections, even when there are more than the working set size.
             cachedConns.unreserved.addFirst(cachedConnection);
+            cachedConns.notify();
           }
           existInCache = true;
         }
@@ -605,7 +672,7 @@ public class ThriftTransportPool {
   /**
    * Set the time after which idle connections should be closed
    */
-  public synchronized void setIdleTime(long time) {
+  public void setIdleTime(long time) {
     this.killTime = time;
     log.debug("Set thrift transport pool idle time to {}", time);
   }
@@ -628,11 +695,16 @@ public class ThriftTransportPool {
 
   public void shutdown() {
     synchronized (this) {
-      if (cache == null)
+      if (shutdown)
         return;
 
-      // close any connections in the pool... even ones that are in use
-      for (CachedConnections cachedConn : getCache().values()) {
+      // this will render the pool unusable and cause the background thread to exit
+      shutdown = true;
+    }
+
+    // close any connections in the pool... even ones that are in use
+    for (CachedConnections cachedConn : cache.values()) {
+      synchronized (cachedConn) {
         for (CachedConnection cc : Iterables.concat(cachedConn.reserved.values(),
             cachedConn.unreserved)) {
           try {
@@ -641,11 +713,10 @@ public class ThriftTransportPool {
             log.debug("Error closing transport during shutdown", e);
           }
         }
+        cachedConn.notifyAll();
       }
-
-      // this will render the pool unusable and cause the background thread to exit
-      this.cache = null;
     }
+    cache.clear();
 
     try {
       closerExitLatch.await();
@@ -655,7 +726,7 @@ public class ThriftTransportPool {
   }
 
   private Map<ThriftTransportKey,CachedConnections> getCache() {
-    if (cache == null)
+    if (shutdown)
       throw new TransportPoolShutdownException();
     return cache;
   }
@@ -80,6 +80,7 @@ class RFileScanner extends ScannerOptions implements Scanner {
   private Opts opts;
   private int batchSize = 1000;
   private long readaheadThreshold = 3;
+  private int readaheadDepth = 1;
   private AccumuloConfiguration tableConf;
   private CryptoService cryptoService;
 
@@ -283,6 +284,17 @@ class RFileScanner extends ScannerOptions implements Scanner {
     return readaheadThreshold;
   }
 
+  @Override
+  public synchronized void setReadaheadDepth(int depth) {
+    Preconditions.checkArgument(depth > 0);
+    readaheadDepth = depth;
+  }
+
+  @Override
+  public synchronized int getReadaheadDepth() {
+    return readaheadDepth;
+  }
+
   @Override
   public Authorizations getAuthorizations() {
     return opts.auths;
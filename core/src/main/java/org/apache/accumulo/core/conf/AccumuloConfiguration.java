@@ -34,6 +34,7 @@ import java.util.function.Predicate;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.conf.PropertyType.PortRange;
+import org.apache.accumulo.core.spi.compaction.SimpleCompactionDispatcher;
 import org.apache.accumulo.core.spi.scan.SimpleScanDispatcher;
 import org.apache.accumulo.core.util.Pair;
 import org.slf4j.Logger;
@@ -484,6 +485,103 @@ public abstract class AccumuloConfiguration implements Iterable<Entry<String,Str
     return scanResources;
   }
 
+  private static final String COMPACTION_EXEC_THREADS = "threads";
+  private static final String COMPACTION_EXEC_PRIORITIZER = "prioritizer";
+  private static final String COMPACTION_EXEC_PRIORITIZER_OPTS = "prioritizer.opts.";
+
+  public class CompactionExecutorConfig {
+    public final String name;
+    public final int maxThreads;
+    public final Optional<String> prioritizerClass;
+    public final Map<String,String> prioritizerOpts;
+
+    public CompactionExecutorConfig(String name, int maxThreads, Optional<String> prioritizerClass,
+        Map<String,String> prioritizerOpts) {
+      this.name = name;
+      this.maxThreads = maxThreads;
+      this.prioritizerClass = prioritizerClass;
+      this.prioritizerOpts = prioritizerOpts;
+    }
+
+    /**
+     * Re-reads the max threads from the configuration that created this class
+     */
+    public int getCurrentMaxThreads() {
+      String prop = Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey() + name + "."
+          + COMPACTION_EXEC_THREADS;
+      String val = getAllPropertiesWithPrefix(Property.TSERV_MAJC_EXECUTORS_PREFIX).get(prop);
+      if (val == null && name.equals(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME))
+        return getCount(Property.TSERV_MAJC_MAXCONCURRENT);
+      return Integer.parseInt(val);
+    }
+  }
+
+  /**
+   * Parses the compaction executors configured with properties of the form
+   * {@code tserver.compaction.major.executors.<name>.<option>}. There is always an executor named
+   * {@code default}, which gets its threads from {@link Property#TSERV_MAJC_MAXCONCURRENT} unless
+   * they are set for it.
+   */
+  public Collection<CompactionExecutorConfig> getCompactionExecutors() {
+
+    Map<String,Map<String,String>> propsByName = new HashMap<>();
+    propsByName.put(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME, new HashMap<>());
+
+    for (Entry<String,String> entry : getAllPropertiesWithPrefix(
+        Property.TSERV_MAJC_EXECUTORS_PREFIX).entrySet()) {
+
+      String suffix = entry.getKey()
+          .substring(Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey().length());
+      String[] tokens = suffix.split("\\.", 2);
+      Preconditions.checkArgument(tokens.length == 2, "Invalid compaction executor property : %s",
+          entry.getKey());
+
+      propsByName.computeIfAbsent(tokens[0], k -> new HashMap<>()).put(tokens[1],
+          entry.getValue());
+    }
+
+    List<CompactionExecutorConfig> executors = new ArrayList<>();
+
+    for (Entry<String,Map<String,String>> entry : propsByName.entrySet()) {
+      String name = entry.getKey();
+      Integer threads = null;
+      String prioritizerClass = null;
+      Map<String,String> prioritizerOpts = new HashMap<>();
+
+      for (Entry<String,String> subEntry : entry.getValue().entrySet()) {
+        String opt = subEntry.getKey();
+        String val = subEntry.getValue();
+
+        if (opt.equals(COMPACTION_EXEC_THREADS)) {
+          threads = Integer.parseInt(val);
+        } else if (opt.equals(COMPACTION_EXEC_PRIORITIZER)) {
+          prioritizerClass = val;
+        } else if (opt.startsWith(COMPACTION_EXEC_PRIORITIZER_OPTS)) {
+          String key = opt.substring(COMPACTION_EXEC_PRIORITIZER_OPTS.length());
+          if (key.isEmpty()) {
+            throw new IllegalStateException("Invalid compaction executor option : " + opt);
+          }
+          prioritizerOpts.put(key, val);
+        } else {
+          throw new IllegalStateException("Unkown compaction executor option : " + opt);
+        }
+      }
+
+      if (threads == null
+          && name.equals(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME)) {
+        threads = getCount(Property.TSERV_MAJC_MAXCONCURRENT);
+      }
+
+      Preconditions.checkArgument(threads != null && threads > 0,
+          "Compaction executor %s incorrectly specified threads", name);
+
+      executors.add(new CompactionExecutorConfig(name, threads,
+          Optional.ofNullable(prioritizerClass), prioritizerOpts));
+    }
+
+    return executors;
+  }
+
   /**
    * Invalidates the <code>ZooCache</code> used for storage and quick retrieval of properties for
    * this configuration.
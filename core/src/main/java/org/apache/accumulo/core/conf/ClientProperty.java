@@ -63,6 +63,9 @@ public enum ClientProperty {
   BATCH_WRITER_DURABILITY("batch.writer.durability", "default",
       "Change the" + " durability for the BatchWriter session. To use the table's durability"
           + " setting. use \"default\" which is the table's durability setting."),
+  BATCH_WRITER_BUFFER_STRIPES("batch.writer.buffer.stripes", "1",
+      "Number of buffers that threads sharing a BatchWriter add mutations to. Increase this when"
+          + " many threads share a single BatchWriter."),
 
   // Scanner
   SCANNER_BATCH_SIZE("scanner.batch.size", "1000",
@@ -71,6 +74,17 @@ public enum ClientProperty {
   // BatchScanner
   BATCH_SCANNER_NUM_QUERY_THREADS("batch.scanner.num.query.threads", "3",
       "Number of concurrent query threads to spawn for querying"),
+  BATCH_SCANNER_ORDERED_BUFFER_BYTES("batch.scanner.ordered.buffer.bytes", "1048576",
+      "Bytes of results an ordered BatchScanner holds in memory per tablet before spilling further"
+          + " results of the tablet to local disk"),
+  BATCH_SCANNER_SPILL_DIR("batch.scanner.spill.dir", "",
+      "Local directory where an ordered BatchScanner spills results, defaults to the directory"
+          + " given by the java.io.tmpdir system property"),
+
+  // Tablet locations
+  TABLET_LOCATOR_PREFETCH_THREADS("tablet.locator.prefetch.threads", "16",
+      "Maximum number of threads used to read tablet locations from several metadata tablet"
+          + " servers at once. The threads are shared by all scanners and writers of a client."),
 
   // Bulk load
   BULK_LOAD_THREADS("bulk.threads", ImportMappingOptions.BULK_LOAD_THREADS_DEFAULT,
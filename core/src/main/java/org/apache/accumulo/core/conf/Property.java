@@ -32,6 +32,10 @@ import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.metadata.MetadataTable;
+import org.apache.accumulo.core.spi.compaction.CompactionDispatcher;
+import org.apache.accumulo.core.spi.compaction.CompactionPrioritizer;
+import org.apache.accumulo.core.spi.compaction.DefaultCompactionPrioritizer;
+import org.apache.accumulo.core.spi.compaction.SimpleCompactionDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanPrioritizer;
 import org.apache.accumulo.core.spi.scan.SimpleScanDispatcher;
@@ -206,6 +210,13 @@ public enum Property {
           + "a reload of the classloader."),
   GENERAL_RPC_TIMEOUT("general.rpc.timeout", "120s", PropertyType.TIMEDURATION,
       "Time to wait on I/O for simple, short RPC calls"),
+  GENERAL_RPC_MAX_CONNECTIONS_PER_SERVER("general.rpc.max.connections.per.server", "0",
+      PropertyType.COUNT,
+      "The number of cached connections to a single server above which a thread waits for a"
+          + " connection to be returned instead of opening another one. Concurrent calls to the"
+          + " server then share these connections, which limits the number of open sockets when"
+          + " talking to many servers. A thread that waits longer than its RPC timeout opens a"
+          + " connection anyway. Zero means no limit."),
   @Experimental
   GENERAL_RPC_SERVER_TYPE("general.rpc.server.type", "", PropertyType.STRING,
       "Type of Thrift server to instantiate, see "
@@ -315,8 +326,11 @@ public enum Property {
   TSERV_CACHE_MANAGER_IMPL("tserver.cache.manager.class",
       "org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager", PropertyType.STRING,
       "Specifies the class name of the block cache factory implementation."
-          + " Alternative implementation is"
-          + " org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager"),
+          + " Alternative implementations are"
+          + " org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager and"
+          + " org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheManager."
+          + " The off heap implementation stores blocks in direct memory, so the JVM option"
+          + " -XX:MaxDirectMemorySize must be large enough to hold all of the caches."),
   TSERV_DATACACHE_SIZE("tserver.cache.data.size", "10%", PropertyType.MEMORY,
       "Specifies the size of the cache for RFile data blocks."),
   TSERV_INDEXCACHE_SIZE("tserver.cache.index.size", "25%", PropertyType.MEMORY,
@@ -367,6 +381,14 @@ public enum Property {
   TSERV_NATIVEMAP_ENABLED("tserver.memory.maps.native.enabled", "true", PropertyType.BOOLEAN,
       "An in-memory data store for accumulo implemented in c++ that increases"
           + " the amount of data accumulo can hold in memory and avoids Java GC" + " pauses."),
+  TSERV_ARENAMAP_ENABLED("tserver.memory.maps.arena.enabled", "false", PropertyType.BOOLEAN,
+      "An in-memory data store implemented in Java that packs entries into large arenas instead"
+          + " of creating objects for each entry. It is used when native maps are disabled or"
+          + " the native library can not be loaded."),
+  TSERV_ARENAMAP_OFFHEAP("tserver.memory.maps.arena.offheap", "false", PropertyType.BOOLEAN,
+      "If true, the arenas of in-memory maps enabled by tserver.memory.maps.arena.enabled are"
+          + " allocated outside of the Java heap. The JVM must be allowed enough direct memory,"
+          + " see -XX:MaxDirectMemorySize, to hold tserver.memory.maps.max."),
   TSERV_MAXMEM("tserver.memory.maps.max", "33%", PropertyType.MEMORY,
       "Maximum amount of memory that can be used to buffer data written to a"
           + " tablet server. There are two other properties that can effectively limit"
@@ -395,6 +417,19 @@ public enum Property {
       PropertyType.COUNT,
       "This property is deprecated since 2.0.0, use tserver.scan.executors.meta.threads instead. "
           + "The maximum number of concurrent metadata read ahead that will execute."),
+  TSERV_SCAN_READAHEAD_DEPTH("tserver.scan.readahead.depth", "1", PropertyType.COUNT,
+      "The maximum number of batches a tablet server reads ahead for a scan once the scan has"
+          + " passed its read ahead threshold. When greater than one, the next batch is started as"
+          + " soon as the previous one is read, without waiting for the client to ask for it."),
+  TSERV_SCAN_READAHEAD_MAX_MEMORY("tserver.scan.readahead.max.memory", "100M",
+      PropertyType.BYTES,
+      "The maximum amount of memory used by batches that a tablet server has read for scans but"
+          + " that have not been sent to clients yet. When this is exceeded scans stop reading"
+          + " more than one batch ahead."),
+  TSERV_SCAN_RESULT_MAX_MEMORY("tserver.scan.result.max.memory", "1M", PropertyType.BYTES,
+      "When a client asks for the next batch of a scan, batches that were already read ahead"
+          + " (see tserver.scan.readahead.depth) are sent in the same response until it holds"
+          + " this much data. This saves clients a round trip for each batch read ahead."),
   TSERV_SCAN_EXECUTORS_PREFIX("tserver.scan.executors.", null, PropertyType.PREFIX,
       "Prefix for defining executors to service scans. See "
           + "[scan executors]({% durl administration/scan-executors %}) for an overview of why and"
@@ -417,10 +452,39 @@ public enum Property {
   TSERV_MIGRATE_MAXCONCURRENT("tserver.migrations.concurrent.max", "1", PropertyType.COUNT,
       "The maximum number of concurrent tablet migrations for a tablet server"),
   TSERV_MAJC_MAXCONCURRENT("tserver.compaction.major.concurrent.max", "3", PropertyType.COUNT,
-      "The maximum number of concurrent major compactions for a tablet server"),
+      "The maximum number of concurrent major compactions for a tablet server in the compaction"
+          + " executor that tables use by default. Other executors are configured with"
+          + " tserver.compaction.major.executors. This is also the number of row ranges of"
+          + " partitioned major compactions that run at once, see"
+          + " table.compaction.major.partitions.max."),
+  TSERV_MAJC_EXECUTORS_PREFIX("tserver.compaction.major.executors.", null, PropertyType.PREFIX,
+      "Prefix for defining executors to run major compactions. Tables choose an executor with"
+          + " table.compaction.dispatcher. For each executor the number of threads and an"
+          + " optional prioritizer can be configured. To configure a new executor, set "
+          + "`tserver.compaction.major.executors.<name>.threads=<number>`. Optionally, can also"
+          + " set `tserver.compaction.major.executors.<name>.prioritizer=<class name>` and "
+          + "`tserver.compaction.major.executors.<name>.prioritizer.opts.<key>=<value>`. The"
+          + " threads of the `default` executor are set with"
+          + " tserver.compaction.major.concurrent.max."),
+  TSERV_MAJC_EXECUTORS_DEFAULT_PRIORITIZER("tserver.compaction.major.executors.default.prioritizer",
+      DefaultCompactionPrioritizer.class.getName(), PropertyType.STRING,
+      "Prioritizer for the default compaction executor. Set to a class that implements "
+          + CompactionPrioritizer.class.getName() + " to change the order in which queued"
+          + " major compactions run, or to an empty string for FIFO order."),
   TSERV_MAJC_THROUGHPUT("tserver.compaction.major.throughput", "0B", PropertyType.BYTES,
       "Maximum number of bytes to read or write per second over all major"
-          + " compactions on a TabletServer, or 0B for unlimited."),
+          + " compactions on a TabletServer, or 0B for unlimited. Compactor processes apply"
+          + " the same limit over all of their compactions."),
+  TSERV_MAJC_EXTERNAL_START_TIMEOUT("tserver.compaction.major.external.start.timeout", "5m",
+      PropertyType.TIMEDURATION,
+      "How long a tablet server waits for a compactor process to take a major compaction of a"
+          + " table with table.compaction.major.external set. A compaction no compactor took in"
+          + " this time is compacted by the tablet server itself."),
+  TSERV_MAJC_EXTERNAL_HEARTBEAT_TIMEOUT("tserver.compaction.major.external.heartbeat.timeout",
+      "5m", PropertyType.TIMEDURATION,
+      "How long a tablet server waits for a compactor process that is running a major compaction"
+          + " to report progress. A compaction that reports no progress in this time is withdrawn"
+          + " from the compactor and compacted by the tablet server itself."),
   TSERV_MINC_MAXCONCURRENT("tserver.compaction.minor.concurrent.max", "4", PropertyType.COUNT,
       "The maximum number of concurrent minor compactions for a tablet server"),
   TSERV_MAJC_TRACE_PERCENT("tserver.compaction.major.trace.percent", "0.1", PropertyType.FRACTION,
@@ -477,13 +541,28 @@ public enum Property {
   TSERV_RECOVERY_MAX_CONCURRENT("tserver.recovery.concurrent.max", "2", PropertyType.COUNT,
       "The maximum number of threads to use to sort logs during" + " recovery"),
   TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "10%", PropertyType.MEMORY,
-      "The amount of memory to use when sorting logs during recovery."),
+      "The amount of memory to use for each chunk of a log sorted during recovery."),
+  TSERV_SORT_THREADS("tserver.sort.threads", "2", PropertyType.COUNT,
+      "The number of threads used to sort and write the chunks of a single log during recovery."
+          + " Reading the log overlaps with sorting and writing earlier chunks. Each chunk being"
+          + " processed holds up to tserver.sort.buffer.size, so sorting a log uses up to this"
+          + " many times that memory."),
   TSERV_WORKQ_THREADS("tserver.workq.threads", "2", PropertyType.COUNT,
       "The number of threads for the distributed work queue. These threads are"
           + " used for copying failed bulk import RFiles."),
   TSERV_WAL_SYNC("tserver.wal.sync", "true", PropertyType.BOOLEAN,
       "Use the SYNC_BLOCK create flag to sync WAL writes to disk. Prevents"
           + " problems recovering from sudden system resets."),
+  TSERV_WAL_STRIPES("tserver.wal.stripes", "1", PropertyType.COUNT,
+      "The number of Write-Ahead logs a tablet server writes to at the same time."
+          + " Tablets are divided among the logs, and each log has its own HDFS"
+          + " pipeline, so on nodes with many disks ingest can scale past the"
+          + " throughput of a single pipeline."),
+  TSERV_WAL_SYNC_MAX_INFLIGHT("tserver.wal.sync.inflight.max", "1", PropertyType.COUNT,
+      "The maximum number of syncs or flushes of a Write-Ahead log that may be"
+          + " outstanding at once. When greater than one, the next group of log writes"
+          + " is synced while earlier syncs are still waiting to be acknowledged, so"
+          + " writers do not have to wait for one sync at a time."),
   @Deprecated
   TSERV_WAL_SYNC_METHOD("tserver.wal.sync.method", "hsync", PropertyType.STRING,
       "This property is deprecated since 1.7.0. Use table.durability instead."),
@@ -535,6 +614,13 @@ public enum Property {
   GC_TRACE_PERCENT("gc.trace.percent", "0.01", PropertyType.FRACTION,
       "Percent of gc cycles to trace"),
 
+  // properties that are specific to compactor processes
+  COMPACTOR_PREFIX("compactor.", null, PropertyType.PREFIX,
+      "Properties in this category affect the behavior of the processes that run major"
+          + " compactions on behalf of tablet servers."),
+  COMPACTOR_THREADS("compactor.threads", "2", PropertyType.COUNT,
+      "The number of major compactions a compactor process runs at the same time."),
+
   // properties that are specific to the monitor server behavior
   MONITOR_PREFIX("monitor.", null, PropertyType.PREFIX,
       "Properties in this category affect the behavior of the monitor web server."),
@@ -629,6 +715,30 @@ public enum Property {
           + " tablet will be compacted. Compactions of idle tablets are only started"
           + " when regular compactions are not running. Idle compactions only take"
           + " place for tablets that have one or more RFiles."),
+  TABLE_MAJC_LOCALITY_GROUP_THREADS("table.compaction.major.locality.group.threads", "1",
+      PropertyType.COUNT,
+      "The number of threads a major compaction uses to compact the locality groups of a"
+          + " tablet in parallel. Each locality group is compacted into a temporary file in the"
+          + " tablet's directory, and the files are then copied into the output file. With the"
+          + " default of 1 the locality groups are compacted one after the other."),
+  TABLE_MAJC_PARTITIONS_MAX("table.compaction.major.partitions.max", "1", PropertyType.COUNT,
+      "The maximum number of row ranges the last pass of a major compaction of a large tablet is"
+          + " divided into. The ranges are compacted in parallel, each into its own file, so the"
+          + " tablet has one file per range afterwards. The ranges of all tablets share"
+          + " tserver.compaction.major.concurrent.max threads. A major compaction that selects one"
+          + " of these files compacts all of them, and the default compaction strategy treats them"
+          + " as a single file. At most half of table.file.max ranges are used. With the default"
+          + " of 1 a major compaction always writes a single file. The root tablet is never"
+          + " partitioned."),
+  TABLE_MAJC_PARTITION_SIZE_MIN("table.compaction.major.partition.size.min", "1G",
+      PropertyType.BYTES,
+      "The minimum amount of input data for each row range of a partitioned major compaction."
+          + " See " + "table.compaction.major.partitions.max" + "."),
+  TABLE_MAJC_EXTERNAL("table.compaction.major.external", "false", PropertyType.BOOLEAN,
+      "Major compactions of the table are run by compactor processes, started with"
+          + " 'accumulo compactor', instead of by the tablet server hosting the tablet. The"
+          + " tablet server still chooses the files and commits the result. Compactions of the"
+          + " metadata tables and partitioned compactions are always run by the tablet server."),
   TABLE_SPLIT_THRESHOLD("table.split.threshold", "1G", PropertyType.BYTES,
       "A tablet is split when the combined size of RFiles exceeds this amount."),
   TABLE_MAX_END_ROW_SIZE("table.split.endrow.size.max", "10K", PropertyType.BYTES,
@@ -653,6 +763,14 @@ public enum Property {
           + " table.  The metadata table always dispatches to a scan executor named `meta`."),
   TABLE_SCAN_DISPATCHER_OPTS("table.scan.dispatcher.opts.", null, PropertyType.PREFIX,
       "Options for the table scan dispatcher"),
+  TABLE_COMPACTION_DISPATCHER("table.compaction.dispatcher",
+      SimpleCompactionDispatcher.class.getName(), PropertyType.CLASSNAME,
+      "This class is used to dynamically dispatch major compactions to configured compaction"
+          + " executors, see tserver.compaction.major.executors. Configured classes must"
+          + " implement {% jlink " + CompactionDispatcher.class.getName() + " %}. This property"
+          + " is ignored for the root and metadata table, which have their own executors."),
+  TABLE_COMPACTION_DISPATCHER_OPTS("table.compaction.dispatcher.opts.", null, PropertyType.PREFIX,
+      "Options for the table compaction dispatcher"),
   TABLE_SCAN_MAXMEM("table.scan.max.memory", "512K", PropertyType.BYTES,
       "The maximum amount of memory that will be used to cache results of a client query/scan. "
           + "Once this limit is reached, the buffered data is sent to the client."),
@@ -1148,7 +1266,8 @@ public enum Property {
             || key.startsWith(Property.TABLE_ARBITRARY_PROP_PREFIX.getKey())
             || key.startsWith(TABLE_SAMPLER_OPTS.getKey())
             || key.startsWith(TABLE_SUMMARIZER_PREFIX.getKey())
-            || key.startsWith(TABLE_SCAN_DISPATCHER_OPTS.getKey())));
+            || key.startsWith(TABLE_SCAN_DISPATCHER_OPTS.getKey())
+            || key.startsWith(TABLE_COMPACTION_DISPATCHER_OPTS.getKey())));
   }
 
   /**
@@ -1164,7 +1283,8 @@ public enum Property {
       Property.TABLE_SCAN_MAXMEM, Property.INSTANCE_CRYPTO_SERVICE, Property.TABLE_DELETE_BEHAVIOR);
 
   private static final EnumSet<Property> fixedProperties = EnumSet.of(Property.TSERV_CLIENTPORT,
-      Property.TSERV_NATIVEMAP_ENABLED, Property.TSERV_SCAN_MAX_OPENFILES,
+      Property.TSERV_NATIVEMAP_ENABLED, Property.TSERV_ARENAMAP_ENABLED,
+      Property.TSERV_ARENAMAP_OFFHEAP, Property.TSERV_SCAN_MAX_OPENFILES,
       Property.MASTER_CLIENTPORT, Property.GC_PORT);
 
   /**
@@ -1192,6 +1312,7 @@ public enum Property {
         || key.startsWith(Property.TSERV_PREFIX.getKey())
         || key.startsWith(Property.MASTER_PREFIX.getKey())
         || key.startsWith(Property.GC_PREFIX.getKey())
+        || key.startsWith(Property.COMPACTOR_PREFIX.getKey())
         || key.startsWith(Property.GENERAL_ARBITRARY_PROP_PREFIX.getKey())
         || key.startsWith(VFS_CONTEXT_CLASSPATH_PROPERTY.getKey())
         || key.startsWith(REPLICATION_PREFIX.getKey());
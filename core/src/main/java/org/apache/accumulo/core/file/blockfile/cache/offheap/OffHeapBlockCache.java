@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.file.blockfile.cache.lru.SynchronousLoadingBlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A block cache that stores block contents outside of the Java heap in direct memory managed by a
+ * {@link PageAllocator}. Only the block names, page tables, and any indexes built over cached
+ * blocks live on the heap, so a large cache does not increase garbage collection work.
+ *
+ * <p>
+ * Reading a block copies it out of direct memory into a short lived heap buffer. Blocks are
+ * reference counted so that the pages of a block evicted while it is being copied are not reused
+ * until the copy completes.
+ *
+ * <p>
+ * Eviction is least recently used. When the number of used pages exceeds the acceptable size, the
+ * least recently accessed blocks are evicted until usage falls below the minimum size.
+ */
+public class OffHeapBlockCache extends SynchronousLoadingBlockCache implements BlockCache {
+
+  private static final Logger log = LoggerFactory.getLogger(OffHeapBlockCache.class);
+
+  /** Statistics thread */
+  static final int statThreadPeriod = 60;
+
+  public static final long PER_BLOCK_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+      + (4 * ClassSize.REFERENCE) + SizeConstants.SIZEOF_LONG + (2 * SizeConstants.SIZEOF_INT)
+      + ClassSize.STRING + ClassSize.ARRAY + ClassSize.CONCURRENT_HASHMAP_ENTRY);
+
+  private final ConcurrentHashMap<String,OffHeapBlock> map;
+
+  private final PageAllocator allocator;
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final ScheduledExecutorService scheduleThreadPool = Executors.newScheduledThreadPool(1,
+      new NamingThreadFactory("OffHeapBlockCacheStats"));
+
+  /** Cache access count (sequential ID) */
+  private final AtomicLong count = new AtomicLong(0);
+
+  /** Heap used by indexes built over cached blocks */
+  private final AtomicLong indexSize = new AtomicLong(0);
+
+  private final CacheStats stats = new CacheStats();
+
+  private final OffHeapBlockCacheConfiguration conf;
+
+  public OffHeapBlockCache(final OffHeapBlockCacheConfiguration conf) {
+    super();
+    this.conf = conf;
+    this.allocator = new PageAllocator(conf.getMaxSize(), conf.getPageSize(), conf.getSlabSize());
+    this.map = new ConcurrentHashMap<>(
+        (int) Math.ceil(1.2 * conf.getMaxSize() / Math.max(1, conf.getBlockSize())));
+    this.scheduleThreadPool.scheduleAtFixedRate(this::logStats, statThreadPeriod,
+        statThreadPeriod, TimeUnit.SECONDS);
+  }
+
+  private class OffHeapBlock {
+    private final String name;
+    private final int[] pages;
+    private final int length;
+    private volatile long accessTime;
+
+    /** One reference is held by the cache map, the rest by readers copying the block */
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    private Weighable index;
+    private int lastIndexWeight = 0;
+
+    OffHeapBlock(String name, int[] pages, int length, long accessTime) {
+      this.name = name;
+      this.pages = pages;
+      this.length = length;
+      this.accessTime = accessTime;
+    }
+
+    boolean retain() {
+      while (true) {
+        int r = refs.get();
+        if (r <= 0) {
+          return false;
+        }
+        if (refs.compareAndSet(r, r + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release() {
+      if (refs.decrementAndGet() == 0) {
+        allocator.free(pages);
+        synchronized (this) {
+          indexSize.addAndGet(-lastIndexWeight);
+          lastIndexWeight = 0;
+          index = null;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      if (index == null && refs.get() > 0) {
+        index = supplier.get();
+      }
+
+      return (T) index;
+    }
+
+    synchronized void indexWeightChanged() {
+      if (index != null) {
+        int weight = index.weight();
+        indexSize.addAndGet(weight - lastIndexWeight);
+        lastIndexWeight = weight;
+      }
+    }
+  }
+
+  private class OffHeapCacheEntry implements CacheEntry {
+    private final byte[] buffer;
+    private final OffHeapBlock block;
+
+    OffHeapCacheEntry(byte[] buffer, OffHeapBlock block) {
+      this.buffer = buffer;
+      this.block = block;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      if (block == null) {
+        return null;
+      }
+      return block.getIndex(supplier);
+    }
+
+    @Override
+    public void indexWeightChanged() {
+      if (block != null) {
+        block.indexWeightChanged();
+      }
+    }
+  }
+
+  /**
+   * Copy a block out of direct memory.
+   *
+   * @return an entry backed by a heap copy of the block, or null if the block was evicted
+   */
+  private CacheEntry copy(OffHeapBlock block) {
+    if (!block.retain()) {
+      return null;
+    }
+    try {
+      byte[] buffer = allocator.read(block.pages, block.length);
+      block.accessTime = count.incrementAndGet();
+      return new OffHeapCacheEntry(buffer, block);
+    } finally {
+      block.release();
+    }
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    OffHeapBlock block = map.get(blockName);
+    if (block != null) {
+      stats.duplicateReads();
+      block.accessTime = count.incrementAndGet();
+      return new OffHeapCacheEntry(buf, block);
+    }
+
+    int[] pages = allocate(allocator.pagesNeeded(buf.length));
+    if (pages == null) {
+      // could not make room, so hand back the data without caching it
+      return new OffHeapCacheEntry(buf, null);
+    }
+    allocator.write(pages, buf);
+
+    block = new OffHeapBlock(blockName, pages, buf.length, count.incrementAndGet());
+    OffHeapBlock currBlock = map.putIfAbsent(blockName, block);
+    if (currBlock != null) {
+      stats.duplicateReads();
+      block.release();
+      block = currBlock;
+      block.accessTime = count.incrementAndGet();
+    } else if (usedPages() > acceptablePages()) {
+      evict(false);
+    }
+
+    return new OffHeapCacheEntry(buf, block);
+  }
+
+  private int[] allocate(int numPages) {
+    if (numPages > allocator.getTotalPages()) {
+      return null;
+    }
+
+    int[] pages = allocator.allocate(numPages);
+    for (int i = 0; pages == null && i < 3; i++) {
+      evict(true);
+      pages = allocator.allocate(numPages);
+    }
+    return pages;
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    OffHeapBlock block = map.get(blockName);
+    CacheEntry ce = block == null ? null : copy(block);
+    if (ce == null) {
+      stats.miss();
+      return null;
+    }
+    stats.hit();
+    return ce;
+  }
+
+  @Override
+  protected CacheEntry getBlockNoStats(String blockName) {
+    OffHeapBlock block = map.get(blockName);
+    return block == null ? null : copy(block);
+  }
+
+  /**
+   * @return true if this call removed the block, false if it was already removed or replaced
+   */
+  private boolean evictBlock(OffHeapBlock block) {
+    if (map.remove(block.name, block)) {
+      stats.evicted();
+      block.release();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Evict least recently used blocks until the used pages fall below the minimum size.
+   *
+   * @param wait
+   *          if true wait for an in progress eviction to finish, otherwise return immediately
+   */
+  void evict(boolean wait) {
+    if (wait) {
+      evictionLock.lock();
+    } else if (!evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      long pagesToFree = usedPages() - minPages();
+
+      log.trace("Off heap block cache eviction started.  Attempting to free {} pages",
+          pagesToFree);
+
+      if (pagesToFree <= 0) {
+        return;
+      }
+
+      OffHeapBlock[] blocks = map.values().toArray(new OffHeapBlock[0]);
+      Arrays.sort(blocks, Comparator.comparingLong(b -> b.accessTime));
+
+      long pagesFreed = 0;
+      for (OffHeapBlock block : blocks) {
+        if (pagesFreed >= pagesToFree) {
+          break;
+        }
+        // a block another thread already removed does not count towards the pages to free
+        if (evictBlock(block)) {
+          pagesFreed += block.pages.length;
+        }
+      }
+
+      log.trace("Off heap block cache eviction completed. Freed {} pages", pagesFreed);
+    } finally {
+      stats.evict();
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    return (long) Math.ceil(1.2 * getMaxSize() / Math.max(1, conf.getBlockSize()))
+        * PER_BLOCK_OVERHEAD;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return (long) allocator.getTotalPages() * allocator.getPageSize();
+  }
+
+  @Override
+  public int getMaxEntrySize() {
+    return (int) Math.min(Integer.MAX_VALUE, getMaxSize());
+  }
+
+  /**
+   * Get the number of bytes of direct memory currently holding blocks.
+   */
+  public long getCurrentSize() {
+    return usedPages() * allocator.getPageSize();
+  }
+
+  /**
+   * Get the size of this cache (number of cached blocks)
+   */
+  public long size() {
+    return map.size();
+  }
+
+  /**
+   * Get the number of eviction runs that have occurred
+   */
+  public long getEvictionCount() {
+    return this.stats.getEvictionCount();
+  }
+
+  /**
+   * Get the number of blocks that have been evicted during the lifetime of this cache.
+   */
+  public long getEvictedCount() {
+    return this.stats.getEvictedCount();
+  }
+
+  public void logStats() {
+    float sizeMB = ((float) getCurrentSize()) / ((float) (1024 * 1024));
+    float maxMB = ((float) getMaxSize()) / ((float) (1024 * 1024));
+    float indexMB = ((float) indexSize.get()) / ((float) (1024 * 1024));
+    log.debug(
+        "Cache Stats: Sizes: Off Heap={}MB, Max={}MB, Index={}MB, Counts: Blocks={},"
+            + " Access={}, Hit={}, Miss={}, Evictions={}, Evicted={}, Ratios: Hit Ratio={}%,"
+            + " Miss Ratio={}%, Evicted/Run={}, Duplicate Reads={}",
+        sizeMB, maxMB, indexMB, size(), stats.requestCount(), stats.hitCount(),
+        stats.getMissCount(), stats.getEvictionCount(), stats.getEvictedCount(),
+        stats.getHitRatio() * 100, stats.getMissRatio() * 100, stats.evictedPerEviction(),
+        stats.getDuplicateReads());
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return this.stats;
+  }
+
+  private long usedPages() {
+    return allocator.getTotalPages() - allocator.getFreePages();
+  }
+
+  private long acceptablePages() {
+    return (long) Math.floor(allocator.getTotalPages() * conf.getAcceptableFactor());
+  }
+
+  private long minPages() {
+    return (long) Math.floor(allocator.getTotalPages() * conf.getMinFactor());
+  }
+
+  public void shutdown() {
+    this.scheduleThreadPool.shutdown();
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager.Configuration;
+import org.apache.accumulo.core.spi.cache.CacheType;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+public final class OffHeapBlockCacheConfiguration {
+
+  public static final String PROPERTY_PREFIX = "offheap";
+
+  /** Default Configuration Parameters */
+  public static final Integer DEFAULT_PAGE_SIZE = 16 * 1024;
+  public static final Integer DEFAULT_SLAB_SIZE = 256 * 1024 * 1024;
+
+  /** Eviction thresholds */
+  public static final Float DEFAULT_MIN_FACTOR = 0.85f;
+  public static final Float DEFAULT_ACCEPTABLE_FACTOR = 0.95f;
+
+  // property names
+  public static final String PAGE_SIZE_PROPERTY = "page.size";
+  public static final String SLAB_SIZE_PROPERTY = "slab.size";
+  public static final String ACCEPTABLE_FACTOR_PROPERTY = "acceptable.factor";
+  public static final String MIN_FACTOR_PROPERTY = "min.factor";
+
+  /** Size of the fixed size pages that blocks are stored in */
+  private final int pageSize;
+
+  /** Size of each direct buffer that pages are carved out of */
+  private final int slabSize;
+
+  /** Acceptable size of cache (no evictions if size < acceptable) */
+  private final float acceptableFactor;
+
+  /** Minimum threshold of cache (when evicting, evict until size < min) */
+  private final float minFactor;
+
+  private final Configuration conf;
+
+  private final Map<String,String> props;
+
+  private final CacheType type;
+
+  private Optional<String> get(String k) {
+    return Optional.ofNullable(props.get(k));
+  }
+
+  public OffHeapBlockCacheConfiguration(Configuration conf, CacheType type) {
+
+    this.type = type;
+    this.conf = conf;
+    this.props = conf.getProperties(PROPERTY_PREFIX, type);
+
+    this.pageSize = get(PAGE_SIZE_PROPERTY).map(Integer::valueOf).filter(i -> i > 0)
+        .orElse(DEFAULT_PAGE_SIZE);
+    this.slabSize = get(SLAB_SIZE_PROPERTY).map(Integer::valueOf).filter(i -> i > 0)
+        .orElse(DEFAULT_SLAB_SIZE);
+    this.acceptableFactor = get(ACCEPTABLE_FACTOR_PROPERTY).map(Float::valueOf).filter(f -> f > 0)
+        .orElse(DEFAULT_ACCEPTABLE_FACTOR);
+    this.minFactor = get(MIN_FACTOR_PROPERTY).map(Float::valueOf).filter(f -> f > 0)
+        .orElse(DEFAULT_MIN_FACTOR);
+
+    if (this.getSlabSize() < this.getPageSize()) {
+      throw new IllegalArgumentException("slabSize must not be smaller than pageSize");
+    }
+    if (this.getMinFactor() >= this.getAcceptableFactor()) {
+      throw new IllegalArgumentException("minFactor must be smaller than acceptableFactor");
+    }
+    if (this.getMinFactor() >= 1.0f || this.getAcceptableFactor() >= 1.0f) {
+      throw new IllegalArgumentException("all factors must be < 1");
+    }
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public float getAcceptableFactor() {
+    return acceptableFactor;
+  }
+
+  public float getMinFactor() {
+    return minFactor;
+  }
+
+  public static class Builder {
+    private Map<String,String> props = new HashMap<>();
+    private String prefix;
+
+    private Builder(String prefix) {
+      this.prefix = prefix;
+    }
+
+    private void set(String prop, float val) {
+      props.put(prefix + prop, Float.toString(val));
+    }
+
+    public Builder pageSize(int ps) {
+      Preconditions.checkArgument(ps > 0);
+      props.put(prefix + PAGE_SIZE_PROPERTY, ps + "");
+      return this;
+    }
+
+    public Builder slabSize(int ss) {
+      Preconditions.checkArgument(ss > 0);
+      props.put(prefix + SLAB_SIZE_PROPERTY, ss + "");
+      return this;
+    }
+
+    public Builder acceptableFactor(float af) {
+      Preconditions.checkArgument(af > 0);
+      set(ACCEPTABLE_FACTOR_PROPERTY, af);
+      return this;
+    }
+
+    public Builder minFactor(float mf) {
+      Preconditions.checkArgument(mf > 0);
+      set(MIN_FACTOR_PROPERTY, mf);
+      return this;
+    }
+
+    public Map<String,String> buildMap() {
+      return ImmutableMap.copyOf(props);
+    }
+  }
+
+  public static Builder builder(CacheType ct) {
+    return new Builder(BlockCacheManager.getFullyQualifiedPropertyPrefix(PROPERTY_PREFIX, ct));
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + ", pageSize: " + this.getPageSize() + ", slabSize: "
+        + this.getSlabSize() + ", acceptableFactor: " + this.getAcceptableFactor()
+        + ", minFactor: " + this.getMinFactor();
+  }
+
+  public long getMaxSize() {
+    return conf.getMaxSize(type);
+  }
+
+  public long getBlockSize() {
+    return conf.getBlockSize();
+  }
+
+}
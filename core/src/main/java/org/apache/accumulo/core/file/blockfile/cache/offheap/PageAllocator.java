@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Carves a fixed amount of direct memory into equally sized pages. The memory is allocated up front
+ * as a small number of large direct buffers (slabs) so that the Java heap only holds the slab
+ * references and a free list, regardless of how many blocks are stored.
+ *
+ * <p>
+ * A block is stored in as many pages as it needs. The pages of a block do not need to be
+ * contiguous, which avoids fragmentation at the cost of wasting on average half a page per block.
+ */
+public class PageAllocator {
+
+  private final ByteBuffer[] slabs;
+  private final int pageSize;
+  private final int pagesPerSlab;
+  private final int totalPages;
+
+  /** Stack of free page numbers, guarded by this */
+  private final int[] freePages;
+  private int freeCount;
+
+  public PageAllocator(long capacity, int pageSize, int slabSize) {
+    Preconditions.checkArgument(capacity >= 0, "capacity must be non-negative");
+    Preconditions.checkArgument(pageSize > 0 && slabSize >= pageSize,
+        "slabSize must not be smaller than pageSize");
+    long pages = capacity / pageSize;
+    Preconditions.checkArgument(pages <= Integer.MAX_VALUE, "too many pages, increase page size");
+
+    this.pageSize = pageSize;
+    this.pagesPerSlab = slabSize / pageSize;
+    this.totalPages = (int) pages;
+
+    int numSlabs = (totalPages + pagesPerSlab - 1) / pagesPerSlab;
+    this.slabs = new ByteBuffer[numSlabs];
+    for (int i = 0; i < numSlabs; i++) {
+      int pagesInSlab = Math.min(pagesPerSlab, totalPages - i * pagesPerSlab);
+      slabs[i] = ByteBuffer.allocateDirect(pagesInSlab * pageSize);
+    }
+
+    this.freePages = new int[totalPages];
+    for (int i = 0; i < totalPages; i++) {
+      freePages[i] = totalPages - 1 - i;
+    }
+    this.freeCount = totalPages;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int getTotalPages() {
+    return totalPages;
+  }
+
+  public synchronized int getFreePages() {
+    return freeCount;
+  }
+
+  public int pagesNeeded(int length) {
+    return (length + pageSize - 1) / pageSize;
+  }
+
+  /**
+   * @return the allocated page numbers, or null if there are not enough free pages
+   */
+  public synchronized int[] allocate(int numPages) {
+    if (numPages > freeCount) {
+      return null;
+    }
+
+    int[] pages = new int[numPages];
+    for (int i = 0; i < numPages; i++) {
+      pages[i] = freePages[--freeCount];
+    }
+    return pages;
+  }
+
+  public synchronized void free(int[] pages) {
+    for (int page : pages) {
+      freePages[freeCount++] = page;
+    }
+  }
+
+  private ByteBuffer position(int page) {
+    ByteBuffer bb = slabs[page / pagesPerSlab].duplicate();
+    bb.position((page % pagesPerSlab) * pageSize);
+    return bb;
+  }
+
+  public void write(int[] pages, byte[] data) {
+    int offset = 0;
+    for (int page : pages) {
+      int len = Math.min(pageSize, data.length - offset);
+      position(page).put(data, offset, len);
+      offset += len;
+    }
+  }
+
+  public byte[] read(int[] pages, int length) {
+    byte[] data = new byte[length];
+    int offset = 0;
+    for (int page : pages) {
+      int len = Math.min(pageSize, length - offset);
+      position(page).get(data, offset, len);
+      offset += len;
+    }
+    return data;
+  }
+}
@@ -18,6 +18,7 @@ package org.apache.accumulo.core.file.blockfile.impl;
 
 import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -488,6 +489,21 @@ public class CachableBlockFile {
       return seekableInput.getBuffer();
     }
 
+    /**
+     * Advances past the next {@code len} bytes of the cached block without copying them. The
+     * skipped bytes can be referenced in {@link #getBuffer()} starting at the returned offset.
+     * Should only be called when {@link #isIndexable()} is true.
+     *
+     * @return offset in the buffer of the first byte skipped
+     */
+    public int skipInPlace(int len) throws EOFException {
+      int pos = seekableInput.getPosition();
+      if (seekableInput.skip(len) != len) {
+        throw new EOFException();
+      }
+      return pos;
+    }
+
     public <T extends Weighable> T getIndex(Supplier<T> indexSupplier) {
       return cb.getIndex(indexSupplier);
     }
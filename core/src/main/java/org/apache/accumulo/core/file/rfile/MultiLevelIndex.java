@@ -314,7 +314,7 @@ public class MultiLevelIndex {
     public void readFields(DataInput in, int version) throws IOException {
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
@@ -822,7 +822,7 @@ public class MultiLevelIndex {
       size = 0;
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9) {
         size = in.readInt();
       }
 
@@ -89,6 +89,12 @@ public class RFile {
 
   private static final int RINDEX_MAGIC = 0x20637474;
 
+  static final int RINDEX_VER_9 = 9; // Added restart points to data blocks. Every
+                                     // RestartPoints.INTERVAL keys a key is written without
+                                     // relative encoding, and the offsets of these keys are stored
+                                     // at the end of the data block. This allows a seek within a
+                                     // cached data block to binary search the restart points
+                                     // instead of decoding every key before the seek key.
   static final int RINDEX_VER_8 = 8; // Added sample storage. There is a sample locality group for
                                      // each locality group. Sample are built using a Sampler and
                                      // sampler configuration. The Sampler and its configuration are
@@ -435,6 +441,8 @@ public class RFile {
 
     private Key prevKey = new Key();
 
+    private RestartPoints restartPoints = new RestartPoints();
+
     private SampleLocalityGroupWriter sample;
 
     // Use windowed stats to fix ACCUMULO-4669
@@ -505,7 +513,13 @@ public class RFile {
         }
       }
 
-      RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
+      RelativeKey rk;
+      if (RestartPoints.isRestart(entries)) {
+        restartPoints.add((int) blockWriter.getRawSize());
+        rk = new RelativeKey(null, key);
+      } else {
+        rk = new RelativeKey(lastKeyInBlock, key);
+      }
 
       rk.write(blockWriter);
       value.write(blockWriter);
@@ -519,6 +533,8 @@ public class RFile {
     }
 
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      restartPoints.write(blockWriter);
+      restartPoints.clear();
       blockWriter.close();
 
       if (lastBlock)
@@ -603,7 +619,7 @@ public class RFile {
       BlockAppender mba = fileWriter.prepareMetaBlock("RFile.index");
 
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_8);
+      mba.writeInt(RINDEX_VER_9);
 
       if (currentLocalityGroup != null) {
         localityGroups.add(currentLocalityGroup);
@@ -1027,7 +1043,25 @@ public class RFile {
 
           Key currKey = null;
 
-          if (currBlock.isIndexable()) {
+          if (currBlock.isIndexable() && version == RINDEX_VER_9) {
+            int entry = RestartPoints.seek(currBlock, startKey, indexEntry.getNumEntries());
+            if (entry >= 0) {
+              // keys at restart points are not relative to the previous key, so no prev key is
+              // needed to read it
+              RelativeKey tmpRk = new RelativeKey();
+              tmpRk.readFields(currBlock);
+              val = new Value();
+
+              val.readFields(currBlock);
+              valbs = new MutableByteSequence(val.get(), 0, val.getSize());
+
+              // restart points are always followed by another entry, so fast skip will read at
+              // least one entry and determine the correct prev key
+              entriesLeft = indexEntry.getNumEntries() - entry - 1;
+              currKey = tmpRk.getKey();
+              prevKey = currKey;
+            }
+          } else if (currBlock.isIndexable()) {
             BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
             if (blockIndex != null) {
               BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
@@ -1161,8 +1195,8 @@ public class RFile {
 
         if (magic != RINDEX_MAGIC)
           throw new IOException("Did not see expected magic number, saw " + magic);
-        if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4
-            && ver != RINDEX_VER_3)
+        if (ver != RINDEX_VER_9 && ver != RINDEX_VER_8 && ver != RINDEX_VER_7
+            && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
           throw new IOException("Did not see expected version, saw " + ver);
 
         int size = mb.readInt();
@@ -1180,7 +1214,7 @@ public class RFile {
 
         readers = currentReaders;
 
-        if (ver == RINDEX_VER_8 && mb.readBoolean()) {
+        if ((ver == RINDEX_VER_9 || ver == RINDEX_VER_8) && mb.readBoolean()) {
           sampleReaders = new LocalityGroupReader[size];
 
           for (int i = 0; i < size; i++) {
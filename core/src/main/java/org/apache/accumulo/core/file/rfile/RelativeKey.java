@@ -22,6 +22,7 @@ import java.io.IOException;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
 import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.accumulo.core.util.UnsynchronizedBuffer;
 import org.apache.hadoop.io.Writable;
@@ -176,7 +177,7 @@ public class RelativeKey implements Writable {
     long ts;
 
     if ((fieldsSame & ROW_SAME) == ROW_SAME) {
-      row = prevKey.getRowData().toArray();
+      row = sameAs(prevKey.getRowData());
     } else if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX) {
       row = readPrefix(in, prevKey.getRowData());
     } else {
@@ -184,7 +185,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CF_SAME) == CF_SAME) {
-      cf = prevKey.getColumnFamilyData().toArray();
+      cf = sameAs(prevKey.getColumnFamilyData());
     } else if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX) {
       cf = readPrefix(in, prevKey.getColumnFamilyData());
     } else {
@@ -192,7 +193,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CQ_SAME) == CQ_SAME) {
-      cq = prevKey.getColumnQualifierData().toArray();
+      cq = sameAs(prevKey.getColumnQualifierData());
     } else if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX) {
       cq = readPrefix(in, prevKey.getColumnQualifierData());
     } else {
@@ -200,7 +201,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CV_SAME) == CV_SAME) {
-      cv = prevKey.getColumnVisibilityData().toArray();
+      cv = sameAs(prevKey.getColumnVisibilityData());
     } else if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX) {
       cv = readPrefix(in, prevKey.getColumnVisibilityData());
     } else {
@@ -248,6 +249,14 @@ public class RelativeKey implements Writable {
 
     int rowCmp = -1, cfCmp = -1, cqCmp = -1;
 
+    // When skipping through a cached block, fields that are not prefix compressed reference the
+    // block directly instead of being copied into scratch buffers. Only the key and value the skip
+    // stops on are materialized.
+    CachedBlockRead block = null;
+    if (in instanceof CachedBlockRead && ((CachedBlockRead) in).isIndexable()) {
+      block = (CachedBlockRead) in;
+    }
+
     if (currKey != null) {
 
       prow = new MutableByteSequence(currKey.getRowData());
@@ -324,9 +333,9 @@ public class RelativeKey implements Writable {
         row = tmp;
 
         if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX)
-          readPrefix(in, row, prow);
+          readPrefix(in, block, row, prow);
         else
-          read(in, row);
+          read(in, block, row);
 
         // read a new row, so need to compare...
         rowCmp = row.compareTo(stopRow);
@@ -340,9 +349,9 @@ public class RelativeKey implements Writable {
         cf = tmp;
 
         if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX)
-          readPrefix(in, cf, pcf);
+          readPrefix(in, block, cf, pcf);
         else
-          read(in, cf);
+          read(in, block, cf);
 
         cfCmp = cf.compareTo(stopCF);
         changed = true;
@@ -355,9 +364,9 @@ public class RelativeKey implements Writable {
         cq = tmp;
 
         if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX)
-          readPrefix(in, cq, pcq);
+          readPrefix(in, block, cq, pcq);
         else
-          read(in, cq);
+          read(in, block, cq);
 
         cqCmp = cq.compareTo(stopCQ);
         changed = true;
@@ -370,9 +379,9 @@ public class RelativeKey implements Writable {
         cv = tmp;
 
         if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX)
-          readPrefix(in, cv, pcv);
+          readPrefix(in, block, cv, pcv);
         else
-          read(in, cv);
+          read(in, block, cv);
       }
 
       if ((fieldsSame & TS_SAME) != TS_SAME) {
@@ -384,7 +393,7 @@ public class RelativeKey implements Writable {
           ts = WritableUtils.readVLong(in);
       }
 
-      readValue(in, value);
+      readValue(in, block, value);
 
       count++;
 
@@ -438,14 +447,39 @@ public class RelativeKey implements Writable {
     return new SkippR(result, count, newPrevKey);
   }
 
-  private static void read(DataInput in, MutableByteSequence mbseq) throws IOException {
+  /**
+   * Keys never modify their field arrays, so a field that is the same as in the previous key can
+   * share the previous key's array instead of copying it. For wide rows this avoids copying the row
+   * for every key read.
+   */
+  private static byte[] sameAs(ByteSequence prev) {
+    if (prev.isBackedByArray() && prev.offset() == 0
+        && prev.length() == prev.getBackingArray().length) {
+      return prev.getBackingArray();
+    }
+    return prev.toArray();
+  }
+
+  private static void read(DataInput in, CachedBlockRead block, MutableByteSequence mbseq)
+      throws IOException {
     int len = WritableUtils.readVInt(in);
-    read(in, mbseq, len);
+    read(in, block, mbseq, len);
   }
 
-  private static void readValue(DataInput in, MutableByteSequence mbseq) throws IOException {
+  private static void readValue(DataInput in, CachedBlockRead block, MutableByteSequence mbseq)
+      throws IOException {
     int len = in.readInt();
-    read(in, mbseq, len);
+    read(in, block, mbseq, len);
+  }
+
+  private static void read(DataInput in, CachedBlockRead block, MutableByteSequence mbseq,
+      int len) throws IOException {
+    if (block == null) {
+      read(in, mbseq, len);
+    } else {
+      int offset = block.skipInPlace(len);
+      mbseq.setArray(block.getBuffer(), offset, len);
+    }
   }
 
   private static void read(DataInput in, MutableByteSequence mbseqDestination, int len)
@@ -473,12 +507,14 @@ public class RelativeKey implements Writable {
     return data;
   }
 
-  private static void readPrefix(DataInput in, MutableByteSequence dest, ByteSequence prefixSource)
-      throws IOException {
+  private static void readPrefix(DataInput in, CachedBlockRead block, MutableByteSequence dest,
+      ByteSequence prefixSource) throws IOException {
     int prefixLen = WritableUtils.readVInt(in);
     int remainingLen = WritableUtils.readVInt(in);
     int len = prefixLen + remainingLen;
-    if (dest.getBackingArray().length < len) {
+    // never write into a cached block that dest may be referencing
+    if (dest.getBackingArray().length < len
+        || (block != null && dest.getBackingArray() == block.getBuffer())) {
       dest.setArray(new byte[UnsynchronizedBuffer.nextArraySize(len)], 0, 0);
     }
     if (prefixSource.isBackedByArray()) {
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
+
+/**
+ * Restart points allow a seek within a data block to binary search instead of decoding every key
+ * from the beginning of the block. Starting with {@link RFile#RINDEX_VER_9}, every
+ * {@link #INTERVAL}th key in a data block is written without relative encoding, so it can be
+ * decoded without knowing the key before it. The offsets of these keys are written after the last
+ * key and value in the block as follows.
+ *
+ * <pre>
+ * int offset[numRestarts]
+ * int interval
+ * int numRestarts
+ * </pre>
+ *
+ * <p>
+ * Readers that go through a block sequentially read the number of entries recorded in the index
+ * and never see the trailer. Only cached blocks, which support random access, use the trailer.
+ */
+class RestartPoints {
+
+  static final int INTERVAL = 32;
+
+  private int[] offsets = new int[16];
+  private int count = 0;
+
+  /**
+   * @return true if the entry with the given index within a block should be a restart point
+   */
+  static boolean isRestart(int entry) {
+    return entry % INTERVAL == 0;
+  }
+
+  void add(int offset) {
+    if (count == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    offsets[count++] = offset;
+  }
+
+  void write(DataOutput out) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.writeInt(offsets[i]);
+    }
+    out.writeInt(INTERVAL);
+    out.writeInt(count);
+  }
+
+  void clear() {
+    count = 0;
+  }
+
+  private static int readInt(byte[] data, int pos) {
+    return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16)
+        | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+  }
+
+  /**
+   * Positions a cached block at the last restart point whose key is less than the start key, using
+   * a binary search over the restart points. Only restart points followed by at least one more
+   * entry are considered, so a caller can always read the key at the restart point and then skip
+   * forward.
+   *
+   * @return the index of the entry the block is positioned at, or -1 if the block should be read
+   *         from the beginning
+   */
+  static int seek(CachedBlockRead block, Key startKey, int numEntries) throws IOException {
+    byte[] data = block.getBuffer();
+    if (numEntries < 2 || data.length < 8) {
+      return -1;
+    }
+
+    int numRestarts = readInt(data, data.length - 4);
+    int interval = readInt(data, data.length - 8);
+    int restartsOffset = data.length - 8 - numRestarts * 4;
+    if (interval <= 0 || restartsOffset < 0) {
+      throw new IOException("Invalid restart point trailer " + interval + " " + numRestarts);
+    }
+
+    int usable = Math.min(numRestarts, (numEntries - 2) / interval + 1);
+
+    RelativeKey rk = new RelativeKey();
+    int found = -1;
+
+    // the first restart point is the start of the block, so no need to look at it
+    int low = 1;
+    int high = usable - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      block.seek(readInt(data, restartsOffset + mid * 4));
+      rk.setPrevKey(null);
+      rk.readFields(block);
+      if (rk.getKey().compareTo(startKey) < 0) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    if (found == -1) {
+      block.seek(0);
+      return -1;
+    }
+
+    block.seek(readInt(data, restartsOffset + found * 4));
+    return found * interval;
+  }
+}
@@ -17,35 +17,59 @@
 package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
 /**
- * Constructs a {@link PriorityQueue} of multiple SortedKeyValueIterators. Provides a simple way to
- * interact with multiple SortedKeyValueIterators in sorted order.
+ * Merges multiple SortedKeyValueIterators using a loser tree. Provides a simple way to interact
+ * with multiple SortedKeyValueIterators in sorted order.
+ *
+ * <p>
+ * Each internal node of the tree remembers the source that lost the comparison at that node, so
+ * after the top source advances only the comparisons on the path from that source to the root have
+ * to be replayed. This is a single comparison per level, where a binary heap needs two to remove
+ * and reinsert the top source.
+ *
+ * <p>
+ * When the same source keeps winning, the runner up is remembered and each call to {@link #next()}
+ * only compares the new top key against it. Sources with equal keys are ordered by the order they
+ * were added in.
  */
 public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value> {
-  private PriorityQueue<SortedKeyValueIterator<Key,Value>> heap;
+  private SortedKeyValueIterator<Key,Value>[] sources;
+  /** Top key of each source, null once the source is exhausted */
+  private Key[] keys;
+  /** tree[0] is the winning source, tree[1..n-1] the source that lost at each internal node */
+  private int[] tree;
+  private int[] winners;
+  private int numSources = 0;
+  private boolean built = false;
+
+  private int top = -1;
+  private int runnerUp = -1;
   private SortedKeyValueIterator<Key,Value> topIdx = null;
-  private Key nextKey;
 
   protected HeapIterator() {
-    heap = null;
+    sources = null;
   }
 
   protected HeapIterator(int maxSize) {
     createHeap(maxSize);
   }
 
+  @SuppressWarnings({"rawtypes", "unchecked"})
   protected void createHeap(int maxSize) {
-    if (heap != null)
+    if (sources != null)
       throw new IllegalStateException("heap already exist");
 
-    heap = new PriorityQueue<>(maxSize == 0 ? 1 : maxSize,
-        (si1, si2) -> si1.getTopKey().compareTo(si2.getTopKey()));
+    int size = maxSize == 0 ? 1 : maxSize;
+    sources = new SortedKeyValueIterator[size];
+    keys = new Key[size];
+    tree = new int[size];
+    winners = new int[2 * size];
   }
 
   @Override
@@ -70,56 +94,130 @@ public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value>
     }
 
     topIdx.next();
-    if (!topIdx.hasTop()) {
-      if (nextKey == null) {
-        // No iterators left
+    keys[top] = topIdx.hasTop() ? topIdx.getTopKey() : null;
+
+    if (numSources == 1) {
+      if (keys[top] == null) {
         topIdx = null;
-        return;
       }
+      return;
+    }
 
-      pullReferencesFromHeap();
+    if (!built) {
+      build();
+    } else if (runnerUp >= 0 && keys[top] != null && less(top, runnerUp)) {
+      // the current top is still the minimum, nothing in the tree changes
+      return;
     } else {
-      if (nextKey == null) {
-        // topIdx is the only iterator
-        return;
-      }
+      int prevTop = top;
+      replay(top);
+      // Only look for the runner up when the same source won twice in a row. When the top source
+      // alternates the lookup would cost as much as it saves.
+      runnerUp = tree[0] == prevTop ? findRunnerUp(prevTop) : -1;
+    }
 
-      if (nextKey.compareTo(topIdx.getTopKey()) < 0) {
-        // Grab the next top iterator and put the current top iterator back on the heap
-        // This updating of references is special-cased to save on percolation on edge cases
-        // since the current top is guaranteed to not be the minimum
-        SortedKeyValueIterator<Key,Value> nextTopIdx = heap.remove();
-        heap.add(topIdx);
+    top = tree[0];
+    topIdx = keys[top] == null ? null : sources[top];
+  }
 
-        topIdx = nextTopIdx;
-        nextKey = heap.peek().getTopKey();
+  /**
+   * @return true if source a sorts before source b
+   */
+  private boolean less(int a, int b) {
+    Key ka = keys[a];
+    Key kb = keys[b];
+    if (ka == null) {
+      return kb == null && a < b;
+    }
+    if (kb == null) {
+      return true;
+    }
+    int cmp = ka.compareTo(kb);
+    return cmp < 0 || (cmp == 0 && a < b);
+  }
+
+  private void build() {
+    int n = numSources;
+    for (int i = 0; i < n; i++) {
+      winners[n + i] = i;
+    }
+    for (int node = n - 1; node > 0; node--) {
+      int a = winners[2 * node];
+      int b = winners[2 * node + 1];
+      if (less(a, b)) {
+        winners[node] = a;
+        tree[node] = b;
+      } else {
+        winners[node] = b;
+        tree[node] = a;
       }
     }
+    tree[0] = winners[1];
+    built = true;
+    runnerUp = -1;
   }
 
-  private void pullReferencesFromHeap() {
-    topIdx = heap.remove();
-    if (!heap.isEmpty()) {
-      nextKey = heap.peek().getTopKey();
-    } else {
-      nextKey = null;
+  /**
+   * Replay the matches on the path from a source whose key changed to the root.
+   */
+  private void replay(int source) {
+    int winner = source;
+    for (int node = (source + numSources) >>> 1; node > 0; node >>>= 1) {
+      if (less(tree[node], winner)) {
+        int tmp = tree[node];
+        tree[node] = winner;
+        winner = tmp;
+      }
     }
+    tree[0] = winner;
+  }
+
+  /**
+   * The runner up lost directly to the winner, so it is the smallest of the losers stored on the
+   * path from the winner to the root.
+   */
+  private int findRunnerUp(int winner) {
+    int result = -1;
+    for (int node = (winner + numSources) >>> 1; node > 0; node >>>= 1) {
+      if (result < 0 || less(tree[node], result)) {
+        result = tree[node];
+      }
+    }
+    return result;
   }
 
   protected final void clear() {
-    heap.clear();
+    Arrays.fill(sources, 0, numSources, null);
+    Arrays.fill(keys, 0, numSources, null);
+    numSources = 0;
+    built = false;
+    top = -1;
+    runnerUp = -1;
     topIdx = null;
-    nextKey = null;
   }
 
   protected final void addSource(SortedKeyValueIterator<Key,Value> source) {
     if (source.hasTop()) {
-      heap.add(source);
-      if (topIdx != null) {
-        heap.add(topIdx);
+      if (numSources == sources.length) {
+        int size = sources.length * 2;
+        sources = Arrays.copyOf(sources, size);
+        keys = Arrays.copyOf(keys, size);
+        tree = new int[size];
+        winners = new int[2 * size];
       }
 
-      pullReferencesFromHeap();
+      int i = numSources++;
+      sources[i] = source;
+      keys[i] = source.getTopKey();
+
+      // The tree is built lazily on the first call to next(). Until then only track the minimum,
+      // with ties going to the earlier source just like in the tree.
+      built = false;
+      runnerUp = -1;
+      if (top < 0 || less(i, top)) {
+        top = i;
+        topIdx = source;
+      }
     }
   }
 }
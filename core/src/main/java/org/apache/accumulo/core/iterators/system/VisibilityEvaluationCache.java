@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.Program;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.TermDictionary;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.util.BadArgumentException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A process wide cache of column visibility evaluation results that is shared by all
+ * {@link VisibilityFilter} instances. Results are grouped by the authorizations they were evaluated
+ * with, so a filter resolves its group once when it is created and then only has to do a single
+ * lookup keyed by the visibility bytes for each key it sees.
+ *
+ * <p>
+ * Lookups do not allocate. The visibility bytes are only copied when a new result is added.
+ *
+ * <p>
+ * On a miss the expression is evaluated with a {@link CompiledVisibilityEvaluator}. Compiled
+ * expressions do not depend on authorizations, so they are cached separately and shared by all
+ * authorizations. A visibility only has to be parsed once no matter how many users read it.
+ *
+ * <p>
+ * The cache owns the {@link TermDictionary} its programs are compiled with. A dictionary can not
+ * drop terms, so when it fills up it is replaced with an empty one and the compiled programs are
+ * discarded. Evaluators built with the old dictionary are rebuilt on their next miss.
+ */
+public class VisibilityEvaluationCache {
+
+  static final int MAX_AUTHORIZATIONS = 256;
+  static final int MAX_VISIBILITIES = 10_000;
+  static final int MAX_TERMS = 1 << 16;
+
+  private static final VisibilityEvaluationCache INSTANCE = new VisibilityEvaluationCache(
+      MAX_AUTHORIZATIONS, MAX_VISIBILITIES, MAX_TERMS);
+
+  public static VisibilityEvaluationCache getInstance() {
+    return INSTANCE;
+  }
+
+  private final Cache<Authorizations,Evaluations> evaluations;
+  private final Cache<ByteSequence,Program> programs;
+  private final int maxVisibilities;
+  private final int maxTerms;
+  private volatile TermDictionary dictionary;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  VisibilityEvaluationCache(int maxAuthorizations, int maxVisibilities, int maxTerms) {
+    this.evaluations = Caffeine.newBuilder().maximumSize(maxAuthorizations)
+        .expireAfterAccess(10, TimeUnit.MINUTES).build();
+    this.programs = Caffeine.newBuilder().maximumSize(maxVisibilities).build();
+    this.maxVisibilities = maxVisibilities;
+    this.maxTerms = maxTerms;
+    this.dictionary = new TermDictionary(maxTerms);
+  }
+
+  /**
+   * The cached evaluation results for a single set of authorizations.
+   */
+  public class Evaluations {
+    private final Authorizations authorizations;
+    private volatile CompiledVisibilityEvaluator ve;
+    private final Cache<ByteSequence,Boolean> results;
+
+    private Evaluations(Authorizations authorizations) {
+      this.authorizations = authorizations;
+      this.ve = createEvaluator(authorizations);
+      this.results = Caffeine.newBuilder().maximumSize(maxVisibilities).build();
+    }
+
+    /**
+     * @return true if the authorizations satisfy the visibility expression
+     */
+    public boolean evaluate(ByteSequence visibility)
+        throws VisibilityParseException, BadArgumentException {
+      Boolean b = results.getIfPresent(visibility);
+      if (b != null) {
+        hits.increment();
+        return b;
+      }
+
+      misses.increment();
+      // copy, toArray may return the callers array
+      ByteSequence key = new ArrayByteSequence(visibility);
+      Program program = getProgram(key);
+      CompiledVisibilityEvaluator evaluator = ve;
+      if (evaluator.getDictionary() != dictionary) {
+        // the dictionary was replaced, results are still valid but the evaluator is not
+        evaluator = ve = createEvaluator(authorizations);
+      }
+      b = evaluator.evaluate(program);
+      results.put(key, b);
+      return b;
+    }
+  }
+
+  private CompiledVisibilityEvaluator createEvaluator(Authorizations authorizations) {
+    return new CompiledVisibilityEvaluator(authorizations, dictionary);
+  }
+
+  private Program getProgram(ByteSequence visibility)
+      throws VisibilityParseException, BadArgumentException {
+    Program program = programs.getIfPresent(visibility);
+    if (program == null) {
+      TermDictionary current = dictionary;
+      program = CompiledVisibilityEvaluator.compile(new ColumnVisibility(visibility.toArray()),
+          current);
+      if (!replaceIfFull(current)) {
+        programs.put(visibility, program);
+      }
+    }
+    return program;
+  }
+
+  /**
+   * Replaces a full dictionary with an empty one and drops the programs compiled with it.
+   *
+   * @return true if the dictionary was full
+   */
+  private boolean replaceIfFull(TermDictionary current) {
+    if (!current.isFull()) {
+      return false;
+    }
+    synchronized (this) {
+      if (dictionary == current) {
+        dictionary = new TermDictionary(maxTerms);
+        programs.invalidateAll();
+      }
+    }
+    return true;
+  }
+
+  TermDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Get the evaluation results for a set of authorizations, creating an empty set of results if
+   * none exist.
+   */
+  public Evaluations get(Authorizations authorizations) {
+    return evaluations.get(authorizations, Evaluations::new);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public double getHitRatio() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0 : (double) h / total;
+  }
+}
@@ -24,11 +24,8 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SynchronizedServerFilter;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
 import org.apache.accumulo.core.security.VisibilityParseException;
 import org.apache.accumulo.core.util.BadArgumentException;
-import org.apache.commons.collections.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,11 +36,14 @@ import org.slf4j.LoggerFactory;
  * of the iterator stack in {@link org.apache.accumulo.core.iterators.IteratorUtil}
  * .loadIterators(). For performance reasons, the synchronization was pushed down the stack to this
  * class.
+ *
+ * <p>
+ * Evaluation results are kept in the {@link VisibilityEvaluationCache}, which is shared by all
+ * instances, so new scans do not have to evaluate visibilities that other scans have already seen.
  */
 public class VisibilityFilter extends SynchronizedServerFilter {
-  protected VisibilityEvaluator ve;
+  protected VisibilityEvaluationCache.Evaluations cache;
   protected ByteSequence defaultVisibility;
-  protected LRUMap cache;
   protected Authorizations authorizations;
 
   private static final Logger log = LoggerFactory.getLogger(VisibilityFilter.class);
@@ -51,10 +51,9 @@ public class VisibilityFilter extends SynchronizedServerFilter {
   private VisibilityFilter(SortedKeyValueIterator<Key,Value> iterator,
       Authorizations authorizations, byte[] defaultVisibility) {
     super(iterator);
-    this.ve = new VisibilityEvaluator(authorizations);
     this.authorizations = authorizations;
     this.defaultVisibility = new ArrayByteSequence(defaultVisibility);
-    this.cache = new LRUMap(1000);
+    this.cache = VisibilityEvaluationCache.getInstance().get(authorizations);
   }
 
   @Override
@@ -71,14 +70,8 @@ public class VisibilityFilter extends SynchronizedServerFilter {
     else if (testVis.length() == 0)
       testVis = defaultVisibility;
 
-    Boolean b = (Boolean) cache.get(testVis);
-    if (b != null)
-      return b;
-
     try {
-      Boolean bb = ve.evaluate(new ColumnVisibility(testVis.toArray()));
-      cache.put(testVis, bb);
-      return bb;
+      return cache.evaluate(testVis);
     } catch (VisibilityParseException e) {
       log.error("VisibilityParseException with visibility of Key: {}", k, e);
       return false;
@@ -50,6 +50,7 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.data.thrift.IterInfo;
+import org.apache.accumulo.core.iterators.system.FirstRowIterator;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
 import org.apache.accumulo.core.metadata.schema.MetadataSchema.TabletsSection;
 import org.apache.accumulo.core.security.Authorizations;
@@ -163,10 +164,12 @@ public class MetadataLocationObtainer implements TabletLocationObtainer {
   }
 
   private static class SettableScannerOptions extends ScannerOptions {
-    public ScannerOptions setColumns(SortedSet<Column> locCols) {
+    public ScannerOptions setColumns(SortedSet<Column> locCols, boolean firstRowOnly) {
       this.fetchedColumns = locCols;
       // see comment in lookupTablet about why iterator is used
       addScanIterator(new IteratorSetting(10000, "WRI", WholeRowIterator.class.getName()));
+      if (firstRowOnly)
+        addScanIterator(new IteratorSetting(10001, "FRI", FirstRowIterator.class.getName()));
       return this;
     }
   }
@@ -175,6 +178,19 @@ public class MetadataLocationObtainer implements TabletLocationObtainer {
   public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
       Map<KeyExtent,List<Range>> tabletsRanges, TabletLocator parent)
       throws AccumuloSecurityException, AccumuloException {
+    return lookupTablets(context, tserver, tabletsRanges, parent, false);
+  }
+
+  @Override
+  public List<TabletLocation> lookupFirstTablets(ClientContext context, String tserver,
+      Map<KeyExtent,List<Range>> tabletsRanges, TabletLocator parent)
+      throws AccumuloSecurityException, AccumuloException {
+    return lookupTablets(context, tserver, tabletsRanges, parent, true);
+  }
+
+  private List<TabletLocation> lookupTablets(ClientContext context, String tserver,
+      Map<KeyExtent,List<Range>> tabletsRanges, TabletLocator parent, boolean firstRowOnly)
+      throws AccumuloSecurityException, AccumuloException {
 
     final TreeMap<Key,Value> results = new TreeMap<>();
 
@@ -190,7 +206,7 @@ public class MetadataLocationObtainer implements TabletLocationObtainer {
 
     ScannerOptions opts = null;
     try (SettableScannerOptions unsetOpts = new SettableScannerOptions()) {
-      opts = unsetOpts.setColumns(locCols);
+      opts = unsetOpts.setColumns(locCols, firstRowOnly);
     }
 
     Map<KeyExtent,List<Range>> unscanned = new HashMap<>();
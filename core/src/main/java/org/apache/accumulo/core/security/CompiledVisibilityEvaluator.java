@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+
+/**
+ * Evaluates visibility expressions that were compiled ahead of time into a flat form that does not
+ * depend on any particular set of authorizations.
+ *
+ * <p>
+ * Every authorization term is given a bit index in a {@link TermDictionary}. An expression is
+ * compiled into disjunctive normal form, where each clause is a bit mask of the terms that must all
+ * be present. An evaluator converts its authorizations into a bit set once, so evaluating a
+ * compiled expression is a handful of bitwise operations per clause instead of a walk of the parse
+ * tree with byte comparisons at each term.
+ *
+ * <p>
+ * Expressions whose normal form would have more than {@value #MAX_CLAUSES} clauses are not
+ * compiled, and are evaluated by walking the parse tree with a {@link VisibilityEvaluator}. The
+ * same happens for evaluators whose authorizations could not all be added to the dictionary, and
+ * for programs compiled with a different dictionary than the evaluator.
+ *
+ * <p>
+ * A dictionary never forgets a term, so the default dictionary is replaced with an empty one once
+ * it is full. Callers that keep programs and evaluators around should use their own dictionary
+ * and replace it, along with everything built from it, when {@link TermDictionary#isFull()}.
+ */
+public class CompiledVisibilityEvaluator {
+
+  static final int MAX_CLAUSES = 64;
+  static final int MAX_TERMS = 1 << 16;
+
+  private static volatile TermDictionary defaultDictionary = new TermDictionary(MAX_TERMS);
+
+  private static TermDictionary getDefaultDictionary() {
+    TermDictionary dictionary = defaultDictionary;
+    if (dictionary.isFull()) {
+      synchronized (CompiledVisibilityEvaluator.class) {
+        if (defaultDictionary == dictionary) {
+          defaultDictionary = new TermDictionary(MAX_TERMS);
+        }
+        dictionary = defaultDictionary;
+      }
+    }
+    return dictionary;
+  }
+
+  /**
+   * Assigns each distinct authorization term a bit index. Terms are stored unescaped, in the same
+   * form as in {@link Authorizations}.
+   */
+  public static class TermDictionary {
+    private final ConcurrentHashMap<ByteSequence,Integer> terms = new ConcurrentHashMap<>();
+    private final int maxTerms;
+
+    public TermDictionary(int maxTerms) {
+      this.maxTerms = maxTerms;
+    }
+
+    /**
+     * @return the bit index of the term, or -1 if the dictionary is full
+     */
+    int intern(ByteSequence term) {
+      Integer id = terms.get(term);
+      if (id != null) {
+        return id;
+      }
+
+      synchronized (this) {
+        id = terms.get(term);
+        if (id == null) {
+          if (terms.size() >= maxTerms) {
+            return -1;
+          }
+          id = terms.size();
+          terms.put(new ArrayByteSequence(term.toArray()), id);
+        }
+        return id;
+      }
+    }
+
+    public int size() {
+      return terms.size();
+    }
+
+    /**
+     * @return true if no more terms can be added
+     */
+    public boolean isFull() {
+      return terms.size() >= maxTerms;
+    }
+  }
+
+  /**
+   * A compiled visibility expression. Programs do not depend on the authorizations they are
+   * evaluated against, so a single program can be shared by all evaluators.
+   */
+  public static final class Program {
+    private final ColumnVisibility visibility;
+    private final TermDictionary dictionary;
+    private final long[][] clauses;
+
+    private Program(ColumnVisibility visibility, TermDictionary dictionary, long[][] clauses) {
+      this.visibility = visibility;
+      this.dictionary = dictionary;
+      this.clauses = clauses;
+    }
+
+    /**
+     * @return true if evaluating this program does not fall back to walking the parse tree
+     */
+    public boolean isCompiled() {
+      return clauses != null;
+    }
+
+    public ColumnVisibility getVisibility() {
+      return visibility;
+    }
+  }
+
+  private static class TooComplexException extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Compile a visibility expression.
+   *
+   * @throws VisibilityParseException
+   *           if an AND or OR subexpression has less than two children, or a subexpression is of an
+   *           unknown type
+   */
+  public static Program compile(ColumnVisibility visibility) throws VisibilityParseException {
+    return compile(visibility, getDefaultDictionary());
+  }
+
+  /**
+   * Compile a visibility expression, giving its terms bit indexes in the provided dictionary. The
+   * program can only be evaluated without walking the parse tree by evaluators that use the same
+   * dictionary.
+   */
+  public static Program compile(ColumnVisibility visibility, TermDictionary dictionary)
+      throws VisibilityParseException {
+    byte[] expression = visibility.getExpression();
+    if (expression.length == 0) {
+      // a single clause with no terms is always satisfied
+      return new Program(visibility, dictionary, new long[][] {new long[0]});
+    }
+
+    try {
+      List<long[]> clauses = toClauses(expression, visibility.getParseTree(), dictionary);
+      return new Program(visibility, dictionary, clauses.toArray(new long[clauses.size()][]));
+    } catch (TooComplexException e) {
+      return new Program(visibility, dictionary, null);
+    }
+  }
+
+  private static List<long[]> toClauses(byte[] expression, Node node, TermDictionary dictionary)
+      throws VisibilityParseException, TooComplexException {
+    switch (node.type) {
+      case TERM:
+        int bit = dictionary.intern(VisibilityEvaluator.unescape(node.getTerm(expression)));
+        if (bit < 0) {
+          // The term could not be added to the dictionary, so no evaluator that is able to use
+          // the compiled form holds it. A clause requiring it can never be satisfied.
+          return Collections.emptyList();
+        }
+        long[] mask = new long[(bit >>> 6) + 1];
+        mask[bit >>> 6] = 1L << bit;
+        return Collections.singletonList(mask);
+      case AND: {
+        if (node.children == null || node.children.size() < 2)
+          throw new VisibilityParseException("AND has less than 2 children", expression,
+              node.start);
+        List<long[]> result = null;
+        for (Node child : node.children) {
+          List<long[]> childClauses = toClauses(expression, child, dictionary);
+          if (result == null) {
+            result = childClauses;
+            continue;
+          }
+          if (result.size() * childClauses.size() > MAX_CLAUSES) {
+            throw new TooComplexException();
+          }
+          List<long[]> product = new ArrayList<>(result.size() * childClauses.size());
+          for (long[] a : result) {
+            for (long[] b : childClauses) {
+              product.add(or(a, b));
+            }
+          }
+          result = product;
+        }
+        return result;
+      }
+      case OR: {
+        if (node.children == null || node.children.size() < 2)
+          throw new VisibilityParseException("OR has less than 2 children", expression, node.start);
+        List<long[]> result = new ArrayList<>();
+        for (Node child : node.children) {
+          result.addAll(toClauses(expression, child, dictionary));
+          if (result.size() > MAX_CLAUSES) {
+            throw new TooComplexException();
+          }
+        }
+        return result;
+      }
+      default:
+        throw new VisibilityParseException("No such node type", expression, node.start);
+    }
+  }
+
+  private static long[] or(long[] a, long[] b) {
+    if (a.length < b.length) {
+      long[] t = a;
+      a = b;
+      b = t;
+    }
+    long[] result = a.clone();
+    for (int i = 0; i < b.length; i++) {
+      result[i] |= b[i];
+    }
+    return result;
+  }
+
+  private final VisibilityEvaluator fallback;
+  private final TermDictionary dictionary;
+
+  /** Bit set of the held authorizations, or null if they did not all fit in the dictionary */
+  private final long[] authBits;
+
+  public CompiledVisibilityEvaluator(Authorizations authorizations) {
+    this(authorizations, getDefaultDictionary());
+  }
+
+  /**
+   * Create an evaluator that evaluates programs compiled with the provided dictionary.
+   */
+  public CompiledVisibilityEvaluator(Authorizations authorizations, TermDictionary dictionary) {
+    this.fallback = new VisibilityEvaluator(authorizations);
+    this.dictionary = dictionary;
+
+    long[] bits = new long[0];
+    for (byte[] auth : authorizations.getAuthorizations()) {
+      int bit = dictionary.intern(new ArrayByteSequence(auth));
+      if (bit < 0) {
+        bits = null;
+        break;
+      }
+      if ((bit >>> 6) >= bits.length) {
+        long[] tmp = new long[(bit >>> 6) + 1];
+        System.arraycopy(bits, 0, tmp, 0, bits.length);
+        bits = tmp;
+      }
+      bits[bit >>> 6] |= 1L << bit;
+    }
+    this.authBits = bits;
+  }
+
+  /**
+   * Evaluates a compiled visibility expression against the authorizations provided to this
+   * evaluator.
+   */
+  public boolean evaluate(Program program) throws VisibilityParseException {
+    if (program.clauses == null || authBits == null || program.dictionary != dictionary) {
+      return fallback.evaluate(program.visibility);
+    }
+
+    for (long[] clause : program.clauses) {
+      if (satisfies(clause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compiles and evaluates a visibility expression. Callers that evaluate the same expression more
+   * than once should compile it once with {@link #compile(ColumnVisibility)} and reuse the program.
+   */
+  public boolean evaluate(ColumnVisibility visibility) throws VisibilityParseException {
+    return evaluate(compile(visibility));
+  }
+
+  /**
+   * @return the dictionary programs must be compiled with to be evaluated without walking the parse
+   *         tree
+   */
+  public TermDictionary getDictionary() {
+    return dictionary;
+  }
+
+  private boolean satisfies(long[] clause) {
+    for (int i = 0; i < clause.length; i++) {
+      long held = i < authBits.length ? authBits[i] : 0;
+      if ((clause[i] & held) != clause[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
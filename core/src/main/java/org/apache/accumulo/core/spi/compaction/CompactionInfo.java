@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+/**
+ * Provides information about a major compaction that is queued on a tablet server. The number and
+ * size of the tablet's files are read each time they are asked for, so they reflect the tablet at
+ * that moment.
+ *
+ * <p>
+ * All times are in milliseconds and obtained using System.currentTimeMillis().
+ *
+ * @since 2.0.0
+ */
+public interface CompactionInfo {
+
+  enum Reason {
+    /**
+     * A compaction requested by a user
+     */
+    USER,
+    /**
+     * A compaction that removes data outside of the tablet before a merge
+     */
+    CHOP,
+    /**
+     * A compaction started because the tablet has too many files
+     */
+    NORMAL,
+    /**
+     * A compaction of a tablet that has not been written to for a while
+     */
+    IDLE
+  }
+
+  Reason getReason();
+
+  String getTableId();
+
+  /**
+   * Returns the time the compaction was queued.
+   */
+  long getCreationTime();
+
+  /**
+   * Returns the number of files the tablet has.
+   */
+  int getNumFiles();
+
+  /**
+   * Returns the total size in bytes of the files the tablet has.
+   */
+  long getFilesSize();
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import java.util.Comparator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Runs compactions in the order of their {@link CompactionInfo.Reason}. User and chop compactions
+ * run oldest first, and other compactions of the same reason run for the tablet with the most
+ * files first.
+ *
+ * @since 2.0.0
+ */
+public class DefaultCompactionPrioritizer implements CompactionPrioritizer {
+
+  @Override
+  public Comparator<CompactionInfo> createComparator(CreateParameters params) {
+    Preconditions.checkArgument(params.getOptions().isEmpty());
+
+    Comparator<CompactionInfo> c1 = Comparator.comparing(CompactionInfo::getReason);
+
+    return c1.thenComparingLong(ci -> {
+      CompactionInfo.Reason reason = ci.getReason();
+      return reason == CompactionInfo.Reason.USER || reason == CompactionInfo.Reason.CHOP
+          ? ci.getCreationTime() : 0;
+    }).thenComparing(Comparator.comparingInt(CompactionInfo::getNumFiles).reversed());
+  }
+}
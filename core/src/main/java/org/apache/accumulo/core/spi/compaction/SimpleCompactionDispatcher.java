@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * If no options are given, then this will dispatch to an executor named {@code default}. This
+ * dispatcher supports the following options.
+ *
+ * <UL>
+ * <LI>{@code table.compaction.dispatcher.opts.executor=<compaction executor name>} : dispatches
+ * all compactions to the named executor.</LI>
+ * <LI>{@code table.compaction.dispatcher.opts.large_executor=<compaction executor name>} :
+ * dispatches compactions of tablets whose files are at least {@code large_size} to the named
+ * executor, so they do not hold up the smaller compactions of the table.</LI>
+ * <LI>{@code table.compaction.dispatcher.opts.large_size=<size>} : The total size of a tablet's
+ * files from which its compactions are large, for example {@code 10G}. Required when
+ * {@code large_executor} is set.</LI>
+ * <LI>{@code table.compaction.dispatcher.opts.user_executor=<compaction executor name>} :
+ * dispatches compactions requested by users to the named executor.</LI>
+ * </UL>
+ *
+ * The {@code user_executor} option overrides the {@code large_executor} option, which overrides
+ * the {@code executor} option.
+ *
+ * @since 2.0.0
+ */
+public class SimpleCompactionDispatcher implements CompactionDispatcher {
+
+  private final Set<String> VALID_OPTS = ImmutableSet.of("executor", "large_executor",
+      "large_size", "user_executor");
+  private String executor;
+  private String largeExecutor;
+  private long largeSize;
+  private String userExecutor;
+
+  public static final String DEFAULT_COMPACTION_EXECUTOR_NAME = "default";
+
+  @Override
+  public void init(InitParameters params) {
+    Map<String,String> options = params.getOptions();
+    Set<String> invalidOpts = Sets.difference(options.keySet(), VALID_OPTS);
+    Preconditions.checkArgument(invalidOpts.size() == 0, "Invalid options : %s", invalidOpts);
+
+    executor = options.getOrDefault("executor", DEFAULT_COMPACTION_EXECUTOR_NAME);
+    largeExecutor = options.get("large_executor");
+    if (largeExecutor != null) {
+      Preconditions.checkArgument(options.containsKey("large_size"),
+          "Option large_size is required with large_executor");
+      largeSize = ConfigurationTypeHelper.getFixedMemoryAsBytes(options.get("large_size"));
+    }
+    userExecutor = options.get("user_executor");
+  }
+
+  @Override
+  public String dispatch(DispatchParameters params) {
+    CompactionInfo info = params.getCompactionInfo();
+    if (userExecutor != null && info.getReason() == CompactionInfo.Reason.USER)
+      return userExecutor;
+    if (largeExecutor != null && info.getFilesSize() >= largeSize)
+      return largeExecutor;
+    return executor;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import java.util.Comparator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Runs compactions in the order of their {@link CompactionInfo.Reason}, and compactions of the same
+ * reason for the tablet with the smallest files first. Small compactions finish quickly, so a busy
+ * tablet that needs them is not held up by large compactions queued before it. When the sizes are
+ * equal, the oldest compaction runs first.
+ *
+ * @since 2.0.0
+ */
+public class SmallestCompactionPrioritizer implements CompactionPrioritizer {
+
+  @Override
+  public Comparator<CompactionInfo> createComparator(CreateParameters params) {
+    Preconditions.checkArgument(params.getOptions().isEmpty());
+
+    Comparator<CompactionInfo> c1 = Comparator.comparing(CompactionInfo::getReason);
+
+    return c1.thenComparingLong(CompactionInfo::getFilesSize)
+        .thenComparingLong(CompactionInfo::getCreationTime);
+  }
+}
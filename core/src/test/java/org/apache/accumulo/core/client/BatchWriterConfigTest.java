@@ -38,6 +38,7 @@ public class BatchWriterConfigTest {
     long expectedTimeout = Long.MAX_VALUE;
     int expectedMaxWriteThreads = 3;
     Durability expectedDurability = Durability.DEFAULT;
+    int expectedBufferStripes = 1;
 
     BatchWriterConfig defaults = new BatchWriterConfig();
     assertEquals(expectedMaxMemory, defaults.getMaxMemory());
@@ -45,6 +46,7 @@ public class BatchWriterConfigTest {
     assertEquals(expectedTimeout, defaults.getTimeout(TimeUnit.MILLISECONDS));
     assertEquals(expectedMaxWriteThreads, defaults.getMaxWriteThreads());
     assertEquals(expectedDurability, defaults.getDurability());
+    assertEquals(expectedBufferStripes, defaults.getBufferStripes());
   }
 
   @Test
@@ -55,12 +57,14 @@ public class BatchWriterConfigTest {
     bwConfig.setTimeout(33, TimeUnit.DAYS);
     bwConfig.setMaxWriteThreads(42);
     bwConfig.setDurability(Durability.NONE);
+    bwConfig.setBufferStripes(16);
 
     assertEquals(1123581321L, bwConfig.getMaxMemory());
     assertEquals(22 * 60 * 60 * 1000L, bwConfig.getMaxLatency(TimeUnit.MILLISECONDS));
     assertEquals(33 * 24 * 60 * 60 * 1000L, bwConfig.getTimeout(TimeUnit.MILLISECONDS));
     assertEquals(42, bwConfig.getMaxWriteThreads());
     assertEquals(Durability.NONE, bwConfig.getDurability());
+    assertEquals(16, bwConfig.getBufferStripes());
   }
 
   @Test
@@ -126,6 +130,12 @@ public class BatchWriterConfigTest {
     bwConfig.setMaxWriteThreads(-1);
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroBufferStripes() {
+    BatchWriterConfig bwConfig = new BatchWriterConfig();
+    bwConfig.setBufferStripes(0);
+  }
+
   @Test
   public void testSerialize() throws IOException {
     // make sure we aren't testing defaults
@@ -166,6 +176,13 @@ public class BatchWriterConfigTest {
     bwConfig.setDurability(Durability.LOG);
     bytes = createBytes(bwConfig);
     assertEquals("     e#durability=LOG", new String(bytes, UTF_8));
+
+    // test human-readable buffer stripes
+    bwConfig = new BatchWriterConfig();
+    bwConfig.setBufferStripes(8);
+    bytes = createBytes(bwConfig);
+    assertEquals("     f#bufferStripes=8", new String(bytes, UTF_8));
+    checkBytes(bwConfig, bytes);
   }
 
   @Test
@@ -179,6 +196,9 @@ public class BatchWriterConfigTest {
     cfg2.setDurability(Durability.FLUSH);
     assertNotEquals(cfg1, cfg2);
     assertNotEquals(cfg1.hashCode(), cfg2.hashCode());
+    cfg2 = new BatchWriterConfig();
+    cfg2.setBufferStripes(4);
+    assertNotEquals(cfg1, cfg2);
   }
 
   @Test
@@ -214,6 +234,7 @@ public class BatchWriterConfigTest {
     assertEquals(Durability.LOG, merged.getDurability());
     assertEquals(456, merged.getMaxLatency(TimeUnit.MILLISECONDS));
     assertEquals(3, merged.getMaxWriteThreads());
+    assertEquals(1, merged.getBufferStripes());
   }
 
   private byte[] createBytes(BatchWriterConfig bwConfig) throws IOException {
@@ -233,6 +254,7 @@ public class BatchWriterConfigTest {
     assertEquals(bwConfig.getTimeout(TimeUnit.MILLISECONDS),
         createdConfig.getTimeout(TimeUnit.MILLISECONDS));
     assertEquals(bwConfig.getMaxWriteThreads(), createdConfig.getMaxWriteThreads());
+    assertEquals(bwConfig.getBufferStripes(), createdConfig.getBufferStripes());
   }
 
 }
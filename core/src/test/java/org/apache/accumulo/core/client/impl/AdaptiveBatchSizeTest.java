@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.client.impl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+  private static final long MAX = 8 * AdaptiveBatchSize.MIN_SIZE;
+
+  @Test
+  public void testShrinkAndGrow() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(MAX, 100);
+    assertEquals(MAX, batchSize.get());
+
+    // slow sessions halve the size down to the minimum
+    batchSize.succeeded(MAX, 101);
+    assertEquals(MAX / 2, batchSize.get());
+    batchSize.failed();
+    assertEquals(MAX / 4, batchSize.get());
+    for (int i = 0; i < 10; i++) {
+      batchSize.failed();
+    }
+    assertEquals(AdaptiveBatchSize.MIN_SIZE, batchSize.get());
+
+    // fast sessions that did not fill the batch do not grow it
+    batchSize.succeeded(AdaptiveBatchSize.MIN_SIZE / 2, 10);
+    assertEquals(AdaptiveBatchSize.MIN_SIZE, batchSize.get());
+
+    // fast full sessions grow it back up to the maximum
+    long previous = batchSize.get();
+    for (int i = 0; i < 100; i++) {
+      batchSize.succeeded(batchSize.get(), 10);
+      assertTrue(batchSize.get() >= previous);
+      previous = batchSize.get();
+    }
+    assertEquals(MAX, batchSize.get());
+  }
+
+  @Test
+  public void testMinimum() {
+    assertEquals(AdaptiveBatchSize.MIN_SIZE, new AdaptiveBatchSize(0).get());
+  }
+
+  private static KeyExtent extent(String end) {
+    return new KeyExtent(Table.ID.of("1"), new Text(end), null);
+  }
+
+  private static List<Mutation> mutations(String prefix, int count) {
+    List<Mutation> mutations = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Mutation m = new Mutation(prefix + i);
+      m.put("cf", "cq", "value");
+      mutations.add(m);
+    }
+    return mutations;
+  }
+
+  @Test
+  public void testSplit() {
+    TabletServerMutations<Mutation> tsm = new TabletServerMutations<>("session");
+    for (Mutation m : mutations("a", 10)) {
+      tsm.addMutation(extent("b"), m);
+    }
+    for (Mutation m : mutations("c", 10)) {
+      tsm.addMutation(extent("d"), m);
+    }
+
+    long mutationSize = tsm.getMutations().get(extent("b")).get(0).numBytes();
+
+    // under the limit nothing is removed
+    assertNull(AdaptiveBatchSize.split(tsm, mutationSize * 100));
+    assertEquals(20, count(tsm));
+
+    TabletServerMutations<Mutation> remaining = AdaptiveBatchSize.split(tsm, mutationSize * 5);
+    assertEquals(5, count(tsm));
+    assertEquals(15, count(remaining));
+    assertEquals("session", remaining.getSession());
+
+    // the order of mutations for a tablet is preserved
+    List<Mutation> all = new ArrayList<>();
+    all.addAll(tsm.getMutations().getOrDefault(extent("b"), new ArrayList<>()));
+    all.addAll(remaining.getMutations().getOrDefault(extent("b"), new ArrayList<>()));
+    assertEquals(mutations("a", 10), all);
+    assertTrue(remaining.getMutations().get(extent("d")) instanceof ArrayList);
+
+    // at least one mutation is always left
+    TabletServerMutations<Mutation> rest = AdaptiveBatchSize.split(remaining, 1);
+    assertEquals(1, count(remaining));
+    assertEquals(14, count(rest));
+  }
+
+  private static int count(TabletServerMutations<Mutation> tsm) {
+    int count = 0;
+    for (List<Mutation> mutations : tsm.getMutations().values()) {
+      count += mutations.size();
+    }
+    return count;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.impl.OrderedBatchReaderIterator.SegmentBuffer;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Value;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OrderedBatchReaderIteratorTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(
+      new File(System.getProperty("user.dir") + "/target"));
+
+  private ExecutorService pool;
+
+  @Before
+  public void setup() {
+    pool = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void teardown() {
+    pool.shutdownNow();
+  }
+
+  private static List<KeyValue> batch(int start, int count) {
+    List<KeyValue> batch = new ArrayList<>();
+    for (int i = start; i < start + count; i++) {
+      batch.add(new KeyValue(new Key(String.format("r%04d", i), "cf", "cq"),
+          new Value(("v" + i).getBytes(UTF_8))));
+    }
+    return batch;
+  }
+
+  private static void assertBatch(List<KeyValue> expected, List<Entry<Key,Value>> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+      assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+    }
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    // all batches have the same size, their values have three characters
+    long batchBytes = 0;
+    for (KeyValue kv : batch(10, 10)) {
+      batchBytes += kv.getKey().getSize() + kv.getValue().getSize();
+    }
+
+    AtomicLong sharedBytes = new AtomicLong(0);
+    SegmentBuffer buffer = new SegmentBuffer(2 * batchBytes, sharedBytes, Long.MAX_VALUE,
+        tempFolder.getRoot());
+
+    // the first two batches fit in memory, the next two are spilled
+    List<List<KeyValue>> batches = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      batches.add(batch(10 + i * 10, 10));
+      buffer.add(batches.get(i));
+    }
+    buffer.finish(null);
+    assertEquals(2, buffer.getSpilledBatches());
+    assertEquals(2 * batchBytes, sharedBytes.get());
+    // the spill file is removed from the directory while it is still in use
+    assertEquals(0, tempFolder.getRoot().list().length);
+
+    for (List<KeyValue> expected : batches) {
+      assertBatch(expected, buffer.take(pool));
+    }
+    assertNull(buffer.take(pool));
+    assertEquals(0, sharedBytes.get());
+    buffer.close();
+  }
+
+  @Test
+  public void testSharedLimit() throws Exception {
+    AtomicLong sharedBytes = new AtomicLong(0);
+    long limit = 1 << 20;
+    SegmentBuffer buffer1 = new SegmentBuffer(limit, sharedBytes, limit, tempFolder.getRoot());
+    SegmentBuffer buffer2 = new SegmentBuffer(limit, sharedBytes, limit, tempFolder.getRoot());
+
+    // a segment that is far ahead of the caller uses all the shared memory
+    List<KeyValue> large = batch(0, 1000);
+    while (buffer1.getSpilledBatches() == 0) {
+      buffer1.add(large);
+    }
+
+    // the values of this batch are longer, so it does not fit in what is left
+    List<KeyValue> next = batch(1000, 1000);
+    buffer2.add(next);
+    buffer2.finish(null);
+    assertEquals(1, buffer2.getSpilledBatches());
+    assertBatch(next, buffer2.take(pool));
+    assertNull(buffer2.take(pool));
+    buffer2.close();
+
+    buffer1.close();
+    assertEquals(0, sharedBytes.get());
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    SegmentBuffer buffer = new SegmentBuffer(1 << 20, new AtomicLong(0), 1 << 20,
+        tempFolder.getRoot());
+    List<KeyValue> expected = batch(0, 10);
+    buffer.add(expected);
+    buffer.finish(new IOException("scan failed"));
+
+    // batches read before the failure are returned first
+    assertBatch(expected, buffer.take(pool));
+    try {
+      buffer.take(pool);
+      fail("expected the failure of the scan");
+    } catch (RuntimeException e) {
+      assertEquals(IOException.class, e.getCause().getClass());
+    }
+    buffer.close();
+  }
+}
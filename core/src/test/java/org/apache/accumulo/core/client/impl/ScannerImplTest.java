@@ -18,6 +18,8 @@ package org.apache.accumulo.core.client.impl;
 
 import static org.junit.Assert.assertEquals;
 
+import org.apache.accumulo.core.client.ClientSideIteratorScanner;
+import org.apache.accumulo.core.client.IsolatedScanner;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.security.Authorizations;
 import org.easymock.EasyMock;
@@ -51,6 +53,31 @@ public class ScannerImplTest {
     s.close();
   }
 
+  @Test
+  public void testValidReadaheadDepth() {
+    Scanner s = new ScannerImpl(context, Table.ID.of("foo"), Authorizations.EMPTY);
+    assertEquals(1, s.getReadaheadDepth());
+    s.setReadaheadDepth(4);
+    assertEquals(4, s.getReadaheadDepth());
+    s.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInValidReadaheadDepth() {
+    Scanner s = new ScannerImpl(context, Table.ID.of("foo"), Authorizations.EMPTY);
+    s.setReadaheadDepth(0);
+    s.close();
+  }
+
+  @Test
+  public void testWrappersKeepReadaheadDepth() {
+    Scanner s = new ScannerImpl(context, Table.ID.of("foo"), Authorizations.EMPTY);
+    s.setReadaheadDepth(4);
+    assertEquals(4, new IsolatedScanner(s).getReadaheadDepth());
+    assertEquals(4, new ClientSideIteratorScanner(s).getReadaheadDepth());
+    s.close();
+  }
+
   @Test
   public void testGetAuthorizations() {
     Authorizations expected = new Authorizations("a,b");
@@ -210,6 +210,10 @@ public class TableOperationsHelperTest {
     @Override
     public void clearLocatorCache(String tableName) throws TableNotFoundException {}
 
+    @Override
+    public void cacheTabletLocations(String tableName)
+        throws AccumuloException, AccumuloSecurityException, TableNotFoundException {}
+
     @Override
     public Map<String,String> tableIdMap() {
       return null;
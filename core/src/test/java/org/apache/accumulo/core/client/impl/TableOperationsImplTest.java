@@ -65,6 +65,7 @@ public class TableOperationsImplTest {
     EasyMock.expect(scanner.getBatchTimeout(TimeUnit.MILLISECONDS)).andReturn(Long.MAX_VALUE);
     EasyMock.expect(scanner.getBatchSize()).andReturn(1000);
     EasyMock.expect(scanner.getReadaheadThreshold()).andReturn(100L);
+    EasyMock.expect(scanner.getReadaheadDepth()).andReturn(1);
 
     EasyMock.replay(context, accumuloClient, scanner);
 
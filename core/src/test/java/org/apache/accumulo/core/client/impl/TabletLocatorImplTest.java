@@ -20,6 +20,7 @@ import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -30,9 +31,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.impl.TabletLocator.TabletLocation;
@@ -52,6 +58,7 @@ import org.apache.accumulo.core.metadata.RootTable;
 import org.apache.accumulo.core.metadata.schema.MetadataSchema.TabletsSection;
 import org.apache.hadoop.io.Text;
 import org.easymock.EasyMock;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -166,15 +173,23 @@ public class TabletLocatorImplTest {
   }
 
   private ClientContext context;
+  private ExecutorService prefetchPool;
 
   @Before
   public void setUp() {
+    prefetchPool = Executors.newFixedThreadPool(4);
     context = EasyMock.createMock(ClientContext.class);
     EasyMock.expect(context.getRootTabletLocation()).andReturn("tserver1").anyTimes();
     EasyMock.expect(context.getInstanceID()).andReturn("instance1").anyTimes();
+    EasyMock.expect(context.getLocationPrefetchPool()).andReturn(prefetchPool).anyTimes();
     replay(context);
   }
 
+  @After
+  public void tearDown() {
+    prefetchPool.shutdownNow();
+  }
+
   private void runTest(Text tableName, List<Range> ranges, TabletLocatorImpl tab1TabletCache,
       Map<String,Map<KeyExtent,List<Range>>> expected) throws Exception {
     List<Range> failures = Collections.emptyList();
@@ -448,6 +463,44 @@ public class TabletLocatorImplTest {
     @Override
     public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
         Map<KeyExtent,List<Range>> map, TabletLocator parent) throws AccumuloSecurityException {
+      return lookupRanges(context, tserver, map, parent);
+    }
+
+    @Override
+    public List<TabletLocation> lookupFirstTablets(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent) throws AccumuloSecurityException {
+      Map<KeyExtent,SortedMap<Key,Value>> tablets = tservers.get(tserver);
+      if (tablets == null)
+        return lookupRanges(context, tserver, map, parent);
+
+      // narrow each range to its first row, like FirstRowIterator does on a tablet server
+      Map<KeyExtent,List<Range>> firstRows = new HashMap<>();
+      for (Entry<KeyExtent,List<Range>> entry : map.entrySet()) {
+        SortedMap<Key,Value> tabletData = tablets.get(entry.getKey());
+        if (tabletData == null) {
+          firstRows.put(entry.getKey(), entry.getValue());
+          continue;
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (Range range : entry.getValue()) {
+          SortedMap<Key,Value> tm = range.getStartKey() == null ? tabletData
+              : tabletData.tailMap(range.getStartKey());
+          for (Key key : tm.keySet()) {
+            if (range.afterEndKey(key))
+              break;
+            if (range.contains(key)) {
+              ranges.add(range.clip(new Range(key.getRow())));
+              break;
+            }
+          }
+        }
+        firstRows.put(entry.getKey(), ranges);
+      }
+      return lookupRanges(context, tserver, firstRows, parent);
+    }
+
+    private List<TabletLocation> lookupRanges(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent) {
 
       ArrayList<TabletLocation> list = new ArrayList<>();
 
@@ -1204,6 +1257,204 @@ public class TabletLocatorImplTest {
     }
   }
 
+  // tablets of table foo ending at b, c, ... z and a last tablet, each on its own tserver
+  private static Object[] alphabetTablets() {
+    List<Object> data = new ArrayList<>();
+    Text prev = null;
+    for (char c = 'b'; c <= 'z'; c++) {
+      Text end = new Text(Character.toString(c));
+      data.add(new KeyExtent(Table.ID.of("foo"), end, prev));
+      data.add("l" + c);
+      prev = end;
+    }
+    data.add(new KeyExtent(Table.ID.of("foo"), null, prev));
+    data.add("llast");
+    return data.toArray();
+  }
+
+  @Test
+  public void testConcurrentLookupsAndInvalidations() throws Exception {
+    TabletLocatorImpl metaCache = createLocators("foo", alphabetTablets());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t;
+        futures.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < 2000; i++) {
+            Text row = new Text(Character.toString((char) ('a' + random.nextInt(26))));
+            TabletLocation tl = metaCache.locateTablet(context, row, false, true);
+            assertTrue(tl.tablet_extent.contains(row));
+            if (random.nextInt(20) == 0) {
+              metaCache.invalidateCache(tl.tablet_extent);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  static class CountingTabletLocationObtainer extends TestTabletLocationObtainer {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger multiLookups = new AtomicInteger();
+
+    CountingTabletLocationObtainer(TServers tservers) {
+      super(tservers);
+    }
+
+    @Override
+    public TabletLocations lookupTablet(ClientContext context, TabletLocation src, Text row,
+        Text stopRow, TabletLocator parent) throws AccumuloSecurityException {
+      // only count lookups of user tablets, not of the metadata tablet
+      if (src.tablet_extent.equals(MTE))
+        lookups.incrementAndGet();
+      return super.lookupTablet(context, src, row, stopRow, parent);
+    }
+
+    @Override
+    public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent) throws AccumuloSecurityException {
+      if (map.containsKey(MTE))
+        multiLookups.incrementAndGet();
+      return super.lookupTablets(context, tserver, map, parent);
+    }
+
+    @Override
+    public List<TabletLocation> lookupFirstTablets(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent) throws AccumuloSecurityException {
+      if (map.containsKey(MTE))
+        multiLookups.incrementAndGet();
+      return super.lookupFirstTablets(context, tserver, map, parent);
+    }
+  }
+
+  static TabletLocatorImpl createLocators(TServers tservers, TabletLocationObtainer ttlo,
+      Object... data) {
+    TabletLocatorImpl rootTabletCache = new TabletLocatorImpl(MetadataTable.ID,
+        new TestRootTabletLocator(), ttlo, new YesLockChecker());
+    TabletLocatorImpl tab1TabletCache = new TabletLocatorImpl(Table.ID.of("foo"), rootTabletCache,
+        ttlo, new YesLockChecker());
+
+    setLocation(tservers, "tserver1", RTE, MTE, "tserver2");
+    for (Entry<KeyExtent,TabletLocation> entry : createMetaCacheKE(data).entrySet()) {
+      setLocation(tservers, "tserver2", MTE, entry.getKey(), entry.getValue().tablet_location);
+    }
+    return tab1TabletCache;
+  }
+
+  @Test
+  public void testPrefetchMutations() throws Exception {
+    TServers tservers = new TServers();
+    CountingTabletLocationObtainer ttlo = new CountingTabletLocationObtainer(tservers);
+    TabletLocatorImpl metaCache = createLocators(tservers, ttlo, alphabetTablets());
+
+    // enough rows are missing from the cache to read all their tablets with one multi scan
+    List<Mutation> ml = new ArrayList<>();
+    for (char c = 't'; c >= 'a'; c--) {
+      ml.add(nm(c + "0", "cf1:cq1=v1"));
+    }
+    Map<String,TabletServerMutations<Mutation>> binnedMutations = new HashMap<>();
+    List<Mutation> failures = new ArrayList<>();
+    metaCache.binMutations(context, ml, binnedMutations, failures);
+
+    assertEquals(0, failures.size());
+    assertEquals(0, ttlo.lookups.get());
+    assertEquals(1, ttlo.multiLookups.get());
+    assertEquals(20, binnedMutations.size());
+    for (char c = 'a'; c <= 't'; c++) {
+      String loc = "l" + (char) (c + 1);
+      assertEquals(1, binnedMutations.get(loc).getMutations().size());
+    }
+
+    // tablets after the last row were not read, a few missing rows are looked up one at a time
+    ml = nml(nm("v", "cf1:cq1=v1"), nm("x", "cf1:cq1=v1"));
+    binnedMutations.clear();
+    metaCache.binMutations(context, ml, binnedMutations, failures);
+    assertEquals(0, failures.size());
+    assertTrue(ttlo.lookups.get() > 0);
+    assertEquals(1, ttlo.multiLookups.get());
+  }
+
+  @Test
+  public void testPrefetchOnlyReadsTabletsOfMissingRows() throws Exception {
+    TServers tservers = new TServers();
+    CountingTabletLocationObtainer ttlo = new CountingTabletLocationObtainer(tservers);
+    TabletLocatorImpl metaCache = createLocators(tservers, ttlo, alphabetTablets());
+
+    // rows in every other tablet, and many rows in the same tablet
+    List<Mutation> ml = new ArrayList<>();
+    for (char c = 'a'; c <= 's'; c += 2) {
+      ml.add(nm(c + "0", "cf1:cq1=v1"));
+    }
+    for (int i = 0; i < 10; i++) {
+      ml.add(nm("x" + i, "cf1:cq1=v1"));
+    }
+    Map<String,TabletServerMutations<Mutation>> binnedMutations = new HashMap<>();
+    List<Mutation> failures = new ArrayList<>();
+    metaCache.binMutations(context, ml, binnedMutations, failures);
+
+    assertEquals(0, failures.size());
+    assertEquals(0, ttlo.lookups.get());
+    assertEquals(1, ttlo.multiLookups.get());
+    assertEquals(11, binnedMutations.size());
+    assertEquals(10, binnedMutations.get("ly").getMutations().get(nke("foo", "y", "x")).size());
+
+    // the tablets between the rows were not read
+    TabletLocation tl = metaCache.locateTablet(context, new Text("b0"), false, false);
+    assertEquals("lc", tl.tablet_location);
+    assertEquals(1, ttlo.lookups.get());
+  }
+
+  @Test
+  public void testPrefetchRanges() throws Exception {
+    TServers tservers = new TServers();
+    CountingTabletLocationObtainer ttlo = new CountingTabletLocationObtainer(tservers);
+    TabletLocatorImpl metaCache = createLocators(tservers, ttlo, alphabetTablets());
+
+    List<Range> ranges = new ArrayList<>();
+    for (char c = 'a'; c <= 'z'; c++) {
+      ranges.add(new Range(Character.toString(c)));
+    }
+    ranges.add(nr("zz", null));
+    Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+    List<Range> failures = metaCache.binRanges(context, ranges, binnedRanges);
+
+    assertEquals(0, failures.size());
+    assertEquals(0, ttlo.lookups.get());
+    assertEquals(1, ttlo.multiLookups.get());
+    assertEquals(26, binnedRanges.size());
+    assertEquals(Collections.singletonList(nr("zz", null)),
+        binnedRanges.get("llast").get(nke("foo", null, "z")));
+  }
+
+  @Test
+  public void testPrefetchTable() throws Exception {
+    TServers tservers = new TServers();
+    CountingTabletLocationObtainer ttlo = new CountingTabletLocationObtainer(tservers);
+    TabletLocatorImpl metaCache = createLocators(tservers, ttlo, alphabetTablets());
+
+    metaCache.prefetch(context, new Range());
+    assertEquals(1, ttlo.multiLookups.get());
+
+    for (char c = 'a'; c <= 'z'; c++) {
+      Text row = new Text(Character.toString(c));
+      TabletLocation tl = metaCache.locateTablet(context, row, false, false);
+      assertTrue(tl.tablet_extent.contains(row));
+    }
+    assertEquals("llast",
+        metaCache.locateTablet(context, new Text("zz"), false, false).tablet_location);
+    assertEquals(0, ttlo.lookups.get());
+  }
+
   @Test
   public void testBug1() throws Exception {
     // a bug that occurred while running continuous ingest
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TabletServerBatchReaderIteratorTest {
+
+  private static KeyExtent extent(String prev, String end) {
+    return new KeyExtent(Table.ID.of("1"), end == null ? null : new Text(end),
+        prev == null ? null : new Text(prev));
+  }
+
+  private static List<Range> ranges(String prefix, int count) {
+    List<Range> ranges = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ranges.add(new Range(String.format("%s%04d", prefix, i)));
+    }
+    return ranges;
+  }
+
+  private static Map<String,Double> costs(String server1, double cost1, String server2,
+      double cost2) {
+    Map<String,Double> costs = new HashMap<>();
+    costs.put(server1, cost1);
+    costs.put(server2, cost2);
+    return costs;
+  }
+
+  private static Map<String,Map<KeyExtent,List<Range>>> twoServers() {
+    Map<String,Map<KeyExtent,List<Range>>> binned = new HashMap<>();
+    Map<KeyExtent,List<Range>> ts1 = new HashMap<>();
+    ts1.put(extent(null, "b"), ranges("a", 50));
+    ts1.put(extent("b", "d"), ranges("c", 50));
+    binned.put("ts1", ts1);
+    Map<KeyExtent,List<Range>> ts2 = new HashMap<>();
+    ts2.put(extent("d", null), ranges("e", 100));
+    binned.put("ts2", ts2);
+    return binned;
+  }
+
+  private static int count(List<Pair<String,Map<KeyExtent,List<Range>>>> bins, String server) {
+    int count = 0;
+    for (Pair<String,Map<KeyExtent,List<Range>>> bin : bins) {
+      if (bin.getFirst().equals(server))
+        count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void testOneBinPerServerWithFewThreads() {
+    Map<String,Map<KeyExtent,List<Range>>> binned = twoServers();
+    List<Pair<String,Map<KeyExtent,List<Range>>>> bins = TabletServerBatchReaderIterator
+        .partition(Arrays.asList("ts1", "ts2"), binned, 2, costs("ts1", 1.0, "ts2", 1.0));
+    assertEquals(2, bins.size());
+    assertEquals(binned.get("ts1"), bins.get(0).getSecond());
+    assertEquals(binned.get("ts2"), bins.get(1).getSecond());
+  }
+
+  @Test
+  public void testThreadsSharedByCost() {
+    Map<String,Map<KeyExtent,List<Range>>> binned = twoServers();
+
+    // equal costs split the threads evenly, even for a server with a single tablet
+    List<Pair<String,Map<KeyExtent,List<Range>>>> bins = TabletServerBatchReaderIterator
+        .partition(Arrays.asList("ts1", "ts2"), binned, 8, costs("ts1", 1.0, "ts2", 1.0));
+    assertEquals(4, count(bins, "ts1"));
+    assertEquals(4, count(bins, "ts2"));
+    assertAllRanges(binned, bins);
+
+    // a slow server gets most of the threads
+    bins = TabletServerBatchReaderIterator.partition(Arrays.asList("ts1", "ts2"), binned, 8,
+        costs("ts1", 1.0, "ts2", 7.0));
+    assertEquals(1, count(bins, "ts1"));
+    assertEquals(7, count(bins, "ts2"));
+    assertAllRanges(binned, bins);
+  }
+
+  @Test
+  public void testSmallBinsNotSplit() {
+    Map<String,Map<KeyExtent,List<Range>>> binned = twoServers();
+    Map<KeyExtent,List<Range>> ts1 = new HashMap<>();
+    ts1.put(extent(null, "b"), ranges("a", 1));
+    binned.put("ts1", ts1);
+
+    List<Pair<String,Map<KeyExtent,List<Range>>>> bins = TabletServerBatchReaderIterator
+        .partition(Arrays.asList("ts1", "ts2"), binned, 16, costs("ts1", 1.0, "ts2", 1.0));
+    assertEquals(1, count(bins, "ts1"));
+    assertAllRanges(binned, bins);
+  }
+
+  private static void assertAllRanges(Map<String,Map<KeyExtent,List<Range>>> binned,
+      List<Pair<String,Map<KeyExtent,List<Range>>>> bins) {
+    for (String server : binned.keySet()) {
+      Set<Range> expected = new HashSet<>();
+      for (List<Range> ranges : binned.get(server).values())
+        expected.addAll(ranges);
+
+      Set<Range> actual = new HashSet<>();
+      int size = 0;
+      for (Pair<String,Map<KeyExtent,List<Range>>> bin : bins) {
+        if (bin.getFirst().equals(server)) {
+          for (Map.Entry<KeyExtent,List<Range>> entry : bin.getSecond().entrySet()) {
+            // ranges stay with their tablet
+            assertTrue(binned.get(server).get(entry.getKey()).containsAll(entry.getValue()));
+            actual.addAll(entry.getValue());
+            size += entry.getValue().size();
+          }
+        }
+      }
+      assertEquals(expected, actual);
+      assertEquals(expected.size(), size);
+    }
+  }
+
+  @Test
+  public void testServerStats() {
+    BatchScanServerStats stats = new BatchScanServerStats();
+
+    // without history every server costs the same
+    Map<String,Double> estimates = stats.getMillisPerRange(Arrays.asList("ts1", "ts2"));
+    assertEquals(estimates.get("ts1"), estimates.get("ts2"));
+
+    stats.record("ts1", 100, 1000, 50000, 200);
+    stats.record("ts1", 100, 1000, 50000, 200);
+    estimates = stats.getMillisPerRange(Arrays.asList("ts1", "ts2", "ts3"));
+    assertEquals(2.0, estimates.get("ts1"), 0.0001);
+    // servers without history are assumed to be average
+    assertEquals(2.0, estimates.get("ts2"), 0.0001);
+
+    BatchScanServerStats.ServerStats ts1 = stats.getStats().get("ts1");
+    assertEquals(2, ts1.getLookups());
+    assertEquals(200, ts1.getRanges());
+    assertEquals(2000, ts1.getEntries());
+    assertEquals(100000, ts1.getBytes());
+    assertEquals(400, ts1.getTime());
+  }
+}
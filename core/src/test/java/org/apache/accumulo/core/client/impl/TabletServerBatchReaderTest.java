@@ -17,6 +17,8 @@
 package org.apache.accumulo.core.client.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.security.Authorizations;
@@ -41,6 +43,18 @@ public class TabletServerBatchReaderTest {
     }
   }
 
+  @Test
+  public void testSetOrdered() {
+    try (BatchScanner s = new TabletServerBatchReader(context, Table.ID.of("foo"),
+        Authorizations.EMPTY, 1)) {
+      assertFalse(s.isOrdered());
+      s.setOrdered(true);
+      assertTrue(s.isOrdered());
+      s.setOrdered(false);
+      assertFalse(s.isOrdered());
+    }
+  }
+
   @SuppressWarnings("resource")
   @Test(expected = IllegalArgumentException.class)
   public void testNullAuthorizationsFails() {
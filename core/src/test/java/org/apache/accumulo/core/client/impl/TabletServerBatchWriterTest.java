@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.impl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.data.thrift.TMutation;
+import org.apache.accumulo.core.data.thrift.UpdateErrors;
+import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.accumulo.core.tabletserver.thrift.TabletClientService;
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TabletServerBatchWriterTest {
+
+  private static final Table.ID TABLE = Table.ID.of("1");
+  private static final String SERVER = "localhost:9997";
+
+  // rows received by the tablet server, with the number of times each was received
+  private final Map<String,AtomicInteger> received = new ConcurrentHashMap<>();
+
+  private ClientContext context;
+  private TabletClientService.Iface client;
+
+  private void receive(TMutation tm) {
+    String row = new String(new Mutation(tm).getRow(), UTF_8);
+    received.computeIfAbsent(row, r -> new AtomicInteger()).incrementAndGet();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setup() throws Exception {
+    context = EasyMock.createMock(ClientContext.class);
+    EasyMock.expect(context.rpcCreds()).andReturn(new TCredentials()).anyTimes();
+    EasyMock.replay(context);
+
+    client = EasyMock.createMock(TabletClientService.Iface.class);
+    client.update(EasyMock.anyObject(), EasyMock.anyObject(), EasyMock.anyObject(),
+        EasyMock.anyObject(), EasyMock.anyObject());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      receive((TMutation) EasyMock.getCurrentArguments()[3]);
+      return null;
+    }).anyTimes();
+    EasyMock.expect(client.startUpdate(EasyMock.anyObject(), EasyMock.anyObject(),
+        EasyMock.anyObject())).andReturn(1L).anyTimes();
+    client.applyUpdates(EasyMock.anyObject(), EasyMock.anyLong(), EasyMock.anyObject(),
+        EasyMock.anyObject());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      for (TMutation tm : (List<TMutation>) EasyMock.getCurrentArguments()[3]) {
+        receive(tm);
+      }
+      return null;
+    }).anyTimes();
+    EasyMock.expect(client.closeUpdate(EasyMock.anyObject(), EasyMock.anyLong()))
+        .andAnswer(() -> new UpdateErrors(new HashMap<>(), new ArrayList<>(), new HashMap<>()))
+        .anyTimes();
+    EasyMock.replay(client);
+  }
+
+  /**
+   * Bins every mutation to the same tablet and server.
+   */
+  private static class OneTabletLocator extends TabletLocator {
+
+    @Override
+    public TabletLocation locateTablet(ClientContext context, Text row, boolean skipRow,
+        boolean retry) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Mutation> void binMutations(ClientContext context, List<T> mutations,
+        Map<String,TabletServerMutations<T>> binnedMutations, List<T> failures) {
+      TabletServerMutations<T> tsm = binnedMutations.computeIfAbsent(SERVER,
+          s -> new TabletServerMutations<>("session"));
+      for (T m : mutations) {
+        tsm.addMutation(new KeyExtent(TABLE, null, null), m);
+      }
+    }
+
+    @Override
+    public List<Range> binRanges(ClientContext context, List<Range> ranges,
+        Map<String,Map<KeyExtent,List<Range>>> binnedRanges) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void invalidateCache(KeyExtent failedExtent) {}
+
+    @Override
+    public void invalidateCache(Collection<KeyExtent> keySet) {}
+
+    @Override
+    public void invalidateCache() {}
+
+    @Override
+    public void invalidateCache(ClientContext context, String server) {}
+  }
+
+  private TabletServerBatchWriter createWriter(BatchWriterConfig config) {
+    return new TabletServerBatchWriter(context, config) {
+      @Override
+      TabletLocator createLocator(Table.ID tableId) {
+        return new OneTabletLocator();
+      }
+
+      @Override
+      TabletClientService.Iface getTServerClient(HostAndPort server, long timeout) {
+        return client;
+      }
+
+      @Override
+      void returnTServerClient(TabletClientService.Iface c) {}
+    };
+  }
+
+  private static Mutation mutation(String row) {
+    Mutation m = new Mutation(row);
+    m.put("cf", "cq", "value");
+    return m;
+  }
+
+  @Test
+  public void testConcurrentAddFlushAndClose() throws Exception {
+    final int threads = 8;
+    final int adds = 2000;
+
+    // max memory only holds a few hundred mutations, so adds regularly wait for memory
+    TabletServerBatchWriter writer = createWriter(new BatchWriterConfig().setMaxMemory(20_000)
+        .setBufferStripes(4).setMaxWriteThreads(3));
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < adds; i++) {
+            String row = String.format("t%d_r%05d", thread, i);
+            writer.addMutation(TABLE, mutation(row));
+            if (i % 500 == 499) {
+              // a flush returns once everything added before it has been sent
+              writer.flush();
+              for (int j = 0; j <= i; j++) {
+                assertTrue(received.containsKey(String.format("t%d_r%05d", thread, j)));
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    writer.close();
+
+    assertEquals(threads * adds, received.size());
+    for (AtomicInteger count : received.values()) {
+      assertEquals(1, count.get());
+    }
+  }
+
+  @Test
+  public void testCloseSendsBufferedMutations() throws Exception {
+    TabletServerBatchWriter writer = createWriter(new BatchWriterConfig().setBufferStripes(4));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 100; i++) {
+            writer.addMutation(TABLE, mutation(String.format("t%d_r%05d", thread, i)));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // nothing reached the point where it is queued for binning, so close has to send it all
+    assertEquals(0, received.size());
+    writer.close();
+    assertEquals(400, received.size());
+  }
+}
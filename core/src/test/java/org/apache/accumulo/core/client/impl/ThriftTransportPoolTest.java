@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.thrift.transport.TTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThriftTransportPoolTest {
+
+  // the kernel accepts connections to the socket, which is all opening a transport needs
+  private ServerSocket serverSocket;
+  private HostAndPort location;
+
+  @Before
+  public void setup() throws Exception {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    location = HostAndPort.fromParts(serverSocket.getInetAddress().getHostAddress(),
+        serverSocket.getLocalPort());
+  }
+
+  @After
+  public void teardown() throws Exception {
+    serverSocket.close();
+  }
+
+  private static ClientContext createContext(int maxConnections) {
+    ClientContext context = createMock(ClientContext.class);
+    expect(context.getClientSslParams()).andReturn(null).anyTimes();
+    expect(context.getSaslParams()).andReturn(null).anyTimes();
+    expect(context.getMaxConnectionsPerServer()).andReturn(maxConnections).anyTimes();
+    replay(context);
+    return context;
+  }
+
+  @Test
+  public void testConnectionReused() throws Exception {
+    ThriftTransportPool pool = ThriftTransportPool.getInstance();
+    ClientContext context = createContext(0);
+
+    TTransport first = pool.getTransport(location, 30_000, context);
+    TTransport second = pool.getTransport(location, 30_000, context);
+    // without a limit concurrent callers get their own connection
+    assertNotSame(first, second);
+
+    pool.returnTransport(first);
+    TTransport third = pool.getTransport(location, 30_000, context);
+    assertSame(first, third);
+
+    pool.returnTransport(second);
+    pool.returnTransport(third);
+  }
+
+  @Test
+  public void testConnectionsShared() throws Exception {
+    ThriftTransportPool pool = ThriftTransportPool.getInstance();
+    ClientContext context = createContext(1);
+
+    // use a timeout that no other test uses, so the pool has no connections for this key
+    TTransport first = pool.getTransport(location, 31_000, context);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<TTransport> second = executor
+          .submit(() -> pool.getTransport(location, 31_000, context));
+
+      // the limit was reached, so the second caller waits for the connection
+      Thread.sleep(200);
+      assertFalse(second.isDone());
+
+      pool.returnTransport(first);
+      assertSame(first, second.get(10, TimeUnit.SECONDS));
+      pool.returnTransport(first);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
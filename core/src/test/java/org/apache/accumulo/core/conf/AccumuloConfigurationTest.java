@@ -28,7 +28,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Predicate;
 
+import org.apache.accumulo.core.conf.AccumuloConfiguration.CompactionExecutorConfig;
 import org.apache.accumulo.core.conf.AccumuloConfiguration.ScanExecutorConfig;
+import org.apache.accumulo.core.spi.compaction.DefaultCompactionPrioritizer;
+import org.apache.accumulo.core.spi.compaction.SimpleCompactionDispatcher;
 import org.apache.accumulo.core.spi.scan.SimpleScanDispatcher;
 import org.junit.Rule;
 import org.junit.Test;
@@ -373,4 +376,65 @@ public class AccumuloConfigurationTest {
         .findFirst().get();
     assertEquals(44, sec8.maxThreads);
   }
+
+  @Test
+  public void testCompactionExecutors() {
+    String defName = SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME;
+
+    TestConfiguration tc = new TestConfiguration(DefaultConfiguration.getInstance());
+
+    Collection<CompactionExecutorConfig> executors = tc.getCompactionExecutors();
+    assertEquals(1, executors.size());
+
+    // the default executor takes its threads from the major compaction concurrency
+    CompactionExecutorConfig cec = executors.iterator().next();
+    assertEquals(defName, cec.name);
+    assertEquals(Integer.parseInt(Property.TSERV_MAJC_MAXCONCURRENT.getDefaultValue()),
+        cec.maxThreads);
+    assertEquals(DefaultCompactionPrioritizer.class.getName(), cec.prioritizerClass.get());
+    assertTrue(cec.prioritizerOpts.isEmpty());
+
+    tc.set(Property.TSERV_MAJC_MAXCONCURRENT.getKey(), "7");
+    assertEquals(7, cec.getCurrentMaxThreads());
+
+    String prefix = Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey();
+    tc.set(prefix + defName + ".threads", "5");
+    assertEquals(5, cec.getCurrentMaxThreads());
+    assertEquals(5, tc.getCompactionExecutors().stream().filter(c -> c.name.equals(defName))
+        .findFirst().get().maxThreads);
+
+    tc.set(prefix + "huge.threads", "2");
+    tc.set(prefix + "huge.prioritizer", "com.foo.CompactionPrioritizer");
+    tc.set(prefix + "huge.prioritizer.opts.k1", "v1");
+    tc.set(prefix + "huge.prioritizer.opts.k2", "v3");
+
+    executors = tc.getCompactionExecutors();
+    assertEquals(2, executors.size());
+    CompactionExecutorConfig cec2 = executors.stream().filter(c -> c.name.equals("huge"))
+        .findFirst().get();
+    assertEquals(2, cec2.maxThreads);
+    assertEquals("com.foo.CompactionPrioritizer", cec2.prioritizerClass.get());
+    assertEquals(ImmutableMap.of("k1", "v1", "k2", "v3"), cec2.prioritizerOpts);
+
+    tc.set(prefix + "huge.threads", "4");
+    assertEquals(2, cec2.maxThreads);
+    assertEquals(4, cec2.getCurrentMaxThreads());
+  }
+
+  @Test
+  public void testCompactionExecutorWithoutThreads() {
+    TestConfiguration tc = new TestConfiguration(DefaultConfiguration.getInstance());
+    tc.set(Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey() + "huge.prioritizer", "");
+    thrown.expect(IllegalArgumentException.class);
+    tc.getCompactionExecutors();
+  }
+
+  @Test
+  public void testCompactionExecutorUnknownOption() {
+    TestConfiguration tc = new TestConfiguration(DefaultConfiguration.getInstance());
+    tc.set(Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey() + "huge.threads", "2");
+    tc.set(Property.TSERV_MAJC_EXECUTORS_PREFIX.getKey() + "huge.priority", "3");
+    thrown.expect(IllegalStateException.class);
+    tc.getCompactionExecutors();
+  }
 }
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.PageAllocator;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.Test;
+
+public class TestOffHeapBlockCache {
+
+  private static final Random random = new Random(42);
+
+  private static byte[] randomBlock(int size) {
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static BlockCacheManager startManager(long maxSize, long blockSize, int pageSize)
+      throws Exception {
+    DefaultConfiguration dc = DefaultConfiguration.getInstance();
+    ConfigurationCopy cc = new ConfigurationCopy(dc);
+    cc.set(Property.TSERV_CACHE_MANAGER_IMPL, OffHeapBlockCacheManager.class.getName());
+    BlockCacheManager manager = BlockCacheManagerFactory.getInstance(cc);
+    cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, Long.toString(blockSize));
+    cc.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(maxSize));
+    cc.set(Property.TSERV_DATACACHE_SIZE, Long.toString(maxSize));
+    cc.set(Property.TSERV_SUMMARYCACHE_SIZE, Long.toString(maxSize));
+    OffHeapBlockCacheConfiguration.builder(CacheType.INDEX).pageSize(pageSize).buildMap()
+        .forEach(cc::set);
+    manager.start(new BlockCacheConfiguration(cc));
+    return manager;
+  }
+
+  @Test
+  public void testConfiguration() {
+    ConfigurationCopy cc = new ConfigurationCopy();
+    cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, Long.toString(1019));
+    cc.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(1000023));
+    cc.set(Property.TSERV_DATACACHE_SIZE, Long.toString(1000027));
+    cc.set(Property.TSERV_SUMMARYCACHE_SIZE, Long.toString(1000029));
+
+    OffHeapBlockCacheConfiguration.builder(CacheType.INDEX).pageSize(4096).slabSize(1 << 20)
+        .minFactor(0.80f).acceptableFactor(0.90f).buildMap().forEach(cc::set);
+
+    BlockCacheConfiguration bcc = new BlockCacheConfiguration(cc);
+    OffHeapBlockCacheConfiguration ohcc = new OffHeapBlockCacheConfiguration(bcc,
+        CacheType.INDEX);
+
+    assertEquals(4096, ohcc.getPageSize());
+    assertEquals(1 << 20, ohcc.getSlabSize());
+    assertEquals(0.80f, ohcc.getMinFactor(), 0.0000001);
+    assertEquals(0.90f, ohcc.getAcceptableFactor(), 0.0000001);
+    assertEquals(1019, ohcc.getBlockSize());
+    assertEquals(1000023, ohcc.getMaxSize());
+
+    OffHeapBlockCacheConfiguration dataConf = new OffHeapBlockCacheConfiguration(bcc,
+        CacheType.DATA);
+    assertEquals(OffHeapBlockCacheConfiguration.DEFAULT_PAGE_SIZE.intValue(),
+        dataConf.getPageSize());
+  }
+
+  @Test
+  public void testPageAllocator() {
+    PageAllocator allocator = new PageAllocator(10 * 100, 100, 300);
+    assertEquals(10, allocator.getTotalPages());
+    assertEquals(3, allocator.pagesNeeded(201));
+
+    byte[] data = randomBlock(950);
+    int[] pages = allocator.allocate(allocator.pagesNeeded(data.length));
+    assertNotNull(pages);
+    assertEquals(0, allocator.getFreePages());
+    assertNull(allocator.allocate(1));
+
+    allocator.write(pages, data);
+    assertArrayEquals(data, allocator.read(pages, data.length));
+
+    allocator.free(pages);
+    assertEquals(10, allocator.getTotalPages());
+    assertEquals(10, allocator.getFreePages());
+  }
+
+  @Test
+  public void testCacheSimple() throws Exception {
+    BlockCacheManager manager = startManager(1000000, 10000, 1024);
+    OffHeapBlockCache cache = (OffHeapBlockCache) manager.getBlockCache(CacheType.INDEX);
+
+    byte[][] blocks = new byte[50][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = randomBlock(random.nextInt(10000) + 1);
+      assertNull(cache.getBlock("b" + i));
+    }
+
+    for (int i = 0; i < blocks.length; i++) {
+      cache.cacheBlock("b" + i, blocks[i]);
+    }
+
+    for (int i = 0; i < blocks.length; i++) {
+      CacheEntry ce = cache.getBlock("b" + i);
+      assertNotNull(ce);
+      assertArrayEquals(blocks[i], ce.getBuffer());
+    }
+
+    assertEquals(blocks.length, cache.size());
+    assertEquals(0, cache.getEvictedCount());
+    assertEquals(blocks.length, cache.getStats().getMissCount());
+    assertEquals(blocks.length, cache.getStats().hitCount());
+    assertTrue(cache.getMaxHeapSize() < cache.getMaxSize());
+
+    manager.stop();
+  }
+
+  @Test
+  public void testCacheEviction() throws Exception {
+    BlockCacheManager manager = startManager(100 * 1024, 10 * 1024, 1024);
+    OffHeapBlockCache cache = (OffHeapBlockCache) manager.getBlockCache(CacheType.INDEX);
+
+    byte[][] blocks = new byte[20][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = randomBlock(10 * 1024);
+      cache.cacheBlock("b" + i, blocks[i]);
+      // keep the first block hot so that it is not evicted
+      assertNotNull(cache.getBlock("b0"));
+    }
+
+    assertTrue(cache.getEvictedCount() > 0);
+    assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    assertArrayEquals(blocks[0], cache.getBlock("b0").getBuffer());
+    assertArrayEquals(blocks[19], cache.getBlock("b19").getBuffer());
+    assertNull(cache.getBlock("b1"));
+
+    // a block larger than the cache is returned but not cached
+    byte[] big = randomBlock(200 * 1024);
+    assertArrayEquals(big, cache.cacheBlock("big", big).getBuffer());
+    assertNull(cache.getBlock("big"));
+
+    manager.stop();
+  }
+}
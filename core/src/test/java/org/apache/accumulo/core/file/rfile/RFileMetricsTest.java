@@ -550,7 +550,8 @@ public class RFileMetricsTest {
     Map<String,Long> expectedBlocks = new HashMap<>();
     for (String v : vis) {
       expected.put(v, 1000L);
-      expectedBlocks.put(v, 71L);
+      // keys at restart points are not relative encoded, so the blocks fill up a little sooner
+      expectedBlocks.put(v, 72L);
     }
     assertEquals(expected, vmg.metric.get(null).asMap());
     assertEquals(expectedBlocks, vmg.blocks.get(null).asMap());
@@ -559,8 +560,8 @@ public class RFileMetricsTest {
     expectedBlocks.clear();
     expected.put("A", 1100L);
     expected.put("A|B", 1100L);
-    expectedBlocks.put("A", 32L);
-    expectedBlocks.put("A|B", 32L);
+    expectedBlocks.put("A", 33L);
+    expectedBlocks.put("A|B", 33L);
     assertEquals(expected, vmg.metric.get("lg1").asMap());
     assertEquals(expectedBlocks, vmg.blocks.get("lg1").asMap());
 
@@ -550,7 +550,8 @@ public class RFileTest {
       count++;
       iiter.next();
     }
-    assertEquals(20, count);
+    // keys at restart points are not relative encoded, so the blocks fill up a little sooner
+    assertEquals(21, count);
 
     trf.closeReader();
   }
@@ -1711,6 +1712,8 @@ public class RFileTest {
     runVersionTest(4, defaultConfiguration);
     runVersionTest(6, defaultConfiguration);
     runVersionTest(7, defaultConfiguration);
+    // version 8 data blocks have no restart points
+    runVersionTest(8, defaultConfiguration);
   }
 
   @Test
@@ -1720,6 +1723,8 @@ public class RFileTest {
     runVersionTest(4, cryptoOnConf);
     runVersionTest(6, cryptoOnConf);
     runVersionTest(7, cryptoOnConf);
+    // version 8 data blocks have no restart points
+    runVersionTest(8, cryptoOnConf);
   }
 
   private void runVersionTest(int version, AccumuloConfiguration aconf) throws IOException {
@@ -2226,6 +2231,57 @@ public class RFileTest {
     conf = null;
   }
 
+  @Test
+  public void testRestartPoints() throws IOException {
+    // use a large block size so that all keys are in one block and seeks within the block use the
+    // restart points
+    ArrayList<Key> keys = new ArrayList<>();
+    for (int row = 0; row < 20; row++) {
+      for (int cq = 0; cq < 250; cq++) {
+        keys.add(newKey(formatString("r_", row), "cf1", formatString("cq_", cq), "", 7));
+      }
+    }
+
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(10000000);
+    for (Key k : keys) {
+      trf.writer.append(k, newValue(k.getColumnQualifier().toString()));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+
+    Random rand = new SecureRandom();
+    for (int i = 0; i < 200; i++) {
+      int index = rand.nextInt(keys.size());
+      Key seekKey = keys.get(index);
+      if (rand.nextBoolean()) {
+        // seek to a key that does not exist in the file
+        seekKey = seekKey.followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME);
+        index++;
+      }
+
+      trf.seek(seekKey);
+      int end = Math.min(index + 40, keys.size());
+      for (int j = index; j < end; j++) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(keys.get(j), trf.iter.getTopKey());
+        assertEquals(newValue(keys.get(j).getColumnQualifier().toString()),
+            trf.iter.getTopValue());
+        trf.iter.next();
+      }
+      if (end == keys.size()) {
+        assertFalse(trf.iter.hasTop());
+      }
+    }
+
+    trf.iter.seek(new Range((Key) null, null), EMPTY_COL_FAMS, false);
+    verify(trf, keys.iterator(),
+        keys.stream().map(k -> newValue(k.getColumnQualifier().toString())).iterator());
+
+    trf.closeReader();
+  }
+
   @Test
   public void testBigKeys() throws IOException {
     // this test ensures that big keys do not end up index
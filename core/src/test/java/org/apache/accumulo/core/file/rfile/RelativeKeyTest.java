@@ -16,7 +16,9 @@
  */
 package org.apache.accumulo.core.file.rfile;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -30,6 +32,7 @@ import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
 import org.apache.accumulo.core.file.rfile.RelativeKey.SkippR;
 import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.accumulo.core.util.UnsynchronizedBuffer;
@@ -282,4 +285,54 @@ public class RelativeKeyTest {
     assertEquals(expectedValues.get(j).toString(), value.toString());
 
   }
+
+  @Test
+  public void testSeekCachedBlock() throws IOException {
+    byte[] data = baos.toByteArray();
+    byte[] original = data.clone();
+    CachedBlockRead block = new CachedBlockRead(null, data);
+
+    int seekIndex = expectedKeys.size() / 2;
+    MutableByteSequence value = new MutableByteSequence(new byte[64], 0, 0);
+
+    SkippR skippr = RelativeKey.fastSkip(block, expectedKeys.get(seekIndex), value, new Key(),
+        null, expectedKeys.size());
+    assertEquals(seekIndex + 1, skippr.skipped);
+    assertEquals(expectedKeys.get(seekIndex - 1), skippr.prevKey);
+    assertEquals(expectedKeys.get(seekIndex), skippr.rk.getKey());
+    assertEquals(expectedValues.get(seekIndex).toString(), value.toString());
+
+    // skip forward from the current position, mixing in place and prefix decoded fields
+    int i = seekIndex;
+    Key fKey = expectedKeys.get(i).followingKey(PartialKey.ROW);
+    int j;
+    for (j = i; expectedKeys.get(j).compareTo(fKey) < 0; j++) {}
+    skippr = RelativeKey.fastSkip(block, fKey, value, expectedKeys.get(i - 1),
+        expectedKeys.get(i), expectedKeys.size() - i - 1);
+    assertEquals(j - i, skippr.skipped);
+    assertEquals(expectedKeys.get(j - 1), skippr.prevKey);
+    assertEquals(expectedKeys.get(j), skippr.rk.getKey());
+    assertEquals(expectedValues.get(j).toString(), value.toString());
+
+    // skipping must never write into the cached block
+    assertArrayEquals(original, data);
+  }
+
+  @Test
+  public void testReadFieldsSharesSameFields() throws IOException {
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(new Key());
+    rk.readFields(in);
+    new Value().readFields(in);
+    Key first = rk.getKey();
+    rk.readFields(in);
+    Key second = rk.getKey();
+
+    assertEquals(expectedKeys.get(0), first);
+    assertEquals(expectedKeys.get(1), second);
+    // the second key only differs in its delete flag, so all of its fields are shared
+    assertSame(first.getRowData().getBackingArray(), second.getRowData().getBackingArray());
+    assertSame(first.getColumnQualifierData().getBackingArray(),
+        second.getColumnQualifierData().getBackingArray());
+  }
 }
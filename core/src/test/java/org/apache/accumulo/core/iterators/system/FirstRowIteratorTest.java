@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Test;
+
+public class FirstRowIteratorTest {
+
+  @Test
+  public void testFirstRowOfEachSeek() throws Exception {
+    TreeMap<Key,Value> data = new TreeMap<>();
+    data.put(new Key("r1", "cf1", "cq1"), new Value("1"));
+    data.put(new Key("r1", "cf1", "cq2"), new Value("2"));
+    data.put(new Key("r3", "cf1", "cq1"), new Value("3"));
+    data.put(new Key("r4", "cf1", "cq1"), new Value("4"));
+
+    FirstRowIterator iter = new FirstRowIterator();
+    iter.init(new SortedMapIterator(data), Collections.emptyMap(), null);
+
+    iter.seek(new Range(), Collections.emptySet(), false);
+    assertEquals(new Key("r1", "cf1", "cq1"), iter.getTopKey());
+    iter.next();
+    assertEquals(new Key("r1", "cf1", "cq2"), iter.getTopKey());
+    iter.next();
+    assertFalse(iter.hasTop());
+
+    iter.seek(new Range("r2", null), Collections.emptySet(), false);
+    assertTrue(iter.hasTop());
+    assertEquals(new Key("r3", "cf1", "cq1"), iter.getTopKey());
+    iter.next();
+    assertFalse(iter.hasTop());
+
+    iter.seek(new Range("r5", null), Collections.emptySet(), false);
+    assertFalse(iter.hasTop());
+  }
+}
@@ -23,7 +23,9 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.client.impl.Table;
@@ -417,4 +419,54 @@ public class MultiIteratorTest {
     mi.seek(r7, EMPTY_COL_FAMS, false);
     assertFalse(mi.hasTop());
   }
+
+  @Test
+  public void testManySources() throws IOException {
+    Random random = new Random(7);
+    for (int numSources : new int[] {2, 3, 10, 33, 50}) {
+      List<TreeMap<Key,Value>> maps = new ArrayList<>();
+      List<Key> expected = new ArrayList<>();
+      for (int i = 0; i < numSources; i++) {
+        TreeMap<Key,Value> tm = new TreeMap<>();
+        // some sources hold long runs of consecutive rows, others are spread out
+        int run = random.nextInt(4) == 0 ? 20 : 1;
+        int row = random.nextInt(100);
+        for (int j = 0; j < 200; j++) {
+          if (j % run == 0) {
+            row += random.nextInt(50);
+          }
+          row++;
+          newKeyValue(tm, row, 0, false, i + "");
+        }
+        maps.add(tm);
+        expected.addAll(tm.keySet());
+      }
+      Collections.sort(expected);
+
+      List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>();
+      for (TreeMap<Key,Value> map : maps) {
+        iters.add(new SortedMapIterator(map));
+      }
+
+      MultiIterator mi = new MultiIterator(iters, true);
+      for (int j = 0; j < 2; j++) {
+        mi.seek(new Range(), EMPTY_COL_FAMS, false);
+
+        List<Key> actual = new ArrayList<>();
+        String lastVal = null;
+        while (mi.hasTop()) {
+          Key k = mi.getTopKey();
+          String val = mi.getTopValue().toString();
+          if (!actual.isEmpty() && actual.get(actual.size() - 1).equals(k)) {
+            // equal keys come out in the order their sources were added
+            assertTrue(Integer.parseInt(lastVal) < Integer.parseInt(val));
+          }
+          actual.add(new Key(k));
+          lastVal = val;
+          mi.next();
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
 }
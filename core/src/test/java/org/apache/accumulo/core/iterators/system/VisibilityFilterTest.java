@@ -18,18 +18,22 @@ package org.apache.accumulo.core.iterators.system;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.TreeMap;
 
+import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.TermDictionary;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -73,4 +77,50 @@ public class VisibilityFilterTest {
     filter.next();
     assertFalse(filter.hasTop());
   }
+
+  @Test
+  public void testSharedEvaluationCache() throws Exception {
+    VisibilityEvaluationCache cache = new VisibilityEvaluationCache(10, 10, 100);
+    VisibilityEvaluationCache.Evaluations evals = cache.get(new Authorizations("A", "B"));
+    assertSame(evals, cache.get(new Authorizations("B", "A")));
+
+    byte[] vis = "A&B".getBytes();
+    assertTrue(evals.evaluate(new ArrayByteSequence(vis)));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    // the cache must not hold a reference to the callers bytes
+    vis[2] = 'C';
+    assertFalse(evals.evaluate(new ArrayByteSequence(vis)));
+    assertTrue(evals.evaluate(new ArrayByteSequence("A&B")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+
+    assertFalse(cache.get(new Authorizations("A")).evaluate(new ArrayByteSequence("A&B")));
+    assertEquals(3, cache.getMissCount());
+  }
+
+  @Test
+  public void testEvaluationCacheDictionaryFull() throws Exception {
+    VisibilityEvaluationCache cache = new VisibilityEvaluationCache(10, 100, 4);
+    TermDictionary first = cache.getDictionary();
+    VisibilityEvaluationCache.Evaluations evals = cache.get(new Authorizations("a", "b"));
+    assertTrue(evals.evaluate(new ArrayByteSequence("a&b")));
+
+    // every expression brings in a new term, so the dictionary fills up and is replaced
+    for (int i = 0; i < 10; i++) {
+      assertTrue(evals.evaluate(new ArrayByteSequence("a|t" + i)));
+      assertFalse(evals.evaluate(new ArrayByteSequence("b&t" + i)));
+      assertTrue(cache.getDictionary().size() < 4);
+    }
+    assertNotSame(first, cache.getDictionary());
+
+    // results cached before the dictionary was replaced are still used
+    long hits = cache.getHitCount();
+    assertTrue(evals.evaluate(new ArrayByteSequence("a&b")));
+    assertEquals(hits + 1, cache.getHitCount());
+
+    assertFalse(cache.get(new Authorizations("a")).evaluate(new ArrayByteSequence("a&b")));
+    assertTrue(cache.get(new Authorizations("b", "t9")).evaluate(new ArrayByteSequence("b&t9")));
+  }
 }
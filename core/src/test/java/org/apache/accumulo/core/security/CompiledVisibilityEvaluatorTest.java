@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import static org.apache.accumulo.core.security.ColumnVisibility.quote;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.Program;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.TermDictionary;
+import org.apache.accumulo.core.util.ByteArraySet;
+import org.junit.Test;
+
+public class CompiledVisibilityEvaluatorTest {
+
+  private static final String[] MARKINGS = {"", "one", "five", "one&two", "foor|four",
+      "(one&two)|(foo&bar)", "one|five", "five|one", "(one)", "(one|foo)&three", "one|foo|bar",
+      "(one|foo)|bar", "((one|foo)|bar)&two", "one&five", "five&one", "((one|foo)|bar)&goober",
+      quote("五") + "&four", "\"five\"&(\"\\\\\"|one)"};
+
+  @Test
+  public void testMatchesTreeWalker() throws VisibilityParseException {
+    Authorizations auths = new Authorizations(
+        ByteArraySet.fromStrings("one", "two", "three", "four", "五", "\\"));
+    VisibilityEvaluator expected = new VisibilityEvaluator(auths);
+    CompiledVisibilityEvaluator actual = new CompiledVisibilityEvaluator(auths);
+
+    for (String marking : MARKINGS) {
+      ColumnVisibility cv = new ColumnVisibility(marking);
+      Program program = CompiledVisibilityEvaluator.compile(cv);
+      assertTrue(marking, program.isCompiled());
+      assertEquals(marking, expected.evaluate(cv), actual.evaluate(program));
+    }
+  }
+
+  @Test
+  public void testRandomExpressions() throws VisibilityParseException {
+    Random random = new Random(42);
+    List<String> terms = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      terms.add("t" + i);
+    }
+
+    for (int i = 0; i < 50; i++) {
+      List<String> held = new ArrayList<>();
+      for (String term : terms) {
+        if (random.nextInt(4) == 0) {
+          held.add(term);
+        }
+      }
+      Authorizations auths = new Authorizations(held.toArray(new String[0]));
+      VisibilityEvaluator expected = new VisibilityEvaluator(auths);
+      CompiledVisibilityEvaluator actual = new CompiledVisibilityEvaluator(auths);
+
+      for (int j = 0; j < 100; j++) {
+        ColumnVisibility cv = new ColumnVisibility(randomExpression(random, terms, 3));
+        assertEquals(cv.toString(), expected.evaluate(cv), actual.evaluate(cv));
+      }
+    }
+  }
+
+  private static String randomExpression(Random random, List<String> terms, int depth) {
+    if (depth == 0 || random.nextInt(3) == 0) {
+      return terms.get(random.nextInt(terms.size()));
+    }
+    int children = 2 + random.nextInt(3);
+    String op = random.nextBoolean() ? "&" : "|";
+    StringBuilder sb = new StringBuilder("(");
+    for (int i = 0; i < children; i++) {
+      if (i > 0) {
+        sb.append(op);
+      }
+      sb.append(randomExpression(random, terms, depth - 1));
+    }
+    return sb.append(")").toString();
+  }
+
+  @Test
+  public void testTooComplex() throws VisibilityParseException {
+    // the normal form of this expression has 2^7 clauses
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 7; i++) {
+      if (i > 0) {
+        sb.append("&");
+      }
+      sb.append("(a").append(i).append("|b").append(i).append(")");
+    }
+    ColumnVisibility cv = new ColumnVisibility(sb.toString());
+    Program program = CompiledVisibilityEvaluator.compile(cv);
+    assertFalse(program.isCompiled());
+
+    Authorizations auths = new Authorizations("a0", "b1", "a2", "b3", "a4", "b5", "a6");
+    assertTrue(new CompiledVisibilityEvaluator(auths).evaluate(program));
+    assertFalse(new CompiledVisibilityEvaluator(new Authorizations("a0")).evaluate(program));
+  }
+
+  @Test
+  public void testFullDictionary() throws VisibilityParseException {
+    TermDictionary dictionary = new TermDictionary(3);
+    CompiledVisibilityEvaluator ab = new CompiledVisibilityEvaluator(new Authorizations("a", "b"),
+        dictionary);
+
+    // c takes the last slot, d does not fit so clauses requiring it can not be satisfied
+    Program program = CompiledVisibilityEvaluator.compile(new ColumnVisibility("(b&c)|(a&d)|a"),
+        dictionary);
+    assertEquals(3, dictionary.size());
+    assertTrue(ab.evaluate(program));
+    assertFalse(ab.evaluate(
+        CompiledVisibilityEvaluator.compile(new ColumnVisibility("a&d"), dictionary)));
+
+    // an evaluator that holds d falls back to walking the parse tree
+    CompiledVisibilityEvaluator ad = new CompiledVisibilityEvaluator(new Authorizations("a", "d"),
+        dictionary);
+    assertTrue(
+        ad.evaluate(CompiledVisibilityEvaluator.compile(new ColumnVisibility("a&d"), dictionary)));
+  }
+
+  @Test
+  public void testDifferentDictionaries() throws VisibilityParseException {
+    TermDictionary d1 = new TermDictionary(10);
+    TermDictionary d2 = new TermDictionary(10);
+    d2.intern(new ArrayByteSequence("b"));
+
+    // a and b have the same bit index in different dictionaries
+    CompiledVisibilityEvaluator a = new CompiledVisibilityEvaluator(new Authorizations("a"), d1);
+    Program program = CompiledVisibilityEvaluator.compile(new ColumnVisibility("b"), d2);
+    assertTrue(program.isCompiled());
+    assertFalse(a.evaluate(program));
+    assertTrue(new CompiledVisibilityEvaluator(new Authorizations("b"), d1).evaluate(program));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.accumulo.core.spi.compaction.CompactionInfo.Reason;
+import org.junit.Test;
+
+public class CompactionPrioritizerTest {
+
+  private static List<TestCompactionInfo> compactions(long now) {
+    List<TestCompactionInfo> compactions = new ArrayList<>();
+
+    // user and chop compactions run first, oldest first
+    compactions.add(new TestCompactionInfo("a", Reason.USER, now - 3, 5, 500));
+    compactions.add(new TestCompactionInfo("b", Reason.USER, now - 8, 2, 200));
+    compactions.add(new TestCompactionInfo("c", Reason.CHOP, now - 1, 4, 400));
+    // the following have different numbers and sizes of files
+    compactions.add(new TestCompactionInfo("d", Reason.NORMAL, now - 4, 10, 9000));
+    compactions.add(new TestCompactionInfo("e", Reason.NORMAL, now - 6, 3, 100));
+    compactions.add(new TestCompactionInfo("f", Reason.NORMAL, now - 2, 6, 100));
+    compactions.add(new TestCompactionInfo("g", Reason.IDLE, now - 9, 2, 50));
+
+    Collections.shuffle(compactions);
+    return compactions;
+  }
+
+  private static String sort(CompactionPrioritizer prioritizer) {
+    List<TestCompactionInfo> compactions = compactions(System.currentTimeMillis());
+    Comparator<CompactionInfo> comparator = prioritizer.createComparator(Collections::emptyMap);
+    Collections.sort(compactions, comparator);
+
+    StringBuilder sb = new StringBuilder();
+    for (TestCompactionInfo ci : compactions) {
+      sb.append(ci.testId);
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testDefault() {
+    // tablets with the most files run first
+    assertEquals("bacdfeg", sort(new DefaultCompactionPrioritizer()));
+  }
+
+  @Test
+  public void testSmallest() {
+    // tablets with the smallest files run first, the oldest when sizes are equal
+    assertEquals("bacefdg", sort(new SmallestCompactionPrioritizer()));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.spi.compaction.CompactionDispatcher.DispatchParameters;
+import org.apache.accumulo.core.spi.compaction.CompactionInfo.Reason;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class SimpleCompactionDispatcherTest {
+  @Test
+  public void testProps() {
+    assertTrue(Property.TSERV_MAJC_EXECUTORS_DEFAULT_PRIORITIZER.getKey()
+        .endsWith(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME + ".prioritizer"));
+  }
+
+  private static class DispatchParametersImps implements DispatchParameters {
+
+    private CompactionInfo ci;
+    private Map<String,CompactionExecutor> ce;
+
+    DispatchParametersImps(CompactionInfo ci, Map<String,CompactionExecutor> ce) {
+      this.ci = ci;
+      this.ce = ce;
+    }
+
+    @Override
+    public CompactionInfo getCompactionInfo() {
+      return ci;
+    }
+
+    @Override
+    public Map<String,CompactionExecutor> getCompactionExecutors() {
+      return ce;
+    }
+
+  }
+
+  private void runTest(Map<String,String> opts, String expectedSmall, String expectedLarge,
+      String expectedUser) {
+    TestCompactionInfo small = new TestCompactionInfo("a", Reason.NORMAL, 4, 3, 1 << 20);
+    TestCompactionInfo large = new TestCompactionInfo("b", Reason.NORMAL, 4, 3, 1L << 30);
+    TestCompactionInfo user = new TestCompactionInfo("c", Reason.USER, 4, 3, 1L << 30);
+
+    SimpleCompactionDispatcher scd = new SimpleCompactionDispatcher();
+
+    scd.init(() -> opts);
+
+    Map<String,CompactionExecutor> executors = new HashMap<>();
+    executors.put("E1", null);
+    executors.put("E2", null);
+    executors.put("E3", null);
+
+    assertEquals(expectedSmall, scd.dispatch(new DispatchParametersImps(small, executors)));
+    assertEquals(expectedLarge, scd.dispatch(new DispatchParametersImps(large, executors)));
+    assertEquals(expectedUser, scd.dispatch(new DispatchParametersImps(user, executors)));
+  }
+
+  @Test
+  public void testBasic() {
+    String dname = SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME;
+
+    runTest(Collections.emptyMap(), dname, dname, dname);
+    runTest(ImmutableMap.of("executor", "E1"), "E1", "E1", "E1");
+    runTest(ImmutableMap.of("large_executor", "E2", "large_size", "512M"), dname, "E2", "E2");
+    runTest(ImmutableMap.of("large_executor", "E2", "large_size", "2G"), dname, dname, dname);
+    runTest(ImmutableMap.of("user_executor", "E3"), dname, dname, "E3");
+    runTest(ImmutableMap.of("executor", "E1", "large_executor", "E2", "large_size", "512M",
+        "user_executor", "E3"), "E1", "E2", "E3");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingSize() {
+    runTest(ImmutableMap.of("large_executor", "E2"), "E1", "E2", "E2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidOption() {
+    runTest(ImmutableMap.of("small_executor", "E2"), "E1", "E2", "E2");
+  }
+}
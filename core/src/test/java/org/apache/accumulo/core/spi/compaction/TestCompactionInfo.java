@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+public class TestCompactionInfo implements CompactionInfo {
+
+  String testId;
+  Reason reason;
+  long creationTime;
+  int numFiles;
+  long filesSize;
+
+  TestCompactionInfo(String testId, Reason reason, long creationTime, int numFiles,
+      long filesSize) {
+    this.testId = testId;
+    this.reason = reason;
+    this.creationTime = creationTime;
+    this.numFiles = numFiles;
+    this.filesSize = filesSize;
+  }
+
+  @Override
+  public Reason getReason() {
+    return reason;
+  }
+
+  @Override
+  public String getTableId() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public int getNumFiles() {
+    return numFiles;
+  }
+
+  @Override
+  public long getFilesSize() {
+    return filesSize;
+  }
+}
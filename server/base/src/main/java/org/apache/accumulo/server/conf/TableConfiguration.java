@@ -35,6 +35,7 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.spi.compaction.CompactionDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher;
 import org.apache.accumulo.fate.zookeeper.ZooCache;
 import org.apache.accumulo.fate.zookeeper.ZooCacheFactory;
@@ -252,4 +253,42 @@ public class TableConfiguration extends ObservableConfiguration {
 
     return currRef.dispatcher;
   }
+
+  public static class TablesCompactionDispatcher {
+    public final CompactionDispatcher dispatcher;
+    public final long count;
+
+    public TablesCompactionDispatcher(CompactionDispatcher dispatcher, long count) {
+      this.dispatcher = dispatcher;
+      this.count = count;
+    }
+  }
+
+  private AtomicReference<TablesCompactionDispatcher> compactionDispatcherRef =
+      new AtomicReference<>();
+
+  public CompactionDispatcher getCompactionDispatcher() {
+    long count = getUpdateCount();
+    TablesCompactionDispatcher currRef = compactionDispatcherRef.get();
+    if (currRef == null || currRef.count != count) {
+      CompactionDispatcher newDispatcher = Property.createTableInstanceFromPropertyName(this,
+          Property.TABLE_COMPACTION_DISPATCHER, CompactionDispatcher.class, null);
+
+      Builder<String,String> builder = ImmutableMap.builder();
+      getAllPropertiesWithPrefix(Property.TABLE_COMPACTION_DISPATCHER_OPTS).forEach((k, v) -> {
+        String optKey = k.substring(Property.TABLE_COMPACTION_DISPATCHER_OPTS.getKey().length());
+        builder.put(optKey, v);
+      });
+
+      Map<String,String> opts = builder.build();
+
+      newDispatcher.init(() -> opts);
+
+      TablesCompactionDispatcher newRef = new TablesCompactionDispatcher(newDispatcher, count);
+      compactionDispatcherRef.compareAndSet(currRef, newRef);
+      currRef = newRef;
+    }
+
+    return currRef.dispatcher;
+  }
 }
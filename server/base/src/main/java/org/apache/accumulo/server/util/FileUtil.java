@@ -389,6 +389,59 @@ public class FileUtil {
     }
   }
 
+  /**
+   * Uses the indexes of the files to find rows that divide the data between prevEndRow and endRow
+   * into numPartitions parts of about the same size. Fewer rows are returned when the indexes do
+   * not have enough distinct rows, and none when there are too many files to open at once.
+   *
+   * @return sorted rows that are after prevEndRow and before endRow
+   */
+  public static List<Text> findSplitRows(VolumeManager fs, AccumuloConfiguration acuConf,
+      Text prevEndRow, Text endRow, Collection<String> mapFiles, int numPartitions)
+      throws IOException {
+    List<Text> splitRows = new ArrayList<>();
+
+    if (numPartitions < 2
+        || mapFiles.size() > acuConf.getCount(Property.TSERV_TABLET_SPLIT_FINDMIDPOINT_MAXOPEN))
+      return splitRows;
+
+    Configuration conf = CachedConfiguration.getInstance();
+    ArrayList<FileSKVIterator> readers = new ArrayList<>(mapFiles.size());
+    try {
+      long numKeys = countIndexEntries(acuConf, prevEndRow, endRow, mapFiles, true, conf, fs,
+          readers);
+      if (numKeys < numPartitions)
+        return splitRows;
+
+      List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(readers);
+      MultiIterator mmfi = new MultiIterator(iters, true);
+
+      // skip the prevEndRow
+      while (mmfi.hasTop() && prevEndRow != null && mmfi.getTopKey().compareRow(prevEndRow) <= 0)
+        mmfi.next();
+
+      long keysRead = 0;
+      while (mmfi.hasTop() && splitRows.size() < numPartitions - 1) {
+        Key key = mmfi.getTopKey();
+        if (endRow != null && key.compareRow(endRow) >= 0)
+          break;
+
+        keysRead++;
+        if (keysRead >= numKeys * (splitRows.size() + 1) / numPartitions
+            && (splitRows.isEmpty()
+                || key.compareRow(splitRows.get(splitRows.size() - 1)) > 0)) {
+          splitRows.add(key.getRow());
+        }
+
+        mmfi.next();
+      }
+
+      return splitRows;
+    } finally {
+      cleanupIndexOp(null, fs, readers);
+    }
+  }
+
   protected static void cleanupIndexOp(Path tmpDir, VolumeManager fs,
       ArrayList<FileSKVIterator> readers) throws IOException {
     // close all of the index sequence files
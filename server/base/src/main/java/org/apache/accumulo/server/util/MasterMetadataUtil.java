@@ -22,6 +22,7 @@ import static org.apache.accumulo.fate.util.UtilWaitThread.sleepUninterruptibly;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -222,6 +223,19 @@ public class MasterMetadataUtil {
       Set<FileRef> datafilesToDelete, Set<FileRef> scanFiles, FileRef path, Long compactionId,
       DataFileValue size, String address, TServerInstance lastLocation, ZooLock zooLock,
       boolean insertDeleteFlags) throws IOException {
+    replaceDatafiles(context, extent, datafilesToDelete, scanFiles,
+        Collections.singletonMap(path, size), compactionId, address, lastLocation, zooLock,
+        insertDeleteFlags);
+  }
+
+  /**
+   * Replaces data files of a tablet with any number of new data files in a single update of the
+   * tablet's metadata, so that either all or none of the new files are visible.
+   */
+  public static void replaceDatafiles(ServerContext context, KeyExtent extent,
+      Set<FileRef> datafilesToDelete, Set<FileRef> scanFiles, Map<FileRef,DataFileValue> newFiles,
+      Long compactionId, String address, TServerInstance lastLocation, ZooLock zooLock,
+      boolean insertDeleteFlags) throws IOException {
 
     if (insertDeleteFlags) {
       // add delete flags for those paths before the data file reference is removed
@@ -237,8 +251,11 @@ public class MasterMetadataUtil {
     for (FileRef scanFile : scanFiles)
       m.put(ScanFileColumnFamily.NAME, scanFile.meta(), new Value(new byte[0]));
 
-    if (size.getNumEntries() > 0)
-      m.put(DataFileColumnFamily.NAME, path.meta(), new Value(size.encode()));
+    for (Entry<FileRef,DataFileValue> entry : newFiles.entrySet()) {
+      if (entry.getValue().getNumEntries() > 0)
+        m.put(DataFileColumnFamily.NAME, entry.getKey().meta(),
+            new Value(entry.getValue().encode()));
+    }
 
     if (compactionId != null)
       TabletsSection.ServerColumnFamily.COMPACT_COLUMN.put(m,
@@ -36,6 +36,7 @@ import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -252,6 +253,32 @@ public class DistributedWorkQueue {
     return children;
   }
 
+  /**
+   * @param watcher
+   *          notified when a worker takes or releases the work item, or updates its reservation
+   * @return the status of the reservation of a worker that took the work item and is processing it,
+   *         or null if no worker holds the item
+   */
+  public Stat getWorkReservation(String workId, Watcher watcher)
+      throws KeeperException, InterruptedException {
+    return zoo.getStatus(path + "/" + LOCKS_NODE + "/" + workId, watcher);
+  }
+
+  /**
+   * Updates the reservation of a work item this worker is processing, so processes watching the
+   * item see that it makes progress.
+   */
+  public void updateWorkReservation(String workId) throws KeeperException, InterruptedException {
+    zoo.getZooKeeper().setData(path + "/" + LOCKS_NODE + "/" + workId, new byte[0], -1);
+  }
+
+  /**
+   * Removes a work item from the queue. A worker that already took the item is not interrupted.
+   */
+  public void removeWork(String workId) throws KeeperException, InterruptedException {
+    zoo.recursiveDelete(path + "/" + workId, NodeMissingPolicy.SKIP);
+  }
+
   public void waitUntilDone(Set<String> workIDs) throws KeeperException, InterruptedException {
 
     final Object condVar = new Object();
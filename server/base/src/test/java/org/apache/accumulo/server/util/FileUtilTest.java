@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.server.util;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -27,14 +28,25 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
 import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.util.CachedConfiguration;
 import org.apache.accumulo.server.fs.FileRef;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -214,4 +226,43 @@ public class FileUtilTest {
 
     assertFalse("Expected " + tmp2 + " to be cleaned up but it wasn't", tmp2.exists());
   }
+
+  @Test
+  public void testFindSplitRows() throws IOException {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    // small blocks give an index entry for every few keys
+    conf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "256");
+    conf.set(Property.TABLE_FILE_COMPRESSION_TYPE, "none");
+
+    String file = new Path(new File(accumuloDir, "test.rf").toURI()).toString();
+    FileSystem ns = FileSystem.getLocal(CachedConfiguration.getInstance());
+    FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(file, ns, ns.getConf()).withTableConfiguration(conf).build();
+    writer.startDefaultLocalityGroup();
+    for (int i = 0; i < 1000; i++) {
+      writer.append(new Key(String.format("r%04d", i), "cf", "cq"),
+          new Value(String.format("%050d", i).getBytes(UTF_8)));
+    }
+    writer.close();
+
+    VolumeManager fs = VolumeManagerImpl.getLocal(accumuloDir.getAbsolutePath());
+    List<String> files = Collections.singletonList(file);
+
+    List<Text> rows = FileUtil.findSplitRows(fs, conf, null, null, files, 4);
+    assertEquals(3, rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      // index rows may be shortened, so compare them instead of parsing them
+      Text low = new Text(String.format("r%04d", 250 * (i + 1) - 50));
+      Text high = new Text(String.format("r%04d", 250 * (i + 1) + 50));
+      assertTrue(rows.get(i) + " is not near a quarter of the rows",
+          rows.get(i).compareTo(low) > 0 && rows.get(i).compareTo(high) < 0);
+    }
+
+    rows = FileUtil.findSplitRows(fs, conf, new Text("r0500"), new Text("r0900"), files, 2);
+    assertEquals(1, rows.size());
+    assertTrue(rows.get(0).compareTo(new Text("r0500")) > 0);
+    assertTrue(rows.get(0).compareTo(new Text("r0900")) < 0);
+
+    assertTrue(FileUtil.findSplitRows(fs, conf, null, null, files, 1).isEmpty());
+  }
 }
@@ -0,0 +1,763 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.util.PreAllocatedArray;
+import org.apache.hadoop.io.WritableComparator;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A sorted in-memory map written in Java that packs its keys and values into large arenas. It is an
+ * alternative to {@link NativeMap} for when the native library is not available.
+ *
+ * <p>
+ * A {@code ConcurrentSkipListMap} of {@link MemKey}s needs a map node, an index node, a key, a
+ * value and five byte arrays for each entry. This map instead writes each entry, together with the
+ * forward pointers of a skip list, into a {@link ByteBuffer} that holds many entries. The only
+ * Java objects are the arenas, so the per entry overhead is a few dozen bytes and the garbage
+ * collector does not have to trace the entries. Arenas are allocated on the Java heap, or off of it
+ * if the map is created with {@code offHeap} set.
+ *
+ * <p>
+ * Like {@link NativeMap}, reads and writes are guarded by a read write lock, and iterators copy
+ * entries out of the arenas a batch at a time while holding the read lock. Memory is only released
+ * when the whole map is deleted.
+ */
+public class ArenaMap implements Iterable<Map.Entry<Key,Value>> {
+
+  static final int MIN_ARENA_SIZE = 64 * 1024;
+  static final int MAX_ARENA_SIZE = 8 * 1024 * 1024;
+
+  private static final int MAX_LEVEL = 16;
+  private static final long NIL = -1;
+
+  // Layout of an entry, following the level byte and the forward pointers
+  private static final int ROW_LEN = 0;
+  private static final int CF_LEN = 4;
+  private static final int CQ_LEN = 8;
+  private static final int CV_LEN = 12;
+  private static final int VAL_LEN = 16;
+  private static final int TIMESTAMP = 20;
+  private static final int DELETED = 28;
+  private static final int KV_COUNT = 29;
+  private static final int DATA = 33;
+
+  private final boolean offHeap;
+
+  private ByteBuffer[] arenas = new ByteBuffer[8];
+  private int numArenas = 0;
+  private ByteBuffer current = null;
+  private long allocated = 0;
+
+  private final long[] head = new long[MAX_LEVEL];
+  private final long[] update = new long[MAX_LEVEL];
+  private int level = 1;
+  private int size = 0;
+
+  private final ReadWriteLock rwLock;
+  private final Lock rlock;
+  private final Lock wlock;
+
+  public ArenaMap(boolean offHeap) {
+    this.offHeap = offHeap;
+    Arrays.fill(head, NIL);
+    rwLock = new ReentrantReadWriteLock();
+    rlock = rwLock.readLock();
+    wlock = rwLock.writeLock();
+  }
+
+  /**
+   * The fields of a key being searched for or inserted.
+   */
+  private static class KeyFields {
+    byte[] row, cf, cq, cv;
+    int rowOff, cfOff, cqOff, cvOff;
+    int rowLen, cfLen, cqLen, cvLen;
+    long timestamp;
+    boolean deleted;
+    // a key that is not a MemKey sorts before all MemKeys with the same fields
+    long kvCount;
+
+    KeyFields(Key key) {
+      ByteSequence bs = array(key.getRowData());
+      row = bs.getBackingArray();
+      rowOff = bs.offset();
+      rowLen = bs.length();
+      bs = array(key.getColumnFamilyData());
+      cf = bs.getBackingArray();
+      cfOff = bs.offset();
+      cfLen = bs.length();
+      bs = array(key.getColumnQualifierData());
+      cq = bs.getBackingArray();
+      cqOff = bs.offset();
+      cqLen = bs.length();
+      bs = array(key.getColumnVisibilityData());
+      cv = bs.getBackingArray();
+      cvOff = bs.offset();
+      cvLen = bs.length();
+      timestamp = key.getTimestamp();
+      deleted = key.isDeleted();
+      kvCount = key instanceof MemKey ? ((MemKey) key).getKVCount() : Long.MAX_VALUE;
+    }
+
+    KeyFields(byte[] row, ColumnUpdate update, int kvCount) {
+      this.row = row;
+      this.rowLen = row.length;
+      this.cf = update.getColumnFamily();
+      this.cfLen = cf.length;
+      this.cq = update.getColumnQualifier();
+      this.cqLen = cq.length;
+      this.cv = update.getColumnVisibility();
+      this.cvLen = cv.length;
+      this.timestamp = update.getTimestamp();
+      this.deleted = update.isDeleted();
+      this.kvCount = kvCount;
+    }
+
+    private static ByteSequence array(ByteSequence bs) {
+      if (bs.isBackedByArray()) {
+        return bs;
+      }
+      return new ArrayByteSequence(bs.toArray());
+    }
+  }
+
+  private ByteBuffer arena(long node) {
+    return arenas[(int) (node >>> 32)];
+  }
+
+  private static int offset(long node) {
+    return (int) node;
+  }
+
+  private long next(long node, int lvl) {
+    if (node == NIL) {
+      return head[lvl];
+    }
+    return arena(node).getLong(offset(node) + 1 + lvl * 8);
+  }
+
+  private void setNext(long node, int lvl, long next) {
+    if (node == NIL) {
+      head[lvl] = next;
+    } else {
+      arena(node).putLong(offset(node) + 1 + lvl * 8, next);
+    }
+  }
+
+  /**
+   * @return the position in the node's arena where the entry starts
+   */
+  private int entryStart(ByteBuffer arena, int offset) {
+    return offset + 1 + arena.get(offset) * 8;
+  }
+
+  private long allocate(int length) {
+    if (current == null || current.remaining() < length) {
+      int arenaSize = current == null ? MIN_ARENA_SIZE
+          : Math.min(current.capacity() * 2, MAX_ARENA_SIZE);
+      arenaSize = Math.max(arenaSize, length);
+      current = offHeap ? ByteBuffer.allocateDirect(arenaSize) : ByteBuffer.allocate(arenaSize);
+      if (numArenas == arenas.length) {
+        arenas = Arrays.copyOf(arenas, numArenas * 2);
+      }
+      arenas[numArenas++] = current;
+      allocated += arenaSize;
+    }
+
+    int offset = current.position();
+    current.position(offset + length);
+    return ((long) (numArenas - 1) << 32) | offset;
+  }
+
+  private static int compareBytes(ByteBuffer arena, int pos, int len, byte[] b, int off,
+      int blen) {
+    if (arena.hasArray()) {
+      return WritableComparator.compareBytes(arena.array(), arena.arrayOffset() + pos, len, b, off,
+          blen);
+    }
+
+    int end = Math.min(len, blen);
+    for (int i = 0; i < end; i++) {
+      int a1 = arena.get(pos + i) & 0xff;
+      int b1 = b[off + i] & 0xff;
+      if (a1 != b1) {
+        return a1 - b1;
+      }
+    }
+    return len - blen;
+  }
+
+  /**
+   * Compares the key of a node to the key being searched for, in the same order as
+   * {@link MemKeyComparator}.
+   */
+  private int compare(long node, KeyFields key) {
+    ByteBuffer arena = arena(node);
+    int start = entryStart(arena, offset(node));
+    int pos = start + DATA;
+
+    int len = arena.getInt(start + ROW_LEN);
+    int cmp = compareBytes(arena, pos, len, key.row, key.rowOff, key.rowLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += len;
+
+    len = arena.getInt(start + CF_LEN);
+    cmp = compareBytes(arena, pos, len, key.cf, key.cfOff, key.cfLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += len;
+
+    len = arena.getInt(start + CQ_LEN);
+    cmp = compareBytes(arena, pos, len, key.cq, key.cqOff, key.cqLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += len;
+
+    len = arena.getInt(start + CV_LEN);
+    cmp = compareBytes(arena, pos, len, key.cv, key.cvOff, key.cvLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    // newer timestamps sort first
+    cmp = Long.compare(key.timestamp, arena.getLong(start + TIMESTAMP));
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    // deletes sort first
+    boolean deleted = arena.get(start + DELETED) != 0;
+    if (deleted != key.deleted) {
+      return deleted ? -1 : 1;
+    }
+
+    // more recent writes sort first
+    return Long.compare(key.kvCount, arena.getInt(start + KV_COUNT));
+  }
+
+  /**
+   * Finds the last node before the key at each level, storing them in {@link #update}.
+   *
+   * @return the first node at or after the key
+   */
+  private long findPredecessors(KeyFields key) {
+    long x = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      long n = next(x, i);
+      while (n != NIL && compare(n, key) < 0) {
+        x = n;
+        n = next(x, i);
+      }
+      update[i] = x;
+    }
+    return next(x, 0);
+  }
+
+  /**
+   * @return the first node at or after the key
+   */
+  private long seek(KeyFields key) {
+    long x = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      long n = next(x, i);
+      while (n != NIL && compare(n, key) < 0) {
+        x = n;
+        n = next(x, i);
+      }
+    }
+    return next(x, 0);
+  }
+
+  private static int randomLevel() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int lvl = 1;
+    while (lvl < MAX_LEVEL && random.nextInt(4) == 0) {
+      lvl++;
+    }
+    return lvl;
+  }
+
+  // it is assumed the write lock is held when this method is called
+  private void insert(KeyFields key, byte[] value) {
+    long replaced = findPredecessors(key);
+    if (replaced != NIL && compare(replaced, key) == 0) {
+      // replace the existing entry, its space is not reclaimed until the map is deleted
+      ByteBuffer arena = arena(replaced);
+      int replacedLevel = arena.get(offset(replaced));
+      for (int i = 0; i < replacedLevel; i++) {
+        if (next(update[i], i) == replaced) {
+          setNext(update[i], i, next(replaced, i));
+        }
+      }
+      size--;
+    } else {
+      replaced = NIL;
+    }
+
+    int lvl = randomLevel();
+    if (lvl > level) {
+      for (int i = level; i < lvl; i++) {
+        update[i] = NIL;
+      }
+      level = lvl;
+    }
+
+    int length = 1 + lvl * 8 + DATA + key.rowLen + key.cfLen + key.cqLen + key.cvLen
+        + value.length;
+    long node = allocate(length);
+
+    ByteBuffer out = arena(node).duplicate();
+    out.position(offset(node));
+    out.put((byte) lvl);
+    for (int i = 0; i < lvl; i++) {
+      out.putLong(next(update[i], i));
+    }
+    out.putInt(key.rowLen);
+    out.putInt(key.cfLen);
+    out.putInt(key.cqLen);
+    out.putInt(key.cvLen);
+    out.putInt(value.length);
+    out.putLong(key.timestamp);
+    out.put((byte) (key.deleted ? 1 : 0));
+    out.putInt((int) key.kvCount);
+    out.put(key.row, key.rowOff, key.rowLen);
+    out.put(key.cf, key.cfOff, key.cfLen);
+    out.put(key.cq, key.cqOff, key.cqLen);
+    out.put(key.cv, key.cvOff, key.cvLen);
+    out.put(value);
+
+    for (int i = 0; i < lvl; i++) {
+      setNext(update[i], i, node);
+    }
+    if (replaced != NIL) {
+      // an iterator may be positioned on the replaced entry, so leave it pointing at its
+      // replacement to keep everything inserted from now on reachable from it
+      setNext(replaced, 0, node);
+    }
+    size++;
+  }
+
+  private static byte[] read(ByteBuffer arena, int pos, int len) {
+    byte[] data = new byte[len];
+    if (arena.hasArray()) {
+      System.arraycopy(arena.array(), arena.arrayOffset() + pos, data, 0, len);
+    } else {
+      ByteBuffer in = arena.duplicate();
+      in.position(pos);
+      in.get(data);
+    }
+    return data;
+  }
+
+  /**
+   * Copies an entry out of the arena. If the entry is in the same row as the previous key, the
+   * row array of the previous key is reused. It is assumed the read lock is held when this method
+   * is called.
+   */
+  private Entry<Key,Value> readEntry(long node, byte[] prevRow) {
+    ByteBuffer arena = arena(node);
+    int start = entryStart(arena, offset(node));
+    int pos = start + DATA;
+
+    int rowLen = arena.getInt(start + ROW_LEN);
+    byte[] row;
+    if (prevRow != null && compareBytes(arena, pos, rowLen, prevRow, 0, prevRow.length) == 0) {
+      row = prevRow;
+    } else {
+      row = read(arena, pos, rowLen);
+    }
+    pos += rowLen;
+
+    int len = arena.getInt(start + CF_LEN);
+    byte[] cf = read(arena, pos, len);
+    pos += len;
+    len = arena.getInt(start + CQ_LEN);
+    byte[] cq = read(arena, pos, len);
+    pos += len;
+    len = arena.getInt(start + CV_LEN);
+    byte[] cv = read(arena, pos, len);
+    pos += len;
+    byte[] val = read(arena, pos, arena.getInt(start + VAL_LEN));
+
+    Key k = new MemKey(row, cf, cq, cv, arena.getLong(start + TIMESTAMP),
+        arena.get(start + DELETED) != 0, false, arena.getInt(start + KV_COUNT));
+    return new SimpleImmutableEntry<>(k, new Value(val, false));
+  }
+
+  private void checkNotDeleted() {
+    if (arenas == null) {
+      throw new IllegalStateException("Arena Map Deleted");
+    }
+  }
+
+  private class ConcurrentIterator implements Iterator<Map.Entry<Key,Value>> {
+
+    // reading a batch of entries while the read lock is held keeps readers from contending on the
+    // lock, the same as NativeMap
+    private static final int MAX_READ_AHEAD_ENTRIES = 16;
+    private static final int READ_AHEAD_BYTES = 4096;
+
+    private PreAllocatedArray<Entry<Key,Value>> nextEntries;
+    private int index;
+    private int end;
+
+    // the last node copied out of the arena, or NIL if nothing has been read yet
+    private long lastNode = NIL;
+    private long nextNode;
+    private byte[] lastRow;
+
+    ConcurrentIterator(Key key) {
+      // start off with a small read ahead
+      nextEntries = new PreAllocatedArray<>(1);
+
+      rlock.lock();
+      try {
+        checkNotDeleted();
+        nextNode = seek(new KeyFields(key));
+        fill();
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    // it is assumed the read lock is held when this method is called
+    private void fill() {
+      checkNotDeleted();
+
+      // Following the pointers of the last node returned also sees anything inserted after it
+      // since the last batch was read. If that node was replaced since, it points at its
+      // replacement, which has the key that was already returned.
+      if (lastNode != NIL) {
+        KeyFields lastKey = new KeyFields(nextEntries.get(end - 1).getKey());
+        nextNode = ArenaMap.this.next(lastNode, 0);
+        while (nextNode != NIL && compare(nextNode, lastKey) == 0) {
+          nextNode = ArenaMap.this.next(nextNode, 0);
+        }
+      }
+
+      end = 0;
+      index = 0;
+
+      int amountRead = 0;
+
+      // as we keep filling, increase the read ahead buffer
+      if (nextEntries.length < MAX_READ_AHEAD_ENTRIES)
+        nextEntries = new PreAllocatedArray<>(
+            Math.min(nextEntries.length * 2, MAX_READ_AHEAD_ENTRIES));
+
+      while (nextNode != NIL && end < nextEntries.length) {
+        Entry<Key,Value> ne = readEntry(nextNode, lastRow);
+        lastRow = ne.getKey().getRowData().getBackingArray();
+        nextEntries.set(end++, ne);
+        lastNode = nextNode;
+        nextNode = ArenaMap.this.next(nextNode, 0);
+        amountRead += ne.getKey().getSize() + ne.getValue().getSize();
+
+        if (amountRead > READ_AHEAD_BYTES)
+          break;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return end != 0;
+    }
+
+    @Override
+    public Entry<Key,Value> next() {
+      if (end == 0) {
+        throw new NoSuchElementException();
+      }
+
+      Entry<Key,Value> ret = nextEntries.get(index++);
+
+      if (index == end) {
+        rlock.lock();
+        try {
+          fill();
+        } finally {
+          rlock.unlock();
+        }
+      }
+
+      return ret;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @VisibleForTesting
+  public void mutate(Mutation mutation, int mutationCount) {
+    mutate(Collections.singletonList(mutation), mutationCount);
+  }
+
+  void mutate(List<Mutation> mutations, int mutationCount) {
+    Iterator<Mutation> iter = mutations.iterator();
+
+    while (iter.hasNext()) {
+
+      // release the write lock periodically so readers are not starved by large batches
+      wlock.lock();
+      try {
+        checkNotDeleted();
+
+        int count = 0;
+        while (iter.hasNext() && count < 10) {
+          Mutation mutation = iter.next();
+          byte[] row = mutation.getRow();
+          for (ColumnUpdate update : mutation.getUpdates()) {
+            insert(new KeyFields(row, update, mutationCount++), update.getValue());
+          }
+          count += mutation.size();
+        }
+      } finally {
+        wlock.unlock();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  public void put(Key key, Value value) {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+      KeyFields fields = new KeyFields(key);
+      if (!(key instanceof MemKey)) {
+        fields.kvCount = 0;
+      }
+      insert(fields, value.get());
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  public Value get(Key key) {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      long node = seek(new KeyFields(key));
+      if (node != NIL) {
+        Entry<Key,Value> entry = readEntry(node, null);
+        if (entry.getKey().equals(key)) {
+          return entry.getValue();
+        }
+      }
+      return null;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  public int size() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return size;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of bytes allocated for arenas, including unused space at the end of them
+   */
+  public long getMemoryUsed() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return allocated;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<Key,Value>> iterator() {
+    return new ConcurrentIterator(new MemKey());
+  }
+
+  public Iterator<Map.Entry<Key,Value>> iterator(Key startKey) {
+    return new ConcurrentIterator(startKey);
+  }
+
+  public void delete() {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+      // the arenas are released by the garbage collector once no iterator references them
+      arenas = null;
+      current = null;
+      numArenas = 0;
+      Arrays.fill(head, NIL);
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  private static class AMSKVIter implements InterruptibleIterator {
+
+    private ConcurrentIterator iter;
+    private Entry<Key,Value> entry;
+
+    private ArenaMap map;
+    private Range range;
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+
+    private AMSKVIter(ArenaMap map, AtomicBoolean interruptFlag) {
+      this.map = map;
+      this.range = new Range();
+      iter = map.new ConcurrentIterator(new MemKey());
+      if (iter.hasNext())
+        entry = iter.next();
+      else
+        entry = null;
+
+      this.interruptFlag = interruptFlag;
+    }
+
+    public AMSKVIter(ArenaMap map) {
+      this(map, null);
+    }
+
+    @Override
+    public Key getTopKey() {
+      return entry.getKey();
+    }
+
+    @Override
+    public Value getTopValue() {
+      return entry.getValue();
+    }
+
+    @Override
+    public boolean hasTop() {
+      return entry != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+
+      if (entry == null)
+        throw new IllegalStateException();
+
+      // checking the interrupt flag for every call to next had bad a bad performance impact
+      // so check it every 100th time
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+        throws IOException {
+
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      this.range = range;
+
+      Key key = range.getStartKey();
+      if (key == null) {
+        key = new MemKey();
+      }
+
+      iter = map.new ConcurrentIterator(key);
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+      while (hasTop() && range.beforeStartKey(getTopKey())) {
+        next();
+      }
+    }
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      if (env != null && env.isSamplingEnabled()) {
+        throw new SampleNotPresentException();
+      }
+      return new AMSKVIter(map, interruptFlag);
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+
+  public SortedKeyValueIterator<Key,Value> skvIterator() {
+    return new AMSKVIter(this);
+  }
+}
@@ -26,26 +26,32 @@ import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.accumulo.core.spi.compaction.CompactionInfo;
 import org.apache.htrace.wrappers.TraceRunnable;
 
 /**
  * {@link TraceRunnable} objects placed in this queue <b>must</b> wrap a {@link Runnable} which is
- * also {@link Comparable}
+ * also a {@link CompactionInfo}. The information of a compaction, like the number of files of the
+ * tablet, changes while it is queued, so the queue is ordered when a task is taken rather than when
+ * it is added.
  */
 class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQueue<TraceRunnable> {
 
   private List<TraceRunnable> task = new LinkedList<>();
 
-  @SuppressWarnings("unchecked")
-  private static final Comparator<TraceRunnable> ELEMENT_COMPARATOR = (o1,
-      o2) -> ((Comparable<Runnable>) o1.getRunnable()).compareTo(o2.getRunnable());
+  private final Comparator<TraceRunnable> elementComparator;
+
+  CompactionQueue(Comparator<CompactionInfo> comparator) {
+    this.elementComparator = Comparator
+        .comparing(tr -> (CompactionInfo) tr.getRunnable(), comparator);
+  }
 
   @Override
   public synchronized TraceRunnable poll() {
     if (task.size() == 0)
       return null;
 
-    TraceRunnable min = Collections.min(task, ELEMENT_COMPARATOR);
+    TraceRunnable min = Collections.min(task, elementComparator);
     Iterator<TraceRunnable> iterator = task.iterator();
     while (iterator.hasNext()) {
       if (iterator.next() == min) {
@@ -61,7 +67,7 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
     if (task.size() == 0)
       return null;
 
-    return Collections.min(task, ELEMENT_COMPARATOR);
+    return Collections.min(task, elementComparator);
   }
 
   @Override
@@ -118,7 +124,7 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
 
   @Override
   public synchronized int drainTo(Collection<? super TraceRunnable> c, int maxElements) {
-    Collections.sort(task, ELEMENT_COMPARATOR);
+    Collections.sort(task, elementComparator);
 
     int num = Math.min(task.size(), maxElements);
 
@@ -133,7 +139,7 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
 
   @Override
   public synchronized Iterator<TraceRunnable> iterator() {
-    Collections.sort(task, ELEMENT_COMPARATOR);
+    Collections.sort(task, elementComparator);
 
     return task.iterator();
   }
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.apache.accumulo.fate.util.UtilWaitThread.sleepUninterruptibly;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.util.SimpleThreadPool;
+import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.SharedRateLimiterFactory;
+import org.apache.accumulo.core.util.ratelimit.SharedRateLimiterFactory.RateProvider;
+import org.apache.accumulo.fate.zookeeper.ZooReaderWriter;
+import org.apache.accumulo.fate.zookeeper.ZooUtil;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.ServerOpts;
+import org.apache.accumulo.server.conf.TableConfiguration;
+import org.apache.accumulo.server.zookeeper.DistributedWorkQueue;
+import org.apache.accumulo.server.zookeeper.DistributedWorkQueue.Processor;
+import org.apache.accumulo.tserver.compaction.ExternalCompactionJob;
+import org.apache.accumulo.tserver.compaction.ExternalCompactionQueue;
+import org.apache.accumulo.tserver.tablet.CompactionStats;
+import org.apache.accumulo.tserver.tablet.Compactor;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionCanceledException;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionEnv;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.apache.zookeeper.Op;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A process that runs major compactions for tablet servers. It takes jobs from the queue of
+ * {@link ExternalCompactionQueue}, compacts the files of each job into the job's output file and
+ * reports the result. The tablet server that queued a job brings the output file online.
+ */
+public class ExternalCompactor implements Processor {
+
+  private static final Logger log = LoggerFactory.getLogger(ExternalCompactor.class);
+
+  // how often a running compaction checks that its job was not withdrawn and reports progress
+  private static final long CHECK_MILLIS = 5000;
+
+  private static final String MAJC_READ_LIMITER_KEY = "compactor_majc_read";
+  private static final String MAJC_WRITE_LIMITER_KEY = "compactor_majc_write";
+
+  private final ServerContext context;
+  private final DistributedWorkQueue queue;
+  private final ZooReaderWriter zoo;
+  // set when the process is shutting down, running compactions stop and leave their jobs queued
+  private final AtomicBoolean stopping;
+
+  ExternalCompactor(ServerContext context, DistributedWorkQueue queue, AtomicBoolean stopping) {
+    this.context = context;
+    this.queue = queue;
+    this.zoo = queue.getZooReaderWriter();
+    this.stopping = stopping;
+  }
+
+  // all compactions of the process share the throughput a tablet server allows its compactions
+  private final RateProvider rateProvider = new RateProvider() {
+    @Override
+    public long getDesiredRate() {
+      return context.getConfiguration().getAsBytes(Property.TSERV_MAJC_THROUGHPUT);
+    }
+  };
+
+  @Override
+  public Processor newProcessor() {
+    return new ExternalCompactor(context, queue, stopping);
+  }
+
+  @Override
+  public void process(String workID, byte[] data) {
+    String workPath = ExternalCompactionQueue.getQueuePath(context) + "/" + workID;
+
+    ExternalCompactionJob job = null;
+    ExternalCompactionJob.Result result;
+    try {
+      job = ExternalCompactionJob.fromBytes(data);
+      log.debug("Starting external compaction {}", job);
+      CompactionStats stats = compact(job, workID, workPath);
+      log.debug("Finished external compaction {}, read {} entries and wrote {} in {}ms", job,
+          stats.getEntriesRead(), stats.getEntriesWritten(), stats.getTime());
+      result = ExternalCompactionJob.Result.success(stats);
+    } catch (CompactionCanceledException e) {
+      if (stopping.get()) {
+        // failing leaves the job queued, so another compactor runs it
+        throw new RuntimeException("Compactor stopped while running external compaction " + workID);
+      }
+      log.info("External compaction {} was withdrawn", workID);
+      return;
+    } catch (Exception e) {
+      log.warn("Failed to run external compaction " + workID, e);
+      result = ExternalCompactionJob.Result.failure(e);
+    }
+
+    String resultPath = ExternalCompactionQueue.getResultsPath(context) + "/" + workID;
+    try {
+      // the result is only created while the job is queued, so a withdrawn job leaves no result,
+      // and it is ephemeral, so a result nobody reads goes away with this process
+      zoo.getZooKeeper().multi(Arrays.asList(Op.check(workPath, -1),
+          Op.create(resultPath, result.toBytes(), ZooUtil.PUBLIC, CreateMode.EPHEMERAL)));
+    } catch (NoNodeException e) {
+      // nobody waits for the output of a job that was withdrawn
+      try {
+        if (result.isSuccessful())
+          context.getVolumeManager().deleteRecursively(job.getOutputFile().path());
+      } catch (IOException e2) {
+        log.warn("Failed to delete the output of withdrawn external compaction {}", workID, e2);
+      }
+    } catch (NodeExistsException e) {
+      log.debug("External compaction {} was already reported", workID);
+    } catch (KeeperException | IOException e) {
+      // the job stays queued and is run again
+      throw new RuntimeException("Failed to report the result of external compaction " + workID,
+          e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private CompactionStats compact(ExternalCompactionJob job, String workID, String workPath)
+      throws IOException, CompactionCanceledException {
+    TableConfiguration tableConf = context.getServerConfFactory()
+        .getTableConfiguration(job.getExtent().getTableId());
+    if (tableConf == null)
+      throw new IOException("Table " + job.getExtent().getTableId() + " does not exist");
+
+    AccumuloConfiguration conf = tableConf;
+    if (!job.getProperties().isEmpty()) {
+      ConfigurationCopy copy = new ConfigurationCopy(tableConf);
+      job.getProperties().forEach(copy::set);
+      conf = copy;
+    }
+
+    CompactionEnv env = new CompactionEnv() {
+      private long lastCheck = System.currentTimeMillis();
+      private boolean queued = true;
+
+      @Override
+      public synchronized boolean isCompactionEnabled() {
+        if (stopping.get())
+          return false;
+        if (queued && System.currentTimeMillis() - lastCheck > CHECK_MILLIS) {
+          lastCheck = System.currentTimeMillis();
+          try {
+            queued = zoo.exists(workPath);
+            if (queued)
+              queue.updateWorkReservation(workID);
+          } catch (KeeperException e) {
+            log.warn("Failed to check if {} is still queued", workPath, e);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+          }
+        }
+        return queued;
+      }
+
+      @Override
+      public IteratorScope getIteratorScope() {
+        return IteratorScope.majc;
+      }
+
+      @Override
+      public RateLimiter getReadLimiter() {
+        return SharedRateLimiterFactory.getInstance().create(MAJC_READ_LIMITER_KEY,
+            rateProvider);
+      }
+
+      @Override
+      public RateLimiter getWriteLimiter() {
+        return SharedRateLimiterFactory.getInstance().create(MAJC_WRITE_LIMITER_KEY,
+            rateProvider);
+      }
+    };
+
+    Compactor compactor = new Compactor(context, job.getExtent(), context.getVolumeManager(),
+        job.getFiles(), null, job.getOutputFile(), job.getPropogateDeletes(), env,
+        job.getIterators(), job.getReason().ordinal(), conf, job.getExtent().toDataRange());
+    return compactor.call();
+  }
+
+  public static void main(String[] args) throws Exception {
+    final String app = "compactor";
+    ServerOpts opts = new ServerOpts();
+    opts.parseArgs(app, args);
+    ServerContext context = new ServerContext(opts.getSiteConfiguration());
+    context.setupServer(app, ExternalCompactor.class.getSimpleName(), opts.getAddress());
+    context.setupCrypto();
+
+    AccumuloConfiguration conf = context.getConfiguration();
+    int threads = conf.getCount(Property.COMPACTOR_THREADS);
+    ThreadPoolExecutor pool = new SimpleThreadPool(threads, "external compactions");
+    AtomicBoolean stopping = new AtomicBoolean(false);
+
+    // the compactor runs until the process is stopped
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      log.info("Compactor stopping");
+      stopping.set(true);
+      pool.shutdown();
+      try {
+        if (!pool.awaitTermination(1, TimeUnit.MINUTES))
+          log.warn("External compactions did not stop in time");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      context.teardownServer();
+    }, "compactor shutdown"));
+
+    DistributedWorkQueue queue = new DistributedWorkQueue(
+        ExternalCompactionQueue.getQueuePath(context), conf);
+    context.getZooReaderWriter().mkdirs(ExternalCompactionQueue.getResultsPath(context));
+    queue.startProcessing(new ExternalCompactor(context, queue, stopping), pool);
+    log.info("Compactor started, running up to {} compactions at a time", threads);
+
+    // the work queue runs the compactions on its own threads
+    while (true) {
+      sleepUninterruptibly(1, TimeUnit.MINUTES);
+    }
+  }
+}
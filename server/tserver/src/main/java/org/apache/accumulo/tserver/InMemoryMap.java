@@ -109,6 +109,8 @@ public class InMemoryMap {
   public static final String TYPE_DEFAULT_MAP = "DefaultMap";
   public static final String TYPE_LOCALITY_GROUP_MAP = "LocalityGroupMap";
   public static final String TYPE_LOCALITY_GROUP_MAP_NATIVE = "LocalityGroupMap with native";
+  public static final String TYPE_ARENA_MAP_WRAPPER = "ArenaMapWrapper";
+  public static final String TYPE_LOCALITY_GROUP_MAP_ARENA = "LocalityGroupMap with arena";
 
   // @formatter:off
   private AtomicReference<Pair<SamplerConfigurationImpl,Sampler>> samplerRef =
@@ -136,6 +138,10 @@ public class InMemoryMap {
       throws LocalityGroupConfigurationError {
 
     boolean useNativeMap = config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    // arena maps replace the default map, they are only used when there is no native map
+    boolean useArenaMap = config.getBoolean(Property.TSERV_ARENAMAP_ENABLED)
+        && !(useNativeMap && NativeMap.isLoaded());
+    boolean offHeapArenas = config.getBoolean(Property.TSERV_ARENAMAP_OFFHEAP);
 
     this.memDumpDir = config.get(Property.TSERV_MEMDUMP_DIR);
     this.lggroups = LocalityGroupUtil.getLocalityGroups(config);
@@ -147,19 +153,26 @@ public class InMemoryMap {
     SimpleMap sampleMap;
 
     if (lggroups.size() == 0) {
-      allMap = newMap(useNativeMap);
-      sampleMap = newMap(useNativeMap);
-      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      allMap = newMap(useNativeMap, useArenaMap, offHeapArenas);
+      sampleMap = newMap(useNativeMap, useArenaMap, offHeapArenas);
+      if (useArenaMap)
+        mapType = TYPE_ARENA_MAP_WRAPPER;
+      else
+        mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
     } else {
-      allMap = new LocalityGroupMap(lggroups, useNativeMap);
-      sampleMap = new LocalityGroupMap(lggroups, useNativeMap);
-      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      allMap = new LocalityGroupMap(lggroups, useNativeMap, useArenaMap, offHeapArenas);
+      sampleMap = new LocalityGroupMap(lggroups, useNativeMap, useArenaMap, offHeapArenas);
+      if (useArenaMap)
+        mapType = TYPE_LOCALITY_GROUP_MAP_ARENA;
+      else
+        mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
     }
 
     map = new SampleMap(allMap, sampleMap);
   }
 
-  private static SimpleMap newMap(boolean useNativeMap) {
+  private static SimpleMap newMap(boolean useNativeMap, boolean useArenaMap,
+      boolean offHeapArenas) {
     if (useNativeMap && NativeMap.isLoaded()) {
       try {
         return new NativeMapWrapper();
@@ -168,16 +181,21 @@ public class InMemoryMap {
       }
     }
 
+    if (useArenaMap) {
+      return new ArenaMapWrapper(offHeapArenas);
+    }
+
     return new DefaultMap();
   }
 
   /**
    * Description of the type of SimpleMap that is created.
    * <p>
-   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP or
-   * TYPE_NATIVE_MAP_WRAPPER. If there is one more locality groups, then the InMemoryMap has an
-   * array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains
-   * DefaultMaps or TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers.
+   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP,
+   * TYPE_NATIVE_MAP_WRAPPER or TYPE_ARENA_MAP_WRAPPER. If there is one more locality groups, then
+   * the InMemoryMap has an array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP
+   * which contains DefaultMaps, TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers or
+   * TYPE_LOCALITY_GROUP_MAP_ARENA which contains ArenaMapWrappers.
    *
    * @return String that describes the Map type
    */
@@ -302,13 +320,14 @@ public class InMemoryMap {
     private Partitioner partitioner;
     private PreAllocatedArray<List<Mutation>> partitioned;
 
-    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap) {
+    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap,
+        boolean useArenaMap, boolean offHeapArenas) {
       this.groupFams = new PreAllocatedArray<>(groups.size());
       this.maps = new SimpleMap[groups.size() + 1];
       this.partitioned = new PreAllocatedArray<>(groups.size() + 1);
 
       for (int i = 0; i < maps.length; i++) {
-        maps[i] = newMap(useNativeMap);
+        maps[i] = newMap(useNativeMap, useArenaMap, offHeapArenas);
       }
 
       int count = 0;
@@ -519,6 +538,51 @@ public class InMemoryMap {
     }
   }
 
+  private static class ArenaMapWrapper implements SimpleMap {
+    private ArenaMap arenaMap;
+
+    ArenaMapWrapper(boolean offHeap) {
+      arenaMap = new ArenaMap(offHeap);
+    }
+
+    @Override
+    public Value get(Key key) {
+      return arenaMap.get(key);
+    }
+
+    @Override
+    public Iterator<Entry<Key,Value>> iterator(Key startKey) {
+      return arenaMap.iterator(startKey);
+    }
+
+    @Override
+    public int size() {
+      return arenaMap.size();
+    }
+
+    @Override
+    public InterruptibleIterator skvIterator(SamplerConfigurationImpl samplerConfig) {
+      if (samplerConfig != null)
+        throw new SampleNotPresentException();
+      return (InterruptibleIterator) arenaMap.skvIterator();
+    }
+
+    @Override
+    public void delete() {
+      arenaMap.delete();
+    }
+
+    @Override
+    public long getMemoryUsed() {
+      return arenaMap.getMemoryUsed();
+    }
+
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      arenaMap.mutate(mutations, kvCount);
+    }
+  }
+
   private AtomicInteger nextKVCount = new AtomicInteger(1);
   private AtomicInteger kvCount = new AtomicInteger(0);
 
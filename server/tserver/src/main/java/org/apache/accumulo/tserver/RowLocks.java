@@ -17,10 +17,11 @@
 package org.apache.accumulo.tserver;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
@@ -30,14 +31,18 @@ import org.apache.accumulo.tserver.ConditionalMutationSet.DeferFilter;
 import org.apache.accumulo.tserver.data.ServerConditionalMutation;
 
 /**
- *
+ * Locks the rows of conditional mutations while their conditions are checked and they are applied.
+ * A lock only exists while some update holds or waits for it. The locks are kept in a concurrent
+ * map and reference counted per row, so updates of different rows do not contend on a single
+ * monitor.
  */
 class RowLocks {
 
-  private Map<ByteSequence,RowLock> rowLocks = new HashMap<>();
+  private final ConcurrentHashMap<ByteSequence,RowLock> rowLocks = new ConcurrentHashMap<>();
 
   static class RowLock {
     ReentrantLock rlock;
+    // only read or written inside a ConcurrentHashMap.compute() for the row
     int count;
     ByteSequence rowSeq;
 
@@ -60,40 +65,42 @@ class RowLocks {
     }
   }
 
-  private RowLock getRowLock(ArrayByteSequence rowSeq) {
-    RowLock lock = rowLocks.get(rowSeq);
-    if (lock == null) {
-      lock = new RowLock(new ReentrantLock(), rowSeq);
-      rowLocks.put(rowSeq, lock);
-    }
-
-    lock.count++;
-    return lock;
+  private RowLock getRowLock(ByteSequence rowSeq) {
+    return rowLocks.compute(rowSeq, (k, lock) -> {
+      if (lock == null)
+        lock = new RowLock(new ReentrantLock(), rowSeq);
+      lock.count++;
+      return lock;
+    });
   }
 
   private void returnRowLock(RowLock lock) {
-    if (lock.count == 0)
-      throw new IllegalStateException();
-    lock.count--;
-
-    if (lock.count == 0) {
-      rowLocks.remove(lock.rowSeq);
-    }
+    rowLocks.compute(lock.rowSeq, (k, current) -> {
+      if (current != lock || lock.count == 0)
+        throw new IllegalStateException();
+      lock.count--;
+      // removing the mapping in the same atomic step keeps getRowLock() from handing out a lock
+      // that is no longer in the map
+      return lock.count == 0 ? null : lock;
+    });
   }
 
   List<RowLock> acquireRowlocks(Map<KeyExtent,List<ServerConditionalMutation>> updates,
       Map<KeyExtent,List<ServerConditionalMutation>> deferred) {
-    ArrayList<RowLock> locks = new ArrayList<>();
 
-    // assume that mutations are in sorted order to avoid deadlock
-    synchronized (rowLocks) {
-      for (List<ServerConditionalMutation> scml : updates.values()) {
-        for (ServerConditionalMutation scm : scml) {
-          locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
-        }
+    // lock the rows of all tablets in sorted order, so two updates never wait for each other
+    TreeSet<ByteSequence> rows = new TreeSet<>();
+    for (List<ServerConditionalMutation> scml : updates.values()) {
+      for (ServerConditionalMutation scm : scml) {
+        rows.add(new ArrayByteSequence(scm.getRow()));
       }
     }
 
+    ArrayList<RowLock> locks = new ArrayList<>(rows.size());
+    for (ByteSequence row : rows) {
+      locks.add(getRowLock(row));
+    }
+
     HashSet<ByteSequence> rowsNotLocked = null;
 
     // acquire as many locks as possible, not blocking on rows that are already locked
@@ -129,21 +136,14 @@ class RowLocks {
       });
 
       ArrayList<RowLock> filteredLocks = new ArrayList<>();
-      ArrayList<RowLock> locksToReturn = new ArrayList<>();
       for (RowLock rowLock : locks) {
         if (rowsNotLocked.contains(rowLock.rowSeq)) {
-          locksToReturn.add(rowLock);
+          returnRowLock(rowLock);
         } else {
           filteredLocks.add(rowLock);
         }
       }
 
-      synchronized (rowLocks) {
-        for (RowLock rowLock : locksToReturn) {
-          returnRowLock(rowLock);
-        }
-      }
-
       locks = filteredLocks;
     }
     return locks;
@@ -152,12 +152,7 @@ class RowLocks {
   void releaseRowLocks(List<RowLock> locks) {
     for (RowLock rowLock : locks) {
       rowLock.unlock();
-    }
-
-    synchronized (rowLocks) {
-      for (RowLock rowLock : locks) {
-        returnRowLock(rowLock);
-      }
+      returnRowLock(rowLock);
     }
   }
 
@@ -225,6 +225,7 @@ import org.apache.accumulo.tserver.ConditionCheckerContext.ConditionChecker;
 import org.apache.accumulo.tserver.RowLocks.RowLock;
 import org.apache.accumulo.tserver.TabletServerResourceManager.TabletResourceManager;
 import org.apache.accumulo.tserver.TabletStatsKeeper.Operation;
+import org.apache.accumulo.tserver.compaction.ExternalCompactionQueue;
 import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
 import org.apache.accumulo.tserver.data.ServerConditionalMutation;
 import org.apache.accumulo.tserver.log.DfsLogger;
@@ -295,6 +296,10 @@ public class TabletServer implements Runnable {
   private final Metrics scanMetrics;
   private final Metrics mincMetrics;
 
+  public Metrics getUpdateMetrics() {
+    return updateMetrics;
+  }
+
   public Metrics getScanMetrics() {
     return scanMetrics;
   }
@@ -304,6 +309,7 @@ public class TabletServer implements Runnable {
   }
 
   private final LogSorter logSorter;
+  private final ExternalCompactionQueue externalCompactionQueue;
   private ReplicationWorker replWorker = null;
   private final TabletStatsKeeper statsKeeper;
   private final AtomicInteger logIdGenerator = new AtomicInteger();
@@ -365,6 +371,7 @@ public class TabletServer implements Runnable {
     log.info("Instance " + getInstanceID());
     this.sessionManager = new SessionManager(aconf);
     this.logSorter = new LogSorter(context, fs, aconf);
+    this.externalCompactionQueue = new ExternalCompactionQueue(context, aconf);
     this.replWorker = new ReplicationWorker(context, fs);
     this.statsKeeper = new TabletStatsKeeper();
     SimpleTimer.getInstance(aconf).schedule(new Runnable() {
@@ -413,7 +420,8 @@ public class TabletServer implements Runnable {
         .createFactory();
 
     logger = new TabletServerLogger(this, walogMaxSize, syncCounter, flushCounter,
-        walCreationRetryFactory, walWritingRetryFactory, walogMaxAge);
+        walCreationRetryFactory, walWritingRetryFactory, walogMaxAge,
+        aconf.getCount(Property.TSERV_WAL_STRIPES));
     this.resourceManager = new TabletServerResourceManager(this, fs, context);
     this.security = AuditedSecurityOperation.getInstance(context);
 
@@ -473,6 +481,7 @@ public class TabletServer implements Runnable {
   private final RowLocks rowLocks = new RowLocks();
 
   private final AtomicLong totalQueuedMutationSize = new AtomicLong(0);
+  private final AtomicLong scanReadAheadMemory = new AtomicLong(0);
   private final ReentrantLock recoveryLock = new ReentrantLock(true);
   private ThriftClientHandler clientHandler;
   private final ServerBulkImportStatus bulkImportStatus = new ServerBulkImportStatus();
@@ -552,16 +561,6 @@ public class TabletServer implements Runnable {
       }
     }
 
-    private ScanDispatcher getScanDispatcher(KeyExtent extent) {
-      if (extent.isRootTablet() || extent.isMeta()) {
-        // dispatcher is only for user tables
-        return null;
-      }
-
-      return context.getServerConfFactory().getTableConfiguration(extent.getTableId())
-          .getScanDispatcher();
-    }
-
     @Override
     public InitialScan startScan(TInfo tinfo, TCredentials credentials, TKeyExtent textent,
         TRange range, List<TColumn> columns, int batchSize, List<IterInfo> ssiList,
@@ -658,6 +657,7 @@ public class TabletServer implements Runnable {
         TSampleNotPresentException {
 
       if (scanSession.nextBatchTask == null) {
+        scanSession.readAheadStalled.set(false);
         scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID,
             scanSession.interruptFlag);
         resourceManager.executeReadAhead(scanSession.extent, getScanDispatcher(scanSession.extent),
@@ -668,6 +668,7 @@ public class TabletServer implements Runnable {
       try {
         bresult = scanSession.nextBatchTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS,
             TimeUnit.MILLISECONDS);
+        scanSession.nextBatchTask.releaseMemory();
         scanSession.nextBatchTask = null;
       } catch (ExecutionException e) {
         sessionManager.removeSession(scanID);
@@ -705,19 +706,34 @@ public class TabletServer implements Runnable {
         throw new RuntimeException(t);
       }
 
-      ScanResult scanResult = new ScanResult(Key.compress(bresult.getResults()), bresult.isMore());
+      scanSession.batchCount++;
 
-      scanSession.entriesReturned += scanResult.results.size();
+      bresult = scanSession.appendReadAhead(bresult, TabletServer.this.getConfiguration()
+          .getAsBytes(Property.TSERV_SCAN_RESULT_MAX_MEMORY));
 
-      scanSession.batchCount++;
+      ScanResult scanResult = new ScanResult(Key.compress(bresult.getResults()),
+          bresult.isMore());
 
-      if (scanResult.more && scanSession.batchCount > scanSession.readaheadThreshold) {
-        // start reading next batch while current batch is transmitted
-        // to client
-        scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID,
-            scanSession.interruptFlag);
-        resourceManager.executeReadAhead(scanSession.extent, getScanDispatcher(scanSession.extent),
-            scanSession, scanSession.nextBatchTask);
+      scanSession.entriesReturned += scanResult.results.size();
+
+      if (scanResult.more) {
+        // batches that were already read ahead are returned first
+        scanSession.nextBatchTask = scanSession.readAheadTasks.poll();
+        if (scanSession.nextBatchTask == null) {
+          if (scanSession.batchCount > scanSession.readaheadThreshold) {
+            // start reading next batch while current batch is transmitted
+            // to client
+            scanSession.readAheadStalled.set(false);
+            scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID,
+                scanSession.interruptFlag);
+            resourceManager.executeReadAhead(scanSession.extent,
+                getScanDispatcher(scanSession.extent), scanSession, scanSession.nextBatchTask);
+          }
+        } else if (scanSession.readAheadStalled.getAndSet(false)) {
+          // the last batch read ahead stopped because the read ahead was full, now that this
+          // batch was returned there is room for another
+          readAhead(scanID, scanSession);
+        }
       }
 
       if (!scanResult.more)
@@ -2007,12 +2023,8 @@ public class TabletServer implements Runnable {
 
     @Override
     public List<String> getActiveLogs(TInfo tinfo, TCredentials credentials) throws TException {
-      String log = logger.getLogFile();
-      // Might be null if there no active logger
-      if (null == log) {
-        return Collections.emptyList();
-      }
-      return Collections.singletonList(log);
+      // Might be empty if there no active logger
+      return logger.getLogFiles();
     }
 
     @Override
@@ -2169,6 +2181,38 @@ public class TabletServer implements Runnable {
     return sessionManager.getSession(sessionId);
   }
 
+  private ScanDispatcher getScanDispatcher(KeyExtent extent) {
+    if (extent.isRootTablet() || extent.isMeta()) {
+      // dispatcher is only for user tables
+      return null;
+    }
+
+    return context.getServerConfFactory().getTableConfiguration(extent.getTableId())
+        .getScanDispatcher();
+  }
+
+  public AtomicLong getScanReadAheadMemory() {
+    return scanReadAheadMemory;
+  }
+
+  /**
+   * Called when a batch for a scan session was read and there is more to read. Starts reading the
+   * following batch, unless the session has not passed its read ahead threshold, has read ahead
+   * {@link Property#TSERV_SCAN_READAHEAD_DEPTH} batches, or the batches read ahead by all scans use
+   * more than {@link Property#TSERV_SCAN_READAHEAD_MAX_MEMORY}.
+   */
+  public void readAhead(long scanID, SingleScanSession scanSession) {
+    AccumuloConfiguration conf = getConfiguration();
+    if (!scanSession.canReadAhead(conf.getCount(Property.TSERV_SCAN_READAHEAD_DEPTH),
+        scanReadAheadMemory.get(), conf.getAsBytes(Property.TSERV_SCAN_READAHEAD_MAX_MEMORY)))
+      return;
+
+    NextBatchTask task = new NextBatchTask(this, scanID, scanSession.interruptFlag);
+    scanSession.readAheadTasks.add(task);
+    resourceManager.executeReadAhead(scanSession.extent, getScanDispatcher(scanSession.extent),
+        scanSession, task);
+  }
+
   public void executeSplit(Tablet tablet) {
     resourceManager.executeSplit(tablet.getExtent(),
         new LoggingRunnable(log, new SplitRunner(tablet)));
@@ -2966,6 +3010,7 @@ public class TabletServer implements Runnable {
     TServerUtils.stopTServer(this.replServer);
     log.debug("Stopping Thrift Servers");
     TServerUtils.stopTServer(server);
+    logger.close();
 
     try {
       log.debug("Closing filesystem");
@@ -3473,8 +3518,9 @@ public class TabletServer implements Runnable {
 
   // This is a set of WALs that are closed but may still be referenced by tablets. A LinkedHashSet
   // is used because its very import to know the order in which WALs were closed when deciding if a
-  // WAL is eligible for removal. Maintaining the order that logs were used in is currently a simple
-  // task because there is only one active log at a time.
+  // WAL is eligible for removal. WALs are added in the order they are closed. When tablets are
+  // striped across several logs the close order interleaves the stripes, which only makes removal
+  // more conservative.
   LinkedHashSet<DfsLogger> closedLogs = new LinkedHashSet<>();
 
   @VisibleForTesting
@@ -3605,4 +3651,11 @@ public class TabletServer implements Runnable {
   public final RateLimiter getMajorCompactionWriteLimiter() {
     return SharedRateLimiterFactory.getInstance().create(MAJC_WRITE_LIMITER_KEY, rateProvider);
   }
+
+  /**
+   * Get the queue that hands major compactions to compactor processes.
+   */
+  public ExternalCompactionQueue getExternalCompactionQueue() {
+    return externalCompactionQueue;
+  }
 }
@@ -45,6 +45,7 @@ import java.util.function.Function;
 import java.util.function.IntSupplier;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.AccumuloConfiguration.CompactionExecutorConfig;
 import org.apache.accumulo.core.conf.AccumuloConfiguration.ScanExecutorConfig;
 import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
 import org.apache.accumulo.core.conf.Property;
@@ -55,6 +56,11 @@ import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.core.spi.cache.BlockCache;
 import org.apache.accumulo.core.spi.cache.BlockCacheManager;
 import org.apache.accumulo.core.spi.cache.CacheType;
+import org.apache.accumulo.core.spi.compaction.CompactionDispatcher;
+import org.apache.accumulo.core.spi.compaction.CompactionExecutor;
+import org.apache.accumulo.core.spi.compaction.CompactionInfo;
+import org.apache.accumulo.core.spi.compaction.CompactionPrioritizer;
+import org.apache.accumulo.core.spi.compaction.SimpleCompactionDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher.DispatchParmaters;
 import org.apache.accumulo.core.spi.scan.ScanExecutor;
@@ -102,9 +108,9 @@ public class TabletServerResourceManager {
   private static final Logger log = LoggerFactory.getLogger(TabletServerResourceManager.class);
 
   private final ExecutorService minorCompactionThreadPool;
-  private final ExecutorService majorCompactionThreadPool;
   private final ExecutorService rootMajorCompactionThreadPool;
   private final ExecutorService defaultMajorCompactionThreadPool;
+  private final ExecutorService majorCompactionPartitionPool;
   private final ExecutorService splitThreadPool;
   private final ExecutorService defaultSplitThreadPool;
   private final ExecutorService defaultMigrationPool;
@@ -119,6 +125,9 @@ public class TabletServerResourceManager {
   private final Map<String,ExecutorService> scanExecutors;
   private final Map<String,ScanExecutor> scanExecutorChoices;
 
+  private final Map<String,ExecutorService> compactionExecutors;
+  private final Map<String,CompactionExecutor> compactionExecutorChoices;
+
   private final ConcurrentHashMap<KeyExtent,RunnableStartedAt> activeAssignments;
 
   private final FileManager fileManager;
@@ -311,6 +320,114 @@ public class TabletServerResourceManager {
     return builder.build();
   }
 
+  private ExecutorService createCompactionExecutor(CompactionExecutorConfig cec,
+      Map<String,Queue<?>> compactionExecQueues) {
+
+    BlockingQueue<Runnable> queue;
+
+    if (cec.prioritizerClass.orElse("").isEmpty()) {
+      queue = new LinkedBlockingQueue<>();
+    } else {
+      CompactionPrioritizer factory = null;
+      try {
+        factory = ConfigurationTypeHelper.getClassInstance(null, cec.prioritizerClass.get(),
+            CompactionPrioritizer.class);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+
+      if (factory == null) {
+        queue = new LinkedBlockingQueue<>();
+      } else {
+        Comparator<CompactionInfo> comparator = factory
+            .createComparator(() -> cec.prioritizerOpts);
+        queue = new CompactionQueue(comparator).asBlockingQueueOfRunnable();
+      }
+    }
+
+    compactionExecQueues.put(cec.name, queue);
+
+    String name = cec.name.equals(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME)
+        ? "major compactor" : "major compactor " + cec.name;
+    return createEs(() -> cec.getCurrentMaxThreads(), name, queue, OptionalInt.empty());
+  }
+
+  private Map<String,ExecutorService> createCompactionExecutors(
+      Collection<CompactionExecutorConfig> compactionExecCfg,
+      Map<String,Queue<?>> compactionExecQueues) {
+    Builder<String,ExecutorService> builder = ImmutableMap.builder();
+
+    for (CompactionExecutorConfig cec : compactionExecCfg) {
+      builder.put(cec.name, createCompactionExecutor(cec, compactionExecQueues));
+    }
+
+    return builder.build();
+  }
+
+  private static class CompactionExecutorImpl implements CompactionExecutor {
+
+    private static class ConfigImpl implements CompactionExecutor.Config {
+
+      final CompactionExecutorConfig cfg;
+
+      public ConfigImpl(CompactionExecutorConfig cec) {
+        this.cfg = cec;
+      }
+
+      @Override
+      public String getName() {
+        return cfg.name;
+      }
+
+      @Override
+      public int getMaxThreads() {
+        return cfg.maxThreads;
+      }
+
+      @Override
+      public Optional<String> getPrioritizerClass() {
+        return cfg.prioritizerClass;
+      }
+
+      @Override
+      public Map<String,String> getPrioritizerOptions() {
+        return cfg.prioritizerOpts;
+      }
+
+    }
+
+    private final ConfigImpl config;
+    private final Queue<?> queue;
+
+    CompactionExecutorImpl(CompactionExecutorConfig cec, Queue<?> q) {
+      this.config = new ConfigImpl(cec);
+      this.queue = q;
+    }
+
+    @Override
+    public int getQueued() {
+      return queue.size();
+    }
+
+    @Override
+    public Config getConfig() {
+      return config;
+    }
+
+  }
+
+  private Map<String,CompactionExecutor> createCompactionExecutorChoices(
+      Collection<CompactionExecutorConfig> compactionExecCfg,
+      Map<String,Queue<?>> compactionExecQueues) {
+    Builder<String,CompactionExecutor> builder = ImmutableMap.builder();
+
+    for (CompactionExecutorConfig cec : compactionExecCfg) {
+      builder.put(cec.name, new CompactionExecutorImpl(cec, compactionExecQueues.get(cec.name)));
+    }
+
+    return builder.build();
+  }
+
   @SuppressFBWarnings(value = "DM_GC",
       justification = "GC is run to get a good estimate of memory availability")
   public TabletServerResourceManager(TabletServer tserver, VolumeManager fs,
@@ -323,6 +440,10 @@ public class TabletServerResourceManager {
     long maxMemory = acuConf.getAsBytes(Property.TSERV_MAXMEM);
     boolean usingNativeMap = acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED)
         && NativeMap.isLoaded();
+    // in-memory maps that do not take their memory from the Java heap
+    boolean usingOffHeapMaps = usingNativeMap
+        || (acuConf.getBoolean(Property.TSERV_ARENAMAP_ENABLED)
+            && acuConf.getBoolean(Property.TSERV_ARENAMAP_OFFHEAP));
 
     long totalQueueSize = acuConf.getAsBytes(Property.TSERV_TOTAL_MUTATION_QUEUE_MAX);
 
@@ -343,8 +464,8 @@ public class TabletServerResourceManager {
     long sCacheSize = _sCache.getMaxHeapSize();
 
     Runtime runtime = Runtime.getRuntime();
-    if (usingNativeMap) {
-      // Still check block cache sizes when using native maps.
+    if (usingOffHeapMaps) {
+      // Still check block cache sizes when using native or off heap maps.
       if (dCacheSize + iCacheSize + sCacheSize + totalQueueSize > runtime.maxMemory()) {
         throw new IllegalArgumentException(String.format(
             "Block cache sizes %,d" + " and mutation queue size %,d is too large for this JVM"
@@ -363,19 +484,26 @@ public class TabletServerResourceManager {
 
     // totalMemory - freeMemory = memory in use
     // maxMemory - memory in use = max available memory
-    if (!usingNativeMap
+    if (!usingOffHeapMaps
         && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
       log.warn("In-memory map may not fit into local memory space.");
     }
 
     minorCompactionThreadPool = createEs(Property.TSERV_MINC_MAXCONCURRENT, "minor compactor");
 
-    // make this thread pool have a priority queue... and execute tablets with the most
-    // files first!
-    majorCompactionThreadPool = createEs(Property.TSERV_MAJC_MAXCONCURRENT, "major compactor",
-        new CompactionQueue().asBlockingQueueOfRunnable());
+    // the executors order queued compactions with their configured prioritizer, by default the
+    // tablets with the most files run first
+    Collection<CompactionExecutorConfig> compactionExecCfg = acuConf.getCompactionExecutors();
+    Map<String,Queue<?>> compactionExecQueues = new HashMap<>();
+    compactionExecutors = createCompactionExecutors(compactionExecCfg, compactionExecQueues);
+    compactionExecutorChoices = createCompactionExecutorChoices(compactionExecCfg,
+        compactionExecQueues);
     rootMajorCompactionThreadPool = createEs(0, 1, 300, "md root major compactor");
     defaultMajorCompactionThreadPool = createEs(0, 1, 300, "md major compactor");
+    // the row ranges of all partitioned major compactions share as many threads as the default
+    // compaction executor, instead of a pool per compaction
+    majorCompactionPartitionPool = createIdlingEs(Property.TSERV_MAJC_MAXCONCURRENT,
+        "major compaction partitions", 60, TimeUnit.SECONDS);
 
     splitThreadPool = createEs(1, "splitter");
     defaultSplitThreadPool = createEs(0, 1, 60, "md splitter");
@@ -909,8 +1037,9 @@ public class TabletServerResourceManager {
       return TabletServerResourceManager.this;
     }
 
-    public void executeMajorCompaction(KeyExtent tablet, Runnable compactionTask) {
-      TabletServerResourceManager.this.executeMajorCompaction(tablet, compactionTask);
+    public <T extends Runnable & CompactionInfo> void executeMajorCompaction(KeyExtent tablet,
+        CompactionDispatcher dispatcher, T compactionTask) {
+      TabletServerResourceManager.this.executeMajorCompaction(tablet, dispatcher, compactionTask);
     }
 
   }
@@ -927,14 +1056,44 @@ public class TabletServerResourceManager {
     }
   }
 
-  public void executeMajorCompaction(KeyExtent tablet, Runnable compactionTask) {
+  public <T extends Runnable & CompactionInfo> void executeMajorCompaction(KeyExtent tablet,
+      CompactionDispatcher dispatcher, T compactionTask) {
     if (tablet.isRootTablet()) {
       rootMajorCompactionThreadPool.execute(compactionTask);
     } else if (tablet.isMeta()) {
       defaultMajorCompactionThreadPool.execute(compactionTask);
     } else {
-      majorCompactionThreadPool.execute(compactionTask);
+      getCompactionExecutor(tablet, dispatcher, compactionTask, compactionExecutorChoices,
+          compactionExecutors).execute(compactionTask);
+    }
+  }
+
+  /**
+   * @return the executor the dispatcher chose for a compaction of a tablet of a user table, or the
+   *         default executor if the dispatcher chose an executor that does not exist
+   */
+  @VisibleForTesting
+  static ExecutorService getCompactionExecutor(KeyExtent tablet, CompactionDispatcher dispatcher,
+      CompactionInfo compactionInfo, Map<String,CompactionExecutor> executorChoices,
+      Map<String,ExecutorService> executors) {
+    String executorName = dispatcher.dispatch(new CompactionDispatcher.DispatchParameters() {
+      @Override
+      public CompactionInfo getCompactionInfo() {
+        return compactionInfo;
+      }
+
+      @Override
+      public Map<String,CompactionExecutor> getCompactionExecutors() {
+        return executorChoices;
+      }
+    });
+    ExecutorService executor = executors.get(executorName);
+    if (executor == null) {
+      log.warn("For table id {}, {} dispatched to non-existant executor {} Using default executor.",
+          tablet.getTableId(), dispatcher.getClass().getName(), executorName);
+      executor = executors.get(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME);
     }
+    return executor;
   }
 
   public void executeReadAhead(KeyExtent tablet, ScanDispatcher dispatcher, ScanSession scanInfo,
@@ -1006,6 +1165,10 @@ public class TabletServerResourceManager {
     return _sCache;
   }
 
+  public ExecutorService getMajorCompactionPartitionExecutor() {
+    return majorCompactionPartitionPool;
+  }
+
   public ExecutorService getSummaryRetrievalExecutor() {
     return summaryRetrievalPool;
   }
@@ -17,9 +17,11 @@
 package org.apache.accumulo.tserver.compaction;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.accumulo.core.conf.Property;
@@ -45,17 +47,35 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
     return result;
   }
 
+  /**
+   * A file of the tablet, or all files written by one partitioned compaction. The files of a
+   * partitioned compaction hold disjoint row ranges and are compacted together as if they were a
+   * single file. Otherwise the equal sized files it leaves behind would satisfy the compaction
+   * ratio, and the tablet would be compacted again and again.
+   */
   private static class CompactionFile {
-    public FileRef file;
+    public final String name;
+    public final List<FileRef> files = new ArrayList<>();
     public long size;
 
-    public CompactionFile(FileRef file, long size) {
-      super();
-      this.file = file;
-      this.size = size;
+    public CompactionFile(String name) {
+      this.name = name;
     }
   }
 
+  private static Collection<CompactionFile> getCompactionFiles(Map<FileRef,DataFileValue> files) {
+    Map<String,CompactionFile> compactionFiles = new HashMap<>();
+    for (Entry<FileRef,DataFileValue> entry : files.entrySet()) {
+      String name = PartitionedFiles.getPartitionGroup(entry.getKey());
+      if (name == null)
+        name = entry.getKey().path().toString();
+      CompactionFile cf = compactionFiles.computeIfAbsent(name, CompactionFile::new);
+      cf.files.add(entry.getKey());
+      cf.size += entry.getValue().getSize();
+    }
+    return compactionFiles.values();
+  }
+
   private List<FileRef> findMapFilesToCompact(MajorCompactionRequest request) {
     MajorCompactionReason reason = request.getReason();
     if (reason == MajorCompactionReason.USER) {
@@ -66,7 +86,9 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
       return new ArrayList<>(request.getFiles().keySet());
     }
 
-    if (request.getFiles().size() <= 1)
+    Collection<CompactionFile> compactionFiles = getCompactionFiles(request.getFiles());
+
+    if (compactionFiles.size() <= 1)
       return null;
     TreeSet<CompactionFile> candidateFiles = new TreeSet<>((o1, o2) -> {
       if (o1 == o2)
@@ -75,7 +97,7 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
         return -1;
       if (o1.size > o2.size)
         return 1;
-      return o1.file.compareTo(o2.file);
+      return o1.name.compareTo(o2.name);
     });
 
     double ratio = Double.parseDouble(request.getTableConfig(Property.TABLE_MAJC_RATIO.getKey()));
@@ -83,9 +105,7 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
         .parseInt(request.getTableConfig(Property.TSERV_MAJC_THREAD_MAXOPEN.getKey()));
     int maxFilesPerTablet = request.getMaxFilesPerTablet();
 
-    for (Entry<FileRef,DataFileValue> entry : request.getFiles().entrySet()) {
-      candidateFiles.add(new CompactionFile(entry.getKey(), entry.getValue().getSize()));
-    }
+    candidateFiles.addAll(compactionFiles);
 
     long totalSize = 0;
     for (CompactionFile mfi : candidateFiles) {
@@ -93,15 +113,16 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
     }
 
     List<FileRef> files = new ArrayList<>();
+    int selected = 0;
 
     while (candidateFiles.size() > 1) {
       CompactionFile max = candidateFiles.last();
       if (max.size * ratio <= totalSize) {
-        files.clear();
         for (CompactionFile mfi : candidateFiles) {
-          files.add(mfi.file);
-          if (files.size() >= maxFilesToCompact)
+          if (!files.isEmpty() && files.size() + mfi.files.size() > maxFilesToCompact)
             break;
+          files.addAll(mfi.files);
+          selected++;
         }
 
         break;
@@ -111,28 +132,25 @@ public class DefaultCompactionStrategy extends CompactionStrategy {
     }
 
     int totalFilesToCompact = 0;
-    if (request.getFiles().size() > maxFilesPerTablet)
-      totalFilesToCompact = request.getFiles().size() - maxFilesPerTablet + 1;
+    if (compactionFiles.size() > maxFilesPerTablet)
+      totalFilesToCompact = compactionFiles.size() - maxFilesPerTablet + 1;
 
     totalFilesToCompact = Math.min(totalFilesToCompact, maxFilesToCompact);
 
-    if (files.size() < totalFilesToCompact) {
-
-      TreeMap<FileRef,Long> tfc = new TreeMap<>();
-      for (Entry<FileRef,DataFileValue> entry : request.getFiles().entrySet()) {
-        tfc.put(entry.getKey(), entry.getValue().getSize());
-      }
-      tfc.keySet().removeAll(files);
+    if (selected < totalFilesToCompact) {
 
       // put data in candidateFiles to sort it
       candidateFiles.clear();
-      for (Entry<FileRef,Long> entry : tfc.entrySet())
-        candidateFiles.add(new CompactionFile(entry.getKey(), entry.getValue()));
+      for (CompactionFile cf : compactionFiles) {
+        if (!files.containsAll(cf.files))
+          candidateFiles.add(cf);
+      }
 
       for (CompactionFile mfi : candidateFiles) {
-        files.add(mfi.file);
-        if (files.size() >= totalFilesToCompact)
+        if (selected >= totalFilesToCompact)
           break;
+        files.addAll(mfi.files);
+        selected++;
       }
     }
 
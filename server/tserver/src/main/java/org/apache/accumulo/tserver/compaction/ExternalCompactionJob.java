@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.tserver.tablet.CompactionStats;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * A major compaction a tablet server hands to a compactor process: the files to compact, the
+ * iterators to apply and the file to write. The tablet server commits the output file once the
+ * compactor returns a {@link Result}.
+ */
+public class ExternalCompactionJob {
+
+  private final KeyExtent extent;
+  private final Map<FileRef,DataFileValue> files;
+  private final FileRef outputFile;
+  private final boolean propogateDeletes;
+  private final List<IteratorSetting> iterators;
+  private final MajorCompactionReason reason;
+  private final Map<String,String> properties;
+
+  /**
+   * @param properties
+   *          table properties the compaction overrides, such as the write parameters of a
+   *          {@link CompactionPlan}
+   */
+  public ExternalCompactionJob(KeyExtent extent, Map<FileRef,DataFileValue> files,
+      FileRef outputFile, boolean propogateDeletes, List<IteratorSetting> iterators,
+      MajorCompactionReason reason, Map<String,String> properties) {
+    this.extent = extent;
+    this.files = Collections.unmodifiableMap(new HashMap<>(files));
+    this.outputFile = outputFile;
+    this.propogateDeletes = propogateDeletes;
+    this.iterators = Collections.unmodifiableList(new ArrayList<>(iterators));
+    this.reason = reason;
+    this.properties = Collections.unmodifiableMap(new TreeMap<>(properties));
+  }
+
+  public KeyExtent getExtent() {
+    return extent;
+  }
+
+  public Map<FileRef,DataFileValue> getFiles() {
+    return files;
+  }
+
+  public FileRef getOutputFile() {
+    return outputFile;
+  }
+
+  public boolean getPropogateDeletes() {
+    return propogateDeletes;
+  }
+
+  public List<IteratorSetting> getIterators() {
+    return iterators;
+  }
+
+  public MajorCompactionReason getReason() {
+    return reason;
+  }
+
+  public Map<String,String> getProperties() {
+    return properties;
+  }
+
+  private static void writeFileRef(DataOutputStream out, FileRef ref) throws IOException {
+    out.writeUTF(ref.meta().toString());
+    out.writeUTF(ref.path().toString());
+  }
+
+  private static FileRef readFileRef(DataInputStream in) throws IOException {
+    String meta = in.readUTF();
+    return new FileRef(meta, new Path(in.readUTF()));
+  }
+
+  public byte[] toBytes() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(baos)) {
+      extent.write(out);
+      out.writeInt(files.size());
+      for (Entry<FileRef,DataFileValue> entry : files.entrySet()) {
+        writeFileRef(out, entry.getKey());
+        out.writeLong(entry.getValue().getSize());
+        out.writeLong(entry.getValue().getNumEntries());
+        out.writeLong(entry.getValue().getTime());
+      }
+      writeFileRef(out, outputFile);
+      out.writeBoolean(propogateDeletes);
+      out.writeInt(iterators.size());
+      for (IteratorSetting iterator : iterators) {
+        iterator.write(out);
+      }
+      out.writeInt(reason.ordinal());
+      out.writeInt(properties.size());
+      for (Entry<String,String> entry : properties.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeUTF(entry.getValue());
+      }
+    }
+    return baos.toByteArray();
+  }
+
+  public static ExternalCompactionJob fromBytes(byte[] data) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      KeyExtent extent = new KeyExtent();
+      extent.readFields(in);
+      int numFiles = in.readInt();
+      Map<FileRef,DataFileValue> files = new HashMap<>();
+      for (int i = 0; i < numFiles; i++) {
+        FileRef ref = readFileRef(in);
+        files.put(ref, new DataFileValue(in.readLong(), in.readLong(), in.readLong()));
+      }
+      FileRef outputFile = readFileRef(in);
+      boolean propogateDeletes = in.readBoolean();
+      int numIterators = in.readInt();
+      List<IteratorSetting> iterators = new ArrayList<>();
+      for (int i = 0; i < numIterators; i++) {
+        iterators.add(new IteratorSetting(in));
+      }
+      MajorCompactionReason reason = MajorCompactionReason.values()[in.readInt()];
+      int numProperties = in.readInt();
+      Map<String,String> properties = new HashMap<>();
+      for (int i = 0; i < numProperties; i++) {
+        properties.put(in.readUTF(), in.readUTF());
+      }
+      return new ExternalCompactionJob(extent, files, outputFile, propogateDeletes, iterators,
+          reason, properties);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return extent + " " + files.keySet() + " --> " + outputFile + " " + iterators;
+  }
+
+  /**
+   * What a compactor process reports back for an {@link ExternalCompactionJob}.
+   */
+  public static class Result {
+
+    // null when the compaction succeeded
+    private final String error;
+    private final CompactionStats stats;
+
+    private Result(String error, CompactionStats stats) {
+      this.error = error;
+      this.stats = stats;
+    }
+
+    public static Result success(CompactionStats stats) {
+      return new Result(null, stats);
+    }
+
+    public static Result failure(Exception e) {
+      return new Result(e.getClass().getName() + ": " + e.getMessage(), null);
+    }
+
+    public boolean isSuccessful() {
+      return error == null;
+    }
+
+    public String getError() {
+      return error;
+    }
+
+    public CompactionStats getStats() {
+      return stats;
+    }
+
+    public byte[] toBytes() throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(baos)) {
+        out.writeBoolean(isSuccessful());
+        if (isSuccessful()) {
+          out.writeLong(stats.getEntriesRead());
+          out.writeLong(stats.getEntriesWritten());
+          out.writeLong(stats.getFileSize());
+          out.writeLong(stats.getTime());
+        } else {
+          out.writeUTF(error);
+        }
+      }
+      return baos.toByteArray();
+    }
+
+    public static Result fromBytes(byte[] data) throws IOException {
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+        if (!in.readBoolean())
+          return new Result(in.readUTF(), null);
+        CompactionStats stats = new CompactionStats(in.readLong(), in.readLong());
+        stats.setFileSize(in.readLong());
+        stats.setTime(in.readLong());
+        return success(stats);
+      }
+    }
+  }
+}
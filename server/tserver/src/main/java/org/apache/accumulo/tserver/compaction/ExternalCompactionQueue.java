@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.fate.zookeeper.ZooReaderWriter;
+import org.apache.accumulo.fate.zookeeper.ZooUtil.NodeMissingPolicy;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.zookeeper.DistributedWorkQueue;
+import org.apache.accumulo.tserver.tablet.CompactionStats;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionCanceledException;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionEnv;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Hands major compactions to compactor processes through a {@link DistributedWorkQueue} in
+ * zookeeper. A compactor takes a job from the queue, writes the output file and puts a
+ * {@link ExternalCompactionJob.Result} under the results node, named like the job, if the job is
+ * still queued. The tablet server waiting for the job reads and removes the result.
+ *
+ * <p>
+ * A job is withdrawn when no compactor holds it for
+ * {@link Property#TSERV_MAJC_EXTERNAL_START_TIMEOUT}, when the compactor holding it reports no
+ * progress for {@link Property#TSERV_MAJC_EXTERNAL_HEARTBEAT_TIMEOUT}, or when the tablet no longer
+ * allows compactions. A compactor reports progress by updating its reservation of the job. A
+ * compactor that is running a withdrawn job notices that it is gone and stops.
+ */
+public class ExternalCompactionQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(ExternalCompactionQueue.class);
+
+  // how often a waiting tablet server checks that the tablet still allows compactions
+  private static final long CHECK_MILLIS = 1000;
+
+  private final DistributedWorkQueue queue;
+  private final ZooReaderWriter zoo;
+  private final String resultsPath;
+  private final AccumuloConfiguration conf;
+
+  public ExternalCompactionQueue(ServerContext context, AccumuloConfiguration conf) {
+    this(new DistributedWorkQueue(getQueuePath(context), conf), getResultsPath(context), conf);
+  }
+
+  @VisibleForTesting
+  ExternalCompactionQueue(DistributedWorkQueue queue, String resultsPath,
+      AccumuloConfiguration conf) {
+    this.queue = queue;
+    this.zoo = queue.getZooReaderWriter();
+    this.resultsPath = resultsPath;
+    this.conf = conf;
+  }
+
+  public static String getQueuePath(ServerContext context) {
+    return context.getZooKeeperRoot() + Constants.ZCOMPACTIONS;
+  }
+
+  public static String getResultsPath(ServerContext context) {
+    return context.getZooKeeperRoot() + Constants.ZCOMPACTION_RESULTS;
+  }
+
+  /**
+   * @return the name of the job in the queue and of its result
+   */
+  public static String getWorkId(ExternalCompactionJob job) {
+    return job.getOutputFile().path().getName();
+  }
+
+  /**
+   * Wakes the thread waiting for a job when the job's result or reservation changes.
+   */
+  private static class JobWatcher implements Watcher {
+    private boolean changed = true;
+
+    @Override
+    public synchronized void process(WatchedEvent event) {
+      changed = true;
+      notifyAll();
+    }
+
+    /**
+     * @return true if the job changed since the last call
+     */
+    synchronized boolean awaitChange(long millis) throws InterruptedException {
+      if (!changed)
+        wait(millis);
+      boolean result = changed;
+      changed = false;
+      return result;
+    }
+  }
+
+  /**
+   * Queues a compaction and waits for a compactor process to run it.
+   *
+   * @return the statistics of the compaction, or null if the job was withdrawn because no
+   *         compactor took it in time or the compactor running it stopped reporting progress, in
+   *         which case the caller should run the compaction itself
+   */
+  public CompactionStats compact(ExternalCompactionJob job, CompactionEnv env)
+      throws IOException, CompactionCanceledException {
+    String workId = getWorkId(job);
+    String resultPath = resultsPath + "/" + workId;
+    long startTimeout = conf.getTimeInMillis(Property.TSERV_MAJC_EXTERNAL_START_TIMEOUT);
+    long heartbeatTimeout = conf.getTimeInMillis(Property.TSERV_MAJC_EXTERNAL_HEARTBEAT_TIMEOUT);
+
+    try {
+      queue.addWork(workId, job.toBytes());
+      log.debug("Queued external compaction {}", job);
+
+      JobWatcher watcher = new JobWatcher();
+      // the last time the job was queued, taken or released, or a compactor reported progress
+      long lastProgress = System.currentTimeMillis();
+      Stat reservation = null;
+      while (true) {
+        if (watcher.awaitChange(CHECK_MILLIS)) {
+          if (zoo.exists(resultPath, watcher))
+            return getResult(job, resultPath);
+
+          Stat current = queue.getWorkReservation(workId, watcher);
+          if (current == null ? reservation != null
+              : reservation == null || current.getMzxid() != reservation.getMzxid()) {
+            lastProgress = System.currentTimeMillis();
+          }
+          reservation = current;
+        }
+
+        if (!env.isCompactionEnabled()) {
+          queue.removeWork(workId);
+          throw new CompactionCanceledException();
+        }
+
+        long timeout = reservation == null ? startTimeout : heartbeatTimeout;
+        if (System.currentTimeMillis() - lastProgress > timeout) {
+          queue.removeWork(workId);
+          // a compactor may have finished the job just before it was withdrawn
+          if (zoo.exists(resultPath))
+            return getResult(job, resultPath);
+          if (reservation == null)
+            log.info("No compactor took {} in {}ms, withdrew it", job, timeout);
+          else
+            log.info("Compactor running {} reported no progress in {}ms, withdrew it", job,
+                timeout);
+          return null;
+        }
+      }
+    } catch (KeeperException e) {
+      throw new IOException("Failed to run external compaction " + job, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for external compaction " + job, e);
+    }
+  }
+
+  private CompactionStats getResult(ExternalCompactionJob job, String resultPath)
+      throws IOException, KeeperException, InterruptedException {
+    ExternalCompactionJob.Result result = ExternalCompactionJob.Result
+        .fromBytes(zoo.getData(resultPath, null));
+    zoo.recursiveDelete(resultPath, NodeMissingPolicy.SKIP);
+    if (!result.isSuccessful())
+      throw new IOException("Compactor failed to run " + job + " : " + result.getError());
+    return result.getStats();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.accumulo.server.fs.FileRef;
+
+/**
+ * Names the files written by a major compaction that was divided into row ranges. The files of
+ * one such compaction share the name of the compaction and end with the number of their
+ * partition, for example {@code C0000abc-p0.rf} and {@code C0000abc-p1.rf}.
+ *
+ * <p>
+ * The files of one partitioned compaction cover disjoint row ranges and together hold what a
+ * single file would, so compaction strategies can treat them as one file. Whatever files a
+ * strategy selects, the tablet adds the other files of their partitioned compactions, so the files
+ * of one partitioned compaction are only ever compacted together.
+ */
+public class PartitionedFiles {
+
+  private static final Pattern PARTITION_FILE = Pattern.compile("^(.*)-p\\d+((?:\\.[^./]+)?)$");
+
+  private PartitionedFiles() {}
+
+  /**
+   * @param base
+   *          a new file name for the whole compaction
+   * @return the name of the file written for a partition
+   */
+  public static FileRef getPartitionFile(FileRef base, int partition) {
+    String path = base.path().toString();
+    int dot = path.lastIndexOf('.');
+    if (dot <= path.lastIndexOf('/'))
+      return new FileRef(path + "-p" + partition);
+    return new FileRef(path.substring(0, dot) + "-p" + partition + path.substring(dot));
+  }
+
+  /**
+   * @return a name shared by all files of the partitioned compaction that wrote the file, or null
+   *         if the file was not written by a partitioned compaction
+   */
+  public static String getPartitionGroup(FileRef file) {
+    Matcher matcher = PARTITION_FILE.matcher(file.path().toString());
+    if (matcher.matches())
+      return matcher.group(1) + matcher.group(2);
+    return null;
+  }
+
+  /**
+   * @param selected
+   *          the files a compaction strategy selected
+   * @param files
+   *          all files of the tablet
+   * @return the selected files and the other files of the partitioned compactions they belong to
+   */
+  public static Set<FileRef> withPartitions(Collection<FileRef> selected,
+      Collection<FileRef> files) {
+    Set<String> groups = new HashSet<>();
+    for (FileRef file : selected) {
+      String group = getPartitionGroup(file);
+      if (group != null)
+        groups.add(group);
+    }
+
+    Set<FileRef> result = new LinkedHashSet<>(selected);
+    if (!groups.isEmpty()) {
+      for (FileRef file : files) {
+        if (groups.contains(getPartitionGroup(file)))
+          result.add(file);
+      }
+    }
+    return result;
+  }
+}
@@ -36,7 +36,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.Durability;
@@ -54,6 +57,7 @@ import org.apache.accumulo.core.spi.crypto.CryptoService;
 import org.apache.accumulo.core.spi.crypto.FileDecrypter;
 import org.apache.accumulo.core.spi.crypto.FileEncrypter;
 import org.apache.accumulo.core.util.Daemon;
+import org.apache.accumulo.core.util.NamingThreadFactory;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.fate.util.LoggingRunnable;
 import org.apache.accumulo.server.ServerConstants;
@@ -61,9 +65,11 @@ import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.fs.VolumeChooserEnvironment;
 import org.apache.accumulo.server.fs.VolumeChooserEnvironment.ChooserScope;
 import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.metrics.Metrics;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.accumulo.tserver.metrics.TabletServerUpdateMetrics;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
@@ -159,22 +165,66 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private boolean closed = false;
 
   private class LogSyncingTask implements Runnable {
-    private int expectedReplication = 0;
+    private volatile int expectedReplication = 0;
+
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService syncThreads;
+
+    LogSyncingTask(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+      this.inFlight = new Semaphore(maxInFlight);
+      if (maxInFlight > 1) {
+        syncThreads = Executors.newFixedThreadPool(maxInFlight,
+            new NamingThreadFactory("Accumulo WALog sync " + DfsLogger.this));
+      } else {
+        syncThreads = null;
+      }
+    }
 
     @Override
     public void run() {
-      ArrayList<DfsLogger.LogWork> work = new ArrayList<>();
       boolean sawClosedMarker = false;
       while (!sawClosedMarker) {
-        work.clear();
+        // Wait for a sync slot before taking work, so that work keeps accumulating into a larger
+        // group while the maximum number of syncs are outstanding.
+        try {
+          inFlight.acquire();
+        } catch (InterruptedException ex) {
+          continue;
+        }
 
+        ArrayList<DfsLogger.LogWork> work = new ArrayList<>();
         try {
           work.add(workQueue.take());
         } catch (InterruptedException ex) {
+          inFlight.release();
           continue;
         }
         workQueue.drainTo(work);
 
+        for (DfsLogger.LogWork logWork : work)
+          if (logWork == CLOSED_MARKER)
+            sawClosedMarker = true;
+
+        if (syncThreads == null) {
+          sync(work);
+        } else {
+          // Everything in this group was written before it was queued, so a sync started now
+          // covers it regardless of the order in which outstanding syncs complete.
+          syncThreads.execute(new LoggingRunnable(log, () -> sync(work)));
+        }
+      }
+
+      // wait for outstanding syncs to complete before the log file is closed
+      inFlight.acquireUninterruptibly(maxInFlight);
+      if (syncThreads != null) {
+        syncThreads.shutdown();
+      }
+    }
+
+    private void sync(ArrayList<DfsLogger.LogWork> work) {
+      try {
         Method durabilityMethod = null;
         loop: for (LogWork logWork : work) {
           switch (logWork.durability) {
@@ -236,11 +286,25 @@ public class DfsLogger implements Comparable<DfsLogger> {
           }
         }
 
+        if (updateMetrics != null && updateMetrics.isEnabled()) {
+          long oldest = start;
+          int groupSize = 0;
+          for (DfsLogger.LogWork logWork : work) {
+            if (logWork != CLOSED_MARKER) {
+              oldest = Math.min(oldest, logWork.queuedTime);
+              groupSize++;
+            }
+          }
+          updateMetrics.add(TabletServerUpdateMetrics.WALOG_SYNC_GROUP_SIZE, groupSize);
+          updateMetrics.add(TabletServerUpdateMetrics.WALOG_SYNC_QUEUE_TIME, start - oldest);
+          updateMetrics.add(TabletServerUpdateMetrics.WALOG_SYNC_TIME, duration);
+        }
+
         for (DfsLogger.LogWork logWork : work)
-          if (logWork == CLOSED_MARKER)
-            sawClosedMarker = true;
-          else
+          if (logWork != CLOSED_MARKER)
             logWork.latch.countDown();
+      } finally {
+        inFlight.release();
       }
     }
 
@@ -256,6 +320,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
     final CountDownLatch latch;
     final Durability durability;
     volatile Exception exception;
+    long queuedTime;
 
     public LogWork(CountDownLatch latch, Durability durability) {
       this.latch = latch;
@@ -331,6 +396,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private String metaReference;
   private AtomicLong syncCounter;
   private AtomicLong flushCounter;
+  private Metrics updateMetrics;
   private final long slowFlushMillis;
 
   private DfsLogger(ServerContext context, ServerResources conf) {
@@ -341,10 +407,11 @@ public class DfsLogger implements Comparable<DfsLogger> {
   }
 
   public DfsLogger(ServerContext context, ServerResources conf, AtomicLong syncCounter,
-      AtomicLong flushCounter) throws IOException {
+      AtomicLong flushCounter, Metrics updateMetrics) throws IOException {
     this(context, conf);
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
+    this.updateMetrics = updateMetrics;
   }
 
   /**
@@ -416,16 +483,33 @@ public class DfsLogger implements Comparable<DfsLogger> {
         + filename;
 
     metaReference = toString();
-    LoggerOperation op = null;
+    FSDataOutputStream out;
     try {
       short replication = (short) conf.getConfiguration().getCount(Property.TSERV_WAL_REPLICATION);
       if (replication == 0)
         replication = fs.getDefaultReplication(new Path(logPath));
       long blockSize = getWalBlockSize(conf.getConfiguration());
       if (conf.getConfiguration().getBoolean(Property.TSERV_WAL_SYNC))
-        logFile = fs.createSyncable(new Path(logPath), 0, replication, blockSize);
+        out = fs.createSyncable(new Path(logPath), 0, replication, blockSize);
       else
-        logFile = fs.create(new Path(logPath), true, 0, replication, blockSize);
+        out = fs.create(new Path(logPath), true, 0, replication, blockSize);
+    } catch (Exception ex) {
+      throw new IOException(ex);
+    }
+    open(logPath, out);
+  }
+
+  /**
+   * Writes the header and OPEN entry to a newly created log file and starts the thread that syncs
+   * it.
+   */
+  synchronized void open(String path, FSDataOutputStream out) throws IOException {
+    logPath = path;
+    metaReference = toString();
+    String filename = new Path(path).getName();
+    logFile = out;
+    LoggerOperation op = null;
+    try {
       sync = logFile.getClass().getMethod("hsync");
       flush = logFile.getClass().getMethod("hflush");
 
@@ -456,7 +540,9 @@ public class DfsLogger implements Comparable<DfsLogger> {
       throw new IOException(ex);
     }
 
-    syncThread = new Daemon(new LoggingRunnable(log, new LogSyncingTask()));
+    int maxInFlight = Math.max(1,
+        conf.getConfiguration().getCount(Property.TSERV_WAL_SYNC_MAX_INFLIGHT));
+    syncThread = new Daemon(new LoggingRunnable(log, new LogSyncingTask(maxInFlight)));
     syncThread.setName("Accumulo WALog thread " + this);
     syncThread.start();
     op.await();
@@ -589,6 +675,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
 
       if (closed)
         throw new LogClosedException();
+      work.queuedTime = System.currentTimeMillis();
       workQueue.add(work);
     }
 
@@ -26,6 +26,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -129,24 +132,52 @@ public class LogSorter {
           this.input = inputStreams.getOriginalInput();
           this.decryptingInput = inputStreams.getDecryptingInputStream();
 
+          final int sortThreads = Math.max(1, conf.getCount(Property.TSERV_SORT_THREADS));
           final long bufferSize = conf.getAsBytes(Property.TSERV_SORT_BUFFER_SIZE);
           Thread.currentThread().setName("Sorting " + name + " for recovery");
-          while (true) {
-            final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
-            try {
-              long start = input.getPos();
-              while (input.getPos() - start < bufferSize) {
-                LogFileKey key = new LogFileKey();
-                LogFileValue value = new LogFileValue();
-                key.readFields(decryptingInput);
-                value.readFields(decryptingInput);
-                buffer.add(new Pair<>(key, value));
+
+          // Reading the log is sequential, but each chunk can be sorted and written while the
+          // next one is read. Each chunk is as large as the sort buffer, so the log is split into
+          // as few chunks as when it is sorted by one thread, and only sortThreads chunks are held
+          // in memory at any time.
+          final Semaphore buffers = new Semaphore(sortThreads);
+          final List<Future<?>> writes = new ArrayList<>();
+          try {
+            boolean eof = false;
+            while (!eof) {
+              buffers.acquire();
+              final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+              try {
+                long start = input.getPos();
+                while (input.getPos() - start < bufferSize) {
+                  LogFileKey key = new LogFileKey();
+                  LogFileValue value = new LogFileValue();
+                  key.readFields(decryptingInput);
+                  value.readFields(decryptingInput);
+                  buffer.add(new Pair<>(key, value));
+                }
+              } catch (EOFException ex) {
+                eof = true;
               }
-              writeBuffer(destPath, buffer, part++);
-              buffer.clear();
-            } catch (EOFException ex) {
-              writeBuffer(destPath, buffer, part++);
-              break;
+              final int chunk = part++;
+              writes.add(chunkWriters.submit(() -> {
+                try {
+                  writeBuffer(destPath, buffer, chunk);
+                } finally {
+                  buffers.release();
+                }
+                return null;
+              }));
+              checkForFailedWrites(writes);
+            }
+            for (Future<?> write : writes) {
+              write.get();
+            }
+          } catch (ExecutionException e) {
+            throw e.getCause();
+          } finally {
+            for (Future<?> write : writes) {
+              write.cancel(true);
             }
           }
           fs.create(new Path(destPath, "finished")).close();
@@ -175,6 +206,18 @@ public class LogSorter {
       }
     }
 
+    /**
+     * Stop reading the log as soon as writing any of its chunks has failed.
+     */
+    private void checkForFailedWrites(List<Future<?>> writes)
+        throws ExecutionException, InterruptedException {
+      for (Future<?> write : writes) {
+        if (write.isDone()) {
+          write.get();
+        }
+      }
+    }
+
     private void writeBuffer(String destPath, List<Pair<LogFileKey,LogFileValue>> buffer, int part)
         throws IOException {
       Path path = new Path(destPath, String.format("part-r-%05d", part));
@@ -216,6 +259,7 @@ public class LogSorter {
   }
 
   ThreadPoolExecutor threadPool;
+  private final ThreadPoolExecutor chunkWriters;
   private final ClientContext context;
   private double walBlockSize;
 
@@ -225,9 +269,20 @@ public class LogSorter {
     this.conf = conf;
     int threadPoolSize = conf.getCount(Property.TSERV_RECOVERY_MAX_CONCURRENT);
     this.threadPool = new SimpleThreadPool(threadPoolSize, this.getClass().getName());
+    int chunkWriterThreads = threadPoolSize
+        * Math.max(1, conf.getCount(Property.TSERV_SORT_THREADS));
+    this.chunkWriters = new SimpleThreadPool(chunkWriterThreads, "LogSorter chunk writer");
     this.walBlockSize = DfsLogger.getWalBlockSize(conf);
   }
 
+  /**
+   * Sort a single write-ahead log into the given directory, using the calling thread to read the
+   * log.
+   */
+  public void sort(String name, Path srcPath, String destPath) {
+    new LogProcessor().sort(name, srcPath, destPath);
+  }
+
   public void startWatchingForRecoveryLogs(ThreadPoolExecutor distWorkQThreadPool)
       throws KeeperException, InterruptedException {
     this.threadPool = distWorkQThreadPool;
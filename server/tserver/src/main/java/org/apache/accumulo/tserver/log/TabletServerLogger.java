@@ -26,6 +26,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -54,7 +57,6 @@ import org.apache.accumulo.tserver.Mutations;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.TabletServer;
 import org.apache.accumulo.tserver.log.DfsLogger.LoggerOperation;
-import org.apache.accumulo.tserver.log.DfsLogger.ServerResources;
 import org.apache.accumulo.tserver.tablet.CommitSession;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
@@ -67,42 +69,30 @@ import org.slf4j.LoggerFactory;
  * maintaining the maximum thread parallelism for greater performance. As new logs are used and
  * minor compactions are performed, the metadata table is kept up-to-date.
  *
+ * Tablets are striped across a configurable number of logs that are written independently, so that
+ * ingest is not limited to the throughput of a single HDFS pipeline. A tablet always writes to the
+ * same stripe, so all of the updates for a tablet are ordered within the logs of that stripe and
+ * recovery does not need to know about stripes.
+ *
  */
 public class TabletServerLogger {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerLogger.class);
 
-  private final AtomicLong logSizeEstimate = new AtomicLong();
   private final long maxSize;
   private final long maxAge;
 
   private final TabletServer tserver;
 
-  // The current logger
-  private DfsLogger currentLog = null;
-  private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
-  private ThreadPoolExecutor nextLogMaker;
-
-  // The current generation of logs.
-  // Because multiple threads can be using a log at one time, a log
-  // failure is likely to affect multiple threads, who will all attempt to
-  // create a new log. This will cause many unnecessary updates to the
-  // metadata table.
-  // We'll use this generational counter to determine if another thread has
-  // already fetched a new log.
-  private final AtomicInteger logId = new AtomicInteger();
+  private final LogStripe[] stripes;
 
-  // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
-  // change them
-  private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+  // Used to write to several stripes at once when a batch of updates spans more than one
+  private final ExecutorService stripeWriters;
 
   private final AtomicLong syncCounter;
   private final AtomicLong flushCounter;
 
-  private long createTime = 0;
-
   private final RetryFactory createRetryFactory;
-  private Retry createRetry = null;
 
   private final RetryFactory writeRetryFactory;
 
@@ -150,208 +140,402 @@ public class TabletServerLogger {
     }
   }
 
-  public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter,
-      AtomicLong flushCounter, RetryFactory createRetryFactory, RetryFactory writeRetryFactory,
-      long maxAge) {
-    this.tserver = tserver;
-    this.maxSize = maxSize;
-    this.syncCounter = syncCounter;
-    this.flushCounter = flushCounter;
-    this.createRetryFactory = createRetryFactory;
-    this.createRetry = null;
-    this.writeRetryFactory = writeRetryFactory;
-    this.maxAge = maxAge;
-  }
+  /**
+   * A sequence of logs, one open at a time, that a subset of the tablets write to.
+   */
+  private class LogStripe {
+    private final AtomicLong logSizeEstimate = new AtomicLong();
 
-  private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
-    final AtomicReference<DfsLogger> result = new AtomicReference<>();
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        result.set(currentLog);
-        if (currentLog != null)
-          logIdOut.set(logId.get());
-        return currentLog == null;
-      }
+    // The current logger
+    private DfsLogger currentLog = null;
+    private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
+    private ThreadPoolExecutor nextLogMaker;
 
-      @Override
-      void withWriteLock() throws IOException {
-        try {
-          createLogger();
+    // The current generation of logs.
+    // Because multiple threads can be using a log at one time, a log
+    // failure is likely to affect multiple threads, who will all attempt to
+    // create a new log. This will cause many unnecessary updates to the
+    // metadata table.
+    // We'll use this generational counter to determine if another thread has
+    // already fetched a new log.
+    private final AtomicInteger logId = new AtomicInteger();
+
+    // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
+    // change them
+    private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+
+    private long createTime = 0;
+
+    private Retry createRetry = null;
+
+    private final String name;
+
+    LogStripe(String name) {
+      this.name = name;
+    }
+
+    private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
+      final AtomicReference<DfsLogger> result = new AtomicReference<>();
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
           result.set(currentLog);
           if (currentLog != null)
             logIdOut.set(logId.get());
-          else
-            logIdOut.set(-1);
-        } catch (IOException e) {
-          log.error("Unable to create loggers", e);
+          return currentLog == null;
         }
-      }
-    });
-    return result.get();
-  }
 
-  /**
-   * Get the current WAL file
-   *
-   * @return The name of the current log, or null if there is no current log.
-   */
-  public String getLogFile() {
-    logIdLock.readLock().lock();
-    try {
-      if (null == currentLog) {
-        return null;
-      }
-      return currentLog.getFileName();
-    } finally {
-      logIdLock.readLock().unlock();
+        @Override
+        void withWriteLock() throws IOException {
+          try {
+            createLogger();
+            result.set(currentLog);
+            if (currentLog != null)
+              logIdOut.set(logId.get());
+            else
+              logIdOut.set(-1);
+          } catch (IOException e) {
+            log.error("Unable to create loggers", e);
+          }
+        }
+      });
+      return result.get();
     }
-  }
 
-  private synchronized void createLogger() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("createLoggers should be called with write lock held!");
+    /**
+     * Get the current WAL file
+     *
+     * @return The name of the current log, or null if there is no current log.
+     */
+    String getLogFile() {
+      logIdLock.readLock().lock();
+      try {
+        if (null == currentLog) {
+          return null;
+        }
+        return currentLog.getFileName();
+      } finally {
+        logIdLock.readLock().unlock();
+      }
     }
 
-    if (currentLog != null) {
-      throw new IllegalStateException("createLoggers should not be called when current log is set");
-    }
+    private synchronized void createLogger() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("createLoggers should be called with write lock held!");
+      }
 
-    try {
-      startLogMaker();
-      Object next = nextLog.take();
-      if (next instanceof Exception) {
-        throw (Exception) next;
+      if (currentLog != null) {
+        throw new IllegalStateException("createLoggers should not be called when current log is set");
       }
-      if (next instanceof DfsLogger) {
-        currentLog = (DfsLogger) next;
-        logId.incrementAndGet();
-        log.info("Using next log {}", currentLog.getFileName());
-
-        // When we successfully create a WAL, make sure to reset the Retry.
-        if (null != createRetry) {
-          createRetry = null;
+
+      try {
+        startLogMaker();
+        Object next = nextLog.take();
+        if (next instanceof Exception) {
+          throw (Exception) next;
         }
+        if (next instanceof DfsLogger) {
+          currentLog = (DfsLogger) next;
+          logId.incrementAndGet();
+          log.info("Using next log {}", currentLog.getFileName());
+
+          // When we successfully create a WAL, make sure to reset the Retry.
+          if (null != createRetry) {
+            createRetry = null;
+          }
 
-        this.createTime = System.currentTimeMillis();
-        return;
-      } else {
-        throw new RuntimeException("Error: unexpected type seen: " + next);
-      }
-    } catch (Exception t) {
-      if (null == createRetry) {
-        createRetry = createRetryFactory.createRetry();
-      }
+          createTime = System.currentTimeMillis();
+          return;
+        } else {
+          throw new RuntimeException("Error: unexpected type seen: " + next);
+        }
+      } catch (Exception t) {
+        if (null == createRetry) {
+          createRetry = createRetryFactory.createRetry();
+        }
 
-      // We have more retries or we exceeded the maximum number of accepted failures
-      if (createRetry.canRetry()) {
-        // Use the createRetry and record the time in which we did so
-        createRetry.useRetry();
+        // We have more retries or we exceeded the maximum number of accepted failures
+        if (createRetry.canRetry()) {
+          // Use the createRetry and record the time in which we did so
+          createRetry.useRetry();
 
-        try {
-          // Backoff
-          createRetry.waitForNextAttempt();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
+          try {
+            // Backoff
+            createRetry.waitForNextAttempt();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } else {
+          log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
+          // We didn't have retries or we failed too many times.
+          Halt.halt("Experienced too many errors creating WALs, giving up", 1);
         }
-      } else {
-        log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
-        // We didn't have retries or we failed too many times.
-        Halt.halt("Experienced too many errors creating WALs, giving up", 1);
+
+        // The exception will trigger the log creation to be re-attempted.
+        throw new RuntimeException(t);
       }
+    }
 
-      // The exception will trigger the log creation to be re-attempted.
-      throw new RuntimeException(t);
+    private synchronized void startLogMaker() {
+      if (nextLogMaker != null) {
+        return;
+      }
+      nextLogMaker = new SimpleThreadPool(1, "WALog creator" + name);
+      nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
+        @Override
+        public void run() {
+          final VolumeManager fs = tserver.getServerConfig().getFileSystem();
+          while (!nextLogMaker.isShutdown()) {
+            DfsLogger alog = null;
+            try {
+              log.debug("Creating next WAL");
+              alog = newLogger();
+              alog.open(tserver.getClientAddressString());
+              String fileName = alog.getFileName();
+              log.debug("Created next WAL " + fileName);
+              tserver.addNewLogMarker(alog);
+              while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
+                log.info("Our WAL was not used for 12 hours: {}", fileName);
+              }
+            } catch (Exception t) {
+              log.error("Failed to open WAL", t);
+              if (null != alog) {
+                // It's possible that the sync of the header and OPEN record to the WAL failed
+                // We want to make sure that clean up the resources/thread inside the DfsLogger
+                // object before trying to create a new one.
+                try {
+                  alog.close();
+                } catch (Exception e) {
+                  log.error("Failed to close WAL after it failed to open", e);
+                }
+                // Try to avoid leaving a bunch of empty WALs lying around
+                try {
+                  Path path = alog.getPath();
+                  if (fs.exists(path)) {
+                    fs.delete(path);
+                  }
+                } catch (Exception e) {
+                  log.warn("Failed to delete a WAL that failed to open", e);
+                }
+              }
+              try {
+                nextLog.offer(t, 12, TimeUnit.HOURS);
+              } catch (InterruptedException ex) {
+                // ignore
+              }
+            }
+          }
+        }
+      }));
     }
-  }
 
-  private synchronized void startLogMaker() {
-    if (nextLogMaker != null) {
-      return;
+    void resetLoggers() throws IOException {
+      logIdLock.writeLock().lock();
+      try {
+        close();
+      } finally {
+        logIdLock.writeLock().unlock();
+      }
     }
-    nextLogMaker = new SimpleThreadPool(1, "WALog creator");
-    nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
-      @Override
-      public void run() {
-        final ServerResources conf = tserver.getServerConfig();
-        final VolumeManager fs = conf.getFileSystem();
-        while (!nextLogMaker.isShutdown()) {
-          DfsLogger alog = null;
+
+    private synchronized void close() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("close should be called with write lock held!");
+      }
+      try {
+        if (null != currentLog) {
           try {
-            log.debug("Creating next WAL");
-            alog = new DfsLogger(tserver.getContext(), conf, syncCounter, flushCounter);
-            alog.open(tserver.getClientAddressString());
-            String fileName = alog.getFileName();
-            log.debug("Created next WAL " + fileName);
-            tserver.addNewLogMarker(alog);
-            while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
-              log.info("Our WAL was not used for 12 hours: {}", fileName);
-            }
-          } catch (Exception t) {
-            log.error("Failed to open WAL", t);
-            if (null != alog) {
-              // It's possible that the sync of the header and OPEN record to the WAL failed
-              // We want to make sure that clean up the resources/thread inside the DfsLogger
-              // object before trying to create a new one.
-              try {
-                alog.close();
-              } catch (Exception e) {
-                log.error("Failed to close WAL after it failed to open", e);
-              }
-              // Try to avoid leaving a bunch of empty WALs lying around
-              try {
-                Path path = alog.getPath();
-                if (fs.exists(path)) {
-                  fs.delete(path);
+            currentLog.close();
+          } catch (DfsLogger.LogClosedException ex) {
+            // ignore
+          } catch (Throwable ex) {
+            log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
+          } finally {
+            tserver.walogClosed(currentLog);
+          }
+          currentLog = null;
+          logSizeEstimate.set(0);
+        }
+      } catch (Throwable t) {
+        throw new IOException(t);
+      }
+    }
+
+    void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer,
+        Retry writeRetry) throws IOException {
+      // Work very hard not to lock this during calls to the outside world
+      int currentLogId = logId.get();
+
+      boolean success = false;
+      while (!success) {
+        try {
+          // get a reference to the loggers that no other thread can touch
+          DfsLogger copy = null;
+          AtomicInteger currentId = new AtomicInteger(-1);
+          copy = initializeLoggers(currentId);
+          currentLogId = currentId.get();
+
+          // add the logger to the log set for the memory in the tablet,
+          // update the metadata table if we've never used this tablet
+
+          if (currentLogId == logId.get()) {
+            for (CommitSession commitSession : sessions) {
+              if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
+                try {
+                  // Scribble out a tablet definition and then write to the metadata table
+                  defineTablet(commitSession, writeRetry);
+                } finally {
+                  commitSession.finishUpdatingLogsUsed();
+                }
+
+                // Need to release
+                KeyExtent extent = commitSession.getExtent();
+                if (ReplicationConfigurationUtil.isEnabled(extent,
+                    tserver.getTableConfiguration(extent))) {
+                  Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
+                  log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for "
+                      + copy.getFileName());
+                  // Got some new WALs, note this in the metadata table
+                  ReplicationTableUtil.updateFiles(tserver.getContext(), commitSession.getExtent(),
+                      copy.getFileName(), status);
                 }
-              } catch (Exception e) {
-                log.warn("Failed to delete a WAL that failed to open", e);
               }
             }
-            try {
-              nextLog.offer(t, 12, TimeUnit.HOURS);
-            } catch (InterruptedException ex) {
-              // ignore
-            }
           }
+
+          // Make sure that the logs haven't changed out from underneath our copy
+          if (currentLogId == logId.get()) {
+
+            // write the mutation to the logs
+            LoggerOperation lop = writer.write(copy);
+            lop.await();
+
+            // double-check: did the log set change?
+            success = (currentLogId == logId.get());
+          }
+        } catch (DfsLogger.LogClosedException | ClosedChannelException ex) {
+          writeRetry.logRetry(log, "Logs closed while writing", ex);
+        } catch (Exception t) {
+          writeRetry.logRetry(log, "Failed to write to WAL", t);
+
+          try {
+            // Backoff
+            writeRetry.waitForNextAttempt();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } finally {
+          writeRetry.useRetry();
+        }
+        // Some sort of write failure occurred. Grab the write lock and reset the logs.
+        // But since multiple threads will attempt it, only attempt the reset when
+        // the logs haven't changed.
+        final int finalCurrent = currentLogId;
+        if (!success) {
+          testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+
+            @Override
+            boolean test() {
+              return finalCurrent == logId.get();
+            }
+
+            @Override
+            void withWriteLock() throws IOException {
+              close();
+              closeForReplication(sessions);
+            }
+          });
         }
       }
-    }));
+      // if the log gets too big or too old, reset it .. grab the write lock first
+      logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          return (logSizeEstimate.get() > maxSize)
+              || ((System.currentTimeMillis() - createTime) > maxAge);
+        }
+
+        @Override
+        void withWriteLock() throws IOException {
+          close();
+          closeForReplication(sessions);
+        }
+      });
+    }
   }
 
-  public void resetLoggers() throws IOException {
-    logIdLock.writeLock().lock();
-    try {
-      close();
-    } finally {
-      logIdLock.writeLock().unlock();
+  public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter,
+      AtomicLong flushCounter, RetryFactory createRetryFactory, RetryFactory writeRetryFactory,
+      long maxAge, int numLogs) {
+    this.tserver = tserver;
+    this.maxSize = maxSize;
+    this.syncCounter = syncCounter;
+    this.flushCounter = flushCounter;
+    this.createRetryFactory = createRetryFactory;
+    this.writeRetryFactory = writeRetryFactory;
+    this.maxAge = maxAge;
+
+    this.stripes = new LogStripe[Math.max(1, numLogs)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new LogStripe(stripes.length == 1 ? "" : " " + i);
     }
+    this.stripeWriters = stripes.length == 1 ? null
+        : new SimpleThreadPool(stripes.length, "WALog stripe writer");
   }
 
-  private synchronized void close() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("close should be called with write lock held!");
+  /**
+   * Creates a log that has not been opened yet.
+   */
+  protected DfsLogger newLogger() throws IOException {
+    return new DfsLogger(tserver.getContext(), tserver.getServerConfig(), syncCounter,
+        flushCounter, tserver.getUpdateMetrics());
+  }
+
+  /**
+   * Stops the threads used to write to several stripes at once.
+   */
+  public void close() {
+    if (stripeWriters != null) {
+      stripeWriters.shutdownNow();
     }
-    try {
-      if (null != currentLog) {
-        try {
-          currentLog.close();
-        } catch (DfsLogger.LogClosedException ex) {
-          // ignore
-        } catch (Throwable ex) {
-          log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
-        } finally {
-          this.tserver.walogClosed(currentLog);
-        }
-        currentLog = null;
-        logSizeEstimate.set(0);
+  }
+
+  /**
+   * Get the current WAL files
+   *
+   * @return The names of the current logs, empty if there are no current logs.
+   */
+  public List<String> getLogFiles() {
+    List<String> files = new ArrayList<>(stripes.length);
+    for (LogStripe stripe : stripes) {
+      String file = stripe.getLogFile();
+      if (file != null) {
+        files.add(file);
       }
-    } catch (Throwable t) {
-      throw new IOException(t);
+    }
+    return files;
+  }
+
+  public void resetLoggers() throws IOException {
+    for (LogStripe stripe : stripes) {
+      stripe.resetLoggers();
     }
   }
 
+  private LogStripe stripeFor(CommitSession commitSession) {
+    return stripes[stripeIndex(commitSession.getExtent(), stripes.length)];
+  }
+
+  static int stripeIndex(KeyExtent extent, int numStripes) {
+    if (numStripes == 1) {
+      return 0;
+    }
+    return Math.floorMod(extent.hashCode(), numStripes);
+  }
+
   interface Writer {
     LoggerOperation write(DfsLogger logger) throws Exception;
   }
@@ -364,116 +548,7 @@ public class TabletServerLogger {
   private void write(CommitSession commitSession, boolean mincFinish, Writer writer,
       Retry writeRetry) throws IOException {
     List<CommitSession> sessions = Collections.singletonList(commitSession);
-    write(sessions, mincFinish, writer, writeRetry);
-  }
-
-  private void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer)
-      throws IOException {
-    write(sessions, mincFinish, writer, writeRetryFactory.createRetry());
-  }
-
-  private void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer,
-      Retry writeRetry) throws IOException {
-    // Work very hard not to lock this during calls to the outside world
-    int currentLogId = logId.get();
-
-    boolean success = false;
-    while (!success) {
-      try {
-        // get a reference to the loggers that no other thread can touch
-        DfsLogger copy = null;
-        AtomicInteger currentId = new AtomicInteger(-1);
-        copy = initializeLoggers(currentId);
-        currentLogId = currentId.get();
-
-        // add the logger to the log set for the memory in the tablet,
-        // update the metadata table if we've never used this tablet
-
-        if (currentLogId == logId.get()) {
-          for (CommitSession commitSession : sessions) {
-            if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
-              try {
-                // Scribble out a tablet definition and then write to the metadata table
-                defineTablet(commitSession, writeRetry);
-              } finally {
-                commitSession.finishUpdatingLogsUsed();
-              }
-
-              // Need to release
-              KeyExtent extent = commitSession.getExtent();
-              if (ReplicationConfigurationUtil.isEnabled(extent,
-                  tserver.getTableConfiguration(extent))) {
-                Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
-                log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for "
-                    + copy.getFileName());
-                // Got some new WALs, note this in the metadata table
-                ReplicationTableUtil.updateFiles(tserver.getContext(), commitSession.getExtent(),
-                    copy.getFileName(), status);
-              }
-            }
-          }
-        }
-
-        // Make sure that the logs haven't changed out from underneath our copy
-        if (currentLogId == logId.get()) {
-
-          // write the mutation to the logs
-          LoggerOperation lop = writer.write(copy);
-          lop.await();
-
-          // double-check: did the log set change?
-          success = (currentLogId == logId.get());
-        }
-      } catch (DfsLogger.LogClosedException | ClosedChannelException ex) {
-        writeRetry.logRetry(log, "Logs closed while writing", ex);
-      } catch (Exception t) {
-        writeRetry.logRetry(log, "Failed to write to WAL", t);
-
-        try {
-          // Backoff
-          writeRetry.waitForNextAttempt();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
-        }
-      } finally {
-        writeRetry.useRetry();
-      }
-      // Some sort of write failure occurred. Grab the write lock and reset the logs.
-      // But since multiple threads will attempt it, only attempt the reset when
-      // the logs haven't changed.
-      final int finalCurrent = currentLogId;
-      if (!success) {
-        testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-
-          @Override
-          boolean test() {
-            return finalCurrent == logId.get();
-          }
-
-          @Override
-          void withWriteLock() throws IOException {
-            close();
-            closeForReplication(sessions);
-          }
-        });
-      }
-    }
-    // if the log gets too big or too old, reset it .. grab the write lock first
-    logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        return (logSizeEstimate.get() > maxSize)
-            || ((System.currentTimeMillis() - createTime) > maxAge);
-      }
-
-      @Override
-      void withWriteLock() throws IOException {
-        close();
-        closeForReplication(sessions);
-      }
-    });
+    stripeFor(commitSession).write(sessions, mincFinish, writer, writeRetry);
   }
 
   protected void closeForReplication(Collection<CommitSession> sessions) {
@@ -507,21 +582,66 @@ public class TabletServerLogger {
         return logger.log(tabletSeq, commitSession.getLogId(), m, durability);
       }
     });
-    logSizeEstimate.addAndGet(m.numBytes());
+    stripeFor(commitSession).logSizeEstimate.addAndGet(m.numBytes());
   }
 
   public void logManyTablets(Map<CommitSession,Mutations> mutations) throws IOException {
 
-    final Map<CommitSession,Mutations> loggables = new HashMap<>(mutations);
+    final Map<LogStripe,Map<CommitSession,Mutations>> loggables = new HashMap<>();
     for (Entry<CommitSession,Mutations> entry : mutations.entrySet()) {
-      if (entry.getValue().getDurability() == Durability.NONE) {
-        loggables.remove(entry.getKey());
+      if (entry.getValue().getDurability() != Durability.NONE) {
+        loggables.computeIfAbsent(stripeFor(entry.getKey()), k -> new HashMap<>())
+            .put(entry.getKey(), entry.getValue());
       }
     }
     if (loggables.size() == 0)
       return;
 
-    write(loggables.keySet(), false, new Writer() {
+    // Write to the other stripes in the background, so that the time taken is that of the slowest
+    // stripe instead of the sum of all of them.
+    List<Future<?>> futures = new ArrayList<>(loggables.size() - 1);
+    Entry<LogStripe,Map<CommitSession,Mutations>> first = null;
+    for (Entry<LogStripe,Map<CommitSession,Mutations>> entry : loggables.entrySet()) {
+      if (first == null) {
+        first = entry;
+      } else {
+        futures.add(stripeWriters.submit(() -> {
+          logManyTablets(entry.getKey(), entry.getValue());
+          return null;
+        }));
+      }
+    }
+    // A stripe that fails does not stop the others, wait for all of them before reporting it
+    Throwable failure = null;
+    try {
+      logManyTablets(first.getKey(), first.getValue());
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        if (failure == null)
+          failure = e.getCause();
+      }
+    }
+
+    if (failure instanceof IOException)
+      throw (IOException) failure;
+    else if (failure instanceof RuntimeException)
+      throw (RuntimeException) failure;
+    else if (failure != null)
+      throw new IOException(failure);
+  }
+
+  private void logManyTablets(LogStripe stripe, final Map<CommitSession,Mutations> loggables)
+      throws IOException {
+    stripe.write(loggables.keySet(), false, new Writer() {
       @Override
       public LoggerOperation write(DfsLogger logger) throws Exception {
         List<TabletMutations> copy = new ArrayList<>(loggables.size());
@@ -533,13 +653,13 @@ public class TabletServerLogger {
         }
         return logger.logManyTablets(copy);
       }
-    });
+    }, writeRetryFactory.createRetry());
     for (Mutations entry : loggables.values()) {
       if (entry.getMutations().size() < 1) {
         throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
       }
       for (Mutation m : entry.getMutations()) {
-        logSizeEstimate.addAndGet(m.numBytes());
+        stripe.logSizeEstimate.addAndGet(m.numBytes());
       }
     }
   }
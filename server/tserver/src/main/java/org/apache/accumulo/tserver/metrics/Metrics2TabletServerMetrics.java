@@ -41,7 +41,8 @@ public class Metrics2TabletServerMetrics
   private final MetricsRegistry registry;
 
   private final MutableGaugeLong entries, entriesInMemory, activeMajcs, queuedMajcs, activeMincs,
-      queuedMincs, onlineTablets, openingTablets, unopenedTablets, queries, totalMincs;
+      queuedMincs, onlineTablets, openingTablets, unopenedTablets, queries, totalMincs,
+      visibilityCacheHits, visibilityCacheMisses;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerMetrics(TabletServer tserver, MetricsSystem system) {
@@ -69,6 +70,10 @@ public class Metrics2TabletServerMetrics
     queries = registry.newGauge(Interns.info(QUERIES, "Number of queries"), 0L);
     totalMincs = registry
         .newGauge(Interns.info(TOTAL_MINCS, "Total number of minor compactions performed"), 0L);
+    visibilityCacheHits = registry.newGauge(
+        Interns.info(VISIBILITY_CACHE_HITS, "Visibility evaluations found in the cache"), 0L);
+    visibilityCacheMisses = registry.newGauge(
+        Interns.info(VISIBILITY_CACHE_MISSES, "Visibility evaluations not found in the cache"), 0L);
   }
 
   @Override
@@ -99,6 +104,8 @@ public class Metrics2TabletServerMetrics
     unopenedTablets.set(util.getUnopenedCount());
     queries.set(util.getQueries());
     totalMincs.set(util.getTotalMinorCompactions());
+    visibilityCacheHits.set(util.getVisibilityCacheHits());
+    visibilityCacheMisses.set(util.getVisibilityCacheMisses());
   }
 
   @Override
@@ -123,5 +130,8 @@ public class Metrics2TabletServerMetrics
     builder.addGauge(Interns.info(QUERY_BYTE_RATE, "Query rate (bytes/sec)"),
         util.getQueryByteRate());
     builder.addGauge(Interns.info(SCANNED_RATE, "Scanned rate"), util.getScannedRate());
+    builder.addGauge(
+        Interns.info(VISIBILITY_CACHE_HIT_RATIO, "Ratio of visibility evaluations found in cache"),
+        util.getVisibilityCacheHitRatio());
   }
 }
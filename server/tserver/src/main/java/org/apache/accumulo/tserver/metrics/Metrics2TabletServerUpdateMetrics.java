@@ -42,7 +42,7 @@ public class Metrics2TabletServerUpdateMetrics
   private final MutableCounterLong permissionErrorsCounter, unknownTabletErrorsCounter,
       constraintViolationsCounter;
   private final MutableStat commitPrepStat, walogWriteTimeStat, commitTimeStat,
-      mutationArraySizeStat;
+      mutationArraySizeStat, walogSyncGroupSizeStat, walogSyncQueueTimeStat, walogSyncTimeStat;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerUpdateMetrics(MetricsSystem system) {
@@ -64,6 +64,11 @@ public class Metrics2TabletServerUpdateMetrics
     commitTimeStat = registry.newStat(COMMIT_TIME, "committing mutations", "Ops", "Time", true);
     mutationArraySizeStat = registry.newStat(MUTATION_ARRAY_SIZE, "mutation array", "ops", "Size",
         true);
+    walogSyncGroupSizeStat = registry.newStat(WALOG_SYNC_GROUP_SIZE,
+        "WAL writes covered by a single sync", "Ops", "Size", true);
+    walogSyncQueueTimeStat = registry.newStat(WALOG_SYNC_QUEUE_TIME,
+        "waiting for a WAL sync to start", "Ops", "Time", true);
+    walogSyncTimeStat = registry.newStat(WALOG_SYNC_TIME, "syncing the WAL", "Ops", "Time", true);
   }
 
   @Override
@@ -82,6 +87,12 @@ public class Metrics2TabletServerUpdateMetrics
       walogWriteTimeStat.add(value);
     } else if (COMMIT_TIME.equals(name)) {
       commitTimeStat.add(value);
+    } else if (WALOG_SYNC_GROUP_SIZE.equals(name)) {
+      walogSyncGroupSizeStat.add(value);
+    } else if (WALOG_SYNC_QUEUE_TIME.equals(name)) {
+      walogSyncQueueTimeStat.add(value);
+    } else if (WALOG_SYNC_TIME.equals(name)) {
+      walogSyncTimeStat.add(value);
     } else {
       throw new RuntimeException("Cannot process metric with name " + name);
     }
@@ -47,4 +47,6 @@ public interface TabletServerMBean {
   String getName();
 
   double getAverageFilesPerTablet();
+
+  double getVisibilityCacheHitRatio();
 }
@@ -164,6 +164,14 @@ public class TabletServerMBeanImpl extends AbstractMetricsImpl implements Tablet
     return 0;
   }
 
+  @Override
+  public double getVisibilityCacheHitRatio() {
+    if (isEnabled()) {
+      return util.getVisibilityCacheHitRatio();
+    }
+    return 0;
+  }
+
   @Override
   protected ObjectName getObjectName() {
     return OBJECT_NAME;
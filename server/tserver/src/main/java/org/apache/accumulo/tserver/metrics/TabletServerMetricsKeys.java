@@ -39,4 +39,7 @@ public interface TabletServerMetricsKeys {
   String QUERY_RATE = "queryRate";
   String QUERY_BYTE_RATE = "queryByteRate";
   String SCANNED_RATE = "scannedRate";
+  String VISIBILITY_CACHE_HITS = "visibilityCacheHits";
+  String VISIBILITY_CACHE_MISSES = "visibilityCacheMisses";
+  String VISIBILITY_CACHE_HIT_RATIO = "visibilityCacheHitRatio";
 }
@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.tserver.metrics;
 
+import org.apache.accumulo.core.iterators.system.VisibilityEvaluationCache;
 import org.apache.accumulo.tserver.TabletServer;
 import org.apache.accumulo.tserver.tablet.Tablet;
 
@@ -167,4 +168,16 @@ public class TabletServerMetricsUtil {
       return 0;
     return result / (double) count;
   }
+
+  public long getVisibilityCacheHits() {
+    return VisibilityEvaluationCache.getInstance().getHitCount();
+  }
+
+  public long getVisibilityCacheMisses() {
+    return VisibilityEvaluationCache.getInstance().getMissCount();
+  }
+
+  public double getVisibilityCacheHitRatio() {
+    return VisibilityEvaluationCache.getInstance().getHitRatio();
+  }
 }
@@ -141,6 +141,46 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl
     return this.getMetricAvg(COMMIT_TIME);
   }
 
+  @Override
+  public long getWALogSyncGroupAvgSize() {
+    return this.getMetricAvg(WALOG_SYNC_GROUP_SIZE);
+  }
+
+  @Override
+  public long getWALogSyncGroupMaxSize() {
+    return this.getMetricMax(WALOG_SYNC_GROUP_SIZE);
+  }
+
+  @Override
+  public long getWALogSyncQueueAvgTime() {
+    return this.getMetricAvg(WALOG_SYNC_QUEUE_TIME);
+  }
+
+  @Override
+  public long getWALogSyncQueueMaxTime() {
+    return this.getMetricMax(WALOG_SYNC_QUEUE_TIME);
+  }
+
+  @Override
+  public long getWALogSyncCount() {
+    return this.getMetricCount(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncMinTime() {
+    return this.getMetricMin(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncMaxTime() {
+    return this.getMetricMax(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncAvgTime() {
+    return this.getMetricAvg(WALOG_SYNC_TIME);
+  }
+
   @Override
   public void reset() {
     createMetric(PERMISSION_ERRORS);
@@ -150,6 +190,9 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl
     createMetric(CONSTRAINT_VIOLATIONS);
     createMetric(WALOG_WRITE_TIME);
     createMetric(COMMIT_TIME);
+    createMetric(WALOG_SYNC_GROUP_SIZE);
+    createMetric(WALOG_SYNC_QUEUE_TIME);
+    createMetric(WALOG_SYNC_TIME);
   }
 
 }
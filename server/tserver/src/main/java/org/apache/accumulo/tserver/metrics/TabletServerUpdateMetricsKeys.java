@@ -28,5 +28,8 @@ public interface TabletServerUpdateMetricsKeys {
   String CONSTRAINT_VIOLATIONS = "constraintViolations";
   String WALOG_WRITE_TIME = "waLogWriteTime";
   String COMMIT_TIME = "commitTime";
+  String WALOG_SYNC_GROUP_SIZE = "waLogSyncGroupSize";
+  String WALOG_SYNC_QUEUE_TIME = "waLogSyncQueueTime";
+  String WALOG_SYNC_TIME = "waLogSyncTime";
 
 }
@@ -54,5 +54,21 @@ public interface TabletServerUpdateMetricsMBean extends TabletServerUpdateMetric
 
   long getCommitAvgTime();
 
+  long getWALogSyncGroupAvgSize();
+
+  long getWALogSyncGroupMaxSize();
+
+  long getWALogSyncQueueAvgTime();
+
+  long getWALogSyncQueueMaxTime();
+
+  long getWALogSyncCount();
+
+  long getWALogSyncMinTime();
+
+  long getWALogSyncMaxTime();
+
+  long getWALogSyncAvgTime();
+
   void reset();
 }
@@ -17,6 +17,7 @@
 package org.apache.accumulo.tserver.scan;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
@@ -34,8 +35,13 @@ public class NextBatchTask extends ScanTask<ScanBatch> {
 
   private static final Logger log = LoggerFactory.getLogger(NextBatchTask.class);
 
+  private static final long RELEASED = -1;
+
   private final long scanID;
 
+  // memory of the batch this task read, until the batch is returned to the client
+  private final AtomicLong heldMemory = new AtomicLong(0);
+
   public NextBatchTask(TabletServer server, long scanID, AtomicBoolean interruptFlag) {
     super(server);
     this.scanID = scanID;
@@ -71,6 +77,17 @@ public class NextBatchTask extends ScanTask<ScanBatch> {
 
       ScanBatch batch = scanSession.scanner.read();
 
+      long numBytes = batch.numBytes();
+      if (heldMemory.compareAndSet(0, numBytes)) {
+        server.getScanReadAheadMemory().addAndGet(numBytes);
+      }
+
+      if (batch.isMore()) {
+        // queue the following batch before this result is visible, so the session never has two
+        // tasks reading from its scanner at once
+        server.readAhead(scanID, scanSession);
+      }
+
       // there should only be one thing on the queue at a time, so
       // it should be ok to call add()
       // instead of put()... if add() fails because queue is at
@@ -101,4 +118,15 @@ public class NextBatchTask extends ScanTask<ScanBatch> {
     }
 
   }
+
+  /**
+   * Stop counting the batch read by this task against the tablet server's read ahead memory. Safe
+   * to call more than once and before the task has run.
+   */
+  public void releaseMemory() {
+    long numBytes = heldMemory.getAndSet(RELEASED);
+    if (numBytes > 0) {
+      server.getScanReadAheadMemory().addAndGet(-numBytes);
+    }
+  }
 }
@@ -133,6 +133,29 @@ public abstract class ScanTask<T> implements RunnableFuture<T> {
     return rAsT;
   }
 
+  /**
+   * Returns the result without waiting if it is available and is not an exception, in which case
+   * the result can not be retrieved again. Otherwise returns null and the result is left for
+   * {@link #get(long, TimeUnit)}.
+   */
+  public T poll() {
+    ArrayBlockingQueue<Object> localRQ = resultQueue;
+
+    if (localRQ == null || isCancelled())
+      return null;
+
+    Object r = localRQ.peek();
+    if (r == null || r instanceof Throwable)
+      return null;
+
+    resultQueue = null;
+    localRQ.poll();
+
+    @SuppressWarnings("unchecked")
+    T rAsT = (T) r;
+    return rAsT;
+  }
+
   @Override
   public boolean isCancelled() {
     return state.get() == CANCELED;
@@ -16,9 +16,11 @@
  */
 package org.apache.accumulo.tserver.session;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.data.Column;
@@ -26,7 +28,8 @@ import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.thrift.TCredentials;
-import org.apache.accumulo.tserver.scan.ScanTask;
+import org.apache.accumulo.tserver.scan.NextBatchTask;
+import org.apache.accumulo.tserver.tablet.KVEntry;
 import org.apache.accumulo.tserver.tablet.ScanBatch;
 import org.apache.accumulo.tserver.tablet.Scanner;
 
@@ -35,7 +38,11 @@ public class SingleScanSession extends ScanSession {
   public final AtomicBoolean interruptFlag = new AtomicBoolean();
   public long entriesReturned = 0;
   public long batchCount = 0;
-  public volatile ScanTask<ScanBatch> nextBatchTask;
+  public volatile NextBatchTask nextBatchTask;
+  // batches being read ahead after nextBatchTask, in the order they will be returned
+  public final ConcurrentLinkedQueue<NextBatchTask> readAheadTasks = new ConcurrentLinkedQueue<>();
+  // set when the last batch read ahead did not start reading the one after it
+  public final AtomicBoolean readAheadStalled = new AtomicBoolean(false);
   public Scanner scanner;
   public final long readaheadThreshold;
   public final long batchTimeOut;
@@ -52,6 +59,54 @@ public class SingleScanSession extends ScanSession {
     this.context = context;
   }
 
+  /**
+   * Decides whether to start reading the batch after one that was just read. Marks the read ahead
+   * as stalled when it stops because maxDepth batches are read ahead or the batches read ahead by
+   * all scans use maxMemory, so it can be restarted once the client takes a batch.
+   *
+   * @param readAheadMemory
+   *          memory used by the batches read ahead by all scans
+   */
+  public boolean canReadAhead(int maxDepth, long readAheadMemory, long maxMemory) {
+    if (batchCount < readaheadThreshold || interruptFlag.get())
+      return false;
+
+    // the batch that was just read is not counted in readAheadTasks
+    if (readAheadTasks.size() + 1 >= maxDepth || readAheadMemory >= maxMemory) {
+      readAheadStalled.set(true);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Appends the batches that were already read ahead to a batch, in order, so the client does not
+   * need a round trip for each of them. Stops at the last batch of the scan, at a batch that is
+   * not read yet, or once the results hold maxBytes. The read ahead memory of the appended batches
+   * is released.
+   */
+  public ScanBatch appendReadAhead(ScanBatch batch, long maxBytes) {
+    List<KVEntry> results = batch.getResults();
+    boolean more = batch.isMore();
+    long resultBytes = batch.numBytes();
+    while (more && resultBytes < maxBytes) {
+      NextBatchTask readAheadTask = readAheadTasks.peek();
+      ScanBatch readAheadBatch = readAheadTask == null ? null : readAheadTask.poll();
+      if (readAheadBatch == null)
+        break;
+
+      readAheadTasks.poll();
+      readAheadTask.releaseMemory();
+      if (results == batch.getResults())
+        results = new ArrayList<>(results);
+      results.addAll(readAheadBatch.getResults());
+      more = readAheadBatch.isMore();
+      resultBytes += readAheadBatch.numBytes();
+      batchCount++;
+    }
+    return results == batch.getResults() ? batch : new ScanBatch(results, more);
+  }
+
   @Override
   public Type getScanType() {
     return Type.SINGLE;
@@ -66,8 +121,14 @@ public class SingleScanSession extends ScanSession {
   public boolean cleanup() {
     final boolean ret;
     try {
-      if (nextBatchTask != null)
+      if (nextBatchTask != null) {
         nextBatchTask.cancel(true);
+        nextBatchTask.releaseMemory();
+      }
+      for (NextBatchTask task : readAheadTasks) {
+        task.cancel(true);
+        task.releaseMemory();
+      }
     } finally {
       if (scanner != null)
         ret = scanner.close();
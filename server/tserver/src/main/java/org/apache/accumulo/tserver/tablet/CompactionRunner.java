@@ -16,11 +16,14 @@
  */
 package org.apache.accumulo.tserver.tablet;
 
-import java.util.Objects;
-
+import org.apache.accumulo.core.spi.compaction.CompactionInfo;
 import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
 
-final class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
+/**
+ * A queued major compaction. The information used to dispatch and prioritize it is read from the
+ * tablet when asked for, so the priority of a compaction follows the tablet while it waits.
+ */
+final class CompactionRunner implements Runnable, CompactionInfo {
 
   private final Tablet tablet;
   private final MajorCompactionReason reason;
@@ -44,40 +47,34 @@ final class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
     }
   }
 
-  // We used to synchronize on the Tablet before fetching this information,
-  // but this method is called by the compaction queue thread to re-order the compactions.
-  // The compaction queue holds a lock during this sort.
-  // A tablet lock can be held while putting itself on the queue, so we can't lock the tablet
-  // while pulling information used to sort the tablets in the queue, or we may get deadlocked.
-  // See ACCUMULO-1110.
-  private int getNumFiles() {
-    return tablet.getDatafileManager().getNumFiles();
+  @Override
+  public Reason getReason() {
+    return Reason.valueOf(reason.name());
   }
 
   @Override
-  public int hashCode() {
-    return Objects.hashCode(reason) + Objects.hashCode(queued) + getNumFiles();
+  public String getTableId() {
+    return tablet.getExtent().getTableId().canonicalID();
   }
 
   @Override
-  public boolean equals(Object obj) {
-    return this == obj || (obj != null && obj instanceof CompactionRunner
-        && 0 == compareTo((CompactionRunner) obj));
+  public long getCreationTime() {
+    return queued;
   }
 
+  // We used to synchronize on the Tablet before fetching this information,
+  // but this method is called by the compaction queue thread to re-order the compactions.
+  // The compaction queue holds a lock during this sort.
+  // A tablet lock can be held while putting itself on the queue, so we can't lock the tablet
+  // while pulling information used to sort the tablets in the queue, or we may get deadlocked.
+  // See ACCUMULO-1110.
   @Override
-  public int compareTo(CompactionRunner o) {
-    int cmp = reason.compareTo(o.reason);
-    if (cmp != 0)
-      return cmp;
-
-    if (reason == MajorCompactionReason.USER || reason == MajorCompactionReason.CHOP) {
-      // for these types of compactions want to do the oldest first
-      cmp = (int) (queued - o.queued);
-      if (cmp != 0)
-        return cmp;
-    }
+  public int getNumFiles() {
+    return tablet.getDatafileManager().getNumFiles();
+  }
 
-    return o.getNumFiles() - this.getNumFiles();
+  @Override
+  public long getFilesSize() {
+    return tablet.getDatafileManager().getTotalSize();
   }
 }
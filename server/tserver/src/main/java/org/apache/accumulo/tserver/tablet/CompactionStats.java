@@ -20,8 +20,11 @@ public class CompactionStats {
   private long entriesRead;
   private long entriesWritten;
   private long fileSize;
+  private long time;
+  private long entriesCopied;
+  private long bytesCopied;
 
-  CompactionStats(long er, long ew) {
+  public CompactionStats(long er, long ew) {
     this.setEntriesRead(er);
     this.setEntriesWritten(ew);
   }
@@ -47,6 +50,27 @@ public class CompactionStats {
   public void add(CompactionStats mcs) {
     this.entriesRead += mcs.entriesRead;
     this.entriesWritten += mcs.entriesWritten;
+    this.time += mcs.time;
+    this.entriesCopied += mcs.entriesCopied;
+    this.bytesCopied += mcs.bytesCopied;
+  }
+
+  /**
+   * Records a file that was copied into the output file after it was compacted, such as a locality
+   * group that was compacted in parallel. The copied entries are already counted as written, so
+   * they are kept apart from the entries written.
+   */
+  public void addCopied(long entries, long bytes) {
+    this.entriesCopied += entries;
+    this.bytesCopied += bytes;
+  }
+
+  public long getEntriesCopied() {
+    return entriesCopied;
+  }
+
+  public long getBytesCopied() {
+    return bytesCopied;
   }
 
   public void setFileSize(long fileSize) {
@@ -56,4 +80,24 @@ public class CompactionStats {
   public long getFileSize() {
     return this.fileSize;
   }
+
+  /**
+   * @param time
+   *          the milliseconds the compaction took
+   */
+  public void setTime(long time) {
+    this.time = time;
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  public double getEntriesReadPerSecond() {
+    return time == 0 ? 0 : entriesRead / (time / 1000.0);
+  }
+
+  public double getBytesWrittenPerSecond() {
+    return time == 0 ? 0 : fileSize / (time / 1000.0);
+  }
 }
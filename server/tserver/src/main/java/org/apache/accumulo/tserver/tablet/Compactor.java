@@ -29,12 +29,19 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
@@ -52,6 +59,7 @@ import org.apache.accumulo.core.trace.Span;
 import org.apache.accumulo.core.trace.Trace;
 import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.accumulo.core.util.LocalityGroupUtil.LocalityGroupConfigurationError;
+import org.apache.accumulo.core.util.SimpleThreadPool;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
 import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.fs.FileRef;
@@ -96,6 +104,8 @@ public class Compactor implements Callable<CompactionStats> {
   private final CompactionEnv env;
   private final VolumeManager fs;
   protected final KeyExtent extent;
+  // the part of the tablet that is compacted
+  private final Range range;
   private final List<IteratorSetting> iterators;
 
   // things to report
@@ -113,6 +123,9 @@ public class Compactor implements Callable<CompactionStats> {
   protected volatile Thread thread;
   private final ServerContext context;
 
+  // set to stop the locality groups compacted in parallel when one of them fails
+  private volatile boolean partsAborted = false;
+
   public long getCompactorID() {
     return compactorID;
   }
@@ -148,9 +161,33 @@ public class Compactor implements Callable<CompactionStats> {
   public Compactor(ServerContext context, Tablet tablet, Map<FileRef,DataFileValue> files,
       InMemoryMap imm, FileRef outputFile, boolean propogateDeletes, CompactionEnv env,
       List<IteratorSetting> iterators, int reason, AccumuloConfiguration tableConfiguation) {
+    this(context, tablet, files, imm, outputFile, propogateDeletes, env, iterators, reason,
+        tableConfiguation, tablet.getExtent().toDataRange());
+  }
+
+  /**
+   * Creates a compactor that only writes the keys of the tablet that fall in {@code range}.
+   */
+  public Compactor(ServerContext context, Tablet tablet, Map<FileRef,DataFileValue> files,
+      InMemoryMap imm, FileRef outputFile, boolean propogateDeletes, CompactionEnv env,
+      List<IteratorSetting> iterators, int reason, AccumuloConfiguration tableConfiguation,
+      Range range) {
+    this(context, tablet.getExtent(), tablet.getTabletServer().getFileSystem(), files, imm,
+        outputFile, propogateDeletes, env, iterators, reason, tableConfiguation, range);
+  }
+
+  /**
+   * Creates a compactor for a tablet that is not hosted by this process, used by processes that
+   * compact on behalf of a tablet server.
+   */
+  public Compactor(ServerContext context, KeyExtent extent, VolumeManager fs,
+      Map<FileRef,DataFileValue> files, InMemoryMap imm, FileRef outputFile,
+      boolean propogateDeletes, CompactionEnv env, List<IteratorSetting> iterators, int reason,
+      AccumuloConfiguration tableConfiguation, Range range) {
     this.context = context;
-    this.extent = tablet.getExtent();
-    this.fs = tablet.getTabletServer().getFileSystem();
+    this.extent = extent;
+    this.range = range;
+    this.fs = fs;
     this.acuTableConf = tableConfiguation;
     this.filesToCompact = files;
     this.imm = imm;
@@ -213,18 +250,26 @@ public class Compactor implements Callable<CompactionStats> {
 
       long t1 = System.currentTimeMillis();
 
-      HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
+      int lgThreads = acuTableConf.getCount(Property.TABLE_MAJC_LOCALITY_GROUP_THREADS);
 
-      if (mfw.supportsLocalityGroups()) {
-        for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
-          setLocalityGroup(entry.getKey());
-          compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats);
-          allColumnFamilies.addAll(entry.getValue());
+      // the in memory map of a minor compaction is always compacted sequentially
+      if (mfw.supportsLocalityGroups() && imm == null && lgThreads > 1 && !lGroups.isEmpty()) {
+        compactLocalityGroupsInParallel(lGroups, lgThreads, mfw, majCStats);
+      } else {
+        HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
+
+        if (mfw.supportsLocalityGroups()) {
+          for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
+            setLocalityGroup(entry.getKey());
+            compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats,
+                outputFilePath);
+            allColumnFamilies.addAll(entry.getValue());
+          }
         }
-      }
 
-      setLocalityGroup("");
-      compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats);
+        setLocalityGroup("");
+        compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats, outputFilePath);
+      }
 
       long t2 = System.currentTimeMillis();
 
@@ -242,14 +287,16 @@ public class Compactor implements Callable<CompactionStats> {
         throw ex;
       }
 
+      majCStats.setFileSize(mfwTmp.getLength());
+      majCStats.setTime(t2 - t1);
+
       log.debug(String.format(
           "Compaction %s %,d read | %,d written | %,6d entries/sec"
-              + " | %,6.3f secs | %,12d bytes | %9.3f byte/sec",
+              + " | %,6.3f secs | %,12d bytes | %9.3f byte/sec | %,12d bytes copied",
           extent, majCStats.getEntriesRead(), majCStats.getEntriesWritten(),
-          (int) (majCStats.getEntriesRead() / ((t2 - t1) / 1000.0)), (t2 - t1) / 1000.0,
-          mfwTmp.getLength(), mfwTmp.getLength() / ((t2 - t1) / 1000.0)));
+          (int) majCStats.getEntriesReadPerSecond(), (t2 - t1) / 1000.0, mfwTmp.getLength(),
+          majCStats.getBytesWrittenPerSecond(), majCStats.getBytesCopied()));
 
-      majCStats.setFileSize(mfwTmp.getLength());
       return majCStats;
     } catch (IOException | RuntimeException e) {
       log.error("{}", e.getMessage(), e);
@@ -331,8 +378,141 @@ public class Compactor implements Callable<CompactionStats> {
     return iters;
   }
 
+  /**
+   * Compacts each locality group into its own file, using up to numThreads threads, and then
+   * copies the files into the output file in the order the locality groups are written. The
+   * compaction iterators of each group only see the column families of the group, as they do when
+   * the groups are compacted one after the other.
+   *
+   * <p>
+   * A file can only be written one locality group at a time, so the groups are written twice and
+   * the copy reads them back once. The copy goes through the same read and write rate limiters as
+   * the compaction and is recorded in the copied entries and bytes of the compaction stats.
+   */
+  private void compactLocalityGroupsInParallel(Map<String,Set<ByteSequence>> lGroups,
+      int numThreads, FileSKVWriter mfw, CompactionStats majCStats)
+      throws IOException, CompactionCanceledException {
+
+    List<String> names = new ArrayList<>(lGroups.keySet());
+    HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
+    for (Set<ByteSequence> families : lGroups.values()) {
+      allColumnFamilies.addAll(families);
+    }
+
+    setLocalityGroup(String.join(",", names));
+
+    Path outputPath = outputFile.path();
+    List<Path> parts = new ArrayList<>();
+    ExecutorService pool = new SimpleThreadPool(numThreads,
+        "MajC locality groups " + extent.getTableId());
+    try {
+      CompletionService<CompactionStats> completionService = new ExecutorCompletionService<>(
+          pool);
+      // the default locality group, which has a null name, is compacted last
+      for (int i = 0; i <= names.size(); i++) {
+        String name = i < names.size() ? names.get(i) : null;
+        Set<ByteSequence> families = name == null ? allColumnFamilies : lGroups.get(name);
+        Path part = new Path(outputPath.getParent(), "lg" + i + "_" + outputPath.getName());
+        parts.add(part);
+        completionService.submit(() -> compactPart(name, families, part));
+      }
+
+      // take the groups as they finish, so the first failure stops the others
+      for (int i = 0; i < parts.size(); i++) {
+        try {
+          majCStats.add(completionService.take().get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof CompactionCanceledException)
+            throw (CompactionCanceledException) cause;
+          if (cause instanceof IOException)
+            throw (IOException) cause;
+          if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          throw new IOException(cause);
+        }
+      }
+
+      for (int i = 0; i < parts.size(); i++) {
+        if (!env.isCompactionEnabled())
+          throw new CompactionCanceledException();
+
+        if (i < names.size()) {
+          setLocalityGroup(names.get(i));
+          mfw.startNewLocalityGroup(names.get(i), lGroups.get(names.get(i)));
+        } else {
+          setLocalityGroup("");
+          mfw.startDefaultLocalityGroup();
+        }
+        copyPart(parts.get(i), mfw, majCStats);
+      }
+    } finally {
+      // stop the groups that are still running if another group failed
+      partsAborted = true;
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      for (Path part : parts) {
+        try {
+          if (fs.exists(part) && !fs.deleteRecursively(part))
+            log.error("Unable to delete {}", part);
+        } catch (IOException e) {
+          log.warn("Failed to delete {}", part, e);
+        }
+      }
+    }
+  }
+
+  private CompactionStats compactPart(String lgName, Set<ByteSequence> columnFamilies,
+      Path part) throws IOException, CompactionCanceledException {
+    FileSystem ns = this.fs.getVolumeByPath(part).getFileSystem();
+    FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(part.toString(), ns, ns.getConf()).withTableConfiguration(acuTableConf)
+        .withRateLimiter(env.getWriteLimiter()).withCryptoService(context.getCryptoService())
+        .build();
+    CompactionStats stats = new CompactionStats();
+    try {
+      compactLocalityGroup(lgName, columnFamilies, lgName != null, writer, stats, part);
+    } finally {
+      writer.close();
+    }
+    return stats;
+  }
+
+  private void copyPart(Path part, FileSKVWriter mfw, CompactionStats majCStats)
+      throws IOException {
+    FileSystem ns = this.fs.getVolumeByPath(part).getFileSystem();
+    long entries = 0;
+    FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(part.toString(), ns, ns.getConf()).withTableConfiguration(acuTableConf)
+        .withRateLimiter(env.getReadLimiter()).withCryptoService(context.getCryptoService())
+        .build();
+    try {
+      reader.seek(new Range(), Collections.emptySet(), false);
+      while (reader.hasTop()) {
+        mfw.append(reader.getTopKey(), reader.getTopValue());
+        reader.next();
+        entries++;
+      }
+    } finally {
+      reader.close();
+    }
+    majCStats.addCopied(entries, ns.getFileStatus(part).getLen());
+  }
+
+  private boolean isCompactionEnabled() {
+    return env.isCompactionEnabled() && !partsAborted;
+  }
+
   private void compactLocalityGroup(String lgName, Set<ByteSequence> columnFamilies,
-      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats)
+      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats, Path outputPath)
       throws IOException, CompactionCanceledException {
     ArrayList<FileSKVIterator> readers = new ArrayList<>(filesToCompact.size());
     Span span = Trace.start("compact");
@@ -344,8 +524,7 @@ public class Compactor implements Callable<CompactionStats> {
         iters.add(imm.compactionIterator());
       }
 
-      CountingIterator citr = new CountingIterator(new MultiIterator(iters, extent.toDataRange()),
-          entriesRead);
+      CountingIterator citr = new CountingIterator(new MultiIterator(iters, range), entriesRead);
       SortedKeyValueIterator<Key,Value> delIter = DeletingIterator.wrap(citr, propogateDeletes,
           DeletingIterator.getBehavior(acuTableConf));
       ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
@@ -364,7 +543,7 @@ public class Compactor implements Callable<CompactionStats> {
       SortedKeyValueIterator<Key,Value> itr = iterEnv.getTopLevelIterator(IteratorUtil
           .loadIterators(env.getIteratorScope(), cfsi, extent, acuTableConf, iterators, iterEnv));
 
-      itr.seek(extent.toDataRange(), columnFamilies, inclusive);
+      itr.seek(range, columnFamilies, inclusive);
 
       if (!inclusive) {
         mfw.startDefaultLocalityGroup();
@@ -374,7 +553,7 @@ public class Compactor implements Callable<CompactionStats> {
 
       Span write = Trace.start("write");
       try {
-        while (itr.hasTop() && env.isCompactionEnabled()) {
+        while (itr.hasTop() && isCompactionEnabled()) {
           mfw.append(itr.getTopKey(), itr.getTopValue());
           itr.next();
           entriesCompacted++;
@@ -385,7 +564,7 @@ public class Compactor implements Callable<CompactionStats> {
           }
         }
 
-        if (itr.hasTop() && !env.isCompactionEnabled()) {
+        if (itr.hasTop() && !isCompactionEnabled()) {
           // cancel major compaction operation
           try {
             try {
@@ -393,9 +572,9 @@ public class Compactor implements Callable<CompactionStats> {
             } catch (IOException e) {
               log.error("{}", e.getMessage(), e);
             }
-            fs.deleteRecursively(outputFile.path());
+            fs.deleteRecursively(outputPath);
           } catch (Exception e) {
-            log.warn("Failed to delete Canceled compaction output file {}", outputFile, e);
+            log.warn("Failed to delete Canceled compaction output file {}", outputPath, e);
           }
           throw new CompactionCanceledException();
         }
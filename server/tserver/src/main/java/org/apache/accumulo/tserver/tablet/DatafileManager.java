@@ -523,22 +523,46 @@ class DatafileManager {
 
   void bringMajorCompactionOnline(Set<FileRef> oldDatafiles, FileRef tmpDatafile,
       FileRef newDatafile, Long compactionId, DataFileValue dfv) throws IOException {
+    bringMajorCompactionOnline(oldDatafiles, Collections.singletonMap(tmpDatafile, newDatafile),
+        compactionId, Collections.singletonMap(newDatafile, dfv));
+  }
+
+  /**
+   * Replaces the compacted files with the files a major compaction produced, in one update of the
+   * tablet's metadata. The root tablet only supports a single new file.
+   *
+   * @param tmpToNewDatafiles
+   *          the temporary files the compaction wrote, mapped to their final names
+   * @param newDatafileSizes
+   *          the sizes of the new files, by their final names
+   */
+  void bringMajorCompactionOnline(Set<FileRef> oldDatafiles,
+      Map<FileRef,FileRef> tmpToNewDatafiles, Long compactionId,
+      Map<FileRef,DataFileValue> newDatafileSizes) throws IOException {
     final KeyExtent extent = tablet.getExtent();
     long t1, t2;
 
-    if (!extent.isRootTablet()) {
+    if (extent.isRootTablet() && tmpToNewDatafiles.size() != 1) {
+      throw new IllegalArgumentException(
+          "Root tablet major compaction must produce one file " + tmpToNewDatafiles);
+    }
 
-      if (tablet.getTabletServer().getFileSystem().exists(newDatafile.path())) {
-        log.error("Target map file already exist " + newDatafile, new Exception());
-        throw new IllegalStateException("Target map file already exist " + newDatafile);
-      }
+    if (!extent.isRootTablet()) {
+      VolumeManager fs = tablet.getTabletServer().getFileSystem();
+      for (Entry<FileRef,FileRef> entry : tmpToNewDatafiles.entrySet()) {
+        FileRef newDatafile = entry.getValue();
+        if (fs.exists(newDatafile.path())) {
+          log.error("Target map file already exist " + newDatafile, new Exception());
+          throw new IllegalStateException("Target map file already exist " + newDatafile);
+        }
 
-      // rename before putting in metadata table, so files in metadata table should
-      // always exist
-      rename(tablet.getTabletServer().getFileSystem(), tmpDatafile.path(), newDatafile.path());
+        // rename before putting in metadata table, so files in metadata table should
+        // always exist
+        rename(fs, entry.getKey().path(), newDatafile.path());
 
-      if (dfv.getNumEntries() == 0) {
-        tablet.getTabletServer().getFileSystem().deleteRecursively(newDatafile.path());
+        if (newDatafileSizes.get(newDatafile).getNumEntries() == 0) {
+          fs.deleteRecursively(newDatafile.path());
+        }
       }
     }
 
@@ -569,12 +593,13 @@ class DatafileManager {
         // rename the compacted map file, in case
         // the system goes down
 
+        Entry<FileRef,FileRef> entry = tmpToNewDatafiles.entrySet().iterator().next();
         RootFiles.replaceFiles(tablet.getTableConfiguration(),
             tablet.getTabletServer().getFileSystem(), tablet.getLocation(), oldDatafiles,
-            tmpDatafile, newDatafile);
+            entry.getKey(), entry.getValue());
       }
 
-      // atomically remove old files and add new file
+      // atomically remove old files and add new files
       for (FileRef oldDatafile : oldDatafiles) {
         if (!datafileSizes.containsKey(oldDatafile)) {
           log.error("file does not exist in set {}", oldDatafile);
@@ -583,16 +608,19 @@ class DatafileManager {
         majorCompactingFiles.remove(oldDatafile);
       }
 
-      if (datafileSizes.containsKey(newDatafile)) {
-        log.error("Adding file that is already in set {}", newDatafile);
-      }
+      for (Entry<FileRef,DataFileValue> entry : newDatafileSizes.entrySet()) {
+        FileRef newDatafile = entry.getKey();
+        if (datafileSizes.containsKey(newDatafile)) {
+          log.error("Adding file that is already in set {}", newDatafile);
+        }
 
-      if (dfv.getNumEntries() > 0) {
-        datafileSizes.put(newDatafile, dfv);
-      }
+        if (entry.getValue().getNumEntries() > 0) {
+          datafileSizes.put(newDatafile, entry.getValue());
+        }
 
-      // could be used by a follow on compaction in a multipass compaction
-      majorCompactingFiles.add(newDatafile);
+        // could be used by a follow on compaction in a multipass compaction
+        majorCompactingFiles.add(newDatafile);
+      }
 
       tablet.computeNumEntries();
 
@@ -607,14 +635,14 @@ class DatafileManager {
       if (filesInUseByScans.size() > 0)
         log.debug("Adding scan refs to metadata {} {}", extent, filesInUseByScans);
       MasterMetadataUtil.replaceDatafiles(tablet.getContext(), extent, oldDatafiles,
-          filesInUseByScans, newDatafile, compactionId, dfv,
+          filesInUseByScans, newDatafileSizes, compactionId,
           tablet.getTabletServer().getClientAddressString(), lastLocation,
-          tablet.getTabletServer().getLock());
+          tablet.getTabletServer().getLock(), true);
       removeFilesAfterScan(filesInUseByScans);
     }
 
     log.debug(String.format("MajC finish lock %.2f secs", (t2 - t1) / 1000.0));
-    log.debug("TABLET_HIST {} MajC  --> {}", oldDatafiles, newDatafile);
+    log.debug("TABLET_HIST {} MajC  --> {}", oldDatafiles, newDatafileSizes.keySet());
   }
 
   public SortedMap<FileRef,DataFileValue> getDatafileSizes() {
@@ -635,4 +663,18 @@ class DatafileManager {
     return datafileSizes.size();
   }
 
+  /**
+   * Returns the total size of the tablet's files. Like {@link #getNumFiles()} this only locks the
+   * map of files and not the tablet.
+   */
+  public long getTotalSize() {
+    long size = 0;
+    synchronized (datafileSizes) {
+      for (DataFileValue dfv : datafileSizes.values()) {
+        size += dfv.getSize();
+      }
+    }
+    return size;
+  }
+
 }
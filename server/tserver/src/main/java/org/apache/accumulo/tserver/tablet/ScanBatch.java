@@ -34,4 +34,12 @@ public final class ScanBatch {
   public List<KVEntry> getResults() {
     return results;
   }
+
+  public long numBytes() {
+    long numBytes = 0;
+    for (KVEntry kve : results) {
+      numBytes += kve.numBytes();
+    }
+    return numBytes;
+  }
 }
@@ -31,6 +31,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,6 +40,9 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -130,8 +134,10 @@ import org.apache.accumulo.tserver.TservConstraintEnv;
 import org.apache.accumulo.tserver.compaction.CompactionPlan;
 import org.apache.accumulo.tserver.compaction.CompactionStrategy;
 import org.apache.accumulo.tserver.compaction.DefaultCompactionStrategy;
+import org.apache.accumulo.tserver.compaction.ExternalCompactionJob;
 import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
 import org.apache.accumulo.tserver.compaction.MajorCompactionRequest;
+import org.apache.accumulo.tserver.compaction.PartitionedFiles;
 import org.apache.accumulo.tserver.compaction.WriteParameters;
 import org.apache.accumulo.tserver.constraints.ConstraintChecker;
 import org.apache.accumulo.tserver.log.DfsLogger;
@@ -1556,7 +1562,8 @@ public class Tablet implements TabletCommitter {
     majorCompactionQueued.add(reason);
 
     try {
-      getTabletResources().executeMajorCompaction(getExtent(), new CompactionRunner(this, reason));
+      getTabletResources().executeMajorCompaction(getExtent(),
+          tableConfiguration.getCompactionDispatcher(), new CompactionRunner(this, reason));
     } catch (RuntimeException t) {
       log.debug("removing {} because we encountered an exception enqueing the CompactionRunner",
           reason, t);
@@ -1874,7 +1881,8 @@ public class Tablet implements TabletCommitter {
         plan = strategy.getCompactionPlan(request);
         if (plan != null) {
           plan.validate(allFiles.keySet());
-          inputFiles.addAll(plan.inputFiles);
+          // the files of a partitioned compaction are only compacted together
+          inputFiles.addAll(PartitionedFiles.withPartitions(plan.inputFiles, allFiles.keySet()));
         }
       }
 
@@ -2010,11 +2018,44 @@ public class Tablet implements TabletCommitter {
 
           // always propagate deletes, unless last batch
           boolean lastBatch = filesToCompact.isEmpty();
-          Compactor compactor = new Compactor(context, this, copy, null, compactTmpName,
-              lastBatch ? propogateDeletes : true, cenv, compactionIterators, reason.ordinal(),
-              tableConf);
 
-          CompactionStats mcs = compactor.call();
+          List<Text> splitRows = lastBatch ? findPartitionSplitRows(tableConf, copy)
+              : Collections.emptyList();
+          if (!splitRows.isEmpty()) {
+            if (plan != null && plan.deleteFiles != null) {
+              smallestFiles.addAll(plan.deleteFiles);
+            }
+            CompactionStats mcs = compactPartitions(smallestFiles, copy, splitRows,
+                propogateDeletes ? "C" : "A", propogateDeletes, compactionIterators, reason,
+                tableConf, compactionId != null ? compactionId.getFirst() : null);
+
+            span.data("files", "" + smallestFiles.size());
+            span.data("partitions", "" + (splitRows.size() + 1));
+            span.data("read", "" + mcs.getEntriesRead());
+            span.data("written", "" + mcs.getEntriesWritten());
+            majCStats.add(mcs);
+            continue;
+          }
+
+          CompactionStats mcs = null;
+          if (isExternalCompaction(tableConf)) {
+            // the compactor process writes its own file, so a compactor that is still running
+            // when the job is withdrawn can not interfere with a compaction run here
+            FileRef externalTmpName = new FileRef(fileName.path() + "_ext_tmp");
+            ExternalCompactionJob job = new ExternalCompactionJob(extent, copy, externalTmpName,
+                lastBatch ? propogateDeletes : true, compactionIterators, reason,
+                getWriteProperties(plan));
+            mcs = getTabletServer().getExternalCompactionQueue().compact(job, cenv);
+            if (mcs != null)
+              compactTmpName = externalTmpName;
+          }
+
+          if (mcs == null) {
+            Compactor compactor = new Compactor(context, this, copy, null, compactTmpName,
+                lastBatch ? propogateDeletes : true, cenv, compactionIterators, reason.ordinal(),
+                tableConf);
+            mcs = compactor.call();
+          }
 
           span.data("files", "" + smallestFiles.size());
           span.data("read", "" + mcs.getEntriesRead());
@@ -2048,25 +2089,190 @@ public class Tablet implements TabletCommitter {
     }
   }
 
+  /**
+   * Decides if the last pass of a major compaction is divided into row ranges that are compacted
+   * in parallel.
+   *
+   * @return the rows the tablet's data is divided at, or an empty list to write a single file
+   */
+  private List<Text> findPartitionSplitRows(AccumuloConfiguration tableConf,
+      Map<FileRef,DataFileValue> files) throws IOException {
+    int maxPartitions = tableConf.getCount(Property.TABLE_MAJC_PARTITIONS_MAX);
+    // leave room for new files, a tablet at its file limit merges minor compactions
+    maxPartitions = Math.min(maxPartitions, tableConfiguration.getMaxFilesPerTablet() / 2);
+    if (maxPartitions < 2 || extent.isRootTablet())
+      return Collections.emptyList();
+
+    long size = 0;
+    for (DataFileValue dfv : files.values())
+      size += dfv.getSize();
+    long minSize = Math.max(1, tableConf.getAsBytes(Property.TABLE_MAJC_PARTITION_SIZE_MIN));
+    int numPartitions = (int) Math.min(maxPartitions, size / minSize);
+    if (numPartitions < 2)
+      return Collections.emptyList();
+
+    return FileUtil.findSplitRows(getTabletServer().getFileSystem(), tableConf,
+        extent.getPrevEndRow(), extent.getEndRow(), FileUtil.toPathStrings(files.keySet()),
+        numPartitions);
+  }
+
+  /**
+   * Compacts the row ranges between the split rows in parallel, each into its own file, and
+   * replaces the old files with all of the new files at once.
+   */
+  private CompactionStats compactPartitions(Set<FileRef> oldFiles,
+      Map<FileRef,DataFileValue> files, List<Text> splitRows, String prefix,
+      boolean propogateDeletes, List<IteratorSetting> compactionIterators,
+      MajorCompactionReason reason, AccumuloConfiguration tableConf, Long compactionId)
+      throws IOException, CompactionCanceledException {
+
+    List<Range> ranges = new ArrayList<>();
+    Text start = extent.getPrevEndRow();
+    for (Text row : splitRows) {
+      ranges.add(new KeyExtent(extent.getTableId(), row, start).toDataRange());
+      start = row;
+    }
+    ranges.add(new KeyExtent(extent.getTableId(), extent.getEndRow(), start).toDataRange());
+
+    // set when a partition fails, so the others stop early
+    AtomicBoolean failed = new AtomicBoolean(false);
+    CompactionEnv cenv = new CompactionEnv() {
+      @Override
+      public boolean isCompactionEnabled() {
+        return !failed.get() && Tablet.this.isCompactionEnabled();
+      }
+
+      @Override
+      public IteratorScope getIteratorScope() {
+        return IteratorScope.majc;
+      }
+
+      @Override
+      public RateLimiter getReadLimiter() {
+        return getTabletServer().getMajorCompactionReadLimiter();
+      }
+
+      @Override
+      public RateLimiter getWriteLimiter() {
+        return getTabletServer().getMajorCompactionWriteLimiter();
+      }
+    };
+
+    // the files share a name, so compaction strategies can tell they hold a single data set
+    FileRef baseName = getNextMapFilename(prefix);
+    Map<FileRef,FileRef> tmpToNewFiles = new LinkedHashMap<>();
+    List<Future<CompactionStats>> futures = new ArrayList<>();
+    ExecutorService pool = getTabletResources().getTabletServerResourceManager()
+        .getMajorCompactionPartitionExecutor();
+    try {
+      for (Range range : ranges) {
+        FileRef fileName = PartitionedFiles.getPartitionFile(baseName, tmpToNewFiles.size());
+        FileRef compactTmpName = new FileRef(fileName.path() + "_tmp");
+        tmpToNewFiles.put(compactTmpName, fileName);
+
+        log.debug("Starting MajC {} ({}) {} {} --> {} {}", extent, reason, range, files.keySet(),
+            compactTmpName, compactionIterators);
+
+        Compactor compactor = new Compactor(context, this, files, null, compactTmpName,
+            propogateDeletes, cenv, compactionIterators, reason.ordinal(), tableConf, range);
+        futures.add(pool.submit(() -> {
+          try {
+            return compactor.call();
+          } catch (Exception e) {
+            failed.set(true);
+            throw e;
+          }
+        }));
+      }
+
+      CompactionStats majCStats = new CompactionStats();
+      Map<FileRef,DataFileValue> newFileSizes = new HashMap<>();
+      Iterator<FileRef> newFiles = tmpToNewFiles.values().iterator();
+      for (Future<CompactionStats> future : futures) {
+        CompactionStats mcs;
+        try {
+          mcs = future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof CompactionCanceledException)
+            throw (CompactionCanceledException) cause;
+          if (cause instanceof IOException)
+            throw (IOException) cause;
+          if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          throw new IOException(cause);
+        }
+        majCStats.add(mcs);
+        newFileSizes.put(newFiles.next(),
+            new DataFileValue(mcs.getFileSize(), mcs.getEntriesWritten()));
+      }
+
+      getDatafileManager().bringMajorCompactionOnline(oldFiles, tmpToNewFiles, compactionId,
+          newFileSizes);
+      return majCStats;
+    } catch (IOException | CompactionCanceledException | RuntimeException e) {
+      failed.set(true);
+      for (Future<CompactionStats> future : futures) {
+        try {
+          future.get();
+        } catch (Exception e2) {
+          // already reported by the partition that failed
+        }
+      }
+      // a compactor removes its own output when it fails, remove the output of the others
+      VolumeManager fs = getTabletServer().getFileSystem();
+      for (FileRef tmpFile : tmpToNewFiles.keySet()) {
+        try {
+          if (fs.exists(tmpFile.path()) && !fs.deleteRecursively(tmpFile.path()))
+            log.warn("Unable to delete {}", tmpFile);
+        } catch (IOException e2) {
+          log.warn("Failed to delete {}", tmpFile, e2);
+        }
+      }
+      throw e;
+    }
+  }
+
   protected AccumuloConfiguration createTableConfiguration(TableConfiguration base,
       CompactionPlan plan) {
-    if (plan == null || plan.writeParameters == null)
+    Map<String,String> writeProperties = getWriteProperties(plan);
+    if (writeProperties.isEmpty())
       return base;
-    WriteParameters p = plan.writeParameters;
     ConfigurationCopy result = new ConfigurationCopy(base);
+    writeProperties.forEach(result::set);
+    return result;
+  }
+
+  /**
+   * @return the table properties the write parameters of the plan override
+   */
+  private static Map<String,String> getWriteProperties(CompactionPlan plan) {
+    Map<String,String> result = new HashMap<>();
+    if (plan == null || plan.writeParameters == null)
+      return result;
+    WriteParameters p = plan.writeParameters;
     if (p.getHdfsBlockSize() > 0)
-      result.set(Property.TABLE_FILE_BLOCK_SIZE, "" + p.getHdfsBlockSize());
+      result.put(Property.TABLE_FILE_BLOCK_SIZE.getKey(), "" + p.getHdfsBlockSize());
     if (p.getBlockSize() > 0)
-      result.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "" + p.getBlockSize());
+      result.put(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE.getKey(), "" + p.getBlockSize());
     if (p.getIndexBlockSize() > 0)
-      result.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX, "" + p.getIndexBlockSize());
+      result.put(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX.getKey(),
+          "" + p.getIndexBlockSize());
     if (p.getCompressType() != null)
-      result.set(Property.TABLE_FILE_COMPRESSION_TYPE, p.getCompressType());
+      result.put(Property.TABLE_FILE_COMPRESSION_TYPE.getKey(), p.getCompressType());
     if (p.getReplication() != 0)
-      result.set(Property.TABLE_FILE_REPLICATION, "" + p.getReplication());
+      result.put(Property.TABLE_FILE_REPLICATION.getKey(), "" + p.getReplication());
     return result;
   }
 
+  private boolean isExternalCompaction(AccumuloConfiguration tableConf) {
+    // tablet servers compact the metadata tables themselves, so they never depend on compactors
+    return !extent.isMeta() && tableConf.getBoolean(Property.TABLE_MAJC_EXTERNAL);
+  }
+
   private Set<FileRef> removeSmallest(Map<FileRef,DataFileValue> filesToCompact,
       int maxFilesToCompact) {
     // ensure this method works properly when multiple files have the same size
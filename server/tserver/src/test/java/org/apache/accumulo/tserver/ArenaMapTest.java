@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.junit.Test;
+
+public class ArenaMapTest {
+
+  private static String row(int i) {
+    return String.format("r%06d", i);
+  }
+
+  private void runRandomMutations(boolean offHeap) throws Exception {
+    ArenaMap am = new ArenaMap(offHeap);
+    TreeMap<Key,Value> expected = new TreeMap<>(new MemKeyComparator());
+
+    Random random = new Random(42);
+    int kvCount = 0;
+    for (int i = 0; i < 5000; i++) {
+      Mutation m = new Mutation(row(random.nextInt(1000)));
+      int updates = 1 + random.nextInt(3);
+      for (int j = 0; j < updates; j++) {
+        byte[] val = new byte[random.nextInt(200)];
+        random.nextBytes(val);
+        String cf = "cf" + random.nextInt(5);
+        String cq = "cq" + random.nextInt(5);
+        long ts = random.nextInt(10);
+        if (random.nextInt(10) == 0)
+          m.putDelete(cf, cq, ts);
+        else
+          m.put(cf, cq, ts, new Value(val));
+      }
+      am.mutate(m, kvCount);
+
+      for (int j = 0; j < m.getUpdates().size(); j++) {
+        Key k = new Key(m.getRow(), m.getUpdates().get(j).getColumnFamily(),
+            m.getUpdates().get(j).getColumnQualifier(),
+            m.getUpdates().get(j).getColumnVisibility(), m.getUpdates().get(j).getTimestamp(),
+            m.getUpdates().get(j).isDeleted());
+        expected.put(new MemKey(k, kvCount + j), new Value(m.getUpdates().get(j).getValue()));
+      }
+      kvCount += m.getUpdates().size();
+    }
+
+    assertEquals(expected.size(), am.size());
+    assertTrue(am.getMemoryUsed() > ArenaMap.MIN_ARENA_SIZE);
+
+    // full scan
+    Iterator<Entry<Key,Value>> iter = am.iterator();
+    for (Entry<Key,Value> entry : expected.entrySet()) {
+      assertTrue(iter.hasNext());
+      Entry<Key,Value> actual = iter.next();
+      assertEquals(entry.getKey(), actual.getKey());
+      assertEquals(((MemKey) entry.getKey()).getKVCount(),
+          ((MemKey) actual.getKey()).getKVCount());
+      assertEquals(entry.getValue(), actual.getValue());
+    }
+    assertFalse(iter.hasNext());
+
+    // scans from random start keys
+    for (int i = 0; i < 100; i++) {
+      Key start = new Key(row(random.nextInt(1100)));
+      iter = am.iterator(start);
+      for (Entry<Key,Value> entry : expected.tailMap(start).entrySet()) {
+        assertTrue(iter.hasNext());
+        assertEquals(entry.getKey(), iter.next().getKey());
+      }
+      assertFalse(iter.hasNext());
+    }
+
+    am.delete();
+  }
+
+  @Test
+  public void testRandomOnHeap() throws Exception {
+    runRandomMutations(false);
+  }
+
+  @Test
+  public void testRandomOffHeap() throws Exception {
+    runRandomMutations(true);
+  }
+
+  @Test
+  public void testPutAndGet() {
+    ArenaMap am = new ArenaMap(false);
+    Key k1 = new Key("r1", "cf", "cq", 5);
+    Key k2 = new Key("r2", "cf", "cq", 5);
+
+    assertNull(am.get(k1));
+    am.put(k1, new Value("v1".getBytes(UTF_8)));
+    am.put(k2, new Value("v2".getBytes(UTF_8)));
+    assertEquals(new Value("v1".getBytes(UTF_8)), am.get(k1));
+    assertEquals(2, am.size());
+
+    // putting an existing key replaces its value
+    am.put(k1, new Value("v3".getBytes(UTF_8)));
+    assertEquals(new Value("v3".getBytes(UTF_8)), am.get(k1));
+    assertEquals(2, am.size());
+
+    am.delete();
+  }
+
+  @Test
+  public void testLargeValue() {
+    ArenaMap am = new ArenaMap(false);
+    byte[] big = new byte[ArenaMap.MIN_ARENA_SIZE * 3];
+    new Random(7).nextBytes(big);
+    am.put(new Key("r1"), new Value(new byte[10]));
+    am.put(new Key("r2"), new Value(big));
+    am.put(new Key("r3"), new Value(new byte[10]));
+
+    assertEquals(new Value(big), am.get(new Key("r2")));
+    assertEquals(3, am.size());
+    am.delete();
+  }
+
+  @Test
+  public void testIteratorSeesConcurrentWrites() {
+    ArenaMap am = new ArenaMap(false);
+    for (int i = 0; i < 100; i += 2) {
+      am.put(new Key(row(i)), new Value(new byte[0]));
+    }
+
+    Iterator<Entry<Key,Value>> iter = am.iterator();
+    // the first entries are read ahead, later ones are read after this write
+    am.put(new Key(row(99)), new Value(new byte[0]));
+
+    int count = 0;
+    while (iter.hasNext()) {
+      iter.next();
+      count++;
+    }
+    assertEquals(51, count);
+  }
+
+  @Test
+  public void testIteratorSurvivesReplace() {
+    ArenaMap am = new ArenaMap(false);
+    for (int i = 0; i < 100; i += 2) {
+      am.put(new Key(row(i)), new Value(new byte[0]));
+    }
+
+    // the first batch holds two entries, so the iterator is positioned on the second one
+    Iterator<Entry<Key,Value>> iter = am.iterator();
+    assertEquals(new Key(row(0)), iter.next().getKey());
+
+    // replace the entry the iterator is positioned on, then insert right after the replacement
+    am.put(new Key(row(2)), new Value("v".getBytes(UTF_8)));
+    am.put(new Key(row(3)), new Value(new byte[0]));
+
+    assertEquals(new Key(row(2)), iter.next().getKey());
+    assertEquals(new Key(row(3)), iter.next().getKey());
+    int count = 3;
+    Key last = new Key(row(3));
+    while (iter.hasNext()) {
+      Key key = iter.next().getKey();
+      assertTrue(key.compareTo(last) > 0);
+      last = key;
+      count++;
+    }
+    assertEquals(51, count);
+    assertEquals(51, am.size());
+  }
+
+  @Test
+  public void testSkvIterator() throws Exception {
+    ArenaMap am = new ArenaMap(true);
+    for (int i = 0; i < 100; i++) {
+      am.mutate(new Mutation(row(i)).at().family("cf").qualifier("cq").timestamp(1)
+          .put(Integer.toString(i)), i);
+    }
+
+    SortedKeyValueIterator<Key,Value> skvi = am.skvIterator();
+    skvi.seek(new Range(row(10), row(19)), Collections.emptySet(), false);
+    for (int i = 10; i < 20; i++) {
+      assertTrue(skvi.hasTop());
+      assertEquals(row(i), skvi.getTopKey().getRow().toString());
+      assertEquals(Integer.toString(i), skvi.getTopValue().toString());
+      skvi.next();
+    }
+    assertFalse(skvi.hasTop());
+    am.delete();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDeleted() {
+    ArenaMap am = new ArenaMap(false);
+    am.delete();
+    am.size();
+  }
+}
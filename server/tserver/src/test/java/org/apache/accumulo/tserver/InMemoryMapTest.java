@@ -234,6 +234,32 @@ public class InMemoryMapTest {
 
   }
 
+  @Test
+  public void testArenaMap() throws Exception {
+    ConfigurationCopy config = newConfig(tempFolder.newFolder().getAbsolutePath());
+    config.set(Property.TSERV_ARENAMAP_ENABLED, "true");
+    InMemoryMap imm = new InMemoryMap(config, getServerContext());
+    assertEquals(InMemoryMap.TYPE_ARENA_MAP_WRAPPER, imm.getMapType());
+
+    mutate(imm, "r1", "foo:cq1", 3, "bar1");
+    mutate(imm, "r1", "foo:cq1", 3, "bar2");
+    MemoryIterator ski1 = imm.skvIterator(null);
+    mutate(imm, "r1", "foo:cq1", 3, "bar3");
+    mutate(imm, "r2", "foo:cq1", 3, "bar4");
+
+    // writes made after the iterator was created are not seen
+    ski1.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    testAndCallNext(ski1, "r1", "foo:cq1", 3, "bar2");
+    testAndCallNext(ski1, "r1", "foo:cq1", 3, "bar1");
+    assertFalse(ski1.hasTop());
+
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1",
+        LocalityGroupUtil.encodeColumnFamilies(toTextSet("foo")));
+    config.set(Property.TABLE_LOCALITY_GROUPS, "lg1");
+    imm = new InMemoryMap(config, getServerContext());
+    assertEquals(InMemoryMap.TYPE_LOCALITY_GROUP_MAP_ARENA, imm.getMapType());
+  }
+
   @Test
   public void test4() throws Exception {
     InMemoryMap imm = newInMemoryMap(false, tempFolder.newFolder().getAbsolutePath());
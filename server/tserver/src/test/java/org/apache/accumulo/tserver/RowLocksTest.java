@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.data.thrift.TConditionalMutation;
+import org.apache.accumulo.tserver.RowLocks.RowLock;
+import org.apache.accumulo.tserver.data.ServerConditionalMutation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RowLocksTest {
+
+  private static final KeyExtent EXTENT1 = new KeyExtent(Table.ID.of("1"), null, null);
+  private static final KeyExtent EXTENT2 = new KeyExtent(Table.ID.of("2"), null, null);
+
+  private ExecutorService pool;
+
+  @Before
+  public void setup() {
+    pool = Executors.newFixedThreadPool(8);
+  }
+
+  @After
+  public void teardown() {
+    pool.shutdownNow();
+  }
+
+  private static ServerConditionalMutation scm(String row) {
+    Mutation m = new Mutation(row);
+    m.put("cf", "cq", "v");
+    return new ServerConditionalMutation(
+        new TConditionalMutation(Collections.emptyList(), m.toThrift(), 0));
+  }
+
+  private static Map<KeyExtent,List<ServerConditionalMutation>> updates(String... rows) {
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = new HashMap<>();
+    for (String row : rows) {
+      // spread the rows over two tablets, the locks are taken in row order across tablets
+      KeyExtent extent = row.hashCode() % 2 == 0 ? EXTENT1 : EXTENT2;
+      updates.computeIfAbsent(extent, k -> new ArrayList<>()).add(scm(row));
+    }
+    return updates;
+  }
+
+  private static List<String> rows(Map<KeyExtent,List<ServerConditionalMutation>> updates) {
+    List<String> rows = new ArrayList<>();
+    for (List<ServerConditionalMutation> scml : updates.values()) {
+      for (ServerConditionalMutation scm : scml) {
+        rows.add(new String(scm.getRow(), UTF_8));
+      }
+    }
+    Collections.sort(rows);
+    return rows;
+  }
+
+  @Test
+  public void testDeferLockedRows() throws Exception {
+    RowLocks rowLocks = new RowLocks();
+
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred1 = new HashMap<>();
+    List<RowLock> locks1 = rowLocks.acquireRowlocks(updates("a", "b", "c"), deferred1);
+    assertEquals(3, locks1.size());
+    assertTrue(deferred1.isEmpty());
+
+    // the locks are held by this thread, so acquire the overlapping rows in another thread
+    Map<KeyExtent,List<ServerConditionalMutation>> updates2 = updates("b", "d", "c", "e");
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred2 = new HashMap<>();
+    List<RowLock> locks2 = pool.submit(() -> {
+      List<RowLock> locks = rowLocks.acquireRowlocks(updates2, deferred2);
+      assertEquals(2, locks.size());
+      rowLocks.releaseRowLocks(locks);
+      return locks;
+    }).get();
+
+    assertEquals(2, locks2.size());
+    assertEquals(Arrays.asList("d", "e"), rows(updates2));
+    assertEquals(Arrays.asList("b", "c"), rows(deferred2));
+
+    rowLocks.releaseRowLocks(locks1);
+
+    // once released the deferred rows can be locked
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred3 = new HashMap<>();
+    pool.submit(() -> rowLocks.releaseRowLocks(rowLocks.acquireRowlocks(deferred2, deferred3)))
+        .get();
+    assertTrue(deferred3.isEmpty());
+  }
+
+  @Test
+  public void testMutualExclusion() throws Exception {
+    RowLocks rowLocks = new RowLocks();
+    String[] rows = {"r0", "r1", "r2", "r3"};
+    // not thread safe on purpose, a lost update means two threads held the lock of a row
+    int[] counters = new int[rows.length];
+    int iterations = 20000;
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      long seed = t;
+      futures.add(pool.submit(() -> {
+        Random random = new Random(seed);
+        for (int i = 0; i < iterations; i++) {
+          int r = random.nextInt(rows.length);
+          List<RowLock> locks = rowLocks.acquireRowlocks(updates(rows[r]), new HashMap<>());
+          try {
+            counters[r]++;
+          } finally {
+            rowLocks.releaseRowLocks(locks);
+          }
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      future.get();
+    }
+
+    int total = 0;
+    for (int counter : counters) {
+      total += counter;
+    }
+    assertEquals(8 * iterations, total);
+  }
+}
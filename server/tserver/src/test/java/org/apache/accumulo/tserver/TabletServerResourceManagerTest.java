@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.spi.compaction.CompactionDispatcher;
+import org.apache.accumulo.core.spi.compaction.CompactionExecutor;
+import org.apache.accumulo.core.spi.compaction.CompactionInfo;
+import org.apache.accumulo.core.spi.compaction.SimpleCompactionDispatcher;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class TabletServerResourceManagerTest {
+
+  private static final KeyExtent EXTENT = new KeyExtent(Table.ID.of("2"), null, null);
+
+  private ExecutorService defaultExecutor;
+  private ExecutorService largeExecutor;
+  private ExecutorService userExecutor;
+  private Map<String,ExecutorService> executors;
+  private Map<String,CompactionExecutor> choices;
+
+  @Before
+  public void setup() {
+    defaultExecutor = EasyMock.createMock(ExecutorService.class);
+    largeExecutor = EasyMock.createMock(ExecutorService.class);
+    userExecutor = EasyMock.createMock(ExecutorService.class);
+    executors = ImmutableMap.of(SimpleCompactionDispatcher.DEFAULT_COMPACTION_EXECUTOR_NAME,
+        defaultExecutor, "large", largeExecutor, "user", userExecutor);
+    choices = new HashMap<>();
+    for (String name : executors.keySet()) {
+      choices.put(name, EasyMock.createMock(CompactionExecutor.class));
+    }
+  }
+
+  private static CompactionDispatcher dispatcher(Map<String,String> options) {
+    CompactionDispatcher dispatcher = new SimpleCompactionDispatcher();
+    dispatcher.init(() -> options);
+    return dispatcher;
+  }
+
+  private static CompactionInfo compaction(CompactionInfo.Reason reason, long filesSize) {
+    return new CompactionInfo() {
+      @Override
+      public Reason getReason() {
+        return reason;
+      }
+
+      @Override
+      public String getTableId() {
+        return EXTENT.getTableId().canonicalID();
+      }
+
+      @Override
+      public long getCreationTime() {
+        return 0;
+      }
+
+      @Override
+      public int getNumFiles() {
+        return 3;
+      }
+
+      @Override
+      public long getFilesSize() {
+        return filesSize;
+      }
+    };
+  }
+
+  private ExecutorService dispatch(CompactionDispatcher dispatcher, CompactionInfo compaction) {
+    return TabletServerResourceManager.getCompactionExecutor(EXTENT, dispatcher, compaction,
+        choices, executors);
+  }
+
+  @Test
+  public void testDispatch() {
+    CompactionDispatcher dispatcher = dispatcher(
+        ImmutableMap.of("large_executor", "large", "large_size", "1M", "user_executor", "user"));
+
+    assertSame(defaultExecutor, dispatch(dispatcher, compaction(CompactionInfo.Reason.NORMAL, 10)));
+    assertSame(largeExecutor,
+        dispatch(dispatcher, compaction(CompactionInfo.Reason.NORMAL, 1 << 20)));
+    assertSame(userExecutor, dispatch(dispatcher, compaction(CompactionInfo.Reason.USER, 10)));
+    assertSame(userExecutor,
+        dispatch(dispatcher, compaction(CompactionInfo.Reason.USER, 1 << 20)));
+  }
+
+  @Test
+  public void testDispatcherSeesExecutors() {
+    CompactionDispatcher dispatcher = params -> {
+      assertSame(choices, params.getCompactionExecutors());
+      return "large";
+    };
+    assertSame(largeExecutor, dispatch(dispatcher, compaction(CompactionInfo.Reason.NORMAL, 10)));
+  }
+
+  @Test
+  public void testUnknownExecutorUsesDefault() {
+    CompactionDispatcher dispatcher = dispatcher(Collections.singletonMap("executor", "missing"));
+    assertSame(defaultExecutor, dispatch(dispatcher, compaction(CompactionInfo.Reason.NORMAL, 10)));
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.accumulo.tserver.compaction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.DataInputStream;
@@ -26,6 +27,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -236,4 +238,65 @@ public class DefaultCompactionStrategyTest {
     assertEquals(asStringSet(plan.inputFiles), asSet("file1,file2,file3".split(",")));
 
   }
+
+  @Test
+  public void testPartitionedFiles() throws Exception {
+    FileRef base = new FileRef("hdfs://nn1/accumulo/tables/5/t-0001/C0001.rf");
+    FileRef p3 = PartitionedFiles.getPartitionFile(base, 3);
+    assertEquals("hdfs://nn1/accumulo/tables/5/t-0001/C0001-p3.rf", p3.path().toString());
+    assertEquals(base.path().toString(), PartitionedFiles.getPartitionGroup(p3));
+    assertNull(PartitionedFiles.getPartitionGroup(base));
+
+    DefaultCompactionStrategy s = new DefaultCompactionStrategy();
+
+    // the equal sized files of a partitioned compaction do not satisfy the ratio on their own
+    MajorCompactionRequest request = createRequest(MajorCompactionReason.NORMAL, "C0001-p0.rf",
+        100, "C0001-p1.rf", 100, "C0001-p2.rf", 100, "C0001-p3.rf", 100, "F0002.rf", 10);
+    s.gatherInformation(request);
+    assertTrue(s.getCompactionPlan(request).inputFiles.isEmpty());
+
+    // when they are compacted, all of them are
+    request = createRequest(MajorCompactionReason.NORMAL, "C0001-p0.rf", 100, "C0001-p1.rf", 100,
+        "C0001-p2.rf", 100, "C0001-p3.rf", 100, "F0002.rf", 400, "F0003.rf", 400);
+    s.gatherInformation(request);
+    assertEquals(6, s.getCompactionPlan(request).inputFiles.size());
+  }
+
+  @Test
+  public void testPartitionedTabletSettles() throws Exception {
+    DefaultCompactionStrategy s = new DefaultCompactionStrategy();
+
+    Map<String,Long> files = new HashMap<>();
+    for (int i = 0; i < 6; i++) {
+      files.put(String.format("F%04d.rf", i), 100L);
+    }
+
+    // replace the files a compaction selects with four equal partitions, like Tablet does
+    int compactions = 0;
+    while (compactions < 10) {
+      Object[] objs = new Object[files.size() * 2];
+      int i = 0;
+      for (Entry<String,Long> entry : files.entrySet()) {
+        objs[i++] = entry.getKey();
+        objs[i++] = entry.getValue();
+      }
+      MajorCompactionRequest request = createRequest(MajorCompactionReason.NORMAL, objs);
+      s.gatherInformation(request);
+      CompactionPlan plan = s.getCompactionPlan(request);
+      if (plan.inputFiles.isEmpty())
+        break;
+
+      compactions++;
+      long size = 0;
+      for (FileRef ref : plan.inputFiles) {
+        size += files.remove(ref.path().getName());
+      }
+      for (int p = 0; p < 4; p++) {
+        files.put(String.format("C%04d-p%d.rf", compactions, p), size / 4);
+      }
+    }
+
+    assertEquals(1, compactions);
+    assertEquals(4, files.size());
+  }
 }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.tserver.tablet.CompactionStats;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class ExternalCompactionJobTest {
+
+  @Test
+  public void testJob() throws Exception {
+    KeyExtent extent = new KeyExtent(Table.ID.of("2"), new Text("m"), new Text("c"));
+    Map<FileRef,DataFileValue> files = new HashMap<>();
+    // a relative reference in the metadata table
+    files.put(new FileRef("/t-0001/F0001.rf",
+        new Path("hdfs://nn/accumulo/tables/2/t-0001/F0001.rf")), new DataFileValue(1000, 10));
+    files.put(new FileRef("hdfs://nn/accumulo/tables/2/t-0001/F0002.rf"),
+        new DataFileValue(2000, 20, 5));
+    FileRef output = new FileRef("hdfs://nn/accumulo/tables/2/t-0001/A0003.rf_ext_tmp");
+    IteratorSetting iterator = new IteratorSetting(10, "vers", VersioningIterator.class);
+    VersioningIterator.setMaxVersions(iterator, 2);
+    Map<String,String> properties = Collections
+        .singletonMap(Property.TABLE_FILE_COMPRESSION_TYPE.getKey(), "none");
+
+    ExternalCompactionJob job = new ExternalCompactionJob(extent, files, output, false,
+        Collections.singletonList(iterator), MajorCompactionReason.USER, properties);
+    ExternalCompactionJob copy = ExternalCompactionJob.fromBytes(job.toBytes());
+
+    assertEquals(extent, copy.getExtent());
+    assertEquals(files.keySet(), copy.getFiles().keySet());
+    for (Entry<FileRef,DataFileValue> entry : copy.getFiles().entrySet()) {
+      FileRef ref = entry.getKey();
+      assertEquals(ref.path().getName().equals("F0001.rf") ? "/t-0001/F0001.rf" : ref.toString(),
+          ref.meta().toString());
+      assertEquals(files.get(ref), entry.getValue());
+      assertEquals(files.get(ref).getTime(), entry.getValue().getTime());
+    }
+    assertEquals(output, copy.getOutputFile());
+    assertFalse(copy.getPropogateDeletes());
+    assertEquals(Collections.singletonList(iterator), copy.getIterators());
+    assertEquals(MajorCompactionReason.USER, copy.getReason());
+    assertEquals(properties, copy.getProperties());
+  }
+
+  @Test
+  public void testResult() throws Exception {
+    CompactionStats stats = new CompactionStats(100, 90);
+    stats.setFileSize(4096);
+    stats.setTime(20);
+    ExternalCompactionJob.Result result = ExternalCompactionJob.Result
+        .fromBytes(ExternalCompactionJob.Result.success(stats).toBytes());
+    assertTrue(result.isSuccessful());
+    assertEquals(100, result.getStats().getEntriesRead());
+    assertEquals(90, result.getStats().getEntriesWritten());
+    assertEquals(4096, result.getStats().getFileSize());
+    assertEquals(20, result.getStats().getTime());
+
+    result = ExternalCompactionJob.Result.fromBytes(
+        ExternalCompactionJob.Result.failure(new IOException("file not found")).toBytes());
+    assertFalse(result.isSuccessful());
+    assertEquals(IOException.class.getName() + ": file not found", result.getError());
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.fate.zookeeper.ZooReaderWriter;
+import org.apache.accumulo.fate.zookeeper.ZooUtil.NodeMissingPolicy;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.server.zookeeper.DistributedWorkQueue;
+import org.apache.accumulo.tserver.tablet.CompactionStats;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionEnv;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExternalCompactionQueueTest {
+
+  private static final String RESULTS = "/accumulo/1234/compaction_results";
+
+  private static final CompactionEnv ENV = new CompactionEnv() {
+    @Override
+    public boolean isCompactionEnabled() {
+      return true;
+    }
+
+    @Override
+    public IteratorScope getIteratorScope() {
+      return IteratorScope.majc;
+    }
+
+    @Override
+    public RateLimiter getReadLimiter() {
+      return null;
+    }
+
+    @Override
+    public RateLimiter getWriteLimiter() {
+      return null;
+    }
+  };
+
+  private ExternalCompactionJob job;
+  private String workId;
+  private DistributedWorkQueue queue;
+  private ZooReaderWriter zoo;
+  private ConfigurationCopy conf;
+
+  @Before
+  public void setup() throws Exception {
+    job = new ExternalCompactionJob(new KeyExtent(Table.ID.of("2"), null, null),
+        Collections.emptyMap(), new FileRef("hdfs://nn/accumulo/tables/2/t-0001/A0003.rf_ext_tmp"),
+        false, Collections.emptyList(), MajorCompactionReason.NORMAL, Collections.emptyMap());
+    workId = ExternalCompactionQueue.getWorkId(job);
+
+    queue = EasyMock.createMock(DistributedWorkQueue.class);
+    zoo = EasyMock.createMock(ZooReaderWriter.class);
+    expect(queue.getZooReaderWriter()).andReturn(zoo).anyTimes();
+    queue.addWork(eq(workId), anyObject(byte[].class));
+
+    conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_MAJC_EXTERNAL_START_TIMEOUT, "1h");
+    conf.set(Property.TSERV_MAJC_EXTERNAL_HEARTBEAT_TIMEOUT, "100ms");
+  }
+
+  private static Stat stat(long mzxid) {
+    Stat stat = new Stat();
+    stat.setMzxid(mzxid);
+    return stat;
+  }
+
+  @Test
+  public void testResult() throws Exception {
+    CompactionStats stats = new CompactionStats(100, 90);
+    String resultPath = RESULTS + "/" + workId;
+    expect(zoo.exists(eq(resultPath), anyObject(Watcher.class))).andReturn(true);
+    expect(zoo.getData(resultPath, null))
+        .andReturn(ExternalCompactionJob.Result.success(stats).toBytes());
+    zoo.recursiveDelete(resultPath, NodeMissingPolicy.SKIP);
+    EasyMock.replay(queue, zoo);
+
+    CompactionStats result = new ExternalCompactionQueue(queue, RESULTS, conf).compact(job, ENV);
+    assertEquals(100, result.getEntriesRead());
+    assertEquals(90, result.getEntriesWritten());
+    EasyMock.verify(queue, zoo);
+  }
+
+  @Test
+  public void testWithdrawWithoutHeartbeat() throws Exception {
+    String resultPath = RESULTS + "/" + workId;
+    expect(zoo.exists(eq(resultPath), anyObject(Watcher.class))).andReturn(false).anyTimes();
+    // a compactor took the job, but never updates its reservation
+    expect(queue.getWorkReservation(eq(workId), anyObject(Watcher.class))).andReturn(stat(7))
+        .anyTimes();
+    queue.removeWork(workId);
+    expectLastCall().once();
+    expect(zoo.exists(resultPath)).andReturn(false);
+    EasyMock.replay(queue, zoo);
+
+    assertNull(new ExternalCompactionQueue(queue, RESULTS, conf).compact(job, ENV));
+    EasyMock.verify(queue, zoo);
+  }
+}
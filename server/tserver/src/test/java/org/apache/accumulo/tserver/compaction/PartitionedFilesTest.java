@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.accumulo.server.fs.FileRef;
+import org.junit.Test;
+
+public class PartitionedFilesTest {
+
+  private static final String DIR = "hdfs://nn1/accumulo/tables/5/t-0001/";
+
+  private static List<FileRef> refs(String... names) {
+    FileRef[] refs = new FileRef[names.length];
+    for (int i = 0; i < names.length; i++) {
+      refs[i] = new FileRef(DIR + names[i]);
+    }
+    return Arrays.asList(refs);
+  }
+
+  private static Set<String> names(Set<FileRef> files) {
+    Set<String> names = new TreeSet<>();
+    for (FileRef file : files) {
+      names.add(file.path().getName());
+    }
+    return names;
+  }
+
+  @Test
+  public void testWithPartitions() {
+    List<FileRef> files = refs("C0001-p0.rf", "C0001-p1.rf", "C0001-p2.rf", "C0002-p0.rf",
+        "C0002-p1.rf", "F0003.rf", "F0004.rf");
+
+    // selecting one file of a partitioned compaction selects all of them
+    assertEquals(new TreeSet<>(Arrays.asList("C0001-p0.rf", "C0001-p1.rf", "C0001-p2.rf",
+        "F0003.rf")), names(PartitionedFiles.withPartitions(refs("C0001-p1.rf", "F0003.rf"),
+            files)));
+
+    // other files are left as they were selected
+    assertEquals(new TreeSet<>(Arrays.asList("F0003.rf", "F0004.rf")),
+        names(PartitionedFiles.withPartitions(refs("F0003.rf", "F0004.rf"), files)));
+    assertEquals(Collections.emptySet(),
+        PartitionedFiles.withPartitions(Collections.emptyList(), files));
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.security.crypto.impl.NoCryptoService;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.tserver.log.DfsLogger.LoggerOperation;
+import org.apache.accumulo.tserver.log.DfsLogger.ServerResources;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Syncable;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a {@link DfsLogger} with more than one sync outstanding, using a log file whose syncs
+ * complete when the test allows them to.
+ */
+public class DfsLoggerSyncTest {
+
+  private static final long WAIT_SECS = 10;
+
+  /**
+   * A stream whose syncs, once blocking is turned on, each wait for their own gate to be opened.
+   */
+  private static class GatedStream extends OutputStream implements Syncable {
+    private final Map<Integer,CountDownLatch> gates = new ConcurrentHashMap<>();
+    private final AtomicInteger syncs = new AtomicInteger();
+    private final Semaphore started = new Semaphore(0);
+    volatile boolean blocking = false;
+    volatile IOException failure;
+
+    private CountDownLatch gate(int sync) {
+      return gates.computeIfAbsent(sync, i -> new CountDownLatch(1));
+    }
+
+    void open(int sync) {
+      gate(sync).countDown();
+    }
+
+    boolean awaitStarted(int count) throws InterruptedException {
+      return started.tryAcquire(count, WAIT_SECS, TimeUnit.SECONDS);
+    }
+
+    boolean anyStarted() throws InterruptedException {
+      return started.tryAcquire(200, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+
+    @Override
+    public void hsync() throws IOException {
+      if (blocking) {
+        CountDownLatch gate = gate(syncs.getAndIncrement());
+        started.release();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (failure != null)
+        throw failure;
+    }
+
+    @Override
+    public void hflush() throws IOException {
+      hsync();
+    }
+  }
+
+  private ExecutorService waiters;
+  private GatedStream stream;
+  private DfsLogger logger;
+
+  @Before
+  public void setup() throws IOException {
+    waiters = Executors.newCachedThreadPool();
+
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_WAL_SYNC_MAX_INFLIGHT, "2");
+    ServerResources resources = new ServerResources() {
+      @Override
+      public AccumuloConfiguration getConfiguration() {
+        return conf;
+      }
+
+      @Override
+      public VolumeManager getFileSystem() {
+        return null;
+      }
+    };
+    ServerContext context = EasyMock.createMock(ServerContext.class);
+    EasyMock.expect(context.getCryptoService()).andReturn(new NoCryptoService()).anyTimes();
+    EasyMock.replay(context);
+
+    stream = new GatedStream();
+    logger = new DfsLogger(context, resources, new AtomicLong(), new AtomicLong(), null);
+    logger.open("/accumulo/wal/localhost+9997/" + getClass().getSimpleName(),
+        new FSDataOutputStream(stream, null));
+    stream.blocking = true;
+  }
+
+  @After
+  public void teardown() {
+    waiters.shutdownNow();
+  }
+
+  private Future<?> log(int seq) throws IOException {
+    Mutation m = new Mutation("r" + seq);
+    m.put("f", "q", "v");
+    LoggerOperation op = logger.log(seq, 1, m, Durability.SYNC);
+    return waiters.submit(() -> {
+      op.await();
+      return null;
+    });
+  }
+
+  private static void assertWaiting(Future<?> op) throws InterruptedException {
+    Thread.sleep(100);
+    assertFalse(op.isDone());
+  }
+
+  private static void assertDone(Future<?> op) throws Exception {
+    op.get(WAIT_SECS, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testSyncsCompleteOutOfOrder() throws Exception {
+    Future<?> op1 = log(1);
+    assertTrue(stream.awaitStarted(1));
+    Future<?> op2 = log(2);
+    assertTrue(stream.awaitStarted(1));
+
+    // both syncs are outstanding, so the third write waits for a slot
+    Future<?> op3 = log(3);
+    assertFalse(stream.anyStarted());
+
+    // the second sync finishing releases only the second write, and frees a slot for the third
+    stream.open(1);
+    assertDone(op2);
+    assertWaiting(op1);
+    assertTrue(stream.awaitStarted(1));
+
+    // the third write is only released by the sync started after it was written
+    stream.open(0);
+    assertDone(op1);
+    assertWaiting(op3);
+    stream.open(2);
+    assertDone(op3);
+
+    stream.open(3);
+    logger.close();
+  }
+
+  @Test
+  public void testWritesWaitingForSlotShareSync() throws Exception {
+    Future<?> op1 = log(1);
+    assertTrue(stream.awaitStarted(1));
+    Future<?> op2 = log(2);
+    assertTrue(stream.awaitStarted(1));
+
+    Future<?> op3 = log(3);
+    Future<?> op4 = log(4);
+    stream.open(0);
+    assertDone(op1);
+
+    // the writes that queued while no slot was free are synced together
+    assertTrue(stream.awaitStarted(1));
+    stream.open(2);
+    assertDone(op3);
+    assertDone(op4);
+    assertWaiting(op2);
+    stream.open(1);
+    assertDone(op2);
+
+    stream.open(3);
+    logger.close();
+  }
+
+  @Test
+  public void testFailedSync() throws Exception {
+    Future<?> op1 = log(1);
+    assertTrue(stream.awaitStarted(1));
+    stream.failure = new IOException("sync failed");
+    stream.open(0);
+    try {
+      op1.get(WAIT_SECS, TimeUnit.SECONDS);
+      fail("Expected the write to fail");
+    } catch (ExecutionException e) {
+      // the sync is invoked reflectively, so the failure arrives wrapped
+      Throwable cause = e.getCause();
+      while (cause != null && cause != stream.failure)
+        cause = cause.getCause();
+      assertEquals(stream.failure, cause);
+    }
+
+    stream.failure = null;
+    stream.open(1);
+    stream.open(2);
+    assertDone(log(2));
+    logger.close();
+  }
+
+  @Test
+  public void testCloseWaitsForOutstandingSyncs() throws Exception {
+    Future<?> op1 = log(1);
+    assertTrue(stream.awaitStarted(1));
+    Future<?> op2 = log(2);
+    assertTrue(stream.awaitStarted(1));
+
+    Future<?> closed = waiters.submit(() -> {
+      logger.close();
+      return null;
+    });
+    stream.open(1);
+    assertDone(op2);
+    // the close marker is flushed in the freed slot, but the first sync is still outstanding
+    stream.open(2);
+    assertWaiting(closed);
+
+    stream.open(0);
+    assertDone(op1);
+    assertDone(closed);
+  }
+}
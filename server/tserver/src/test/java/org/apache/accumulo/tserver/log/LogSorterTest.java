@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.security.crypto.impl.NoCryptoService;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.data.ServerMutation;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.server.log.SortedLogState;
+import org.apache.accumulo.tserver.TabletMutations;
+import org.apache.accumulo.tserver.log.DfsLogger.ServerResources;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogSorterTest {
+
+  private static final int TABLETS = 10;
+  private static final int BATCHES = 500;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(
+      new File(System.getProperty("user.dir") + "/target"));
+
+  private VolumeManager fs;
+  private Path walPath;
+
+  @Before
+  public void writeLog() throws Exception {
+    File dir = tempFolder.newFolder();
+    fs = VolumeManagerImpl.getLocal(dir.getAbsolutePath());
+    walPath = new Path(new File(dir, "wal").toURI());
+
+    ServerContext context = EasyMock.createMock(ServerContext.class);
+    EasyMock.expect(context.getCryptoService()).andReturn(new NoCryptoService()).anyTimes();
+    EasyMock.replay(context);
+    ServerResources resources = new ServerResources() {
+      @Override
+      public AccumuloConfiguration getConfiguration() {
+        return DefaultConfiguration.getInstance();
+      }
+
+      @Override
+      public VolumeManager getFileSystem() {
+        return fs;
+      }
+    };
+
+    DfsLogger logger = new DfsLogger(context, resources, new AtomicLong(), new AtomicLong(),
+        null);
+    logger.open(walPath.toString(), fs.create(walPath));
+    for (int tid = 0; tid < TABLETS; tid++) {
+      logger.defineTablet(1, tid, new KeyExtent(Table.ID.of("1"), new Text("t" + tid), null));
+    }
+    // the tablets are written in a different order in each batch, so every chunk needs sorting
+    for (int batch = 0; batch < BATCHES; batch++) {
+      List<TabletMutations> mutations = new ArrayList<>();
+      for (int i = 0; i < TABLETS; i++) {
+        int tid = (batch * 7 + i * 3) % TABLETS;
+        ServerMutation m = new ServerMutation(new Text(String.format("r%05d", batch)));
+        m.put("f", "q" + tid, "v" + batch);
+        mutations.add(new TabletMutations(tid, batch, Arrays.asList(m), Durability.LOG));
+      }
+      logger.logManyTablets(mutations);
+    }
+    logger.close();
+  }
+
+  private List<List<Pair<LogFileKey,List<Mutation>>>> sort(int threads) throws Exception {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_SORT_THREADS, Integer.toString(threads));
+    conf.set(Property.TSERV_SORT_BUFFER_SIZE, "16K");
+
+    String dest = new Path(walPath.getParent(), "sorted" + threads).toString();
+    new LogSorter(null, fs, conf).sort("wal", walPath, dest);
+    assertTrue(fs.exists(SortedLogState.getFinishedMarkerPath(dest)));
+
+    List<List<Pair<LogFileKey,List<Mutation>>>> parts = new ArrayList<>();
+    FileStatus[] statuses = fs.listStatus(new Path(dest));
+    Arrays.sort(statuses);
+    for (FileStatus status : statuses) {
+      if (!status.getPath().getName().startsWith("part-r-"))
+        continue;
+      List<Pair<LogFileKey,List<Mutation>>> part = new ArrayList<>();
+      FileSystem ns = fs.getVolumeByPath(status.getPath()).getFileSystem();
+      try (MapFile.Reader reader = new MapFile.Reader(status.getPath(), ns.getConf())) {
+        LogFileKey key = new LogFileKey();
+        LogFileValue value = new LogFileValue();
+        LogFileKey previous = null;
+        while (reader.next(key, value)) {
+          if (previous != null)
+            assertTrue(previous.compareTo(key) <= 0);
+          part.add(new Pair<>(key, value.mutations));
+          previous = key;
+          key = new LogFileKey();
+          value = new LogFileValue();
+        }
+      }
+      parts.add(part);
+    }
+    return parts;
+  }
+
+  @Test
+  public void testParallelSortMatchesSequential() throws Exception {
+    List<List<Pair<LogFileKey,List<Mutation>>>> expected = sort(1);
+    // the log is larger than the sort buffer, so it is sorted in several chunks
+    assertTrue(expected.size() > 2);
+    assertEquals(1 + TABLETS + BATCHES * TABLETS,
+        expected.stream().mapToInt(List::size).sum());
+
+    assertEquals(expected, sort(4));
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.fate.util.Retry;
+import org.apache.accumulo.fate.util.Retry.RetryFactory;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.tserver.Mutations;
+import org.apache.accumulo.tserver.TabletMutations;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.log.DfsLogger.ServerResources;
+import org.apache.accumulo.tserver.tablet.CommitSession;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+public class TabletServerLoggerTest {
+
+  private static final int STRIPES = 3;
+
+  private static final ServerResources RESOURCES = new ServerResources() {
+    @Override
+    public AccumuloConfiguration getConfiguration() {
+      return DefaultConfiguration.getInstance();
+    }
+
+    @Override
+    public VolumeManager getFileSystem() {
+      return null;
+    }
+  };
+
+  private final AtomicInteger logCount = new AtomicInteger();
+  // the tablet ids written to each log, by log name
+  private final Map<String,List<Integer>> written = new ConcurrentHashMap<>();
+  private final List<String> closed = new CopyOnWriteArrayList<>();
+  // tablets whose writes fail while their count is positive
+  private final Map<Integer,AtomicInteger> failures = new ConcurrentHashMap<>();
+  // when set, every write waits for writes to all stripes to be in progress
+  private volatile CountDownLatch concurrentWrites;
+
+  private TabletServerLogger logger;
+
+  /**
+   * A log that records the tablets written to it instead of writing a file.
+   */
+  private class TestLog extends DfsLogger {
+    private final String name = "wal" + logCount.getAndIncrement();
+
+    TestLog() throws IOException {
+      super(null, RESOURCES, new AtomicLong(), new AtomicLong(), null);
+    }
+
+    @Override
+    public synchronized void open(String address) {}
+
+    @Override
+    public String getFileName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+
+    @Override
+    public synchronized void defineTablet(long seq, int tid, KeyExtent tablet) {}
+
+    @Override
+    public LoggerOperation logManyTablets(List<TabletMutations> mutations) throws IOException {
+      CountDownLatch latch = concurrentWrites;
+      if (latch != null) {
+        latch.countDown();
+        try {
+          if (!latch.await(10, TimeUnit.SECONDS))
+            throw new IllegalStateException("Stripes were not written concurrently");
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      for (TabletMutations tm : mutations) {
+        AtomicInteger remaining = failures.get(tm.getTid());
+        if (remaining != null && remaining.getAndDecrement() > 0)
+          throw new IOException("Failed to write tablet " + tm.getTid());
+      }
+      for (TabletMutations tm : mutations) {
+        written.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>()).add(tm.getTid());
+      }
+      return DfsLogger.NO_WAIT_LOGGER_OP;
+    }
+
+    @Override
+    public void close() {
+      closed.add(name);
+    }
+  }
+
+  private void createLogger(int stripes, long maxSize) throws Exception {
+    TabletServer tserver = EasyMock.createNiceMock(TabletServer.class);
+    EasyMock.expect(tserver.getServerConfig()).andReturn(RESOURCES).anyTimes();
+    EasyMock.expect(tserver.getClientAddressString()).andReturn("localhost:9997").anyTimes();
+    EasyMock.replay(tserver);
+
+    RetryFactory retries = Retry.builder().maxRetries(3).retryAfter(1, TimeUnit.MILLISECONDS)
+        .incrementBy(1, TimeUnit.MILLISECONDS).maxWait(1, TimeUnit.MILLISECONDS)
+        .logInterval(1, TimeUnit.MINUTES).createFactory();
+    logger = new TabletServerLogger(tserver, maxSize, new AtomicLong(), new AtomicLong(),
+        retries, retries, Long.MAX_VALUE, stripes) {
+      @Override
+      protected DfsLogger newLogger() throws IOException {
+        return new TestLog();
+      }
+    };
+  }
+
+  @After
+  public void teardown() {
+    if (logger != null)
+      logger.close();
+  }
+
+  private static KeyExtent extent(int tid) {
+    return new KeyExtent(Table.ID.of("1"), new Text(String.format("%04d", tid + 1)),
+        tid == 0 ? null : new Text(String.format("%04d", tid)));
+  }
+
+  private static CommitSession session(int tid) {
+    CommitSession session = EasyMock.createMock(CommitSession.class);
+    EasyMock.expect(session.getExtent()).andReturn(extent(tid)).anyTimes();
+    EasyMock.expect(session.getLogId()).andReturn(tid).anyTimes();
+    EasyMock.expect(session.getWALogSeq()).andReturn(1L).anyTimes();
+    EasyMock.expect(session.beginUpdatingLogsUsed(EasyMock.anyObject(), EasyMock.anyBoolean()))
+        .andReturn(false).anyTimes();
+    EasyMock.replay(session);
+    return session;
+  }
+
+  private static Mutations mutations() {
+    Mutation m = new Mutation("r");
+    m.put("f", "q", "v");
+    Mutations mutations = EasyMock.createMock(Mutations.class);
+    EasyMock.expect(mutations.getDurability()).andReturn(Durability.SYNC).anyTimes();
+    EasyMock.expect(mutations.getMutations()).andReturn(Collections.singletonList(m))
+        .anyTimes();
+    EasyMock.replay(mutations);
+    return mutations;
+  }
+
+  private static Map<CommitSession,Mutations> batch(Iterable<Integer> tids) {
+    Map<CommitSession,Mutations> batch = new HashMap<>();
+    for (int tid : tids) {
+      batch.put(session(tid), mutations());
+    }
+    return batch;
+  }
+
+  // one tablet for each stripe
+  private static List<Integer> tabletPerStripe() {
+    Map<Integer,Integer> tablets = new HashMap<>();
+    for (int tid = 0; tablets.size() < STRIPES; tid++) {
+      tablets.putIfAbsent(TabletServerLogger.stripeIndex(extent(tid), STRIPES), tid);
+    }
+    return new ArrayList<>(tablets.values());
+  }
+
+  private String logOf(int tid) {
+    for (Map.Entry<String,List<Integer>> entry : written.entrySet()) {
+      if (entry.getValue().contains(tid))
+        return entry.getKey();
+    }
+    throw new AssertionError("Tablet " + tid + " was not written");
+  }
+
+  @Test
+  public void testStripeAssignment() throws Exception {
+    createLogger(STRIPES, Long.MAX_VALUE);
+    List<Integer> tids = new ArrayList<>();
+    for (int tid = 0; tid < 30; tid++) {
+      tids.add(tid);
+    }
+    logger.logManyTablets(batch(tids));
+    for (int tid : tids) {
+      logger.log(session(tid), 2, mutations().getMutations().get(0), Durability.SYNC);
+    }
+
+    // each stripe has one log, and every write of a tablet goes to the log of its stripe
+    assertEquals(STRIPES, written.size());
+    assertEquals(STRIPES, logger.getLogFiles().size());
+    Map<Integer,String> logOfStripe = new HashMap<>();
+    for (Map.Entry<String,List<Integer>> entry : written.entrySet()) {
+      for (int tid : entry.getValue()) {
+        String previous = logOfStripe.putIfAbsent(TabletServerLogger.stripeIndex(extent(tid),
+            STRIPES), entry.getKey());
+        assertTrue(previous == null || previous.equals(entry.getKey()));
+      }
+    }
+    assertEquals(STRIPES, logOfStripe.size());
+    assertEquals(2 * tids.size(),
+        written.values().stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  public void testSingleStripe() throws Exception {
+    createLogger(1, Long.MAX_VALUE);
+    logger.logManyTablets(batch(tabletPerStripe()));
+    assertEquals(1, written.size());
+    assertEquals(STRIPES, written.values().iterator().next().size());
+  }
+
+  @Test
+  public void testStripesWrittenConcurrently() throws Exception {
+    createLogger(STRIPES, Long.MAX_VALUE);
+    List<Integer> tids = tabletPerStripe();
+    // open the logs first, so only the writes wait on each other
+    logger.logManyTablets(batch(tids));
+
+    concurrentWrites = new CountDownLatch(STRIPES);
+    logger.logManyTablets(batch(tids));
+    assertEquals(0, concurrentWrites.getCount());
+  }
+
+  @Test
+  public void testFailedStripeRolls() throws Exception {
+    createLogger(STRIPES, Long.MAX_VALUE);
+    List<Integer> tids = tabletPerStripe();
+    logger.logManyTablets(batch(tids));
+    Map<Integer,String> logs = new HashMap<>();
+    for (int tid : tids) {
+      logs.put(tid, logOf(tid));
+    }
+
+    // a write that fails once is retried on a new log, the other stripes keep their logs
+    int failing = tids.get(0);
+    failures.put(failing, new AtomicInteger(1));
+    logger.logManyTablets(batch(tids));
+    assertEquals(Collections.singletonList(logs.get(failing)), closed);
+    assertEquals(STRIPES, logger.getLogFiles().size());
+    assertTrue(logger.getLogFiles().containsAll(logs.values().stream()
+        .filter(log -> !log.equals(logs.get(failing))).collect(Collectors.toList())));
+    assertNotEquals(logs.get(failing), logOf(failing));
+  }
+
+  @Test
+  public void testStripeFailure() throws Exception {
+    createLogger(STRIPES, Long.MAX_VALUE);
+    List<Integer> tids = tabletPerStripe();
+    logger.logManyTablets(batch(tids));
+
+    // a stripe that keeps failing fails the batch once its retries are used up
+    int failing = tids.get(1);
+    failures.put(failing, new AtomicInteger(Integer.MAX_VALUE));
+    try {
+      logger.logManyTablets(batch(tids));
+      fail("Expected the write to fail");
+    } catch (IllegalStateException e) {}
+
+    // the other stripes were still written
+    for (int tid : tids) {
+      long writes = written.values().stream().flatMap(List::stream).filter(t -> t == tid)
+          .count();
+      assertEquals(tid == failing ? 1 : 2, writes);
+    }
+  }
+
+  @Test
+  public void testStripesRollIndependently() throws Exception {
+    // each write adds more than the maximum size, so a stripe rolls after every write
+    createLogger(STRIPES, 1);
+    List<Integer> tids = tabletPerStripe();
+    logger.logManyTablets(batch(tids));
+    assertEquals(STRIPES, closed.size());
+    assertTrue(logger.getLogFiles().isEmpty());
+
+    // writing to one stripe only rolls that stripe
+    int tid = tids.get(2);
+    logger.log(session(tid), 2, mutations().getMutations().get(0), Durability.SYNC);
+    assertEquals(STRIPES + 1, closed.size());
+    Set<String> logsOfTablet = new HashSet<>();
+    for (Map.Entry<String,List<Integer>> entry : written.entrySet()) {
+      if (entry.getValue().contains(tid))
+        logsOfTablet.add(entry.getKey());
+    }
+    assertEquals(2, logsOfTablet.size());
+    assertTrue(closed.containsAll(logsOfTablet));
+  }
+}
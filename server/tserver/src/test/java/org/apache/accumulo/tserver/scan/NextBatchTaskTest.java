@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.session.SingleScanSession;
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+import org.apache.accumulo.tserver.tablet.Scanner;
+import org.apache.accumulo.tserver.tablet.Tablet;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NextBatchTaskTest {
+
+  private static final long SCAN_ID = 1;
+
+  private AtomicLong readAheadMemory;
+  private TabletServer server;
+  private Scanner scanner;
+  private SingleScanSession session;
+
+  @Before
+  public void setup() {
+    KeyExtent extent = new KeyExtent(Table.ID.of("1"), null, null);
+    TCredentials credentials = new TCredentials();
+    credentials.setPrincipal("user");
+    session = new SingleScanSession(credentials, extent, new HashSet<>(), Collections.emptyList(),
+        Collections.emptyMap(), Authorizations.EMPTY, 0, 0, null, Collections.emptyMap());
+    scanner = EasyMock.createMock(Scanner.class);
+    session.scanner = scanner;
+
+    readAheadMemory = new AtomicLong();
+    server = EasyMock.createMock(TabletServer.class);
+    EasyMock.expect(server.getSession(SCAN_ID)).andReturn(session).anyTimes();
+    EasyMock.expect(server.getOnlineTablet(extent)).andReturn(EasyMock.createMock(Tablet.class))
+        .anyTimes();
+    EasyMock.expect(server.getScanReadAheadMemory()).andReturn(readAheadMemory).anyTimes();
+  }
+
+  private static ScanBatch batch(boolean more) {
+    return new ScanBatch(
+        Collections.singletonList(new KVEntry(new Key("r"), new Value(new byte[] {1}))), more);
+  }
+
+  @Test
+  public void testChainsToNextBatch() throws Exception {
+    ScanBatch batch = batch(true);
+    EasyMock.expect(scanner.read()).andReturn(batch);
+    // the next batch is queued before this task's result is visible
+    server.readAhead(SCAN_ID, session);
+    EasyMock.expectLastCall().andAnswer(() -> {
+      assertEquals(batch.numBytes(), readAheadMemory.get());
+      return null;
+    });
+    EasyMock.replay(server, scanner);
+
+    NextBatchTask task = new NextBatchTask(server, SCAN_ID, session.interruptFlag);
+    task.run();
+    assertSame(batch, task.poll());
+    EasyMock.verify(server, scanner);
+
+    task.releaseMemory();
+    assertEquals(0, readAheadMemory.get());
+    // releasing again does not count the batch twice
+    task.releaseMemory();
+    assertEquals(0, readAheadMemory.get());
+  }
+
+  @Test
+  public void testLastBatchEndsChain() throws Exception {
+    ScanBatch batch = batch(false);
+    EasyMock.expect(scanner.read()).andReturn(batch);
+    EasyMock.replay(server, scanner);
+
+    NextBatchTask task = new NextBatchTask(server, SCAN_ID, session.interruptFlag);
+    task.run();
+    assertSame(batch, task.poll());
+    // readAhead was not expected, so verify fails if the task called it
+    EasyMock.verify(server, scanner);
+  }
+
+  @Test
+  public void testReleaseBeforeRun() throws Exception {
+    EasyMock.expect(scanner.read()).andReturn(batch(false));
+    EasyMock.replay(server, scanner);
+
+    // a task released before it ran, as when its session is cleaned up, never holds memory
+    NextBatchTask task = new NextBatchTask(server, SCAN_ID, session.interruptFlag);
+    task.releaseMemory();
+    task.run();
+    assertEquals(0, readAheadMemory.get());
+  }
+
+  @Test
+  public void testInterruptedScanDoesNotRead() {
+    EasyMock.replay(server, scanner);
+
+    session.interruptFlag.set(true);
+    NextBatchTask task = new NextBatchTask(server, SCAN_ID, session.interruptFlag);
+    task.run();
+    assertTrue(task.isCancelled());
+    assertNull(task.poll());
+    EasyMock.verify(scanner);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ScanTaskTest {
+
+  private static class TestTask extends ScanTask<String> {
+    TestTask() {
+      super(null);
+    }
+
+    @Override
+    public void run() {}
+  }
+
+  @Test
+  public void testPollResult() {
+    TestTask task = new TestTask();
+    assertNull(task.poll());
+
+    task.addResult("batch");
+    assertEquals("batch", task.poll());
+    // the result can only be retrieved once
+    assertNull(task.poll());
+  }
+
+  @Test
+  public void testPollException() throws Exception {
+    TestTask task = new TestTask();
+    IOException ioe = new IOException("scan failed");
+    task.addResult(ioe);
+
+    // exceptions are left for get
+    assertNull(task.poll());
+    try {
+      task.get(0, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertEquals(ioe, e.getCause());
+    }
+  }
+
+  @Test
+  public void testPollCancelled() throws Exception {
+    TestTask task = new TestTask();
+    assertTrue(task.cancel(true));
+
+    assertNull(task.poll());
+    try {
+      task.get(0, TimeUnit.SECONDS);
+      fail("Expected CancellationException");
+    } catch (CancellationException e) {}
+
+    // a result added after the cancel is dropped
+    task.addResult("batch");
+    assertNull(task.poll());
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.scan.NextBatchTask;
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+import org.apache.accumulo.tserver.tablet.Scanner;
+import org.apache.accumulo.tserver.tablet.Tablet;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleScanSessionTest {
+
+  private static final long SCAN_ID = 1;
+
+  private AtomicLong readAheadMemory;
+  private TabletServer server;
+  private Scanner scanner;
+  private SingleScanSession session;
+
+  @Before
+  public void setup() {
+    KeyExtent extent = new KeyExtent(Table.ID.of("1"), null, null);
+    TCredentials credentials = new TCredentials();
+    credentials.setPrincipal("user");
+    session = new SingleScanSession(credentials, extent, new HashSet<>(), Collections.emptyList(),
+        Collections.emptyMap(), Authorizations.EMPTY, 0, 0, null, Collections.emptyMap());
+    scanner = EasyMock.createMock(Scanner.class);
+    session.scanner = scanner;
+
+    readAheadMemory = new AtomicLong();
+    server = EasyMock.createMock(TabletServer.class);
+    EasyMock.expect(server.getSession(SCAN_ID)).andReturn(session).anyTimes();
+    EasyMock.expect(server.getOnlineTablet(extent)).andReturn(EasyMock.createMock(Tablet.class))
+        .anyTimes();
+    EasyMock.expect(server.getScanReadAheadMemory()).andReturn(readAheadMemory).anyTimes();
+    server.readAhead(SCAN_ID, session);
+    EasyMock.expectLastCall().anyTimes();
+  }
+
+  private static ScanBatch batch(int start, int end, boolean more) {
+    List<KVEntry> results = new ArrayList<>();
+    for (int i = start; i < end; i++) {
+      results.add(new KVEntry(new Key(String.format("r%03d", i)), new Value(new byte[] {1})));
+    }
+    return new ScanBatch(results, more);
+  }
+
+  /**
+   * Queues a read ahead task for each batch, running the first count of them.
+   */
+  private void readAhead(int count, ScanBatch... batches) throws Exception {
+    for (int i = 0; i < count; i++) {
+      EasyMock.expect(scanner.read()).andReturn(batches[i]);
+    }
+    EasyMock.replay(server, scanner);
+    for (int i = 0; i < batches.length; i++) {
+      NextBatchTask task = new NextBatchTask(server, SCAN_ID, session.interruptFlag);
+      if (i < count)
+        task.run();
+      session.readAheadTasks.add(task);
+    }
+  }
+
+  private static void assertKeys(ScanBatch batch, int start, int end) {
+    assertEquals(end - start, batch.getResults().size());
+    for (int i = start; i < end; i++) {
+      assertEquals(new Key(String.format("r%03d", i)), batch.getResults().get(i - start).getKey());
+    }
+  }
+
+  @Test
+  public void testAppendAll() throws Exception {
+    ScanBatch batch2 = batch(10, 20, true);
+    ScanBatch batch3 = batch(20, 30, false);
+    readAhead(2, batch2, batch3);
+    assertEquals(batch2.numBytes() + batch3.numBytes(), readAheadMemory.get());
+
+    ScanBatch result = session.appendReadAhead(batch(0, 10, true), Long.MAX_VALUE);
+    assertKeys(result, 0, 30);
+    assertFalse(result.isMore());
+    assertEquals(0, readAheadMemory.get());
+    assertTrue(session.readAheadTasks.isEmpty());
+    assertEquals(2, session.batchCount);
+    EasyMock.verify(scanner);
+  }
+
+  @Test
+  public void testStopsAtUnreadBatch() throws Exception {
+    ScanBatch batch2 = batch(10, 20, true);
+    readAhead(1, batch2, batch(20, 30, false));
+
+    ScanBatch result = session.appendReadAhead(batch(0, 10, true), Long.MAX_VALUE);
+    assertKeys(result, 0, 20);
+    assertTrue(result.isMore());
+    assertEquals(0, readAheadMemory.get());
+    assertEquals(1, session.readAheadTasks.size());
+    assertEquals(1, session.batchCount);
+  }
+
+  @Test
+  public void testStopsAtMaxBytes() throws Exception {
+    ScanBatch batch1 = batch(0, 10, true);
+    ScanBatch batch2 = batch(10, 20, true);
+    ScanBatch batch3 = batch(20, 30, false);
+    readAhead(2, batch2, batch3);
+
+    // nothing is appended once the batch holds the limit
+    assertSame(batch1, session.appendReadAhead(batch1, batch1.numBytes()));
+    assertEquals(batch2.numBytes() + batch3.numBytes(), readAheadMemory.get());
+
+    // the limit can be exceeded by the last batch appended
+    ScanBatch result = session.appendReadAhead(batch1, batch1.numBytes() + 1);
+    assertKeys(result, 0, 20);
+    assertTrue(result.isMore());
+    assertEquals(batch3.numBytes(), readAheadMemory.get());
+    assertEquals(1, session.readAheadTasks.size());
+  }
+
+  @Test
+  public void testLastBatch() throws Exception {
+    readAhead(1, batch(10, 20, false));
+
+    // nothing follows the last batch of the scan
+    ScanBatch batch1 = batch(0, 10, false);
+    assertSame(batch1, session.appendReadAhead(batch1, Long.MAX_VALUE));
+    assertEquals(1, session.readAheadTasks.size());
+  }
+
+  @Test
+  public void testCanReadAhead() throws Exception {
+    readAhead(0, batch(10, 20, true));
+
+    // one batch is queued, so with the batch that was just read the depth is two
+    assertTrue(session.canReadAhead(3, 0, 100));
+    assertFalse(session.readAheadStalled.get());
+
+    assertFalse(session.canReadAhead(2, 0, 100));
+    assertTrue(session.readAheadStalled.get());
+  }
+
+  @Test
+  public void testReadAheadMemoryCap() {
+    assertTrue(session.canReadAhead(4, 99, 100));
+    assertFalse(session.readAheadStalled.get());
+
+    // batches read ahead by all scans count against the limit
+    assertFalse(session.canReadAhead(4, 100, 100));
+    assertTrue(session.readAheadStalled.get());
+  }
+
+  @Test
+  public void testNoReadAheadBeforeThresholdOrAfterInterrupt() {
+    SingleScanSession thresholdSession = new SingleScanSession(new TCredentials(),
+        session.extent, new HashSet<>(), Collections.emptyList(), Collections.emptyMap(),
+        Authorizations.EMPTY, 3, 0, null, Collections.emptyMap());
+    thresholdSession.batchCount = 2;
+    assertFalse(thresholdSession.canReadAhead(4, 0, 100));
+    thresholdSession.batchCount = 3;
+    assertTrue(thresholdSession.canReadAhead(4, 0, 100));
+
+    session.interruptFlag.set(true);
+    assertFalse(session.canReadAhead(4, 0, 100));
+
+    // neither is a reason to restart the read ahead when the client takes a batch
+    assertFalse(thresholdSession.readAheadStalled.get());
+    assertFalse(session.readAheadStalled.get());
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.tablet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.core.security.crypto.impl.NoCryptoService;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionCanceledException;
+import org.apache.accumulo.tserver.tablet.Compactor.CompactionEnv;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompactorTest {
+
+  private static final int ROWS = 500;
+  private static final String[] FAMILIES = {"f1", "f2", "f3", "f4", "f5"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(
+      new File(System.getProperty("user.dir") + "/target"));
+
+  private ServerContext context;
+  private VolumeManager fs;
+  private File dir;
+  private Map<FileRef,DataFileValue> files;
+  private CompactionStats stats;
+
+  private static class TestEnv implements CompactionEnv {
+    // the number of times compaction is reported enabled before it is canceled
+    private final AtomicInteger enabledChecks;
+    // the number of readers opened before opening one fails
+    private final AtomicInteger readers;
+
+    TestEnv(int enabledChecks, int readers) {
+      this.enabledChecks = new AtomicInteger(enabledChecks);
+      this.readers = new AtomicInteger(readers);
+    }
+
+    @Override
+    public boolean isCompactionEnabled() {
+      return enabledChecks.getAndDecrement() > 0;
+    }
+
+    @Override
+    public IteratorScope getIteratorScope() {
+      return IteratorScope.majc;
+    }
+
+    @Override
+    public RateLimiter getReadLimiter() {
+      if (readers.getAndDecrement() <= 0)
+        throw new IllegalStateException("Failed to open reader");
+      return null;
+    }
+
+    @Override
+    public RateLimiter getWriteLimiter() {
+      return null;
+    }
+  }
+
+  @Before
+  public void setup() throws Exception {
+    context = EasyMock.createMock(ServerContext.class);
+    EasyMock.expect(context.getCryptoService()).andReturn(new NoCryptoService()).anyTimes();
+    EasyMock.replay(context);
+
+    File base = tempFolder.newFolder();
+    fs = VolumeManagerImpl.getLocal(base.getAbsolutePath());
+    dir = new File(base, "tables/1/default_tablet");
+    assertTrue(dir.mkdirs());
+
+    // two files whose rows overlap, so the compaction merges them
+    files = new HashMap<>();
+    files.put(writeFile("F0000.rf", 0, ROWS, 1), new DataFileValue(1, 1));
+    files.put(writeFile("F0001.rf", ROWS / 2, ROWS + ROWS / 2, 2), new DataFileValue(1, 1));
+  }
+
+  private static AccumuloConfiguration tableConf(int lgThreads) {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TABLE_LOCALITY_GROUPS, "g1,g2,g3");
+    conf.set(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey() + "g1", "f1");
+    conf.set(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey() + "g2", "f2,f3");
+    conf.set(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey() + "g3", "f4");
+    conf.set(Property.TABLE_MAJC_LOCALITY_GROUP_THREADS, Integer.toString(lgThreads));
+    return conf;
+  }
+
+  private FileRef writeFile(String name, int startRow, int endRow, long ts) throws IOException {
+    Path path = new Path(new File(dir, name).toURI());
+    FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
+    FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(path.toString(), ns, ns.getConf()).withTableConfiguration(tableConf(1))
+        .withCryptoService(new NoCryptoService()).build();
+    writer.startDefaultLocalityGroup();
+    for (int row = startRow; row < endRow; row++) {
+      for (String family : FAMILIES) {
+        writer.append(new Key(String.format("r%04d", row), family, "q", ts),
+            new Value((family + row + "_" + ts).getBytes()));
+      }
+    }
+    writer.close();
+    return new FileRef(path.toString());
+  }
+
+  private FileRef compact(String name, int lgThreads, CompactionEnv env) throws Exception {
+    FileRef output = new FileRef(new Path(new File(dir, name).toURI()).toString());
+    TabletServer tserver = EasyMock.createMock(TabletServer.class);
+    EasyMock.expect(tserver.getFileSystem()).andReturn(fs).anyTimes();
+    Tablet tablet = EasyMock.createMock(Tablet.class);
+    EasyMock.expect(tablet.getExtent()).andReturn(new KeyExtent(Table.ID.of("1"), null, null))
+        .anyTimes();
+    EasyMock.expect(tablet.getTabletServer()).andReturn(tserver).anyTimes();
+    EasyMock.replay(tserver, tablet);
+
+    Compactor compactor = new Compactor(context, tablet, files, null, output, false, env,
+        Collections.emptyList(), MajorCompactionReason.NORMAL.ordinal(), tableConf(lgThreads));
+    stats = compactor.call();
+    return output;
+  }
+
+  private List<Entry<Key,Value>> read(FileRef file, Set<ByteSequence> families,
+      boolean inclusive) throws IOException {
+    FileSystem ns = fs.getVolumeByPath(file.path()).getFileSystem();
+    FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(file.path().toString(), ns, ns.getConf()).withTableConfiguration(tableConf(1))
+        .withCryptoService(new NoCryptoService()).build();
+    List<Entry<Key,Value>> entries = new ArrayList<>();
+    try {
+      reader.seek(new Range(), families, inclusive);
+      while (reader.hasTop()) {
+        entries.add(new HashMap.SimpleImmutableEntry<>(new Key(reader.getTopKey()),
+            new Value(reader.getTopValue())));
+        reader.next();
+      }
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  private void assertNoPartFiles() {
+    for (String name : dir.list()) {
+      assertFalse("Found locality group file " + name, name.matches("\\.?lg\\d+_.*"));
+    }
+  }
+
+  private Set<String> fileNames() {
+    return new TreeSet<>(Arrays.asList(dir.list((d, name) -> !name.startsWith("."))));
+  }
+
+  @Test
+  public void testParallelMatchesSequential() throws Exception {
+    FileRef sequential = compact("A0000.rf_tmp", 1, new TestEnv(Integer.MAX_VALUE, 100));
+    FileRef parallel = compact("A0001.rf_tmp", 3, new TestEnv(Integer.MAX_VALUE, 100));
+    assertNoPartFiles();
+
+    List<Entry<Key,Value>> expected = read(sequential, Collections.emptySet(), false);
+    assertEquals(2 * ROWS * FAMILIES.length, expected.size());
+    assertEquals(expected, read(parallel, Collections.emptySet(), false));
+
+    // each locality group holds the same keys
+    Map<String,Set<ByteSequence>> groups = LocalityGroupUtil.getLocalityGroups(tableConf(3));
+    for (Set<ByteSequence> families : groups.values()) {
+      List<Entry<Key,Value>> group = read(sequential, families, true);
+      assertFalse(group.isEmpty());
+      assertEquals(group, read(parallel, families, true));
+    }
+  }
+
+  @Test
+  public void testParallelCountsCopy() throws Exception {
+    compact("A0000.rf_tmp", 1, new TestEnv(Integer.MAX_VALUE, 100));
+    CompactionStats sequential = stats;
+    assertEquals(0, sequential.getEntriesCopied());
+    assertEquals(0, sequential.getBytesCopied());
+
+    compact("A0001.rf_tmp", 3, new TestEnv(Integer.MAX_VALUE, 100));
+    assertEquals(sequential.getEntriesRead(), stats.getEntriesRead());
+    assertEquals(sequential.getEntriesWritten(), stats.getEntriesWritten());
+    // every written entry was copied from a locality group file into the output file
+    assertEquals(stats.getEntriesWritten(), stats.getEntriesCopied());
+    assertTrue(stats.getBytesCopied() > 0);
+  }
+
+  @Test
+  public void testFailureRemovesFiles() throws Exception {
+    Set<String> inputs = fileNames();
+    // each of the four groups reads the two input files, then copying the first group fails
+    try {
+      compact("A0000.rf_tmp", 4, new TestEnv(Integer.MAX_VALUE, 8));
+      fail("Expected the compaction to fail");
+    } catch (IllegalStateException e) {}
+    assertNoPartFiles();
+    assertEquals(inputs, fileNames());
+  }
+
+  @Test
+  public void testCanceledRemovesFiles() throws Exception {
+    Set<String> inputs = fileNames();
+    try {
+      compact("A0000.rf_tmp", 4, new TestEnv(100, 100));
+      fail("Expected the compaction to be canceled");
+    } catch (CompactionCanceledException e) {}
+    assertNoPartFiles();
+    assertEquals(inputs, fileNames());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.AsyncScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.harness.AccumuloClusterHarness;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class AsyncScannerIT extends AccumuloClusterHarness {
+
+  private static final int NUM_ROWS = 1000;
+
+  @Override
+  protected int defaultTimeoutSeconds() {
+    return 120;
+  }
+
+  private static String row(int i) {
+    return String.format("r%04d", i);
+  }
+
+  private String createTable(AccumuloClient c) throws Exception {
+    String table = getUniqueNames(1)[0];
+    c.tableOperations().create(table);
+
+    TreeSet<Text> splits = new TreeSet<>();
+    for (int i = 100; i < NUM_ROWS; i += 100) {
+      splits.add(new Text(row(i)));
+    }
+    c.tableOperations().addSplits(table, splits);
+
+    try (BatchWriter bw = c.createBatchWriter(table, new BatchWriterConfig())) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        Mutation m = new Mutation(row(i));
+        m.put("cf", "cq", Integer.toString(i));
+        bw.addMutation(m);
+      }
+    }
+    return table;
+  }
+
+  private static List<Entry<Key,Value>> readAll(AsyncScanner scanner) throws Exception {
+    List<Entry<Key,Value>> entries = new ArrayList<>();
+    while (true) {
+      List<Entry<Key,Value>> batch = scanner.nextBatch().get();
+      if (batch.isEmpty()) {
+        return entries;
+      }
+      assertTrue(batch.size() <= scanner.getBatchSize());
+      entries.addAll(batch);
+    }
+  }
+
+  @Test
+  public void testMatchesScanner() throws Exception {
+    AccumuloClient c = getAccumuloClient();
+    String table = createTable(c);
+
+    List<Entry<Key,Value>> expected = new ArrayList<>();
+    try (Scanner scanner = c.createScanner(table, Authorizations.EMPTY)) {
+      scanner.forEach(expected::add);
+    }
+    assertEquals(NUM_ROWS, expected.size());
+
+    try (AsyncScanner scanner = c.createAsyncScanner(table, Authorizations.EMPTY)) {
+      scanner.setBatchSize(7);
+      assertEquals(expected, readAll(scanner));
+      // the scan stays finished
+      assertTrue(scanner.nextBatch().get().isEmpty());
+    }
+
+    try (AsyncScanner scanner = c.createAsyncScanner(table, Authorizations.EMPTY)) {
+      scanner.setRange(new Range(row(250), row(449)));
+      assertEquals(expected.subList(250, 450), readAll(scanner));
+    }
+  }
+
+  @Test
+  public void testManyScansOnFewThreads() throws Exception {
+    AccumuloClient c = getAccumuloClient();
+    String table = createTable(c);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<AsyncScanner> scanners = new ArrayList<>();
+      List<CompletableFuture<List<Entry<Key,Value>>>> firstBatches = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        AsyncScanner scanner = c.createAsyncScanner(table, Authorizations.EMPTY, executor);
+        scanner.setRange(new Range(row(i * 10), row(i * 10 + 9)));
+        scanners.add(scanner);
+        firstBatches.add(scanner.nextBatch());
+      }
+
+      for (int i = 0; i < scanners.size(); i++) {
+        List<Entry<Key,Value>> batch = firstBatches.get(i).get();
+        assertEquals(10, batch.size());
+        assertEquals(row(i * 10), batch.get(0).getKey().getRow().toString());
+        assertTrue(scanners.get(i).nextBatch().get().isEmpty());
+        scanners.get(i).close();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.functional;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.metadata.MetadataTable;
+import org.apache.accumulo.core.metadata.schema.MetadataSchema;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.minicluster.impl.MiniAccumuloConfigImpl;
+import org.apache.accumulo.tserver.ExternalCompactor;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * Runs major compactions in a compactor process started next to the mini cluster.
+ */
+public class ExternalCompactionIT extends ConfigurableMacBase {
+
+  @Override
+  public int defaultTimeoutSeconds() {
+    return 3 * 60;
+  }
+
+  @Override
+  public void configure(MiniAccumuloConfigImpl cfg, Configuration hadoopCoreSite) {
+    Map<String,String> siteConfig = new HashMap<>();
+    siteConfig.put(Property.TSERV_MAJC_DELAY.getKey(), "1s");
+    // the tablet servers never compact themselves, unless a test lowers this
+    siteConfig.put(Property.TSERV_MAJC_EXTERNAL_START_TIMEOUT.getKey(), "1h");
+    cfg.setSiteConfig(siteConfig);
+  }
+
+  private void writeFiles(AccumuloClient c, String tableName, int files) throws Exception {
+    for (int i = 0; i < files; i++) {
+      try (BatchWriter bw = c.createBatchWriter(tableName, new BatchWriterConfig())) {
+        for (int j = 0; j < 100; j++) {
+          Mutation m = new Mutation(String.format("r%03d", j));
+          m.put("cf", "cq" + i, "v" + i);
+          bw.addMutation(m);
+        }
+      }
+      c.tableOperations().flush(tableName, null, null, true);
+    }
+  }
+
+  private int countEntries(AccumuloClient c, String tableName) throws Exception {
+    try (Scanner s = c.createScanner(tableName, Authorizations.EMPTY)) {
+      return Iterators.size(s.iterator());
+    }
+  }
+
+  private int countFiles(AccumuloClient c, String tableName) throws Exception {
+    Table.ID id = Table.ID.of(c.tableOperations().tableIdMap().get(tableName));
+    try (Scanner s = c.createScanner(MetadataTable.NAME, Authorizations.EMPTY)) {
+      s.setRange(new KeyExtent(id, null, null).toMetadataRange());
+      s.fetchColumnFamily(MetadataSchema.TabletsSection.DataFileColumnFamily.NAME);
+      return Iterators.size(s.iterator());
+    }
+  }
+
+  @Test
+  public void testCompactor() throws Exception {
+    final AccumuloClient c = getClient();
+    final String tableName = getUniqueNames(1)[0];
+    c.tableOperations().create(tableName);
+    c.tableOperations().setProperty(tableName, Property.TABLE_MAJC_EXTERNAL.getKey(), "true");
+    writeFiles(c, tableName, 3);
+    assertEquals(3, countFiles(c, tableName));
+
+    Process compactor = cluster.exec(ExternalCompactor.class);
+    try {
+      // only returns once the compactor ran the compaction
+      c.tableOperations().compact(tableName, null, null, true, true);
+      assertEquals(1, countFiles(c, tableName));
+      assertEquals(300, countEntries(c, tableName));
+    } finally {
+      compactor.destroy();
+    }
+  }
+
+  @Test
+  public void testWithoutCompactor() throws Exception {
+    final AccumuloClient c = getClient();
+    final String tableName = getUniqueNames(1)[0];
+    c.tableOperations().create(tableName);
+    c.tableOperations().setProperty(tableName, Property.TABLE_MAJC_EXTERNAL.getKey(), "true");
+    c.instanceOperations().setProperty(Property.TSERV_MAJC_EXTERNAL_START_TIMEOUT.getKey(),
+        "1s");
+    writeFiles(c, tableName, 3);
+
+    // nobody takes the compaction, so the tablet server runs it
+    c.tableOperations().compact(tableName, null, null, true, true);
+    assertEquals(1, countFiles(c, tableName));
+    assertEquals(300, countEntries(c, tableName));
+  }
+}
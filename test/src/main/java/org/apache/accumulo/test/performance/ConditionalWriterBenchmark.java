@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.cli.ClientOnDefaultTable;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures the throughput of compare-and-set updates through the {@link ConditionalWriter} with an
+ * increasing number of client threads. Each thread increments counters in its own rows, so no
+ * update is rejected and the throughput shows how well the tablet servers scale conditional
+ * updates of different rows, which all take row locks.
+ *
+ * <p>
+ * Every update sets a counter to its next value on the condition that it still has the value the
+ * thread last wrote, or is absent the first time. Each run of a thread count uses new rows.
+ */
+public class ConditionalWriterBenchmark {
+
+  static class Opts {
+    @Parameter(names = "--threads", description = "comma separated numbers of threads to run")
+    String threads = "1,2,4,8,16";
+    @Parameter(names = "--rows", description = "rows updated by each thread")
+    int rows = 1000;
+    @Parameter(names = "--updates", description = "updates of each row by each thread")
+    int updates = 20;
+    @Parameter(names = "--batch", description = "conditional mutations written at once")
+    int batch = 100;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    ClientOnDefaultTable clientOpts = new ClientOnDefaultTable("cwbench");
+    clientOpts.parseArgs(ConditionalWriterBenchmark.class.getName(), args, opts);
+
+    AccumuloClient client = clientOpts.getClient();
+    String table = clientOpts.getTableName();
+    if (!client.tableOperations().exists(table)) {
+      client.tableOperations().create(table);
+    }
+
+    for (String t : opts.threads.split(",")) {
+      int numThreads = Integer.parseInt(t.trim());
+      ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+      try {
+        List<Future<long[]>> futures = new ArrayList<>();
+        long t1 = System.nanoTime();
+        for (int i = 0; i < numThreads; i++) {
+          String prefix = String.format("%03d_%03d_", numThreads, i);
+          futures.add(pool.submit(() -> runThread(client, table, prefix, opts)));
+        }
+
+        long accepted = 0;
+        long other = 0;
+        for (Future<long[]> future : futures) {
+          long[] counts = future.get();
+          accepted += counts[0];
+          other += counts[1];
+        }
+        long t2 = System.nanoTime();
+
+        double secs = (t2 - t1) / 1e9;
+        System.out.printf("threads: %3d  updates: %,10d  not accepted: %,6d  %,10.1f updates/sec%n",
+            numThreads, accepted + other, other, accepted / secs);
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * @return the number of accepted updates and the number of all other results
+   */
+  private static long[] runThread(AccumuloClient client, String table, String prefix, Opts opts)
+      throws Exception {
+    int[] values = new int[opts.rows];
+    long accepted = 0;
+    long other = 0;
+
+    try (ConditionalWriter cw = client.createConditionalWriter(table,
+        new ConditionalWriterConfig())) {
+      for (int u = 0; u < opts.updates; u++) {
+        for (int start = 0; start < opts.rows; start += opts.batch) {
+          int end = Math.min(opts.rows, start + opts.batch);
+
+          List<ConditionalMutation> mutations = new ArrayList<>(end - start);
+          for (int r = start; r < end; r++) {
+            Condition condition = new Condition("cf", "count");
+            if (values[r] > 0) {
+              condition.setValue(Integer.toString(values[r]));
+            }
+            ConditionalMutation cm = new ConditionalMutation(String.format("%s%06d", prefix, r),
+                condition);
+            cm.put("cf", "count", Integer.toString(values[r] + 1));
+            mutations.add(cm);
+          }
+
+          Iterator<Result> results = cw.write(mutations.iterator());
+          while (results.hasNext()) {
+            Result result = results.next();
+            if (result.getStatus() == Status.ACCEPTED) {
+              String row = new String(result.getMutation().getRow(), UTF_8);
+              values[Integer.parseInt(row.substring(prefix.length()))]++;
+              accepted++;
+            } else {
+              other++;
+            }
+          }
+        }
+      }
+    }
+
+    return new long[] {accepted, other};
+  }
+}
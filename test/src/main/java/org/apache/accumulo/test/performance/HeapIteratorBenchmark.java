@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.util.Stat;
+
+/**
+ * Measures how many entries per second {@link MultiIterator} can merge from 2, 10 and 50 in memory
+ * sources, and compares it to a merge that uses a {@link PriorityQueue}.
+ *
+ * <p>
+ * Two key distributions are measured. With interleaved keys each source holds every n-th key, so
+ * the top source changes on every call to next. With runs each source holds blocks of consecutive
+ * keys, which is closer to a tablet where most new data was appended to a few files.
+ */
+public class HeapIteratorBenchmark {
+
+  private static final int NUM_ENTRIES = 1_000_000;
+  private static final int RUN_LENGTH = 100;
+  private static final List<ByteSequence> EMPTY_COL_FAMS = Collections.emptyList();
+
+  public static void main(String[] args) throws Exception {
+    for (boolean runs : new boolean[] {false, true}) {
+      for (int numSources : new int[] {2, 10, 50}) {
+        List<TreeMap<Key,Value>> data = createData(numSources, runs);
+
+        Stat loserTree = new Stat();
+        Stat priorityQueue = new Stat();
+        for (int i = 0; i < 8; i++) {
+          long t1 = System.nanoTime();
+          long c1 = scan(new MultiIterator(sources(data), false));
+          long t2 = System.nanoTime();
+          long c2 = scanPriorityQueue(sources(data));
+          long t3 = System.nanoTime();
+
+          if (c1 != NUM_ENTRIES || c2 != NUM_ENTRIES) {
+            throw new IllegalStateException("Unexpected counts " + c1 + " " + c2);
+          }
+
+          // discard the first runs while the JIT warms up
+          if (i > 2) {
+            loserTree.addStat(t2 - t1);
+            priorityQueue.addStat(t3 - t2);
+          }
+        }
+
+        System.out.printf("%-12s sources: %2d  MultiIterator: %,12.0f entries/sec"
+            + "  PriorityQueue: %,12.0f entries/sec%n", runs ? "runs" : "interleaved",
+            numSources, NUM_ENTRIES / (loserTree.mean() / 1e9),
+            NUM_ENTRIES / (priorityQueue.mean() / 1e9));
+      }
+    }
+  }
+
+  private static List<TreeMap<Key,Value>> createData(int numSources, boolean runs) {
+    List<TreeMap<Key,Value>> data = new ArrayList<>();
+    for (int i = 0; i < numSources; i++) {
+      data.add(new TreeMap<>());
+    }
+
+    Random random = new Random(42);
+    Value value = new Value(new byte[16]);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      int source = runs ? (i / RUN_LENGTH) % numSources : i % numSources;
+      if (runs && random.nextInt(RUN_LENGTH) == 0) {
+        // occasionally interrupt a run
+        source = random.nextInt(numSources);
+      }
+      Key key = new Key(String.format("r%09d", i), "cf", "cq");
+      data.get(source).put(key, value);
+    }
+    return data;
+  }
+
+  private static List<SortedKeyValueIterator<Key,Value>> sources(List<TreeMap<Key,Value>> data) {
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+    for (TreeMap<Key,Value> tm : data) {
+      sources.add(new SortedMapIterator(tm));
+    }
+    return sources;
+  }
+
+  private static long scan(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    long count = 0;
+    iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    while (iter.hasTop()) {
+      count++;
+      iter.next();
+    }
+    return count;
+  }
+
+  /**
+   * A plain binary heap merge, kept here as a point of comparison.
+   */
+  private static long scanPriorityQueue(List<SortedKeyValueIterator<Key,Value>> sources)
+      throws IOException {
+    PriorityQueue<SortedKeyValueIterator<Key,Value>> heap = new PriorityQueue<>(sources.size(),
+        (si1, si2) -> si1.getTopKey().compareTo(si2.getTopKey()));
+    for (SortedKeyValueIterator<Key,Value> source : sources) {
+      source.seek(new Range(), EMPTY_COL_FAMS, false);
+      if (source.hasTop()) {
+        heap.add(source);
+      }
+    }
+
+    long count = 0;
+    while (!heap.isEmpty()) {
+      SortedKeyValueIterator<Key,Value> top = heap.remove();
+      count++;
+      top.next();
+      if (top.hasTop()) {
+        heap.add(top);
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.security.crypto.CryptoUtils;
+import org.apache.accumulo.core.security.crypto.impl.CryptoEnvironmentImpl;
+import org.apache.accumulo.core.security.crypto.impl.CryptoEnvironmentImpl.Scope;
+import org.apache.accumulo.core.security.crypto.impl.NoCryptoService;
+import org.apache.accumulo.core.util.Stat;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.server.log.SortedLogState;
+import org.apache.accumulo.tserver.log.DfsLogger;
+import org.apache.accumulo.tserver.log.LogSorter;
+import org.apache.accumulo.tserver.log.RecoveryLogReader;
+import org.apache.accumulo.tserver.logger.LogEvents;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Measures how long it takes to recover a single write-ahead log with different values of
+ * {@link Property#TSERV_SORT_THREADS}. The time is split into sorting the log into chunks and
+ * merging the chunks back into a single stream, which is what tablet recovery reads.
+ *
+ * <p>
+ * The log is written to the local file system with the same layout that {@link DfsLogger} uses,
+ * with mutations for many tablets interleaved as they would be on a busy tablet server.
+ */
+public class LogSortBenchmark {
+
+  private static final int NUM_TABLETS = 100;
+  private static final int NUM_MUTATIONS = 1_000_000;
+  private static final String SORT_BUFFER_SIZE = "32M";
+
+  public static void main(String[] args) throws Exception {
+    File dir = Files.createTempDirectory("log-sort-benchmark").toFile();
+    try {
+      VolumeManager fs = VolumeManagerImpl.getLocal(dir.getAbsolutePath());
+      Path wal = new Path("file://" + dir.getAbsolutePath() + "/wal");
+      long size = writeLog(fs, wal);
+      System.out.printf("log size : %,d bytes%n", size);
+
+      for (int sortThreads : new int[] {1, 2, 4, 8}) {
+        ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+        conf.set(Property.TSERV_SORT_BUFFER_SIZE, SORT_BUFFER_SIZE);
+        conf.set(Property.TSERV_SORT_THREADS, Integer.toString(sortThreads));
+        LogSorter sorter = new LogSorter(null, fs, conf);
+
+        Stat sortStat = new Stat();
+        Stat mergeStat = new Stat();
+        for (int run = 0; run < 5; run++) {
+          String dest = "file://" + dir.getAbsolutePath() + "/sorted";
+          long t1 = System.nanoTime();
+          sorter.sort("wal", wal, dest);
+          long t2 = System.nanoTime();
+          long count = merge(fs, new Path(dest));
+          long t3 = System.nanoTime();
+
+          // every mutation plus one tablet definition per tablet and the open event
+          if (count != NUM_MUTATIONS + NUM_TABLETS + 1) {
+            throw new IllegalStateException("Unexpected count " + count);
+          }
+
+          // discard the first run while the JIT warms up
+          if (run > 0) {
+            sortStat.addStat(t2 - t1);
+            mergeStat.addStat(t3 - t2);
+          }
+        }
+
+        System.out.printf("sort threads: %d  sort: %,8.1f ms  merge: %,8.1f ms%n", sortThreads,
+            sortStat.mean() / 1e6, mergeStat.mean() / 1e6);
+      }
+    } finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+
+  private static long writeLog(VolumeManager fs, Path wal) throws Exception {
+    Random random = new Random(42);
+    try (DataOutputStream out = fs.create(wal)) {
+      out.write(DfsLogger.LOG_FILE_HEADER_V4.getBytes(UTF_8));
+      CryptoUtils.writeParams(new NoCryptoService()
+          .getFileEncrypter(new CryptoEnvironmentImpl(Scope.WAL, null)).getDecryptionParameters(),
+          out);
+
+      LogFileKey key = new LogFileKey();
+      key.event = LogEvents.OPEN;
+      key.tserverSession = "benchmark";
+      key.write(out);
+      new LogFileValue().write(out);
+
+      long seq = 0;
+      for (int i = 0; i < NUM_TABLETS; i++) {
+        key = new LogFileKey();
+        key.event = LogEvents.DEFINE_TABLET;
+        key.seq = seq++;
+        key.tabletId = i;
+        key.tablet = new KeyExtent(Table.ID.of("1"), new Text(String.format("%04d", i + 1)),
+            i == 0 ? null : new Text(String.format("%04d", i)));
+        key.write(out);
+        new LogFileValue().write(out);
+      }
+
+      byte[] data = new byte[64];
+      for (int i = 0; i < NUM_MUTATIONS; i++) {
+        key = new LogFileKey();
+        key.event = LogEvents.MUTATION;
+        key.seq = seq++;
+        key.tabletId = random.nextInt(NUM_TABLETS);
+
+        Mutation m = new Mutation(String.format("row_%09d", random.nextInt(NUM_MUTATIONS)));
+        random.nextBytes(data);
+        m.put("cf", "cq", new Value(data));
+
+        LogFileValue value = new LogFileValue();
+        value.mutations = Collections.singletonList(m);
+        key.write(out);
+        value.write(out);
+      }
+    }
+    return fs.getFileStatus(wal).getLen();
+  }
+
+  private static long merge(VolumeManager fs, Path sorted) throws Exception {
+    if (!fs.exists(SortedLogState.getFinishedMarkerPath(sorted))) {
+      throw new IllegalStateException("Sort of " + sorted + " failed");
+    }
+    long count = 0;
+    try (RecoveryLogReader reader = new RecoveryLogReader(fs, sorted)) {
+      while (reader.hasNext()) {
+        Entry<LogFileKey,LogFileValue> entry = reader.next();
+        if (entry.getKey() != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+}
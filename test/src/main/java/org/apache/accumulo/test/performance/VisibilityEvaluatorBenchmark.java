@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator;
+import org.apache.accumulo.core.security.CompiledVisibilityEvaluator.Program;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.util.Stat;
+
+/**
+ * Compares the time it takes to evaluate visibility expressions by walking the parse tree with a
+ * {@link VisibilityEvaluator} against evaluating programs compiled by
+ * {@link CompiledVisibilityEvaluator}.
+ *
+ * <p>
+ * The expressions are modeled on typical labels: a few hundred distinct terms combined into
+ * expressions such as {@code (A&B)|(C&D&E)} or {@code A&(B|C|D)}. Parsing is excluded from both
+ * timings, each side evaluates already parsed expressions.
+ */
+public class VisibilityEvaluatorBenchmark {
+
+  private static final int NUM_TERMS = 300;
+  private static final int NUM_EXPRESSIONS = 500;
+  private static final int ITERATIONS = 2000;
+
+  public static void main(String[] args) throws Exception {
+    Random random = new Random(42);
+
+    List<String> terms = new ArrayList<>();
+    for (int i = 0; i < NUM_TERMS; i++) {
+      terms.add(String.format("LABEL_%03d", i));
+    }
+
+    List<String> held = new ArrayList<>();
+    for (String term : terms) {
+      if (random.nextInt(3) == 0) {
+        held.add(term);
+      }
+    }
+    Authorizations auths = new Authorizations(held.toArray(new String[0]));
+
+    List<ColumnVisibility> visibilities = new ArrayList<>();
+    List<Program> programs = new ArrayList<>();
+    for (int i = 0; i < NUM_EXPRESSIONS; i++) {
+      ColumnVisibility cv = new ColumnVisibility(expression(random, terms));
+      visibilities.add(cv);
+      programs.add(CompiledVisibilityEvaluator.compile(cv));
+    }
+
+    VisibilityEvaluator treeWalker = new VisibilityEvaluator(auths);
+    CompiledVisibilityEvaluator compiled = new CompiledVisibilityEvaluator(auths);
+
+    TreeMap<String,Stat> stats = new TreeMap<>();
+    for (int run = 0; run < 10; run++) {
+      // discard the first runs while the JIT warms up
+      boolean record = run > 2;
+
+      long t1 = System.nanoTime();
+      int treeCount = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        for (ColumnVisibility cv : visibilities) {
+          if (treeWalker.evaluate(cv))
+            treeCount++;
+        }
+      }
+      long t2 = System.nanoTime();
+      int compiledCount = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        for (Program program : programs) {
+          if (compiled.evaluate(program))
+            compiledCount++;
+        }
+      }
+      long t3 = System.nanoTime();
+
+      if (treeCount != compiledCount) {
+        throw new IllegalStateException(
+            "Evaluators disagree : " + treeCount + " != " + compiledCount);
+      }
+
+      if (record) {
+        addStat(stats, "tree walker", t2 - t1);
+        addStat(stats, "compiled", t3 - t2);
+      }
+    }
+
+    long evaluations = (long) ITERATIONS * NUM_EXPRESSIONS;
+    for (Entry<String,Stat> entry : stats.entrySet()) {
+      System.out.printf("%20s : %6.2f ns/evaluation%n", entry.getKey(),
+          entry.getValue().mean() / evaluations);
+    }
+  }
+
+  private static void addStat(TreeMap<String,Stat> stats, String name, long time) {
+    Stat stat = stats.get(name);
+    if (stat == null) {
+      stat = new Stat();
+      stats.put(name, stat);
+    }
+    stat.addStat(time);
+  }
+
+  private static String expression(Random random, List<String> terms) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return term(random, terms);
+      case 1:
+        return join(random, terms, "&", 2 + random.nextInt(3));
+      case 2:
+        return "(" + join(random, terms, "&", 2) + ")|(" + join(random, terms, "&", 3) + ")";
+      default:
+        return term(random, terms) + "&(" + join(random, terms, "|", 3) + ")";
+    }
+  }
+
+  private static String join(Random random, List<String> terms, String op, int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(op);
+      }
+      sb.append(term(random, terms));
+    }
+    return sb.toString();
+  }
+
+  private static String term(Random random, List<String> terms) {
+    return terms.get(random.nextInt(terms.size()));
+  }
+}